@@ -0,0 +1,75 @@
+package io.eventuate.examples.realguardio.customerservice.customermanagement.domain;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.eventuate.examples.realguardio.customerservice.organizationmanagement.service.MemberService;
+import io.eventuate.examples.realguardio.customerservice.organizationmanagement.service.OrganizationService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Resolves the email address of the current user to their member ID and to their customer employee ID in each customer,
+ * so that authorization queries use numeric keys instead of joining on the email address.
+ * Both mappings are cached lazily, and {@link CustomerService#createCustomerEmployee} evicts the member's customer employees.
+ * A customer employee's company roles are the role names that {@link OrganizationService} caches for their member.
+ */
+@Component
+public class CustomerEmployeeIdentities {
+
+    private final MemberService memberService;
+    private final OrganizationService organizationService;
+    private final CustomerEmployeeRepository customerEmployeeRepository;
+
+    // Member ID to its customer employee ID in each customer
+    private final Cache<Long, Map<Long, Long>> customerEmployeeIdsByMemberId;
+
+    public CustomerEmployeeIdentities(MemberService memberService,
+                                      OrganizationService organizationService,
+                                      CustomerEmployeeRepository customerEmployeeRepository,
+                                      @Value("${identity-cache.maximum-size:100000}") long maximumSize,
+                                      @Value("${identity-cache.time-to-live:PT10M}") Duration timeToLive) {
+        this.memberService = memberService;
+        this.organizationService = organizationService;
+        this.customerEmployeeRepository = customerEmployeeRepository;
+        this.customerEmployeeIdsByMemberId = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(timeToLive)
+            .build();
+    }
+
+    public Optional<Long> findMemberId(String email) {
+        return memberService.findMemberIdByEmail(email);
+    }
+
+    /**
+     * @return the customer employee ID of the member in each customer that they belong to
+     */
+    public Map<Long, Long> findCustomerEmployeeIds(Long memberId) {
+        return customerEmployeeIdsByMemberId.get(memberId, id -> customerEmployeeRepository.findByMemberId(id).stream()
+            .collect(Collectors.toUnmodifiableMap(CustomerEmployee::getCustomerId, CustomerEmployee::getId)));
+    }
+
+    public Optional<Long> findCustomerEmployeeId(String email, Long customerId) {
+        return findMemberId(email).map(memberId -> findCustomerEmployeeIds(memberId).get(customerId));
+    }
+
+    /**
+     * @return the company roles of the user in the customer, or no roles if they aren't one of its employees
+     */
+    public Set<String> findCompanyRoles(String email, Long customerId) {
+        return findMemberId(email)
+            .filter(memberId -> findCustomerEmployeeIds(memberId).containsKey(customerId))
+            .map(organizationService::findRoleNamesByMemberId)
+            .orElse(Set.of());
+    }
+
+    public void customerEmployeeCreated(Long memberId) {
+        customerEmployeeIdsByMemberId.invalidate(memberId);
+    }
+}
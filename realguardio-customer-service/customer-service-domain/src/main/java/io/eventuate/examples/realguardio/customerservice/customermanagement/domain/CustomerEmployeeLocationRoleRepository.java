@@ -29,4 +29,50 @@ public interface CustomerEmployeeLocationRoleRepository extends JpaRepository<Cu
         """)
     List<String> findRoleNamesByUserNameAndLocationId(@Param("userName") String userName,
                                                       @Param("locationId") Long locationId);
+
+    /**
+     * Find all of a member's roles at a location, both direct and via team membership, in one statement.
+     *
+     * @param memberId the ID of the member
+     * @param locationId the ID of the location
+     * @return the distinct role names
+     */
+    @Query(value = """
+        SELECT celr.role_name
+        FROM customer_employee_location_roles celr
+        JOIN customer_employees ce ON celr.customer_employee_id = ce.id
+        WHERE ce.member_id = :memberId
+        AND celr.location_id = :locationId
+        UNION
+        SELECT tlr.role_name
+        FROM team_location_roles tlr
+        JOIN team_members tm ON tm.team_id = tlr.team_id
+        JOIN customer_employees tce ON tce.id = tm.customer_employee_id
+        WHERE tce.member_id = :memberId
+        AND tlr.location_id = :locationId
+        """, nativeQuery = true)
+    List<String> findRoleNamesByMemberIdAndLocationId(@Param("memberId") Long memberId,
+                                                      @Param("locationId") Long locationId);
+
+    /**
+     * Find all of a member's roles at every location, both direct and via team membership, in one query.
+     *
+     * @param memberId the ID of the member
+     * @return the distinct (locationId, roleName) pairs
+     */
+    @Query("""
+        SELECT celr.locationId AS locationId, celr.roleName AS roleName
+        FROM CustomerEmployeeLocationRole celr
+        JOIN CustomerEmployee ce ON celr.customerEmployeeId = ce.id
+        JOIN Location l ON celr.locationId = l.id
+        WHERE ce.memberId = :memberId
+        UNION
+        SELECT tlr.locationId AS locationId, tlr.roleName AS roleName
+        FROM TeamLocationRole tlr
+        JOIN tlr.team t
+        JOIN t.memberIds tm
+        JOIN CustomerEmployee tce ON tce.id = tm
+        WHERE tce.memberId = :memberId
+        """)
+    List<LocationRoleAssignment> findLocationRolesByMemberId(@Param("memberId") Long memberId);
 }
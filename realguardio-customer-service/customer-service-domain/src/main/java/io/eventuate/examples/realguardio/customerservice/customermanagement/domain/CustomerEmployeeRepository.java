@@ -1,10 +1,12 @@
 package io.eventuate.examples.realguardio.customerservice.customermanagement.domain;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -13,6 +15,8 @@ public interface CustomerEmployeeRepository extends JpaRepository<CustomerEmploy
 
     Optional<CustomerEmployee> findByMemberIdAndCustomerId(Long memberId, Long customerId);
 
+    List<CustomerEmployee> findByMemberId(Long memberId);
+
     /**
      * Find all role names for an employee within a specific customer.
      * Verifies that the employee is actually associated with the customer.
@@ -30,4 +34,13 @@ public interface CustomerEmployeeRepository extends JpaRepository<CustomerEmploy
         """)
     Set<String> findRolesInCustomer(@Param("customerId") Long customerId,
                                     @Param("employeeUserId") String employeeUserId);
+
+    @Query("""
+        SELECT new io.eventuate.examples.realguardio.customerservice.customermanagement.domain.CustomerEmployeeSummary(
+          ce.id, ce.customerId, ce.memberId, m.name.firstName, m.name.lastName, m.emailAddress.email)
+        FROM CustomerEmployee ce, Member m
+        WHERE m.id = ce.memberId AND ce.customerId = :customerId AND ce.id > :afterId
+        ORDER BY ce.id
+        """)
+    List<CustomerEmployeeSummary> findSummariesByCustomerId(@Param("customerId") Long customerId, @Param("afterId") long afterId, Limit limit);
 }
@@ -0,0 +1,4 @@
+package io.eventuate.examples.realguardio.customerservice.customermanagement.domain;
+
+public record CustomerEmployeeSummary(Long id, Long customerId, Long memberId, String firstName, String lastName, String email) {
+}
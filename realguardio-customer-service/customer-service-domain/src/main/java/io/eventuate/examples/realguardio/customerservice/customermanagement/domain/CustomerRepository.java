@@ -1,8 +1,21 @@
 package io.eventuate.examples.realguardio.customerservice.customermanagement.domain;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface CustomerRepository extends JpaRepository<Customer, Long>, CustomerRepositoryCustom {
+
+    @Query("""
+        SELECT new io.eventuate.examples.realguardio.customerservice.customermanagement.domain.CustomerSummary(c.id, c.name, c.organizationId)
+        FROM Customer c
+        WHERE c.id > :afterId
+        ORDER BY c.id
+        """)
+    List<CustomerSummary> findSummaries(@Param("afterId") long afterId, Limit limit);
 }
\ No newline at end of file
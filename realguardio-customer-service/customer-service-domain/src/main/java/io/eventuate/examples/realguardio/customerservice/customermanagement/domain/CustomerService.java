@@ -1,6 +1,5 @@
 package io.eventuate.examples.realguardio.customerservice.customermanagement.domain;
 
-import io.eventuate.examples.realguardio.customerservice.commondomain.EmailAddress;
 import io.eventuate.examples.realguardio.customerservice.commondomain.PersonDetails;
 import io.eventuate.examples.realguardio.customerservice.domain.CustomerEmployeeAssignedLocationRole;
 import io.eventuate.examples.realguardio.customerservice.organizationmanagement.domain.Member;
@@ -11,6 +10,7 @@ import io.eventuate.examples.realguardio.customerservice.organizationmanagement.
 import io.eventuate.examples.realguardio.customerservice.organizationmanagement.service.OrganizationService;
 import io.eventuate.examples.realguardio.customerservice.security.UserNameSupplier;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -35,6 +35,8 @@ public class CustomerService {
     private final UserNameSupplier userNameSupplier;
     private final CustomerEventPublisher customerEventPublisher;
     private final CustomerActionAuthorizer customerActionAuthorizer;
+    private final EmployeeLocationRolesCache employeeLocationRolesCache;
+    private final CustomerEmployeeIdentities customerEmployeeIdentities;
 
     @Autowired
     public CustomerService(CustomerRepository customerRepository,
@@ -46,7 +48,9 @@ public class CustomerService {
                           OrganizationService organizationService,
                           MemberService memberService,
                           UserNameSupplier userNameSupplier,
-                          CustomerEventPublisher customerEventPublisher, CustomerActionAuthorizer customerActionAuthorizer) {
+                          CustomerEventPublisher customerEventPublisher, CustomerActionAuthorizer customerActionAuthorizer,
+                          EmployeeLocationRolesCache employeeLocationRolesCache,
+                          CustomerEmployeeIdentities customerEmployeeIdentities) {
         this.customerRepository = customerRepository;
         this.customerEmployeeRepository = customerEmployeeRepository;
         this.locationRepository = locationRepository;
@@ -58,6 +62,8 @@ public class CustomerService {
         this.userNameSupplier = userNameSupplier;
         this.customerEventPublisher = customerEventPublisher;
         this.customerActionAuthorizer = customerActionAuthorizer;
+        this.employeeLocationRolesCache = employeeLocationRolesCache;
+        this.customerEmployeeIdentities = customerEmployeeIdentities;
     }
 
     /**
@@ -85,7 +91,9 @@ public class CustomerService {
     private CustomerEmployee createCustomerEmployeeInternal(Long customerId, PersonDetails personDetails) {
         Member member = memberService.createMember(personDetails);
         CustomerEmployee customerEmployee = new CustomerEmployee(customerId, member.getId());
-        return customerEmployeeRepository.save(customerEmployee);
+        CustomerEmployee savedCustomerEmployee = customerEmployeeRepository.save(customerEmployee);
+        customerEmployeeIdentities.customerEmployeeCreated(member.getId());
+        return savedCustomerEmployee;
     }
 
     /**
@@ -104,17 +112,17 @@ public class CustomerService {
         return createCustomerEmployeeInternal(customerId, personDetails);
     }
 
-    private Member requireCustomerAdminRole(Long customerId) {
+    private Long requireCustomerAdminRole(Long customerId) {
         String currentUserEmail = userNameSupplier.getCurrentUserEmail();
-        Member currentMember = memberService.findMemberByEmail(new EmailAddress(currentUserEmail))
+        Long currentMemberId = customerEmployeeIdentities.findMemberId(currentUserEmail)
                 .orElseThrow(() -> new IllegalArgumentException("Current user member not found: %s".formatted(currentUserEmail)));
 
-        Set<String> currentUserRoles = customerEmployeeRepository.findRolesInCustomer(customerId, currentUserEmail);
+        Set<String> currentUserRoles = customerEmployeeIdentities.findCompanyRoles(currentUserEmail, customerId);
 
         if (!currentUserRoles.contains(RolesAndPermissions.COMPANY_ROLE_ADMIN)) {
             throw new NotAuthorizedException("Only company admins can create new employees");
         }
-        return currentMember;
+        return currentMemberId;
     }
 
     /**
@@ -219,6 +227,8 @@ public class CustomerService {
 
         CustomerEmployeeLocationRole role = new CustomerEmployeeLocationRole(customerId, customerEmployeeId, locationId, roleName);
         CustomerEmployeeLocationRole savedRole = customerEmployeeLocationRoleRepository.save(role);
+
+        employeeLocationRolesCache.evict(customerEmployee.getMemberId(), locationId);
         
         // Get the member's email address to use as userName
         Member member = memberService.findMemberById(customerEmployee.getMemberId());
@@ -271,6 +281,9 @@ public class CustomerService {
         customerEmployeeRepository.save(customerEmployee);
         Team savedTeam = teamRepository.save(team);
 
+        // The team's roles can be at any location
+        employeeLocationRolesCache.evictMember(customerEmployee.getMemberId());
+
         // Publish event using type-safe publisher
         Customer customer = customerRepository.findRequiredById(team.getCustomerId());
         customerEventPublisher.publish(customer,
@@ -301,6 +314,8 @@ public class CustomerService {
     
     /**
      * Get location-specific roles for a customer employee.
+     * Only direct assignments are returned, so this doesn't use {@link EmployeeLocationRolesCache},
+     * whose entries also include team roles; authorization checks go through {@link LocationRoleService} instead.
      *
      * @param userName email address
      * @param locationId the ID of the location
@@ -354,6 +369,9 @@ public class CustomerService {
         team.addRole(role);
         TeamLocationRole savedRole = teamLocationRoleRepository.save(role);
 
+        // Every member of the team might now have the role at the location
+        employeeLocationRolesCache.evictLocation(locationId);
+
         Customer customer = customerRepository.findRequiredById(team.getCustomerId());
         customerEventPublisher.publish(customer,
             new TeamAssignedLocationRole(teamId, locationId, roleName)
@@ -365,4 +383,68 @@ public class CustomerService {
     public List<Customer> findAll() {
         return customerRepository.findAll();
     }
+
+    /**
+     * Find a page of customers, ordered by ID, without loading the entities.
+     *
+     * @param afterId the ID of the last customer of the previous page, or null for the first page
+     * @param pageSize the maximum number of customers to return
+     * @return the customers and the cursor of the next page
+     */
+    @PreAuthorize("hasRole('REALGUARDIO_ADMIN')")
+    @Transactional(readOnly = true)
+    public DirectoryPage<CustomerSummary> findCustomerSummaries(Long afterId, int pageSize) {
+        return DirectoryPage.of(customerRepository.findSummaries(cursor(afterId), Limit.of(pageSize + 1)),
+            pageSize, CustomerSummary::id);
+    }
+
+    /**
+     * Find a page of a customer's locations, ordered by ID, without loading the entities.
+     *
+     * @param customerId the ID of the customer
+     * @param afterId the ID of the last location of the previous page, or null for the first page
+     * @param pageSize the maximum number of locations to return
+     * @return the locations and the cursor of the next page
+     */
+    @PreAuthorize("hasRole('REALGUARDIO_ADMIN')")
+    @Transactional(readOnly = true)
+    public DirectoryPage<LocationSummary> findLocationSummaries(Long customerId, Long afterId, int pageSize) {
+        return DirectoryPage.of(locationRepository.findSummariesByCustomerId(customerId, cursor(afterId), Limit.of(pageSize + 1)),
+            pageSize, LocationSummary::id);
+    }
+
+    /**
+     * Find a page of a customer's employees, ordered by ID, with their names and email addresses
+     * fetched by the same query.
+     *
+     * @param customerId the ID of the customer
+     * @param afterId the ID of the last customer employee of the previous page, or null for the first page
+     * @param pageSize the maximum number of customer employees to return
+     * @return the customer employees and the cursor of the next page
+     */
+    @PreAuthorize("hasRole('REALGUARDIO_ADMIN')")
+    @Transactional(readOnly = true)
+    public DirectoryPage<CustomerEmployeeSummary> findCustomerEmployeeSummaries(Long customerId, Long afterId, int pageSize) {
+        return DirectoryPage.of(customerEmployeeRepository.findSummariesByCustomerId(customerId, cursor(afterId), Limit.of(pageSize + 1)),
+            pageSize, CustomerEmployeeSummary::id);
+    }
+
+    /**
+     * Find a page of a customer's teams, ordered by ID, without loading the entities.
+     *
+     * @param customerId the ID of the customer
+     * @param afterId the ID of the last team of the previous page, or null for the first page
+     * @param pageSize the maximum number of teams to return
+     * @return the teams and the cursor of the next page
+     */
+    @PreAuthorize("hasRole('REALGUARDIO_ADMIN')")
+    @Transactional(readOnly = true)
+    public DirectoryPage<TeamSummary> findTeamSummaries(Long customerId, Long afterId, int pageSize) {
+        return DirectoryPage.of(teamRepository.findSummariesByCustomerId(customerId, cursor(afterId), Limit.of(pageSize + 1)),
+            pageSize, TeamSummary::id);
+    }
+
+    private static long cursor(Long afterId) {
+        return afterId == null ? 0L : afterId;
+    }
 }
@@ -0,0 +1,4 @@
+package io.eventuate.examples.realguardio.customerservice.customermanagement.domain;
+
+public record CustomerSummary(Long id, String name, Long organizationId) {
+}
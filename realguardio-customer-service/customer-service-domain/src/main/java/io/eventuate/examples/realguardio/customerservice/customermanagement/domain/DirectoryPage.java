@@ -0,0 +1,22 @@
+package io.eventuate.examples.realguardio.customerservice.customermanagement.domain;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A page of a keyset-paginated listing. {@code nextCursor} is the {@code after} value for the following page,
+ * or null if this is the last page.
+ */
+public record DirectoryPage<T>(List<T> items, Long nextCursor) {
+
+  /**
+   * Builds a page from rows that were fetched with a limit of one more than the page size,
+   * so that the extra row reveals whether there is a following page.
+   */
+  public static <T> DirectoryPage<T> of(List<T> rows, int pageSize, Function<T, Long> id) {
+    if (rows.size() <= pageSize)
+      return new DirectoryPage<>(rows, null);
+    List<T> page = rows.subList(0, pageSize);
+    return new DirectoryPage<>(List.copyOf(page), id.apply(page.get(pageSize - 1)));
+  }
+}
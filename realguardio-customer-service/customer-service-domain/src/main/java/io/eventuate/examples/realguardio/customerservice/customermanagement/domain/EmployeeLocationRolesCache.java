@@ -0,0 +1,62 @@
+package io.eventuate.examples.realguardio.customerservice.customermanagement.domain;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of the roles, direct and via team membership, that a member has at a location.
+ * The writes in {@link CustomerService} that can change them evict the affected entries once their transaction commits,
+ * so a concurrent read can't cache the old roles again. Entries also expire after a TTL.
+ */
+@Component
+public class EmployeeLocationRolesCache {
+
+    private record Key(Long memberId, Long locationId) {
+    }
+
+    private final Cache<Key, Set<String>> cache;
+
+    public EmployeeLocationRolesCache(@Value("${employee-location-roles-cache.maximum-size:10000}") long maximumSize,
+                                      @Value("${employee-location-roles-cache.time-to-live:PT60S}") Duration timeToLive) {
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(timeToLive)
+            .build();
+    }
+
+    public Set<String> getRolesAtLocation(Long memberId, Long locationId, Supplier<Set<String>> loader) {
+        return cache.get(new Key(memberId, locationId), key -> Set.copyOf(loader.get()));
+    }
+
+    public void evict(Long memberId, Long locationId) {
+        evictAfterCommit(() -> cache.invalidate(new Key(memberId, locationId)));
+    }
+
+    public void evictMember(Long memberId) {
+        evictAfterCommit(() -> cache.asMap().keySet().removeIf(key -> key.memberId().equals(memberId)));
+    }
+
+    public void evictLocation(Long locationId) {
+        evictAfterCommit(() -> cache.asMap().keySet().removeIf(key -> key.locationId().equals(locationId)));
+    }
+
+    private void evictAfterCommit(Runnable eviction) {
+        eviction.run();
+        if (TransactionSynchronizationManager.isActualTransactionActive() && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eviction.run();
+                }
+            });
+        }
+    }
+}
@@ -17,11 +17,11 @@ public class LocalCustomerActionAuthorizer implements CustomerActionAuthorizer {
     private static final Logger logger = LoggerFactory.getLogger(LocalCustomerActionAuthorizer.class);
 
     private final UserNameSupplier userNameSupplier;
-    private final CustomerEmployeeRepository customerEmployeeRepository;
+    private final CustomerEmployeeIdentities customerEmployeeIdentities;
 
-    public LocalCustomerActionAuthorizer(UserNameSupplier userNameSupplier, CustomerEmployeeRepository customerEmployeeRepository) {
+    public LocalCustomerActionAuthorizer(UserNameSupplier userNameSupplier, CustomerEmployeeIdentities customerEmployeeIdentities) {
         this.userNameSupplier = userNameSupplier;
-        this.customerEmployeeRepository = customerEmployeeRepository;
+        this.customerEmployeeIdentities = customerEmployeeIdentities;
     }
 
     @Override
@@ -35,7 +35,7 @@ public class LocalCustomerActionAuthorizer implements CustomerActionAuthorizer {
 
     private void verifyCustomerEmployeeHasRequiredRolesInCustomer(Long customerId, Set<String> requiredRoles) {
         String userId = userNameSupplier.getCurrentUserEmail();
-        Set<String> currentUserRolesAtCustomer = customerEmployeeRepository.findRolesInCustomer(customerId, userId);
+        Set<String> currentUserRolesAtCustomer = customerEmployeeIdentities.findCompanyRoles(userId, customerId);
         if (Collections.disjoint(currentUserRolesAtCustomer, requiredRoles)) {
             logger.warn("User {} lacks {} permission for customerId {}. Only has {}", userId, requiredRoles, customerId, currentUserRolesAtCustomer);
             throw new NotAuthorizedException(
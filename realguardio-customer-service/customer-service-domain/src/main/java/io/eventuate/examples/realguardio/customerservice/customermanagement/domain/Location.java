@@ -1,14 +1,20 @@
 package io.eventuate.examples.realguardio.customerservice.customermanagement.domain;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
-@Table(name = "locations")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "customer-service-locations")
+@Table(name = "locations", indexes = @Index(name = "idx_locations_customer_id_id", columnList = "customer_id, id"))
 public class Location {
 
     @Id
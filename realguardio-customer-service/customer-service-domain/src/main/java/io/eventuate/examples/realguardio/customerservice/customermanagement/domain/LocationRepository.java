@@ -1,6 +1,9 @@
 package io.eventuate.examples.realguardio.customerservice.customermanagement.domain;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -10,4 +13,12 @@ import java.util.Optional;
 public interface LocationRepository extends JpaRepository<Location, Long>, LocationRepositoryCustom {
     List<Location> findByCustomerId(Long customerId);
     Optional<Location> findByCustomerIdAndName(Long customerId, String name);
+
+    @Query("""
+        SELECT new io.eventuate.examples.realguardio.customerservice.customermanagement.domain.LocationSummary(l.id, l.name, l.customerId)
+        FROM Location l
+        WHERE l.customerId = :customerId AND l.id > :afterId
+        ORDER BY l.id
+        """)
+    List<LocationSummary> findSummariesByCustomerId(@Param("customerId") Long customerId, @Param("afterId") long afterId, Limit limit);
 }
\ No newline at end of file
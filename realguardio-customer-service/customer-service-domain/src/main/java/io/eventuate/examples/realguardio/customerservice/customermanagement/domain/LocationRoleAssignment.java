@@ -0,0 +1,11 @@
+package io.eventuate.examples.realguardio.customerservice.customermanagement.domain;
+
+/**
+ * A role that a customer employee has at a location, either directly or via a team.
+ */
+public interface LocationRoleAssignment {
+
+    Long getLocationId();
+
+    String getRoleName();
+}
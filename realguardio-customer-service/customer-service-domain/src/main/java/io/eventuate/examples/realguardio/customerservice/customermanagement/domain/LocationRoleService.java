@@ -1,7 +1,10 @@
 package io.eventuate.examples.realguardio.customerservice.customermanagement.domain;
 
+import java.util.Map;
 import java.util.Set;
 
 public interface LocationRoleService {
     Set<String> getUserRolesAtLocation(Long locationId);
+
+    Map<Long, Set<String>> getUserLocationRoles();
 }
\ No newline at end of file
@@ -3,50 +3,63 @@ package io.eventuate.examples.realguardio.customerservice.customermanagement.dom
 import io.eventuate.examples.realguardio.customerservice.security.UserNameSupplier;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 @Service
 public class LocationRoleServiceImpl implements LocationRoleService {
     
     private final CustomerEmployeeLocationRoleRepository locationRoleRepository;
-    private final TeamLocationRoleRepository teamLocationRoleRepository;
-    private final LocationRepository locationRepository;
+    private final CustomerEmployeeIdentities customerEmployeeIdentities;
+    private final EmployeeLocationRolesCache employeeLocationRolesCache;
     private final UserNameSupplier userNameSupplier;
 
   public LocationRoleServiceImpl(CustomerEmployeeLocationRoleRepository locationRoleRepository,
-                                   TeamLocationRoleRepository teamLocationRoleRepository,
-                                   LocationRepository locationRepository,
+                                   CustomerEmployeeIdentities customerEmployeeIdentities,
+                                   EmployeeLocationRolesCache employeeLocationRolesCache,
                                    UserNameSupplier userNameSupplier) {
         this.locationRoleRepository = locationRoleRepository;
-        this.teamLocationRoleRepository = teamLocationRoleRepository;
-        this.locationRepository = locationRepository;
+        this.customerEmployeeIdentities = customerEmployeeIdentities;
+        this.employeeLocationRolesCache = employeeLocationRolesCache;
     this.userNameSupplier = userNameSupplier;
   }
     
+    /**
+     * Resolves the current user to a member once, then returns their direct and team roles at the location,
+     * loaded with a single statement and cached per member and location.
+     */
     @Override
     public Set<String> getUserRolesAtLocation(Long locationId) {
 
         String userName = userNameSupplier.getCurrentUserEmail();
 
-        Set<String> allRoles = new HashSet<>();
+        Optional<Long> memberId = customerEmployeeIdentities.findMemberId(userName);
+        if (memberId.isEmpty())
+            return Set.of();
 
-        Set<String> directRoles = findDirectRolesForEmployeeAtLocation(userName, locationId);
-        allRoles.addAll(directRoles);
-
-        Set<String> teamRoles = findTeamRolesForEmployeeAtLocation(userName, locationId);
-        allRoles.addAll(teamRoles);
-        
-        return allRoles;
-    }
-    
-    private Set<String> findDirectRolesForEmployeeAtLocation(String userName, Long locationId) {
-        return new HashSet<>(locationRoleRepository.findRoleNamesByUserNameAndLocationId(
-                userName, locationId));
+        return employeeLocationRolesCache.getRolesAtLocation(memberId.get(), locationId,
+            () -> new HashSet<>(locationRoleRepository.findRoleNamesByMemberIdAndLocationId(memberId.get(), locationId)));
     }
     
-    private Set<String> findTeamRolesForEmployeeAtLocation(String userName, Long locationId) {
-        return new HashSet<>(teamLocationRoleRepository.findTeamRolesByUserNameAndLocationId(
-                userName, locationId));
+    /**
+     * Resolves the current user to a member once, then returns their direct and team roles at every location.
+     */
+    @Override
+    public Map<Long, Set<String>> getUserLocationRoles() {
+
+        String userName = userNameSupplier.getCurrentUserEmail();
+
+        Map<Long, Set<String>> locationRoles = new HashMap<>();
+        Optional<Long> memberId = customerEmployeeIdentities.findMemberId(userName);
+        if (memberId.isEmpty())
+            return locationRoles;
+
+        for (LocationRoleAssignment assignment : locationRoleRepository.findLocationRolesByMemberId(memberId.get()))
+            locationRoles.computeIfAbsent(assignment.getLocationId(), id -> new HashSet<>()).add(assignment.getRoleName());
+
+        return locationRoles;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,4 @@
+package io.eventuate.examples.realguardio.customerservice.customermanagement.domain;
+
+public record LocationSummary(Long id, String name, Long customerId) {
+}
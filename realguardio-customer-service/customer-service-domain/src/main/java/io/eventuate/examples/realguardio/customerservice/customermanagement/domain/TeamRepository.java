@@ -1,8 +1,21 @@
 package io.eventuate.examples.realguardio.customerservice.customermanagement.domain;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface TeamRepository extends JpaRepository<Team, Long>, TeamRepositoryCustom {
+
+    @Query("""
+        SELECT new io.eventuate.examples.realguardio.customerservice.customermanagement.domain.TeamSummary(t.id, t.name, t.customerId)
+        FROM Team t
+        WHERE t.customerId = :customerId AND t.id > :afterId
+        ORDER BY t.id
+        """)
+    List<TeamSummary> findSummariesByCustomerId(@Param("customerId") Long customerId, @Param("afterId") long afterId, Limit limit);
 }
@@ -3,6 +3,8 @@ package io.eventuate.examples.realguardio.customerservice.organizationmanagement
 import io.eventuate.examples.realguardio.customerservice.commondomain.EmailAddress;
 import io.eventuate.examples.realguardio.customerservice.organizationmanagement.domain.Member;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -14,4 +16,7 @@ import java.util.Optional;
 public interface MemberRepository extends JpaRepository<Member, Long> {
     
     Optional<Member> findByEmailAddress(EmailAddress emailAddress);
+
+    @Query("SELECT m.id FROM Member m WHERE m.emailAddress.email = :email")
+    Optional<Long> findIdByEmail(@Param("email") String email);
 }
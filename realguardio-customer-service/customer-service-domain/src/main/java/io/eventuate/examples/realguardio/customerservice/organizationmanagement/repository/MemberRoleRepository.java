@@ -2,9 +2,12 @@ package io.eventuate.examples.realguardio.customerservice.organizationmanagement
 
 import io.eventuate.examples.realguardio.customerservice.organizationmanagement.domain.MemberRole;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Set;
 
 /**
  * Spring Data JPA repository for the MemberRole entity.
@@ -30,4 +33,13 @@ public interface MemberRoleRepository extends JpaRepository<MemberRole, Long> {
      * @return a list of member roles for the given member and organization
      */
     List<MemberRole> findByMemberIdAndOrganizationId(Long memberId, Long organizationId);
+
+    /**
+     * Find the names of a member's roles without loading the roles.
+     *
+     * @param memberId the ID of the member to search for
+     * @return the names of the member's roles
+     */
+    @Query("SELECT mr.name FROM MemberRole mr WHERE mr.member.id = :memberId")
+    Set<String> findRoleNamesByMemberId(@Param("memberId") Long memberId);
 }
@@ -1,14 +1,17 @@
 package io.eventuate.examples.realguardio.customerservice.organizationmanagement.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.eventuate.examples.realguardio.customerservice.commondomain.EmailAddress;
 import io.eventuate.examples.realguardio.customerservice.commondomain.PersonDetails;
 import io.eventuate.examples.realguardio.customerservice.organizationmanagement.domain.Member;
 import io.eventuate.examples.realguardio.customerservice.organizationmanagement.repository.MemberRepository;
 import io.eventuate.examples.realguardio.customerservice.security.UserService;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,10 +25,18 @@ public class MemberService {
     private final MemberRepository memberRepository;
     private final UserService userService;
 
-    @Autowired
-    public MemberService(MemberRepository memberRepository, UserService userService) {
+    // Email to member ID. Only members that exist are cached, and an email address is never reassigned
+    private final Cache<String, Long> memberIdsByEmail;
+
+    public MemberService(MemberRepository memberRepository, UserService userService,
+                         @Value("${identity-cache.maximum-size:100000}") long maximumSize,
+                         @Value("${identity-cache.time-to-live:PT10M}") Duration timeToLive) {
         this.memberRepository = memberRepository;
         this.userService = userService;
+        this.memberIdsByEmail = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(timeToLive)
+            .build();
     }
 
     /**
@@ -37,6 +48,7 @@ public class MemberService {
     public Member createMember(PersonDetails personDetails) {
         Member member = new Member(personDetails.name(), personDetails.emailAddress());
         Member savedMember = memberRepository.save(member);
+        memberIdsByEmail.invalidate(personDetails.emailAddress().email());
         userService.createCustomerEmployeeUser(personDetails.emailAddress().email());
         return savedMember;
     }
@@ -71,4 +83,15 @@ public class MemberService {
     public Optional<Member> findMemberByEmail(EmailAddress emailAddress) {
         return memberRepository.findByEmailAddress(emailAddress);
     }
+
+    /**
+     * Find the ID of the member with an email address, such as the current user's, without loading the member.
+     * The IDs of existing members are cached.
+     *
+     * @param email the email address of the member
+     * @return an optional containing the member's ID if found
+     */
+    public Optional<Long> findMemberIdByEmail(String email) {
+        return Optional.ofNullable(memberIdsByEmail.get(email, key -> memberRepository.findIdByEmail(key).orElse(null)));
+    }
 }
@@ -1,17 +1,27 @@
 package io.eventuate.examples.realguardio.customerservice.organizationmanagement.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.eventuate.examples.realguardio.customerservice.organizationmanagement.domain.Member;
 import io.eventuate.examples.realguardio.customerservice.organizationmanagement.domain.MemberRole;
 import io.eventuate.examples.realguardio.customerservice.organizationmanagement.domain.Organization;
 import io.eventuate.examples.realguardio.customerservice.organizationmanagement.repository.MemberRepository;
 import io.eventuate.examples.realguardio.customerservice.organizationmanagement.repository.MemberRoleRepository;
 import io.eventuate.examples.realguardio.customerservice.organizationmanagement.repository.OrganizationRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Service class for managing Organization entities.
@@ -24,16 +34,27 @@ public class OrganizationService {
     private final MemberRepository memberRepository;
     private final MemberRoleRepository memberRoleRepository;
 
+    // Member ID to the names of the member's roles, which authorization checks look up on every request
+    private final Cache<Long, Set<String>> roleNamesByMemberId;
+
     @Autowired
     public OrganizationService(OrganizationRepository organizationRepository,
                               MemberRepository memberRepository,
-                              MemberRoleRepository memberRoleRepository) {
+                              MemberRoleRepository memberRoleRepository,
+                              @Value("${member-roles-cache.maximum-size:10000}") long maximumSize,
+                              @Value("${member-roles-cache.time-to-live:PT5M}") Duration timeToLive,
+                              ObjectProvider<MeterRegistry> meterRegistry) {
         this.organizationRepository = organizationRepository;
         this.memberRepository = memberRepository;
         this.memberRoleRepository = memberRoleRepository;
+        this.roleNamesByMemberId = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .recordStats()
+                .build();
+        meterRegistry.ifAvailable(registry -> CaffeineCacheMetrics.monitor(registry, roleNamesByMemberId, "memberRoleNames"));
     }
 
-
     /**
      * Create a new organization with the given name.
      *
@@ -78,6 +99,8 @@ public class OrganizationService {
         member.addRole(role);
         organization.addMemberRole(role);
 
+        evictRoleNames(memberId);
+
         return memberRoleRepository.save(role);
     }
 
@@ -113,4 +136,32 @@ public class OrganizationService {
         }
         return memberRoleRepository.findByMemberIdAndOrganizationId(memberId, organizationId);
     }
+
+    /**
+     * Find the names of a member's roles, which are cached until a role is assigned to the member.
+     *
+     * @param memberId the ID of the member
+     * @return the names of the member's roles
+     */
+    public Set<String> findRoleNamesByMemberId(Long memberId) {
+        return roleNamesByMemberId.get(memberId, id -> Set.copyOf(memberRoleRepository.findRoleNamesByMemberId(id)));
+    }
+
+    /**
+     * Evict the member's cached role names now and, so that a concurrent read can't cache them again
+     * before the change is visible, once the current transaction commits.
+     *
+     * @param memberId the ID of the member
+     */
+    public void evictRoleNames(Long memberId) {
+        roleNamesByMemberId.invalidate(memberId);
+        if (TransactionSynchronizationManager.isActualTransactionActive() && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    roleNamesByMemberId.invalidate(memberId);
+                }
+            });
+        }
+    }
 }
@@ -32,7 +32,7 @@ public class CustomerServiceSecurityTest {
 
     @Configuration
     @Import({SecurityConfiguration.class, CustomerManagementJpaPersistenceConfiguration.class, OrganizationManagementJpaPersistenceConfiguration.class,
-            CustomerService.class, OrganizationService.class, MemberService.class})
+            CustomerService.class, EmployeeLocationRolesCache.class, CustomerEmployeeIdentities.class, OrganizationService.class, MemberService.class})
     @EnableAutoConfiguration
     static public class Config {
     }
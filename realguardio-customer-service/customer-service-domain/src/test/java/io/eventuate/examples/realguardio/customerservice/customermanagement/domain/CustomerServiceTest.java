@@ -38,7 +38,7 @@ class CustomerServiceTest {
 
   @Configuration
   @Import({CustomerManagementJpaPersistenceConfiguration.class, OrganizationManagementJpaPersistenceConfiguration.class,
-          CustomerService.class, OrganizationService.class, MemberService.class})
+          CustomerService.class, EmployeeLocationRolesCache.class, CustomerEmployeeIdentities.class, OrganizationService.class, MemberService.class})
   @EnableAutoConfiguration
   public static class Config {
 
@@ -84,6 +84,12 @@ class CustomerServiceTest {
   @Autowired
   private UserNameSupplier userNameSupplier;
 
+  @Autowired
+  private CustomerEmployeeLocationRoleRepository customerEmployeeLocationRoleRepository;
+
+  @Autowired
+  private CustomerEmployeeIdentities customerEmployeeIdentities;
+
   @BeforeEach
   public void setUp() {
     loggedInUser.withoutUser();
@@ -222,6 +228,57 @@ class CustomerServiceTest {
 
   }
 
+  @Test
+  public void shouldPageThroughLocationSummariesInIdOrder() {
+
+    // Given
+
+    var customer = testCustomerFactory.createCustomer();
+    var otherCustomer = testCustomerFactory.createCustomer();
+
+    var location1 = customer.createLocation();
+    otherCustomer.createLocation();
+    var location2 = customer.createLocation();
+    var location3 = customer.createLocation();
+
+    Long customerId = customer.customer().getId();
+
+    // When
+
+    var firstPage = customerService.findLocationSummaries(customerId, null, 2);
+    var secondPage = customerService.findLocationSummaries(customerId, firstPage.nextCursor(), 2);
+
+    // Then
+
+    assertThat(firstPage.items()).containsExactly(
+        new LocationSummary(location1.getId(), location1.getName(), customerId),
+        new LocationSummary(location2.getId(), location2.getName(), customerId));
+    assertThat(firstPage.nextCursor()).isEqualTo(location2.getId());
+
+    assertThat(secondPage.items()).containsExactly(new LocationSummary(location3.getId(), location3.getName(), customerId));
+    assertThat(secondPage.nextCursor()).isNull();
+  }
+
+  @Test
+  public void shouldFindCustomerEmployeeSummariesWithNamesAndEmailAddresses() {
+
+    // Given
+
+    var customer = testCustomerFactory.createCustomer();
+    var initialAdmin = customer.initialAdministrator();
+    var adminDetails = customer.findEmployeeDetails(initialAdmin);
+
+    // When
+
+    var page = customerService.findCustomerEmployeeSummaries(customer.customer().getId(), null, 10);
+
+    // Then
+
+    assertThat(page.items()).containsExactly(new CustomerEmployeeSummary(initialAdmin.getId(), customer.customer().getId(),
+        initialAdmin.getMemberId(), adminDetails.name().firstName(), adminDetails.name().lastName(), adminDetails.emailAddress().email()));
+    assertThat(page.nextCursor()).isNull();
+  }
+
   @Test
   public void shouldCreateCustomerEmployeeAndAssignLocationRoles() {
     // Given
@@ -363,5 +420,56 @@ class CustomerServiceTest {
     );
   }
 
+  @Test
+  public void shouldFindDirectAndTeamRolesOfMemberAtLocationInOneQuery() {
+    // Given
+    var customer = testCustomerFactory.createCustomer();
+    var employee = customer.createCustomerEmployee();
+    var location = customer.createLocation();
+    var otherLocation = customer.createLocation();
+    var team = customer.createTeam("Night Shift");
+
+    loggedInUser.withUser(customer);
 
+    customer.assignLocationRole(employee, location, SECURITY_SYSTEM_ARMER_ROLE);
+    customer.addTeamMember(team.getId(), employee.customerEmployee().getId());
+    customerService.assignTeamRole(team.getId(), location.getId(), SECURITY_SYSTEM_DISARMER_ROLE);
+    customerService.assignTeamRole(team.getId(), otherLocation.getId(), SECURITY_SYSTEM_ARMER_ROLE);
+
+    // When
+    var roles = customerEmployeeLocationRoleRepository.findRoleNamesByMemberIdAndLocationId(
+        employee.customerEmployee().getMemberId(), location.getId());
+
+    // Then
+    assertThat(roles).containsExactlyInAnyOrder(SECURITY_SYSTEM_ARMER_ROLE, SECURITY_SYSTEM_DISARMER_ROLE);
+  }
+
+  @Test
+  public void shouldResolveEmailToMemberAndCustomerEmployee() {
+    // Given
+    var customer = testCustomerFactory.createCustomer();
+    var employee = customer.createCustomerEmployee();
+    String email = customer.findEmployeeDetails(employee).emailAddress().email();
+    Long customerId = customer.customer().getId();
+
+    // When / Then
+    assertThat(customerEmployeeIdentities.findMemberId(email)).contains(employee.customerEmployee().getMemberId());
+    assertThat(customerEmployeeIdentities.findCustomerEmployeeId(email, customerId)).contains(employee.customerEmployee().getId());
+    assertThat(customerEmployeeIdentities.findCustomerEmployeeId(email, customerId + 1000)).isEmpty();
+    assertThat(customerEmployeeIdentities.findMemberId(uniquify("nobody") + "@example.com")).isEmpty();
+  }
+
+  @Test
+  public void shouldFindCompanyRolesOnlyInTheEmployeesCustomer() {
+    // Given
+    var customer = testCustomerFactory.createCustomer();
+    var otherCustomer = testCustomerFactory.createCustomer();
+    var admin = customer.initialAdministrator();
+    String email = customer.findEmployeeDetails(admin).emailAddress().email();
+
+    // When / Then
+    assertThat(customerEmployeeIdentities.findCompanyRoles(email, customer.customer().getId()))
+        .containsExactly(RolesAndPermissions.COMPANY_ROLE_ADMIN);
+    assertThat(customerEmployeeIdentities.findCompanyRoles(email, otherCustomer.customer().getId())).isEmpty();
+  }
 }
@@ -23,20 +23,20 @@ class LocalCustomerActionAuthorizerTest {
     private UserNameSupplier userNameSupplier;
 
     @Mock
-    private CustomerEmployeeRepository customerEmployeeRepository;
+    private CustomerEmployeeIdentities customerEmployeeIdentities;
 
     private static final Long CUSTOMER_ID = 123L;
     private static final String USER_EMAIL = "user@example.com";
 
     @BeforeEach
     public void setUp() {
-        authorizer = new LocalCustomerActionAuthorizer(userNameSupplier, customerEmployeeRepository);
+        authorizer = new LocalCustomerActionAuthorizer(userNameSupplier, customerEmployeeIdentities);
     }
 
     @Test
     void shouldAllowActionWhenUserHasRequiredRole() {
         when(userNameSupplier.getCurrentUserEmail()).thenReturn(USER_EMAIL);
-        when(customerEmployeeRepository.findRolesInCustomer(CUSTOMER_ID, USER_EMAIL))
+        when(customerEmployeeIdentities.findCompanyRoles(USER_EMAIL, CUSTOMER_ID))
                 .thenReturn(Set.of(RolesAndPermissions.COMPANY_ROLE_ADMIN));
 
         authorizer.verifyCanDo(CUSTOMER_ID, RolesAndPermissions.CREATE_CUSTOMER_EMPLOYEE);
@@ -45,7 +45,7 @@ class LocalCustomerActionAuthorizerTest {
     @Test
     void shouldThrowNotAuthorizedExceptionWhenUserLacksRequiredRole() {
         when(userNameSupplier.getCurrentUserEmail()).thenReturn(USER_EMAIL);
-        when(customerEmployeeRepository.findRolesInCustomer(CUSTOMER_ID, USER_EMAIL))
+        when(customerEmployeeIdentities.findCompanyRoles(USER_EMAIL, CUSTOMER_ID))
                 .thenReturn(Set.of("SOME_OTHER_ROLE"));
 
         assertThatThrownBy(() -> authorizer.verifyCanDo(CUSTOMER_ID, RolesAndPermissions.CREATE_CUSTOMER_EMPLOYEE))
@@ -55,7 +55,7 @@ class LocalCustomerActionAuthorizerTest {
     @Test
     void shouldThrowNotAuthorizedExceptionWhenUserHasNoRoles() {
         when(userNameSupplier.getCurrentUserEmail()).thenReturn(USER_EMAIL);
-        when(customerEmployeeRepository.findRolesInCustomer(CUSTOMER_ID, USER_EMAIL))
+        when(customerEmployeeIdentities.findCompanyRoles(USER_EMAIL, CUSTOMER_ID))
                 .thenReturn(Set.of());
 
         assertThatThrownBy(() -> authorizer.verifyCanDo(CUSTOMER_ID, RolesAndPermissions.CREATE_CUSTOMER_EMPLOYEE))
@@ -68,6 +68,6 @@ class LocalCustomerActionAuthorizerTest {
                 .isInstanceOf(NotAuthorizedException.class);
 
         verifyNoInteractions(userNameSupplier);
-        verifyNoInteractions(customerEmployeeRepository);
+        verifyNoInteractions(customerEmployeeIdentities);
     }
 }
\ No newline at end of file
@@ -7,10 +7,18 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -20,74 +28,73 @@ class LocationRoleServiceImplTest {
     private CustomerEmployeeLocationRoleRepository locationRoleRepository;
     
     @Mock
-    private TeamLocationRoleRepository teamLocationRoleRepository;
-    
-    @Mock
-    private LocationRepository locationRepository;
+    private CustomerEmployeeIdentities customerEmployeeIdentities;
 
     @Mock
     private UserNameSupplier userNameSupplier;
 
+    private EmployeeLocationRolesCache employeeLocationRolesCache;
+
     private LocationRoleServiceImpl locationRoleService;
 
 
     @BeforeEach
     void setUp() {
+        employeeLocationRolesCache = new EmployeeLocationRolesCache(10_000, Duration.ofSeconds(60));
         locationRoleService = new LocationRoleServiceImpl(
             locationRoleRepository,
-            teamLocationRoleRepository,
-            locationRepository, userNameSupplier
+            customerEmployeeIdentities,
+            employeeLocationRolesCache,
+            userNameSupplier
         );
     }
     
     @Test
-    void shouldHandleNonNumericUserId() {
+    void shouldReturnEmptySetWhenUserIsNotAMember() {
         // Given
-        String userId = "non-numeric-user";
+        String userName = "unknown@example.com";
         Long locationId = 456L;
+
+        when(userNameSupplier.getCurrentUserEmail()).thenReturn(userName);
+        when(customerEmployeeIdentities.findMemberId(userName)).thenReturn(Optional.empty());
         
         // When
         Set<String> result = locationRoleService.getUserRolesAtLocation(locationId);
         
-        // Then - should handle gracefully and return empty set
+        // Then
         assertThat(result).isEmpty();
+        verify(locationRoleRepository, never()).findRoleNamesByMemberIdAndLocationId(any(), any());
     }
     
     @Test
-    void shouldReturnDirectRolesForEmployeeAtLocation() {
+    void shouldReturnDirectAndTeamRolesFromOneQuery() {
         // Given
-        String userId = "123";
-        Long employeeId = 123L;
-        Long locationId = 456L;
-        Long customerId = 789L;
         String userName = "user132@example.com";
-
-        List<String> directRoles = List.of("SECURITY_SYSTEM_ARMER", "SECURITY_SYSTEM_DISARMER");
-        when(locationRoleRepository.findRoleNamesByUserNameAndLocationId(userName, locationId))
-            .thenReturn(directRoles);
+        Long memberId = 123L;
+        Long locationId = 456L;
 
         when(userNameSupplier.getCurrentUserEmail()).thenReturn(userName);
+        when(customerEmployeeIdentities.findMemberId(userName)).thenReturn(Optional.of(memberId));
+        when(locationRoleRepository.findRoleNamesByMemberIdAndLocationId(memberId, locationId))
+            .thenReturn(List.of("SECURITY_SYSTEM_ARMER", "SECURITY_SYSTEM_DISARMER", "VIEW_ALERTS"));
         
         // When
         Set<String> result = locationRoleService.getUserRolesAtLocation(locationId);
         
         // Then
-        assertThat(result).containsExactlyInAnyOrder("SECURITY_SYSTEM_ARMER", "SECURITY_SYSTEM_DISARMER");
+        assertThat(result).containsExactlyInAnyOrder("SECURITY_SYSTEM_ARMER", "SECURITY_SYSTEM_DISARMER", "VIEW_ALERTS");
     }
     
     @Test
     void shouldReturnEmptySetWhenNoRoles() {
         // Given
-        String userId = "999";
-        Long employeeId = 999L;
-        Long locationId = 111L;
-        Long customerId = 789L;
         String userName = "user132@example.com";
+        Long memberId = 999L;
+        Long locationId = 111L;
 
         when(userNameSupplier.getCurrentUserEmail()).thenReturn(userName);
-
-        when(locationRoleRepository.findRoleNamesByUserNameAndLocationId(
-            userName, locationId))
+        when(customerEmployeeIdentities.findMemberId(userName)).thenReturn(Optional.of(memberId));
+        when(locationRoleRepository.findRoleNamesByMemberIdAndLocationId(memberId, locationId))
             .thenReturn(List.of());
         
         // When
@@ -96,69 +103,95 @@ class LocationRoleServiceImplTest {
         // Then
         assertThat(result).isEmpty();
     }
-    
+
     @Test
-    void shouldAggregateDirectAndTeamBasedRoles() {
+    void shouldCacheRolesPerMemberAndLocation() {
         // Given
         String userName = "user@example.com";
+        Long memberId = 123L;
         Long locationId = 456L;
-        
-        List<String> directRoles = List.of("SECURITY_SYSTEM_ARMER", "VIEW_ALERTS");
-        List<String> teamRoles = List.of("SECURITY_SYSTEM_DISARMER", "VIEW_ALERTS");
-        
+
         when(userNameSupplier.getCurrentUserEmail()).thenReturn(userName);
-        when(locationRoleRepository.findRoleNamesByUserNameAndLocationId(userName, locationId))
-            .thenReturn(directRoles);
-        when(teamLocationRoleRepository.findTeamRolesByUserNameAndLocationId(userName, locationId))
-            .thenReturn(teamRoles);
-        
+        when(customerEmployeeIdentities.findMemberId(userName)).thenReturn(Optional.of(memberId));
+        when(locationRoleRepository.findRoleNamesByMemberIdAndLocationId(memberId, locationId))
+            .thenReturn(List.of("SECURITY_SYSTEM_ARMER"));
+
         // When
+        locationRoleService.getUserRolesAtLocation(locationId);
         Set<String> result = locationRoleService.getUserRolesAtLocation(locationId);
-        
+
         // Then
-        assertThat(result).containsExactlyInAnyOrder("SECURITY_SYSTEM_ARMER", "SECURITY_SYSTEM_DISARMER", "VIEW_ALERTS");
+        assertThat(result).containsExactly("SECURITY_SYSTEM_ARMER");
+        verify(locationRoleRepository, times(1)).findRoleNamesByMemberIdAndLocationId(memberId, locationId);
     }
-    
+
     @Test
-    void shouldHandleUserWithOnlyTeamRoles() {
+    void shouldReloadRolesAfterEviction() {
         // Given
         String userName = "user@example.com";
+        Long memberId = 123L;
         Long locationId = 456L;
-        
-        List<String> teamRoles = List.of("SECURITY_SYSTEM_ARMER", "SECURITY_SYSTEM_DISARMER");
-        
+
         when(userNameSupplier.getCurrentUserEmail()).thenReturn(userName);
-        when(locationRoleRepository.findRoleNamesByUserNameAndLocationId(userName, locationId))
-            .thenReturn(List.of());
-        when(teamLocationRoleRepository.findTeamRolesByUserNameAndLocationId(userName, locationId))
-            .thenReturn(teamRoles);
-        
-        // When
-        Set<String> result = locationRoleService.getUserRolesAtLocation(locationId);
-        
-        // Then
-        assertThat(result).containsExactlyInAnyOrder("SECURITY_SYSTEM_ARMER", "SECURITY_SYSTEM_DISARMER");
+        when(customerEmployeeIdentities.findMemberId(userName)).thenReturn(Optional.of(memberId));
+        when(locationRoleRepository.findRoleNamesByMemberIdAndLocationId(memberId, locationId))
+            .thenReturn(List.of("SECURITY_SYSTEM_ARMER"))
+            .thenReturn(List.of("SECURITY_SYSTEM_ARMER", "SECURITY_SYSTEM_DISARMER"))
+            .thenReturn(List.of("SECURITY_SYSTEM_VIEWER"));
+
+        // When / Then
+        assertThat(locationRoleService.getUserRolesAtLocation(locationId)).containsExactly("SECURITY_SYSTEM_ARMER");
+
+        employeeLocationRolesCache.evict(memberId, locationId);
+        assertThat(locationRoleService.getUserRolesAtLocation(locationId))
+            .containsExactlyInAnyOrder("SECURITY_SYSTEM_ARMER", "SECURITY_SYSTEM_DISARMER");
+
+        employeeLocationRolesCache.evictLocation(locationId);
+        assertThat(locationRoleService.getUserRolesAtLocation(locationId)).containsExactly("SECURITY_SYSTEM_VIEWER");
     }
-    
+
     @Test
-    void shouldHandleUserWithBothDirectAndTeamRoles() {
+    void shouldGroupRolesByLocation() {
         // Given
-        String userName = "user@example.com";
-        Long locationId = 456L;
-        
-        List<String> directRoles = List.of("SECURITY_SYSTEM_ARMER");
-        List<String> teamRoles = List.of("SECURITY_SYSTEM_DISARMER", "MANAGE_USERS");
-        
+        String userName = "user132@example.com";
         when(userNameSupplier.getCurrentUserEmail()).thenReturn(userName);
-        when(locationRoleRepository.findRoleNamesByUserNameAndLocationId(userName, locationId))
-            .thenReturn(directRoles);
-        when(teamLocationRoleRepository.findTeamRolesByUserNameAndLocationId(userName, locationId))
-            .thenReturn(teamRoles);
-        
+        when(customerEmployeeIdentities.findMemberId(userName)).thenReturn(Optional.of(7L));
+        when(locationRoleRepository.findLocationRolesByMemberId(7L))
+            .thenReturn(List.of(
+                locationRole(101L, "SECURITY_SYSTEM_ARMER"),
+                locationRole(101L, "SECURITY_SYSTEM_VIEWER"),
+                locationRole(102L, "SECURITY_SYSTEM_DISARMER")));
+
         // When
-        Set<String> result = locationRoleService.getUserRolesAtLocation(locationId);
-        
+        Map<Long, Set<String>> result = locationRoleService.getUserLocationRoles();
+
         // Then
-        assertThat(result).containsExactlyInAnyOrder("SECURITY_SYSTEM_ARMER", "SECURITY_SYSTEM_DISARMER", "MANAGE_USERS");
+        assertThat(result).containsOnly(
+            entry(101L, Set.of("SECURITY_SYSTEM_ARMER", "SECURITY_SYSTEM_VIEWER")),
+            entry(102L, Set.of("SECURITY_SYSTEM_DISARMER")));
+    }
+
+    @Test
+    void shouldReturnNoLocationRolesForUnknownMember() {
+        String userName = "unknown@example.com";
+        when(userNameSupplier.getCurrentUserEmail()).thenReturn(userName);
+        when(customerEmployeeIdentities.findMemberId(userName)).thenReturn(Optional.empty());
+
+        assertThat(locationRoleService.getUserLocationRoles()).isEmpty();
+        verify(locationRoleRepository, never()).findLocationRolesByMemberId(any());
+    }
+
+    private static LocationRoleAssignment locationRole(Long locationId, String roleName) {
+        return new LocationRoleAssignment() {
+            @Override
+            public Long getLocationId() {
+                return locationId;
+            }
+
+            @Override
+            public String getRoleName() {
+                return roleName;
+            }
+        };
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,78 @@
+package io.eventuate.examples.realguardio.customerservice.customermanagement.domain;
+
+import io.eventuate.examples.realguardio.customerservice.customermanagement.domain.testsupport.LoggedInUser;
+import io.eventuate.examples.realguardio.customerservice.customermanagement.domain.testsupport.TestCustomerFactory;
+import io.eventuate.examples.realguardio.customerservice.security.UserService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import static io.eventuate.examples.realguardio.customerservice.customermanagement.domain.CustomerServiceTestData.SECURITY_SYSTEM_ARMER_ROLE;
+import static io.eventuate.examples.realguardio.customerservice.customermanagement.domain.CustomerServiceTestData.SECURITY_SYSTEM_DISARMER_ROLE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures the SQL statements executed by assignLocationRole with the second-level cache cold and warm.
+ */
+@SpringBootTest(classes = CustomerServiceTest.Config.class, properties = {
+    "customer-service.second-level-cache.enabled=true",
+    "spring.jpa.properties.hibernate.generate_statistics=true",
+    "spring.datasource.url=jdbc:h2:mem:secondLevelCacheSqlStatements"
+})
+class SecondLevelCacheSqlStatementsTest {
+
+  private static final Logger logger = LoggerFactory.getLogger(SecondLevelCacheSqlStatementsTest.class);
+
+  @MockitoBean
+  private UserService userService;
+
+  @MockitoBean
+  private CustomerEventPublisher customerEventPublisher;
+
+  @MockitoBean
+  private CustomerActionAuthorizer customerActionAuthorizer;
+
+  @Autowired
+  private LoggedInUser loggedInUser;
+
+  @Autowired
+  private TestCustomerFactory testCustomerFactory;
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  @Test
+  public void shouldExecuteFewerStatementsPerAssignLocationRoleWithAWarmCache() {
+    // Given
+    var customer = testCustomerFactory.createCustomer();
+    var employee = customer.createCustomerEmployee();
+    var location = customer.createLocation();
+    loggedInUser.withUser(customer);
+
+    Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+    // When
+    entityManagerFactory.getCache().evictAll();
+    statistics.clear();
+    customer.assignLocationRole(employee, location, SECURITY_SYSTEM_ARMER_ROLE);
+    long coldStatements = statistics.getPrepareStatementCount();
+
+    statistics.clear();
+    customer.assignLocationRole(employee, location, SECURITY_SYSTEM_DISARMER_ROLE);
+    long warmStatements = statistics.getPrepareStatementCount();
+    long warmCacheHits = statistics.getSecondLevelCacheHitCount();
+
+    // Then
+    logger.info("SQL statements per assignLocationRole: {} with a cold second-level cache, {} with a warm one", coldStatements, warmStatements);
+
+    assertThat(warmCacheHits).isGreaterThanOrEqualTo(4);
+    assertThat(warmStatements).isLessThan(coldStatements);
+    assertThat(coldStatements - warmStatements).isGreaterThanOrEqualTo(4);
+  }
+}
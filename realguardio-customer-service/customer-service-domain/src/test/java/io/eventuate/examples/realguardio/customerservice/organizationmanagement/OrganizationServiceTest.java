@@ -8,15 +8,20 @@ import io.eventuate.examples.realguardio.customerservice.organizationmanagement.
 import io.eventuate.examples.realguardio.customerservice.organizationmanagement.service.MemberService;
 import io.eventuate.examples.realguardio.customerservice.organizationmanagement.service.OrganizationService;
 import io.eventuate.examples.realguardio.customerservice.security.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 @SpringBootTest
 public class OrganizationServiceTest {
 
@@ -24,7 +29,11 @@ public class OrganizationServiceTest {
   @EnableAutoConfiguration
   @Import({OrganizationService.class, MemberService.class})
   public static class Config {
-    // Configuration for the test context
+
+    @Bean
+    public MeterRegistry meterRegistry() {
+      return new SimpleMeterRegistry();
+    }
   }
 
   @MockitoBean
@@ -36,6 +45,9 @@ public class OrganizationServiceTest {
   @Autowired
   private MemberService memberService;
 
+  @Autowired
+  private MeterRegistry meterRegistry;
+
 
   private Member fred;
   private Member mary;
@@ -68,5 +80,17 @@ public class OrganizationServiceTest {
 
   }
 
+  @Test
+  public void shouldEvictCachedRoleNamesWhenARoleIsAssigned() {
+    assertThat(organizationService.findRoleNamesByMemberId(fred.getId())).containsExactly("Approver");
+    assertThat(organizationService.findRoleNamesByMemberId(fred.getId())).containsExactly("Approver");
+
+    organizationService.assignRole(otherOrg.getId(), fred.getId(), "Buyer");
+
+    assertThat(organizationService.findRoleNamesByMemberId(fred.getId())).containsExactlyInAnyOrder("Approver", "Buyer");
+    assertThat(meterRegistry.get("cache.gets").tag("cache", "memberRoleNames").tag("result", "hit").functionCounter().count())
+        .isGreaterThanOrEqualTo(1);
+  }
+
 
 }
@@ -38,7 +38,7 @@ public class DBInitializerIntegrationTest {
 
     @Configuration
     @Import({CustomerManagementJpaPersistenceConfiguration.class, OrganizationManagementJpaPersistenceConfiguration.class,
-            CustomerService.class, OrganizationService.class, MemberService.class, CustomerManagementEventPublishingConfiguration.class, LocalCustomerActionAuthorizer.class})
+            CustomerService.class, EmployeeLocationRolesCache.class, CustomerEmployeeIdentities.class, OrganizationService.class, MemberService.class, CustomerManagementEventPublishingConfiguration.class, LocalCustomerActionAuthorizer.class})
     @EnableAutoConfiguration
     public static class Config {
         @Bean
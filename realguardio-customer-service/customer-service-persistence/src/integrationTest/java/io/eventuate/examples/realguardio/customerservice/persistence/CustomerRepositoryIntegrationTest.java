@@ -4,10 +4,15 @@ import io.eventuate.examples.realguardio.customerservice.commondomain.EmailAddre
 import io.eventuate.examples.realguardio.customerservice.commondomain.PersonName;
 import io.eventuate.examples.realguardio.customerservice.customermanagement.domain.Customer;
 import io.eventuate.examples.realguardio.customerservice.customermanagement.domain.CustomerEmployee;
+import io.eventuate.examples.realguardio.customerservice.customermanagement.domain.CustomerEmployeeLocationRole;
 import io.eventuate.examples.realguardio.customerservice.customermanagement.domain.CustomerEmployeeLocationRoleRepository;
 import io.eventuate.examples.realguardio.customerservice.customermanagement.domain.CustomerEmployeeRepository;
 import io.eventuate.examples.realguardio.customerservice.customermanagement.domain.CustomerRepository;
+import io.eventuate.examples.realguardio.customerservice.customermanagement.domain.Location;
 import io.eventuate.examples.realguardio.customerservice.customermanagement.domain.LocationRepository;
+import io.eventuate.examples.realguardio.customerservice.customermanagement.domain.LocationRoleAssignment;
+import io.eventuate.examples.realguardio.customerservice.customermanagement.domain.Team;
+import io.eventuate.examples.realguardio.customerservice.customermanagement.domain.TeamLocationRole;
 import io.eventuate.examples.realguardio.customerservice.customermanagement.domain.TeamLocationRoleRepository;
 import io.eventuate.examples.realguardio.customerservice.customermanagement.domain.TeamRepository;
 import io.eventuate.examples.realguardio.customerservice.organizationmanagement.domain.Member;
@@ -27,6 +32,7 @@ import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import static org.assertj.core.api.Assertions.tuple;
 import static org.assertj.core.api.AssertionsForInterfaceTypes.assertThat;
 
 @DataJpaTest
@@ -117,4 +123,28 @@ class CustomerRepositoryIntegrationTest {
         assertThat(teamLocationRoleRepository.findTeamRolesByUserNameAndLocationId(userName, locationId)).isEmpty();
     }
 
-}
\ No newline at end of file
+    @Test
+    void shouldFindDirectAndTeamRolesAtAllLocations() {
+        Organization organization = organizationRepository.save(new Organization("Acme Corporation"));
+        Customer customer = customerRepository.save(new Customer("Acme Corporation", organization.getId()));
+        String userName = "all-roles-%s@example.com".formatted(System.currentTimeMillis());
+        Member member = memberRepository.save(new Member(new PersonName("Jane", "Doe"), new EmailAddress(userName)));
+        CustomerEmployee employee = customerEmployeeRepository.save(new CustomerEmployee(customer.getId(), member.getId()));
+        Location location1 = locationRepository.save(new Location("Oakland office", customer.getId()));
+        Location location2 = locationRepository.save(new Location("Berkeley office", customer.getId()));
+
+        customerEmployeeLocationRoleRepository.save(new CustomerEmployeeLocationRole(customer.getId(), employee.getId(), location1.getId(), "SECURITY_SYSTEM_ARMER"));
+
+        Team team = new Team("Ops", customer.getId());
+        team.addMember(employee.getId());
+        team.addRole(new TeamLocationRole(team, location1.getId(), "SECURITY_SYSTEM_ARMER"));
+        team.addRole(new TeamLocationRole(team, location2.getId(), "SECURITY_SYSTEM_DISARMER"));
+        teamRepository.save(team);
+
+        assertThat(customerEmployeeLocationRoleRepository.findLocationRolesByMemberId(member.getId()))
+            .extracting(LocationRoleAssignment::getLocationId, LocationRoleAssignment::getRoleName)
+            .containsExactlyInAnyOrder(
+                tuple(location1.getId(), "SECURITY_SYSTEM_ARMER"),
+                tuple(location2.getId(), "SECURITY_SYSTEM_DISARMER"));
+    }
+}
@@ -2,7 +2,10 @@ package io.eventuate.examples.realguardio.customerservice.customermanagement.per
 
 import io.eventuate.examples.realguardio.customerservice.customermanagement.domain.Customer;
 import io.eventuate.examples.realguardio.customerservice.customermanagement.domain.CustomerRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 
@@ -10,4 +13,21 @@ import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 @EnableJpaRepositories(basePackageClasses = CustomerRepository.class)
 @EntityScan(basePackageClasses = Customer.class)
 public class CustomerManagementJpaPersistenceConfiguration {
+
+  /**
+   * Caches the read-mostly entities - customers, locations, customer employees, members and organizations -
+   * in a Caffeine-backed JCache second-level cache, whose regions are configured in customer-service-jcache.conf.
+   */
+  @Bean
+  @ConditionalOnProperty(name = "customer-service.second-level-cache.enabled", havingValue = "true")
+  public HibernatePropertiesCustomizer secondLevelCacheHibernatePropertiesCustomizer() {
+    return properties -> {
+      properties.put("hibernate.cache.use_second_level_cache", true);
+      properties.put("hibernate.cache.use_query_cache", false);
+      properties.put("hibernate.cache.region.factory_class", "jcache");
+      properties.put("hibernate.javax.cache.provider", "com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider");
+      properties.put("hibernate.javax.cache.uri", "customer-service-jcache.conf");
+      properties.put("hibernate.javax.cache.missing_cache_strategy", "create-warn");
+    };
+  }
 }
@@ -0,0 +1,82 @@
+package io.eventuate.examples.realguardio.customerservice.restapi;
+
+import io.eventuate.examples.realguardio.customerservice.customermanagement.domain.CustomerEmployeeSummary;
+import io.eventuate.examples.realguardio.customerservice.customermanagement.domain.CustomerService;
+import io.eventuate.examples.realguardio.customerservice.customermanagement.domain.CustomerSummary;
+import io.eventuate.examples.realguardio.customerservice.customermanagement.domain.DirectoryPage;
+import io.eventuate.examples.realguardio.customerservice.customermanagement.domain.LocationSummary;
+import io.eventuate.examples.realguardio.customerservice.customermanagement.domain.TeamSummary;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.function.IntFunction;
+
+/**
+ * Keyset-paginated listings of customers and of a customer's locations, employees and teams.
+ * Each page is fetched with a single projection query, and {@code nextCursor} is the {@code after} value
+ * for the following page.
+ */
+@RestController
+@RequestMapping("/customers")
+public class CustomerDirectoryController {
+
+  private final CustomerService customerService;
+  private final int defaultPageSize;
+  private final int maxPageSize;
+
+  public CustomerDirectoryController(CustomerService customerService,
+                                     @Value("${customer-directory.default-page-size:100}") int defaultPageSize,
+                                     @Value("${customer-directory.max-page-size:1000}") int maxPageSize) {
+    this.customerService = customerService;
+    this.defaultPageSize = defaultPageSize;
+    this.maxPageSize = maxPageSize;
+  }
+
+  @GetMapping("/summaries")
+  @PreAuthorize("hasRole('REALGUARDIO_ADMIN')")
+  public ResponseEntity<DirectoryPage<CustomerSummary>> getCustomerSummaries(
+          @RequestParam(name = "after", required = false) Long after,
+          @RequestParam(name = "limit", required = false) Integer limit) {
+    return page(limit, pageSize -> customerService.findCustomerSummaries(after, pageSize));
+  }
+
+  @GetMapping("/{customerId}/locations")
+  @PreAuthorize("hasRole('REALGUARDIO_ADMIN')")
+  public ResponseEntity<DirectoryPage<LocationSummary>> getLocations(
+          @PathVariable Long customerId,
+          @RequestParam(name = "after", required = false) Long after,
+          @RequestParam(name = "limit", required = false) Integer limit) {
+    return page(limit, pageSize -> customerService.findLocationSummaries(customerId, after, pageSize));
+  }
+
+  @GetMapping("/{customerId}/employees")
+  @PreAuthorize("hasRole('REALGUARDIO_ADMIN')")
+  public ResponseEntity<DirectoryPage<CustomerEmployeeSummary>> getEmployees(
+          @PathVariable Long customerId,
+          @RequestParam(name = "after", required = false) Long after,
+          @RequestParam(name = "limit", required = false) Integer limit) {
+    return page(limit, pageSize -> customerService.findCustomerEmployeeSummaries(customerId, after, pageSize));
+  }
+
+  @GetMapping("/{customerId}/teams")
+  @PreAuthorize("hasRole('REALGUARDIO_ADMIN')")
+  public ResponseEntity<DirectoryPage<TeamSummary>> getTeams(
+          @PathVariable Long customerId,
+          @RequestParam(name = "after", required = false) Long after,
+          @RequestParam(name = "limit", required = false) Integer limit) {
+    return page(limit, pageSize -> customerService.findTeamSummaries(customerId, after, pageSize));
+  }
+
+  private <T> ResponseEntity<DirectoryPage<T>> page(Integer limit, IntFunction<DirectoryPage<T>> finder) {
+    if (limit != null && limit <= 0) {
+      return ResponseEntity.badRequest().build();
+    }
+    return ResponseEntity.ok(finder.apply(Math.min(limit == null ? defaultPageSize : limit, maxPageSize)));
+  }
+}
@@ -7,6 +7,7 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.Map;
 import java.util.Set;
 
 @RestController
@@ -27,4 +28,16 @@ public class LocationRoleController {
         
         return ResponseEntity.ok(new RolesResponse(roles));
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the caller's roles at every location, so clients can authorize many locations with one request.
+     */
+    @GetMapping("/location-roles")
+    @PreAuthorize("hasRole('REALGUARDIO_CUSTOMER_EMPLOYEE') or hasRole('REALGUARDIO_ADMIN')")
+    public ResponseEntity<LocationRolesResponse> getUserLocationRoles() {
+
+        Map<Long, Set<String>> locationRoles = locationRoleService.getUserLocationRoles();
+
+        return ResponseEntity.ok(new LocationRolesResponse(locationRoles));
+    }
+}
@@ -0,0 +1,104 @@
+package io.eventuate.examples.realguardio.customerservice.restapi;
+
+import io.eventuate.examples.realguardio.customerservice.customermanagement.domain.CustomerEmployeeSummary;
+import io.eventuate.examples.realguardio.customerservice.customermanagement.domain.CustomerService;
+import io.eventuate.examples.realguardio.customerservice.customermanagement.domain.CustomerSummary;
+import io.eventuate.examples.realguardio.customerservice.customermanagement.domain.DirectoryPage;
+import io.eventuate.examples.realguardio.customerservice.customermanagement.domain.LocationSummary;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
+import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(CustomerDirectoryController.class)
+class CustomerDirectoryControllerTest {
+
+    @TestConfiguration
+    @EnableMethodSecurity
+    static class TestSecurityConfig {
+        @Bean
+        public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+            return http
+                .csrf(AbstractHttpConfigurer::disable)
+                .build();
+        }
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private CustomerService customerService;
+
+    @Test
+    @WithMockUser(roles = "REALGUARDIO_ADMIN")
+    void shouldReturnPageOfCustomerSummaries() throws Exception {
+        when(customerService.findCustomerSummaries(10L, 2))
+            .thenReturn(new DirectoryPage<>(List.of(new CustomerSummary(11L, "Acme, Inc", 1L), new CustomerSummary(12L, "Big Co, Inc", 2L)), 12L));
+
+        mockMvc.perform(get("/customers/summaries").param("after", "10").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(11))
+                .andExpect(jsonPath("$.items[1].name").value("Big Co, Inc"))
+                .andExpect(jsonPath("$.nextCursor").value(12));
+    }
+
+    @Test
+    @WithMockUser(roles = "REALGUARDIO_ADMIN")
+    void shouldCapPageSizeOfLocations() throws Exception {
+        when(customerService.findLocationSummaries(5L, null, 1000))
+            .thenReturn(new DirectoryPage<>(List.of(new LocationSummary(100L, "Main Office", 5L)), null));
+
+        mockMvc.perform(get("/customers/5/locations").param("limit", "5000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].name").value("Main Office"))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    @WithMockUser(roles = "REALGUARDIO_ADMIN")
+    void shouldUseDefaultPageSizeForEmployees() throws Exception {
+        when(customerService.findCustomerEmployeeSummaries(5L, null, 100))
+            .thenReturn(new DirectoryPage<>(List.of(new CustomerEmployeeSummary(7L, 5L, 3L, "Jane", "Doe", "jane@example.com")), null));
+
+        mockMvc.perform(get("/customers/5/employees"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].email").value("jane@example.com"));
+    }
+
+    @Test
+    @WithMockUser(roles = "REALGUARDIO_ADMIN")
+    void shouldRejectNonPositiveLimit() throws Exception {
+        mockMvc.perform(get("/customers/5/teams").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+
+        verify(customerService, never()).findTeamSummaries(anyLong(), any(), anyInt());
+    }
+
+    @Test
+    @WithMockUser(roles = "REALGUARDIO_CUSTOMER_EMPLOYEE")
+    void shouldForbidNonAdmin() throws Exception {
+        mockMvc.perform(get("/customers/summaries"))
+                .andExpect(status().isForbidden());
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.util.Map;
 import java.util.Set;
 
 import static org.mockito.Mockito.when;
@@ -51,4 +52,17 @@ class LocationRoleControllerTest {
             .andExpect(status().isOk())
             .andExpect(jsonPath("$.roles").isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldReturnRolesForUserAtAllLocations() throws Exception {
+        when(locationRoleService.getUserLocationRoles())
+            .thenReturn(Map.of(
+                101L, Set.of("SECURITY_SYSTEM_ARMER"),
+                102L, Set.of("SECURITY_SYSTEM_DISARMER", "SECURITY_SYSTEM_VIEWER")));
+
+        mockMvc.perform(get("/location-roles"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.locationRoles['101'][0]").value("SECURITY_SYSTEM_ARMER"))
+            .andExpect(jsonPath("$.locationRoles['102'].length()").value(2));
+    }
+}
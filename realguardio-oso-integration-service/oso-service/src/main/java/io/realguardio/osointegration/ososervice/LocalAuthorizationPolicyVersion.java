@@ -0,0 +1,82 @@
+package io.realguardio.osointegration.ososervice;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+
+/**
+ * Identifies the policy and data bindings that local authorization SQL is generated from.
+ * The policy lives in Oso Cloud, so its version is configured via {@code oso.policy-version};
+ * the data bindings file is hashed and rehashed when its modification time changes.
+ */
+public class LocalAuthorizationPolicyVersion {
+
+  private static final Logger logger = LoggerFactory.getLogger(LocalAuthorizationPolicyVersion.class);
+
+  private final String policyVersion;
+  private final Path dataBindingsPath;
+  private final Duration checkInterval;
+  private final Clock clock;
+
+  private Instant nextCheck = Instant.MIN;
+  private FileTime dataBindingsModified;
+  private String current;
+
+  public LocalAuthorizationPolicyVersion(String policyVersion, Path dataBindingsPath, Duration checkInterval) {
+    this(policyVersion, dataBindingsPath, checkInterval, Clock.systemUTC());
+  }
+
+  LocalAuthorizationPolicyVersion(String policyVersion, Path dataBindingsPath, Duration checkInterval, Clock clock) {
+    this.policyVersion = policyVersion;
+    this.dataBindingsPath = dataBindingsPath;
+    this.checkInterval = checkInterval;
+    this.clock = clock;
+  }
+
+  public synchronized String current() {
+    Instant now = clock.instant();
+    if (current == null || !now.isBefore(nextCheck)) {
+      nextCheck = now.plus(checkInterval);
+      refresh();
+    }
+    return current;
+  }
+
+  private void refresh() {
+    if (dataBindingsPath == null) {
+      current = policyVersion;
+      return;
+    }
+    try {
+      FileTime modified = Files.getLastModifiedTime(dataBindingsPath);
+      if (current != null && modified.equals(dataBindingsModified))
+        return;
+      dataBindingsModified = modified;
+      String version = policyVersion + ":" + sha256(Files.readAllBytes(dataBindingsPath));
+      if (current != null && !version.equals(current))
+        logger.info("Local authorization data bindings {} changed: version={}", dataBindingsPath, version);
+      current = version;
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static String sha256(byte[] bytes) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,17 @@
+package io.realguardio.osointegration.ososervice;
+
+import java.util.List;
+
+/**
+ * SQL generated by Oso local authorization together with the values of its {@code ?} placeholders.
+ */
+public record LocalAuthorizationQuery(String sql, List<Object> parameters) {
+
+  public static LocalAuthorizationQuery withoutParameters(String sql) {
+    return new LocalAuthorizationQuery(sql, List.of());
+  }
+
+  public Object[] parameterArray() {
+    return parameters.toArray();
+  }
+}
@@ -0,0 +1,68 @@
+package io.realguardio.osointegration.ososervice;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local authorization SQL in which the actor and resource ids have been replaced by {@code ?} placeholders.
+ * It's created from SQL that Oso generated for sentinel ids: quoted occurrences of a sentinel become text
+ * parameters and bare occurrences of the numeric resource sentinel become numeric parameters.
+ */
+record LocalAuthorizationSqlTemplate(String sql, List<Parameter> parameters) {
+
+  enum Parameter {
+    ACTOR_ID, RESOURCE_ID_TEXT, RESOURCE_ID_NUMBER
+  }
+
+  static final String ACTOR_SENTINEL = "__realguardio_template_actor__";
+
+  // Numeric so that it's valid for resource types whose sql_type is integer
+  static final String RESOURCE_SENTINEL = "2147483547";
+
+  private static final Pattern SENTINELS = Pattern.compile(
+      "'" + ACTOR_SENTINEL + "'|'" + RESOURCE_SENTINEL + "'|(?<![\\w.])" + RESOURCE_SENTINEL + "(?![\\w.])");
+
+  /**
+   * Returns null if the SQL can't be parameterized, e.g. because it already contains a {@code ?}.
+   */
+  static LocalAuthorizationSqlTemplate parse(String generatedSql) {
+    if (generatedSql.indexOf('?') >= 0)
+      return null;
+
+    List<Parameter> parameters = new ArrayList<>();
+    StringBuilder sql = new StringBuilder();
+    Matcher matcher = SENTINELS.matcher(generatedSql);
+    while (matcher.find()) {
+      String match = matcher.group();
+      if (match.contains(ACTOR_SENTINEL))
+        parameters.add(Parameter.ACTOR_ID);
+      else if (match.startsWith("'"))
+        parameters.add(Parameter.RESOURCE_ID_TEXT);
+      else
+        parameters.add(Parameter.RESOURCE_ID_NUMBER);
+      matcher.appendReplacement(sql, "?");
+    }
+    matcher.appendTail(sql);
+
+    String templateSql = sql.toString();
+    // A sentinel that survived, e.g. inside a longer literal, would be evaluated as a constant
+    if (templateSql.contains(ACTOR_SENTINEL) || templateSql.contains(RESOURCE_SENTINEL))
+      return null;
+
+    return new LocalAuthorizationSqlTemplate(templateSql, List.copyOf(parameters));
+  }
+
+  LocalAuthorizationQuery bind(String actorId, String resourceId) {
+    List<Object> values = new ArrayList<>(parameters.size());
+    for (Parameter parameter : parameters) {
+      switch (parameter) {
+        case ACTOR_ID -> values.add(actorId);
+        case RESOURCE_ID_TEXT -> values.add(resourceId);
+        case RESOURCE_ID_NUMBER -> values.add(Long.parseLong(resourceId));
+      }
+    }
+    return new LocalAuthorizationQuery(sql, values);
+  }
+}
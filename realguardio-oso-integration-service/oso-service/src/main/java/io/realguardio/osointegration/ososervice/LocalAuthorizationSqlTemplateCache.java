@@ -0,0 +1,107 @@
+package io.realguardio.osointegration.ososervice;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Caches local authorization SQL as templates whose actor and resource ids are bind parameters,
+ * so that the Oso client isn't called per request and the database sees the same SQL text and can reuse its plan.
+ * <p>
+ * Templates are keyed by (action, resource type, policy version) and are generated for a sentinel actor. Oso inlines
+ * facts that it holds in the cloud, such as an actor's roles, into the SQL, so a template is only cached if it refers
+ * to the actor, i.e. the actor's facts come from data bindings and a revoked role takes effect on the next query.
+ * Otherwise, the SQL is generated for each request, and the key is remembered until the policy version changes,
+ * so the sentinel SQL is only generated once per key. Resource ids are always parameterized, which assumes the
+ * resource's relations come from data bindings. When the policy version changes, all templates are discarded.
+ * <p>
+ * With this repo's policy, roles and team membership are cloud facts and the data bindings only cover
+ * SecuritySystem-Location relations, so no template is cached and every request still calls the Oso client.
+ * The cache pays off once actor facts are moved to data bindings.
+ */
+public class LocalAuthorizationSqlTemplateCache {
+
+  private static final Logger logger = LoggerFactory.getLogger(LocalAuthorizationSqlTemplateCache.class);
+
+  private record TemplateKey(String operation, String action, String resourceType, String column, String policyVersion) {
+  }
+
+  private final OsoService osoService;
+  private final LocalAuthorizationPolicyVersion policyVersion;
+  private final Cache<TemplateKey, LocalAuthorizationSqlTemplate> templates;
+  private final Set<TemplateKey> perRequestKeys = ConcurrentHashMap.newKeySet();
+
+  private volatile String lastPolicyVersion;
+
+  public LocalAuthorizationSqlTemplateCache(OsoService osoService, LocalAuthorizationPolicyVersion policyVersion,
+                                            long maximumSize, Duration timeToLive) {
+    this.osoService = osoService;
+    this.policyVersion = policyVersion;
+    this.templates = Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfterWrite(timeToLive)
+        .build();
+  }
+
+  public LocalAuthorizationQuery authorizeLocal(String actorType, String actorId, String action, String resourceType, String resourceId) {
+    TemplateKey key = new TemplateKey("authorizeLocal", action, resourceType, null, currentPolicyVersion());
+    LocalAuthorizationSqlTemplate template = template(key, () ->
+        osoService.authorizeLocal(actorType, LocalAuthorizationSqlTemplate.ACTOR_SENTINEL, action, resourceType, LocalAuthorizationSqlTemplate.RESOURCE_SENTINEL));
+    if (template == null)
+      return LocalAuthorizationQuery.withoutParameters(osoService.authorizeLocal(actorType, actorId, action, resourceType, resourceId));
+    return template.bind(actorId, resourceId);
+  }
+
+  public LocalAuthorizationQuery listLocal(String actorType, String actorId, String action, String resourceType, String column) {
+    TemplateKey key = new TemplateKey("listLocal", action, resourceType, column, currentPolicyVersion());
+    LocalAuthorizationSqlTemplate template = template(key, () ->
+        osoService.listLocal(actorType, LocalAuthorizationSqlTemplate.ACTOR_SENTINEL, action, resourceType, column));
+    if (template == null)
+      return LocalAuthorizationQuery.withoutParameters(osoService.listLocal(actorType, actorId, action, resourceType, column));
+    return template.bind(actorId, null);
+  }
+
+  public void invalidateAll() {
+    templates.invalidateAll();
+    perRequestKeys.clear();
+  }
+
+  /**
+   * Returns the cached template for the key, or null if the key's SQL must be generated per request.
+   */
+  private LocalAuthorizationSqlTemplate template(TemplateKey key, Supplier<String> sentinelSql) {
+    if (perRequestKeys.contains(key))
+      return null;
+    LocalAuthorizationSqlTemplate template = templates.get(key, k -> actorTemplate(sentinelSql.get()));
+    if (template == null && perRequestKeys.add(key))
+      logger.info("Local authorization SQL for {} {} {} can't be shared across actors, generating it per request",
+          key.operation(), key.action(), key.resourceType());
+    return template;
+  }
+
+  // SQL that doesn't refer to the actor has the sentinel actor's cloud-held facts inlined, so it can't be reused for other actors
+  private LocalAuthorizationSqlTemplate actorTemplate(String generatedSql) {
+    LocalAuthorizationSqlTemplate template = LocalAuthorizationSqlTemplate.parse(generatedSql);
+    if (template == null || !template.parameters().contains(LocalAuthorizationSqlTemplate.Parameter.ACTOR_ID))
+      return null;
+    return template;
+  }
+
+  private String currentPolicyVersion() {
+    String version = policyVersion.current();
+    if (!version.equals(lastPolicyVersion)) {
+      if (lastPolicyVersion != null) {
+        logger.info("Local authorization policy version changed from {} to {}, discarding SQL templates", lastPolicyVersion, version);
+        invalidateAll();
+      }
+      lastPolicyVersion = version;
+    }
+    return version;
+  }
+}
@@ -1,5 +1,6 @@
 package io.realguardio.osointegration.ososervice;
 
+import io.github.resilience4j.bulkhead.annotation.Bulkhead;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import io.github.resilience4j.retry.annotation.Retry;
 import io.github.resilience4j.timelimiter.annotation.TimeLimiter;
@@ -13,16 +14,23 @@ public class RealGuardOsoAuthorizer {
   private static final Logger logger = LoggerFactory.getLogger(RealGuardOsoAuthorizer.class);
 
   private final OsoService osoService;
+  private final LocalAuthorizationSqlTemplateCache sqlTemplateCache;
 
-  public RealGuardOsoAuthorizer(OsoService osoService) {
+  public RealGuardOsoAuthorizer(OsoService osoService, LocalAuthorizationSqlTemplateCache sqlTemplateCache) {
     this.osoService = osoService;
+    this.sqlTemplateCache = sqlTemplateCache;
   }
 
+  /**
+   * The blocking Oso call runs on the osoAuthorizer thread pool bulkhead. When its threads are busy and its queue is
+   * full, the call is rejected with a {@code BulkheadFullException} and the fallback denies access.
+   */
   @CircuitBreaker(name = "osoAuthorizer")
   @TimeLimiter(name = "osoAuthorizer")
   @Retry(name = "osoAuthorizer", fallbackMethod = "isAuthorizedFallback")
+  @Bulkhead(name = "osoAuthorizer", type = Bulkhead.Type.THREADPOOL)
   public CompletableFuture<Boolean> isAuthorized(String user, String action, String resourceType, String resourceId) {
-        return CompletableFuture.supplyAsync(() -> osoService.authorize("CustomerEmployee", user, action, resourceType, resourceId));
+    return CompletableFuture.completedFuture(osoService.authorize("CustomerEmployee", user, action, resourceType, resourceId));
   }
 
   private CompletableFuture<Boolean> isAuthorizedFallback(String user, String action, String resourceType, String resourceId, Exception exception) {
@@ -38,4 +46,16 @@ public class RealGuardOsoAuthorizer {
   public String authorizeLocal(String userId, String action, String resourceType, String resourceId) {
       return osoService.authorizeLocal("CustomerEmployee", userId, action, resourceType, resourceId);
   }
+
+  public LocalAuthorizationQuery listLocalQuery(String userId, String action, String resourceType, String column) {
+    if (sqlTemplateCache == null)
+      return LocalAuthorizationQuery.withoutParameters(listLocal(userId, action, resourceType, column));
+    return sqlTemplateCache.listLocal("CustomerEmployee", userId, action, resourceType, column);
+  }
+
+  public LocalAuthorizationQuery authorizeLocalQuery(String userId, String action, String resourceType, String resourceId) {
+    if (sqlTemplateCache == null)
+      return LocalAuthorizationQuery.withoutParameters(authorizeLocal(userId, action, resourceType, resourceId));
+    return sqlTemplateCache.authorizeLocal("CustomerEmployee", userId, action, resourceType, resourceId);
+  }
 }
@@ -1,14 +1,34 @@
 package io.realguardio.osointegration.ososervice;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 @Configuration
 public class RealGuardOsoAuthorizerConfiguration {
 
     @Bean
-    RealGuardOsoAuthorizer realGuardOsoAuthorizer(OsoService osoService) {
-        return new RealGuardOsoAuthorizer(osoService);
+    RealGuardOsoAuthorizer realGuardOsoAuthorizer(OsoService osoService, LocalAuthorizationSqlTemplateCache localAuthorizationSqlTemplateCache) {
+        return new RealGuardOsoAuthorizer(osoService, localAuthorizationSqlTemplateCache);
+    }
+
+    @Bean
+    LocalAuthorizationPolicyVersion localAuthorizationPolicyVersion(@Value("${oso.policy-version:}") String policyVersion,
+                                                                    @Value("${oso.local-authorization.data-bindings-check-interval:PT10S}") Duration checkInterval,
+                                                                    ObjectProvider<LocalAuthorizationConfigFileSupplier> localAuthorizationConfigFileSupplier) {
+        LocalAuthorizationConfigFileSupplier supplier = localAuthorizationConfigFileSupplier.getIfAvailable();
+        return new LocalAuthorizationPolicyVersion(policyVersion, supplier == null ? null : supplier.get(), checkInterval);
+    }
+
+    @Bean
+    LocalAuthorizationSqlTemplateCache localAuthorizationSqlTemplateCache(OsoService osoService,
+                                                                          LocalAuthorizationPolicyVersion localAuthorizationPolicyVersion,
+                                                                          @Value("${oso.local-authorization.sql-template-cache.maximum-size:10000}") long maximumSize,
+                                                                          @Value("${oso.local-authorization.sql-template-cache.time-to-live:PT30S}") Duration timeToLive) {
+        return new LocalAuthorizationSqlTemplateCache(osoService, localAuthorizationPolicyVersion, maximumSize, timeToLive);
     }
 
 }
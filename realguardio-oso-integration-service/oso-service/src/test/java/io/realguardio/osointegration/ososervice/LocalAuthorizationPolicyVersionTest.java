@@ -0,0 +1,51 @@
+package io.realguardio.osointegration.ososervice;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LocalAuthorizationPolicyVersionTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void shouldChangeWhenDataBindingsChangeAfterCheckInterval() throws Exception {
+    Path dataBindings = Files.writeString(tempDir.resolve("local_authorization_config.yaml"), "facts:\n");
+    Instant start = Instant.parse("2025-01-01T00:00:00Z");
+    Clock clock = mock(Clock.class);
+    when(clock.instant()).thenReturn(start);
+
+    LocalAuthorizationPolicyVersion policyVersion = new LocalAuthorizationPolicyVersion("p1", dataBindings, Duration.ofSeconds(10), clock);
+    String initial = policyVersion.current();
+    assertThat(initial).startsWith("p1:");
+
+    Files.writeString(dataBindings, "facts:\nsql_types:\n");
+    Files.setLastModifiedTime(dataBindings, FileTime.from(start.plusSeconds(1)));
+
+    assertThat(policyVersion.current()).isEqualTo(initial);
+
+    when(clock.instant()).thenReturn(start.plusSeconds(10));
+
+    assertThat(policyVersion.current()).isNotEqualTo(initial).startsWith("p1:");
+  }
+
+  @Test
+  void shouldUseConfiguredVersionWithoutDataBindings() {
+    LocalAuthorizationPolicyVersion policyVersion = new LocalAuthorizationPolicyVersion("p1", null, Duration.ofSeconds(10),
+        Clock.fixed(Instant.EPOCH, ZoneOffset.UTC));
+
+    assertThat(policyVersion.current()).isEqualTo("p1");
+  }
+}
@@ -0,0 +1,125 @@
+package io.realguardio.osointegration.ososervice;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static io.realguardio.osointegration.ososervice.LocalAuthorizationSqlTemplate.ACTOR_SENTINEL;
+import static io.realguardio.osointegration.ososervice.LocalAuthorizationSqlTemplate.RESOURCE_SENTINEL;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LocalAuthorizationSqlTemplateCacheTest {
+
+  private OsoService osoService;
+  private LocalAuthorizationPolicyVersion policyVersion;
+
+  @BeforeEach
+  void setUp() {
+    osoService = mock(OsoService.class);
+    policyVersion = mock(LocalAuthorizationPolicyVersion.class);
+    when(policyVersion.current()).thenReturn("v1");
+  }
+
+  @Test
+  void shouldReuseTemplateForDifferentActorsAndResources() {
+    when(osoService.authorizeLocal("CustomerEmployee", ACTOR_SENTINEL, "arm", "SecuritySystem", RESOURCE_SENTINEL))
+        .thenReturn("SELECT id = " + RESOURCE_SENTINEL + " FROM t WHERE user_name = '" + ACTOR_SENTINEL + "'");
+    LocalAuthorizationSqlTemplateCache cache = newCache();
+
+    LocalAuthorizationQuery alice = cache.authorizeLocal("CustomerEmployee", "alice", "arm", "SecuritySystem", "1");
+    LocalAuthorizationQuery bob = cache.authorizeLocal("CustomerEmployee", "bob", "arm", "SecuritySystem", "2");
+
+    assertThat(alice.sql()).isEqualTo("SELECT id = ? FROM t WHERE user_name = ?").isEqualTo(bob.sql());
+    assertThat(alice.parameters()).containsExactly(1L, "alice");
+    assertThat(bob.parameters()).containsExactly(2L, "bob");
+    verify(osoService, times(1)).authorizeLocal("CustomerEmployee", ACTOR_SENTINEL, "arm", "SecuritySystem", RESOURCE_SENTINEL);
+  }
+
+  @Test
+  void shouldShareListTemplateAcrossActors() {
+    when(osoService.listLocal("CustomerEmployee", ACTOR_SENTINEL, "view", "SecuritySystem", "ss.id"))
+        .thenReturn("ss.id IN (SELECT id FROM t WHERE user_name = '" + ACTOR_SENTINEL + "')");
+    LocalAuthorizationSqlTemplateCache cache = newCache();
+
+    LocalAuthorizationQuery alice = cache.listLocal("CustomerEmployee", "alice", "view", "SecuritySystem", "ss.id");
+    LocalAuthorizationQuery bob = cache.listLocal("CustomerEmployee", "bob", "view", "SecuritySystem", "ss.id");
+
+    assertThat(alice.sql()).isEqualTo("ss.id IN (SELECT id FROM t WHERE user_name = ?)").isEqualTo(bob.sql());
+    assertThat(alice.parameters()).containsExactly("alice");
+    assertThat(bob.parameters()).containsExactly("bob");
+    verify(osoService, times(1)).listLocal("CustomerEmployee", ACTOR_SENTINEL, "view", "SecuritySystem", "ss.id");
+  }
+
+  @Test
+  void shouldGenerateSqlPerRequestWhenActorFactsAreInlined() {
+    when(osoService.listLocal("CustomerEmployee", ACTOR_SENTINEL, "view", "SecuritySystem", "ss.id"))
+        .thenReturn("ss.id IN (SELECT id FROM t WHERE false)");
+    when(osoService.listLocal("CustomerEmployee", "alice", "view", "SecuritySystem", "ss.id"))
+        .thenReturn("ss.id IN (SELECT id FROM t WHERE location_id IN (1))")
+        .thenReturn("ss.id IN (SELECT id FROM t WHERE false)");
+    LocalAuthorizationSqlTemplateCache cache = newCache();
+
+    assertThat(cache.listLocal("CustomerEmployee", "alice", "view", "SecuritySystem", "ss.id").sql())
+        .isEqualTo("ss.id IN (SELECT id FROM t WHERE location_id IN (1))");
+    // e.g. alice's role was revoked
+    assertThat(cache.listLocal("CustomerEmployee", "alice", "view", "SecuritySystem", "ss.id").sql())
+        .isEqualTo("ss.id IN (SELECT id FROM t WHERE false)");
+    verify(osoService, times(1)).listLocal("CustomerEmployee", ACTOR_SENTINEL, "view", "SecuritySystem", "ss.id");
+  }
+
+  @Test
+  void shouldOnlyGenerateSentinelSqlOnceForKeyThatCannotBeShared() throws InterruptedException {
+    when(osoService.listLocal("CustomerEmployee", ACTOR_SENTINEL, "view", "SecuritySystem", "ss.id"))
+        .thenReturn("ss.id IN (SELECT id FROM t WHERE false)");
+    when(osoService.listLocal("CustomerEmployee", "alice", "view", "SecuritySystem", "ss.id"))
+        .thenReturn("ss.id IN (SELECT id FROM t WHERE location_id IN (1))");
+    LocalAuthorizationSqlTemplateCache cache = new LocalAuthorizationSqlTemplateCache(osoService, policyVersion, 100, Duration.ofMillis(1));
+
+    for (int i = 0; i < 3; i++) {
+      cache.listLocal("CustomerEmployee", "alice", "view", "SecuritySystem", "ss.id");
+      Thread.sleep(5);
+    }
+
+    verify(osoService, times(1)).listLocal("CustomerEmployee", ACTOR_SENTINEL, "view", "SecuritySystem", "ss.id");
+    verify(osoService, times(3)).listLocal("CustomerEmployee", "alice", "view", "SecuritySystem", "ss.id");
+  }
+
+  @Test
+  void shouldRegenerateTemplateWhenPolicyVersionChanges() {
+    when(osoService.listLocal("CustomerEmployee", ACTOR_SENTINEL, "view", "SecuritySystem", "ss.id"))
+        .thenReturn("ss.id IN (SELECT id FROM t WHERE user_name = '" + ACTOR_SENTINEL + "')")
+        .thenReturn("ss.id IN (SELECT id FROM u WHERE user_name = '" + ACTOR_SENTINEL + "')");
+    LocalAuthorizationSqlTemplateCache cache = newCache();
+
+    assertThat(cache.listLocal("CustomerEmployee", "alice", "view", "SecuritySystem", "ss.id").sql())
+        .isEqualTo("ss.id IN (SELECT id FROM t WHERE user_name = ?)");
+
+    when(policyVersion.current()).thenReturn("v2");
+
+    assertThat(cache.listLocal("CustomerEmployee", "alice", "view", "SecuritySystem", "ss.id").sql())
+        .isEqualTo("ss.id IN (SELECT id FROM u WHERE user_name = ?)");
+  }
+
+  @Test
+  void shouldFallBackToUncachedSqlWhenTemplateCannotBeCreated() {
+    when(osoService.listLocal("CustomerEmployee", ACTOR_SENTINEL, "view", "SecuritySystem", "ss.id"))
+        .thenReturn("ss.data ? '" + ACTOR_SENTINEL + "'");
+    when(osoService.listLocal("CustomerEmployee", "alice", "view", "SecuritySystem", "ss.id"))
+        .thenReturn("ss.data ? 'alice'");
+    LocalAuthorizationSqlTemplateCache cache = newCache();
+
+    LocalAuthorizationQuery query = cache.listLocal("CustomerEmployee", "alice", "view", "SecuritySystem", "ss.id");
+
+    assertThat(query.sql()).isEqualTo("ss.data ? 'alice'");
+    assertThat(query.parameters()).isEmpty();
+  }
+
+  private LocalAuthorizationSqlTemplateCache newCache() {
+    return new LocalAuthorizationSqlTemplateCache(osoService, policyVersion, 100, Duration.ofMinutes(1));
+  }
+}
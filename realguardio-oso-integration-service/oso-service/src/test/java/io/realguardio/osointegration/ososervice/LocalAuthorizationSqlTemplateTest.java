@@ -0,0 +1,42 @@
+package io.realguardio.osointegration.ososervice;
+
+import org.junit.jupiter.api.Test;
+
+import static io.realguardio.osointegration.ososervice.LocalAuthorizationSqlTemplate.ACTOR_SENTINEL;
+import static io.realguardio.osointegration.ososervice.LocalAuthorizationSqlTemplate.RESOURCE_SENTINEL;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocalAuthorizationSqlTemplateTest {
+
+  @Test
+  void shouldReplaceSentinelsWithParameters() {
+    String generatedSql = "SELECT EXISTS (SELECT 1 FROM security_system WHERE id = " + RESOURCE_SENTINEL
+        + " AND location_id IN (SELECT location_id FROM roles WHERE user_name = '" + ACTOR_SENTINEL + "'))";
+
+    LocalAuthorizationSqlTemplate template = LocalAuthorizationSqlTemplate.parse(generatedSql);
+
+    assertThat(template.sql())
+        .isEqualTo("SELECT EXISTS (SELECT 1 FROM security_system WHERE id = ? AND location_id IN (SELECT location_id FROM roles WHERE user_name = ?))");
+
+    LocalAuthorizationQuery query = template.bind("alice", "123");
+    assertThat(query.parameters()).containsExactly(123L, "alice");
+  }
+
+  @Test
+  void shouldBindQuotedResourceIdAsText() {
+    LocalAuthorizationSqlTemplate template = LocalAuthorizationSqlTemplate.parse("SELECT '" + RESOURCE_SENTINEL + "' = 'x'");
+
+    assertThat(template.sql()).isEqualTo("SELECT ? = 'x'");
+    assertThat(template.bind("alice", "x").parameters()).containsExactly("x");
+  }
+
+  @Test
+  void shouldNotReplaceSentinelDigitsInsideLongerNumbers() {
+    assertThat(LocalAuthorizationSqlTemplate.parse("SELECT 1" + RESOURCE_SENTINEL)).isNull();
+  }
+
+  @Test
+  void shouldNotParameterizeSqlThatContainsPlaceholder() {
+    assertThat(LocalAuthorizationSqlTemplate.parse("SELECT data ? 'key' FROM t")).isNull();
+  }
+}
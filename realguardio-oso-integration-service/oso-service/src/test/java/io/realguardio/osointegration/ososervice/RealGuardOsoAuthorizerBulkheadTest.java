@@ -0,0 +1,82 @@
+package io.realguardio.osointegration.ososervice;
+
+import io.github.resilience4j.bulkhead.ThreadPoolBulkheadRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(classes = RealGuardOsoAuthorizerBulkheadTest.TestConfig.class)
+@TestPropertySource(properties = {
+    "resilience4j.thread-pool-bulkhead.instances.osoAuthorizer.core-thread-pool-size=1",
+    "resilience4j.thread-pool-bulkhead.instances.osoAuthorizer.max-thread-pool-size=1",
+    "resilience4j.thread-pool-bulkhead.instances.osoAuthorizer.queue-capacity=1",
+    "resilience4j.retry.instances.osoAuthorizer.max-attempts=3",
+    "resilience4j.retry.instances.osoAuthorizer.ignore-exceptions=io.github.resilience4j.bulkhead.BulkheadFullException",
+    "resilience4j.timelimiter.instances.osoAuthorizer.timeout-duration=10s"
+})
+class RealGuardOsoAuthorizerBulkheadTest {
+
+    @Configuration
+    @EnableAutoConfiguration
+    @EnableAspectJAutoProxy
+    @Import(RealGuardOsoAuthorizerConfiguration.class)
+    static class TestConfig {
+    }
+
+    @Autowired
+    private RealGuardOsoAuthorizer authorizer;
+
+    @Autowired
+    private ThreadPoolBulkheadRegistry threadPoolBulkheadRegistry;
+
+    @MockBean
+    private OsoService mockOsoService;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+    }
+
+    @Test
+    void shouldDenyAccessWithoutRetryingWhenPoolAndQueueAreFull() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        when(mockOsoService.authorize(anyString(), anyString(), anyString(), anyString(), anyString())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return true;
+        });
+
+        CompletableFuture<Boolean> running = authorizer.isAuthorized("alice", "arm", "SecuritySystem", "1");
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Boolean> queued = authorizer.isAuthorized("alice", "arm", "SecuritySystem", "2");
+        CompletableFuture<Boolean> rejected = authorizer.isAuthorized("alice", "arm", "SecuritySystem", "3");
+
+        assertThat(threadPoolBulkheadRegistry.bulkhead("osoAuthorizer").getMetrics().getQueueDepth()).isEqualTo(1);
+        assertThat(rejected.get(5, TimeUnit.SECONDS)).isFalse();
+        verify(mockOsoService, never()).authorize(anyString(), anyString(), anyString(), anyString(), eq("3"));
+
+        release.countDown();
+        assertThat(running.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(queued.get(5, TimeUnit.SECONDS)).isTrue();
+    }
+}
@@ -36,7 +36,9 @@ import static org.mockito.Mockito.*;
     "resilience4j.retry.instances.osoAuthorizer.retry-exceptions=java.lang.RuntimeException,java.util.concurrent.TimeoutException",
     "resilience4j.retry.instances.osoAuthorizer.ignore-exceptions=io.github.resilience4j.circuitbreaker.CallNotPermittedException",
     "resilience4j.timelimiter.instances.osoAuthorizer.timeout-duration=2s",
-    "resilience4j.timelimiter.instances.osoAuthorizer.cancel-running-future=true"
+    "resilience4j.timelimiter.instances.osoAuthorizer.cancel-running-future=true",
+    "resilience4j.thread-pool-bulkhead.instances.osoAuthorizer.core-thread-pool-size=4",
+    "resilience4j.thread-pool-bulkhead.instances.osoAuthorizer.max-thread-pool-size=4"
 })
 class RealGuardOsoAuthorizerTest {
 
@@ -0,0 +1,28 @@
+package io.eventuate.examples.realguardio.securitysystemservice.cacheinvalidation.messaging;
+
+import io.eventuate.examples.realguardio.securitysystemservice.domain.CacheInvalidationBus;
+import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystemStateChangeBus;
+import io.eventuate.tram.messaging.consumer.MessageConsumer;
+import io.eventuate.tram.messaging.producer.MessageProducer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class CacheInvalidationMessagingConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(name = "cache-invalidation.transport", havingValue = "eventuate")
+    public CacheInvalidationBus eventuateCacheInvalidationBus(MessageProducer messageProducer, MessageConsumer messageConsumer,
+                                                              @Value("${cache-invalidation.instance-name:${HOSTNAME:localhost}}") String instanceName) {
+        return new EventuateCacheInvalidationBus(messageProducer, messageConsumer, instanceName);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "security-system.state-changes.transport", havingValue = "eventuate")
+    public SecuritySystemStateChangeBus eventuateSecuritySystemStateChangeBus(MessageProducer messageProducer, MessageConsumer messageConsumer,
+                                                                              @Value("${cache-invalidation.instance-name:${HOSTNAME:localhost}}") String instanceName) {
+        return new EventuateSecuritySystemStateChangeBus(messageProducer, messageConsumer, instanceName);
+    }
+}
@@ -0,0 +1,44 @@
+package io.eventuate.examples.realguardio.securitysystemservice.cacheinvalidation.messaging;
+
+import io.eventuate.common.json.mapper.JSonMapper;
+import io.eventuate.examples.realguardio.securitysystemservice.domain.CacheInvalidationBus;
+import io.eventuate.examples.realguardio.securitysystemservice.domain.CacheInvalidationMessage;
+import io.eventuate.tram.messaging.consumer.MessageConsumer;
+import io.eventuate.tram.messaging.producer.MessageBuilder;
+import io.eventuate.tram.messaging.producer.MessageProducer;
+
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Broadcasts cache invalidations to every security-system-service instance through the message broker.
+ * Messages are sent via the transactional outbox, so they are only relayed once the transaction commits.
+ * Each instance subscribes with its own subscriber id, i.e. its own consumer group, so every instance receives every message.
+ * The subscriber id is derived from the instance name, which must be unique and stable across restarts, e.g. a StatefulSet pod name,
+ * so a restarted instance resumes its consumer group rather than abandoning it and replaying the channel in a new one.
+ */
+public class EventuateCacheInvalidationBus implements CacheInvalidationBus {
+
+    public static final String CHANNEL = "realguardio.security-system-service.cache-invalidation";
+
+    private final MessageProducer messageProducer;
+    private final MessageConsumer messageConsumer;
+    private final String subscriberId;
+
+    public EventuateCacheInvalidationBus(MessageProducer messageProducer, MessageConsumer messageConsumer, String instanceName) {
+        this.messageProducer = messageProducer;
+        this.messageConsumer = messageConsumer;
+        this.subscriberId = "securitySystemServiceCacheInvalidation-" + instanceName;
+    }
+
+    @Override
+    public void send(CacheInvalidationMessage message) {
+        messageProducer.send(CHANNEL, MessageBuilder.withPayload(JSonMapper.toJson(message)).build());
+    }
+
+    @Override
+    public void subscribe(Consumer<CacheInvalidationMessage> handler) {
+        messageConsumer.subscribe(subscriberId, Set.of(CHANNEL),
+            message -> handler.accept(JSonMapper.fromJson(message.getPayload(), CacheInvalidationMessage.class)));
+    }
+}
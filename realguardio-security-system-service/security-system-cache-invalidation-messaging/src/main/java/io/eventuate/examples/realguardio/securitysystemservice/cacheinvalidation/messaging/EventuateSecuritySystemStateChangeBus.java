@@ -0,0 +1,43 @@
+package io.eventuate.examples.realguardio.securitysystemservice.cacheinvalidation.messaging;
+
+import io.eventuate.common.json.mapper.JSonMapper;
+import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystemStateChange;
+import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystemStateChangeBus;
+import io.eventuate.tram.messaging.consumer.MessageConsumer;
+import io.eventuate.tram.messaging.producer.MessageBuilder;
+import io.eventuate.tram.messaging.producer.MessageProducer;
+
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Broadcasts security system state changes to every security-system-service instance through the message broker,
+ * so that server-sent event streams see the changes committed by any instance.
+ * Like {@link EventuateCacheInvalidationBus}, messages are sent via the transactional outbox and each instance
+ * subscribes with a subscriber id derived from its stable instance name.
+ */
+public class EventuateSecuritySystemStateChangeBus implements SecuritySystemStateChangeBus {
+
+    public static final String CHANNEL = "realguardio.security-system-service.state-changes";
+
+    private final MessageProducer messageProducer;
+    private final MessageConsumer messageConsumer;
+    private final String subscriberId;
+
+    public EventuateSecuritySystemStateChangeBus(MessageProducer messageProducer, MessageConsumer messageConsumer, String instanceName) {
+        this.messageProducer = messageProducer;
+        this.messageConsumer = messageConsumer;
+        this.subscriberId = "securitySystemServiceStateChanges-" + instanceName;
+    }
+
+    @Override
+    public void send(SecuritySystemStateChange change) {
+        messageProducer.send(CHANNEL, MessageBuilder.withPayload(JSonMapper.toJson(change)).build());
+    }
+
+    @Override
+    public void subscribe(Consumer<SecuritySystemStateChange> handler) {
+        messageConsumer.subscribe(subscriberId, Set.of(CHANNEL),
+            message -> handler.accept(JSonMapper.fromJson(message.getPayload(), SecuritySystemStateChange.class)));
+    }
+}
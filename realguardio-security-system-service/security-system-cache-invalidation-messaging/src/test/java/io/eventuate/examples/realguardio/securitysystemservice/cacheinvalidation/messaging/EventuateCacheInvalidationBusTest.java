@@ -0,0 +1,64 @@
+package io.eventuate.examples.realguardio.securitysystemservice.cacheinvalidation.messaging;
+
+import io.eventuate.examples.realguardio.securitysystemservice.domain.CacheInvalidation;
+import io.eventuate.examples.realguardio.securitysystemservice.domain.CacheInvalidationMessage;
+import io.eventuate.tram.messaging.common.Message;
+import io.eventuate.tram.messaging.consumer.MessageConsumer;
+import io.eventuate.tram.messaging.consumer.MessageHandler;
+import io.eventuate.tram.messaging.producer.MessageProducer;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class EventuateCacheInvalidationBusTest {
+
+    private final MessageProducer messageProducer = mock(MessageProducer.class);
+    private final MessageConsumer messageConsumer = mock(MessageConsumer.class);
+
+    @Test
+    void shouldDeliverSentMessageToSubscriber() {
+        EventuateCacheInvalidationBus bus = new EventuateCacheInvalidationBus(messageProducer, messageConsumer, "security-system-service-0");
+        List<CacheInvalidationMessage> received = new ArrayList<>();
+        bus.subscribe(received::add);
+
+        CacheInvalidationMessage sent = new CacheInvalidationMessage("instance-1", 1000L,
+            List.of(CacheInvalidation.userLocationRoles("alice", 10L), CacheInvalidation.allLocationRoles()));
+        bus.send(sent);
+
+        ArgumentCaptor<Message> message = ArgumentCaptor.forClass(Message.class);
+        verify(messageProducer).send(eq(EventuateCacheInvalidationBus.CHANNEL), message.capture());
+        ArgumentCaptor<MessageHandler> handler = ArgumentCaptor.forClass(MessageHandler.class);
+        verify(messageConsumer).subscribe(eq("securitySystemServiceCacheInvalidation-security-system-service-0"),
+            eq(Set.of(EventuateCacheInvalidationBus.CHANNEL)), handler.capture());
+
+        handler.getValue().accept(message.getValue());
+
+        assertThat(received).containsExactly(sent);
+    }
+
+    @Test
+    void shouldResumeTheSameSubscriptionAfterRestartButNotShareItWithOtherInstances() {
+        new EventuateCacheInvalidationBus(messageProducer, messageConsumer, "security-system-service-0").subscribe(message -> {});
+        new EventuateCacheInvalidationBus(messageProducer, messageConsumer, "security-system-service-0").subscribe(message -> {});
+        new EventuateCacheInvalidationBus(messageProducer, messageConsumer, "security-system-service-1").subscribe(message -> {});
+
+        ArgumentCaptor<String> subscriberIds = ArgumentCaptor.forClass(String.class);
+        verify(messageConsumer, times(3)).subscribe(subscriberIds.capture(), eq(Set.of(EventuateCacheInvalidationBus.CHANNEL)),
+            any());
+
+        assertThat(subscriberIds.getAllValues()).containsExactly(
+            "securitySystemServiceCacheInvalidation-security-system-service-0",
+            "securitySystemServiceCacheInvalidation-security-system-service-0",
+            "securitySystemServiceCacheInvalidation-security-system-service-1");
+    }
+}
@@ -0,0 +1,45 @@
+package io.eventuate.examples.realguardio.securitysystemservice.cacheinvalidation.messaging;
+
+import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystemState;
+import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystemStateChange;
+import io.eventuate.tram.messaging.common.Message;
+import io.eventuate.tram.messaging.consumer.MessageConsumer;
+import io.eventuate.tram.messaging.consumer.MessageHandler;
+import io.eventuate.tram.messaging.producer.MessageProducer;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class EventuateSecuritySystemStateChangeBusTest {
+
+    private final MessageProducer messageProducer = mock(MessageProducer.class);
+    private final MessageConsumer messageConsumer = mock(MessageConsumer.class);
+
+    @Test
+    void shouldDeliverSentChangeToSubscriber() {
+        EventuateSecuritySystemStateChangeBus bus = new EventuateSecuritySystemStateChangeBus(messageProducer, messageConsumer, "security-system-service-0");
+        List<SecuritySystemStateChange> received = new ArrayList<>();
+        bus.subscribe(received::add);
+
+        SecuritySystemStateChange sent = new SecuritySystemStateChange(1L, 10L, SecuritySystemState.ARMED, 3L);
+        bus.send(sent);
+
+        ArgumentCaptor<Message> message = ArgumentCaptor.forClass(Message.class);
+        verify(messageProducer).send(eq(EventuateSecuritySystemStateChangeBus.CHANNEL), message.capture());
+        ArgumentCaptor<MessageHandler> handler = ArgumentCaptor.forClass(MessageHandler.class);
+        verify(messageConsumer).subscribe(eq("securitySystemServiceStateChanges-security-system-service-0"),
+            eq(Set.of(EventuateSecuritySystemStateChangeBus.CHANNEL)), handler.capture());
+
+        handler.getValue().accept(message.getValue());
+
+        assertThat(received).containsExactly(sent);
+    }
+}
@@ -1,14 +1,14 @@
 package io.eventuate.examples.realguardio.securitysystemservice.locationroles.domain;
 
 import io.eventuate.examples.realguardio.securitysystemservice.domain.CustomerServiceClient;
+import io.eventuate.examples.realguardio.securitysystemservice.domain.LocationRolesReplica;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.List;
+import java.util.HashSet;
 import java.util.Set;
-import java.util.stream.Collectors;
 
-public class CustomerServiceClientReplicaImpl implements CustomerServiceClient {
+public class CustomerServiceClientReplicaImpl implements CustomerServiceClient, LocationRolesReplica {
 
     private static final Logger logger = LoggerFactory.getLogger(CustomerServiceClientReplicaImpl.class);
 
@@ -22,11 +22,8 @@ public class CustomerServiceClientReplicaImpl implements CustomerServiceClient {
     public Set<String> getUserRolesAtLocation(String userId, Long locationId) {
         logger.info("Retrieving roles for user {} at location {} from replica", userId, locationId);
         
-        List<LocationRole> locationRoles = locationRolesReplicaService.findLocationRoles(userId, locationId);
-        
-        Set<String> roles = locationRoles.stream()
-            .map(LocationRole::roleName)
-            .collect(Collectors.toSet());
+        // Includes the roles the user has through a team or at the location's customer, as well as the direct ones
+        Set<String> roles = new HashSet<>(locationRolesReplicaService.findEffectiveLocationRoles(userId, locationId));
         
         logger.info("Retrieved roles for user {} at location {} from replica: {}", 
             userId, locationId, roles);
@@ -0,0 +1,67 @@
+package io.eventuate.examples.realguardio.securitysystemservice.locationroles.domain;
+
+import io.eventuate.examples.realguardio.securitysystemservice.domain.LocationRoleIndex;
+import io.eventuate.examples.realguardio.securitysystemservice.domain.RoleBits;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the replica's effective location roles in memory so that {@code verifyCanDo()} doesn't query the database.
+ * Like {@link CustomerServiceClientReplicaImpl}, it contains the roles assigned directly to a user at a location as well
+ * as those the user has through a team or a customer-level role.
+ * <p>
+ * The replica never removes roles, so the index is add-only and {@link #addRole} is idempotent: it's bootstrapped
+ * from {@code effective_location_role} and then updated by {@link LocationRolesReplicaService} after each write.
+ * Each (user, location) entry is a long key and an int mask in an open-addressing table whose load factor stays
+ * between 0.25 and 0.5, i.e. 24 to 48 bytes per entry plus the per-user map entry.
+ */
+public class InMemoryLocationRoleIndex implements LocationRoleIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryLocationRoleIndex.class);
+
+    private final ConcurrentHashMap<String, LocationRoleMasks> userLocationRoles = new ConcurrentHashMap<>();
+
+    @Override
+    public int rolesMask(String userName, long locationId) {
+        LocationRoleMasks masks = userLocationRoles.get(userName);
+        return masks == null ? 0 : masks.get(locationId);
+    }
+
+    public void addRole(String userName, long locationId, String roleName) {
+        int bit = RoleBits.bitFor(roleName);
+        if (bit == 0)
+            return;
+        userLocationRoles.computeIfAbsent(userName.intern(), ignored -> new LocationRoleMasks()).add(locationId, bit);
+    }
+
+    public void bootstrap(LocationRolesRepository locationRolesRepository) {
+        long start = System.currentTimeMillis();
+        locationRolesRepository.forEachEffectiveLocationRole(this::addRole);
+        logger.info("Bootstrapped location role index: users={}, entries={}, elapsedMillis={}",
+                userCount(), entryCount(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Adds the user's effective roles at all locations, e.g. after they joined a team or were given a customer-level role.
+     */
+    public void addRolesOfUser(LocationRolesRepository locationRolesRepository, String userName) {
+        locationRolesRepository.forEachEffectiveLocationRoleOfUser(userName, this::addRole);
+    }
+
+    /**
+     * Adds every user's effective roles at the location, e.g. after a team was given a role there or it was created.
+     */
+    public void addRolesAtLocation(LocationRolesRepository locationRolesRepository, Long locationId) {
+        locationRolesRepository.forEachEffectiveLocationRoleAtLocation(locationId, this::addRole);
+    }
+
+    public int userCount() {
+        return userLocationRoles.size();
+    }
+
+    public long entryCount() {
+        return userLocationRoles.values().stream().mapToLong(LocationRoleMasks::size).sum();
+    }
+}
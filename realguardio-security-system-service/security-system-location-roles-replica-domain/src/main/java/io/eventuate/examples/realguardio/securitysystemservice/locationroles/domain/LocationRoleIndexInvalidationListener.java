@@ -0,0 +1,40 @@
+package io.eventuate.examples.realguardio.securitysystemservice.locationroles.domain;
+
+import io.eventuate.examples.realguardio.securitysystemservice.domain.CacheInvalidation;
+import io.eventuate.examples.realguardio.securitysystemservice.domain.CacheInvalidationListener;
+
+/**
+ * Brings this instance's {@link InMemoryLocationRoleIndex} up to date with role assignments that another instance
+ * wrote to the replica. The index is add-only, so the affected effective roles are re-read from the replica rather
+ * than evicted.
+ */
+public class LocationRoleIndexInvalidationListener implements CacheInvalidationListener {
+
+    private final InMemoryLocationRoleIndex locationRoleIndex;
+    private final LocationRolesRepository locationRolesRepository;
+
+    public LocationRoleIndexInvalidationListener(InMemoryLocationRoleIndex locationRoleIndex, LocationRolesRepository locationRolesRepository) {
+        this.locationRoleIndex = locationRoleIndex;
+        this.locationRolesRepository = locationRolesRepository;
+    }
+
+    @Override
+    public void invalidate(CacheInvalidation invalidation) {
+        switch (invalidation.scope()) {
+            case USER_LOCATION_ROLES -> {
+                for (String roleName : locationRolesRepository.findEffectiveLocationRoles(invalidation.userName(), invalidation.locationId()))
+                    locationRoleIndex.addRole(invalidation.userName(), invalidation.locationId(), roleName);
+            }
+            case LOCATION_ROLES -> locationRoleIndex.addRolesAtLocation(locationRolesRepository, invalidation.locationId());
+            case ALL_LOCATION_ROLES -> locationRoleIndex.bootstrap(locationRolesRepository);
+            case SECURITY_SYSTEMS -> {
+                // The index doesn't hold anything derived from security systems
+            }
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        locationRoleIndex.bootstrap(locationRolesRepository);
+    }
+}
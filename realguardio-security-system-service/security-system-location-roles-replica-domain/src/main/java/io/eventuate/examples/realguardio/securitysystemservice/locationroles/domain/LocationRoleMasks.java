@@ -0,0 +1,93 @@
+package io.eventuate.examples.realguardio.securitysystemservice.locationroles.domain;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * One user's role masks keyed by location id: an open-addressing table over parallel {@code long[]}/{@code int[]}
+ * arrays, so a lookup neither boxes nor allocates. A mask of 0 marks an empty slot.
+ * <p>
+ * Writers are serialized by {@code synchronized}. Readers are lock-free: a writer publishes a slot's mask with release
+ * semantics after writing its key, and a reader reads the mask with acquire semantics before the key, so a reader that
+ * sees a mask also sees its key. A grown table is filled before it is published through the volatile {@link #table}
+ * field. A racing reader therefore at worst misses a role that is being added, i.e. sees the replica as it was just
+ * before the update.
+ */
+class LocationRoleMasks {
+
+    private static final int INITIAL_CAPACITY = 4;
+    private static final VarHandle MASKS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private static final class Table {
+        final long[] keys;
+        final int[] masks;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            masks = new int[capacity];
+        }
+    }
+
+    private volatile Table table = new Table(INITIAL_CAPACITY);
+    private int size;
+
+    int get(long locationId) {
+        Table t = table;
+        int last = t.keys.length - 1;
+        for (int i = slot(locationId, last); ; i = (i + 1) & last) {
+            int mask = (int) MASKS.getAcquire(t.masks, i);
+            if (mask == 0)
+                return 0;
+            if (t.keys[i] == locationId)
+                return mask;
+        }
+    }
+
+    synchronized void add(long locationId, int roleBits) {
+        Table t = table;
+        int last = t.keys.length - 1;
+        for (int i = slot(locationId, last); ; i = (i + 1) & last) {
+            int mask = t.masks[i];
+            if (mask == 0) {
+                t.keys[i] = locationId;
+                MASKS.setRelease(t.masks, i, roleBits);
+                if (++size * 2 > t.keys.length)
+                    table = grow(t);
+                return;
+            }
+            if (t.keys[i] == locationId) {
+                MASKS.setRelease(t.masks, i, mask | roleBits);
+                return;
+            }
+        }
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized int capacity() {
+        return table.keys.length;
+    }
+
+    private static Table grow(Table t) {
+        Table grown = new Table(t.keys.length * 2);
+        int last = grown.keys.length - 1;
+        for (int j = 0; j < t.keys.length; j++) {
+            if (t.masks[j] == 0)
+                continue;
+            int i = slot(t.keys[j], last);
+            while (grown.masks[i] != 0)
+                i = (i + 1) & last;
+            grown.keys[i] = t.keys[j];
+            grown.masks[i] = t.masks[j];
+        }
+        return grown;
+    }
+
+    // Location ids are sequential, so mix the bits before masking
+    private static int slot(long locationId, int last) {
+        long h = locationId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & last;
+    }
+}
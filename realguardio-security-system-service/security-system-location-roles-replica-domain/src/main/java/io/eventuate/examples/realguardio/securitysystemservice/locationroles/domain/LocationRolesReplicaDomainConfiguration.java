@@ -1,5 +1,10 @@
 package io.eventuate.examples.realguardio.securitysystemservice.locationroles.domain;
 
+import io.eventuate.examples.realguardio.securitysystemservice.domain.CacheInvalidationBroadcaster;
+import io.eventuate.examples.realguardio.securitysystemservice.domain.LocationRolesCache;
+import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystemListCache;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
@@ -8,8 +13,30 @@ import org.springframework.context.annotation.Profile;
 public class LocationRolesReplicaDomainConfiguration {
 
     @Bean
-    LocationRolesReplicaService locationRolesReplicaService(LocationRolesRepository locationRolesRepository) {
-        return new LocationRolesReplicaService(locationRolesRepository);
+    LocationRolesReplicaService locationRolesReplicaService(LocationRolesRepository locationRolesRepository,
+                                                           LocationRolesCache locationRolesCache,
+                                                           ObjectProvider<InMemoryLocationRoleIndex> locationRoleIndex,
+                                                           ObjectProvider<CacheInvalidationBroadcaster> cacheInvalidationBroadcaster,
+                                                           ObjectProvider<SecuritySystemListCache> securitySystemListCache) {
+        return new LocationRolesReplicaService(locationRolesRepository, locationRolesCache, locationRoleIndex.getIfAvailable(),
+            cacheInvalidationBroadcaster.getIfAvailable(), securitySystemListCache.getIfAvailable());
+    }
+
+    @Bean
+    @Profile("UseRolesReplica")
+    @ConditionalOnProperty(name = "location-role-index.enabled", havingValue = "true")
+    InMemoryLocationRoleIndex inMemoryLocationRoleIndex(LocationRolesRepository locationRolesRepository) {
+        InMemoryLocationRoleIndex index = new InMemoryLocationRoleIndex();
+        index.bootstrap(locationRolesRepository);
+        return index;
+    }
+
+    @Bean
+    @Profile("UseRolesReplica")
+    @ConditionalOnProperty(name = "location-role-index.enabled", havingValue = "true")
+    LocationRoleIndexInvalidationListener locationRoleIndexInvalidationListener(InMemoryLocationRoleIndex inMemoryLocationRoleIndex,
+                                                                                LocationRolesRepository locationRolesRepository) {
+        return new LocationRoleIndexInvalidationListener(inMemoryLocationRoleIndex, locationRolesRepository);
     }
 
     @Bean
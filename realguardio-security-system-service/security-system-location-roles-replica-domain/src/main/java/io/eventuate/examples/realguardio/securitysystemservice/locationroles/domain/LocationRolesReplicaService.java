@@ -1,32 +1,153 @@
 package io.eventuate.examples.realguardio.securitysystemservice.locationroles.domain;
 
+import io.eventuate.examples.realguardio.securitysystemservice.domain.CacheInvalidation;
+import io.eventuate.examples.realguardio.securitysystemservice.domain.CacheInvalidationBroadcaster;
+import io.eventuate.examples.realguardio.securitysystemservice.domain.LocationRolesCache;
+import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystemListCache;
+
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class LocationRolesReplicaService {
 
     private final LocationRolesRepository locationRolesRepository;
+    private final LocationRolesCache locationRolesCache;
+    private final InMemoryLocationRoleIndex locationRoleIndex;
+    private final CacheInvalidationBroadcaster cacheInvalidationBroadcaster;
+    private final SecuritySystemListCache securitySystemListCache;
 
-    public LocationRolesReplicaService(LocationRolesRepository locationRolesRepository) {
+    /**
+     * @param locationRoleIndex updated after each write, or null if the index is disabled
+     * @param cacheInvalidationBroadcaster tells the other instances, which don't consume the replica's events, to evict
+     *                                     what each write invalidated, or null if this is the only instance
+     * @param securitySystemListCache whose watermark each write advances, or null if the list cache is disabled
+     */
+    public LocationRolesReplicaService(LocationRolesRepository locationRolesRepository, LocationRolesCache locationRolesCache,
+                                       InMemoryLocationRoleIndex locationRoleIndex, CacheInvalidationBroadcaster cacheInvalidationBroadcaster,
+                                       SecuritySystemListCache securitySystemListCache) {
         this.locationRolesRepository = locationRolesRepository;
+        this.locationRolesCache = locationRolesCache;
+        this.locationRoleIndex = locationRoleIndex;
+        this.cacheInvalidationBroadcaster = cacheInvalidationBroadcaster;
+        this.securitySystemListCache = securitySystemListCache;
     }
 
     public void saveLocationRole(String userName, Long locationId, String roleName) {
         locationRolesRepository.saveLocationRole(userName, locationId, roleName);
+        locationRolesCache.invalidate(userName, locationId);
+        if (locationRoleIndex != null)
+            locationRoleIndex.addRole(userName, locationId, roleName);
+        invalidated(CacheInvalidation.userLocationRoles(userName, locationId));
     }
 
     public void saveTeamMember(String teamId, String customerEmployeeId) {
         locationRolesRepository.saveTeamMember(teamId, customerEmployeeId);
+        if (locationRoleIndex != null)
+            locationRoleIndex.addRolesOfUser(locationRolesRepository, customerEmployeeId);
+        // The team's locations aren't known here, so any cached entry could be affected
+        locationRolesCache.invalidateAll();
+        invalidated(CacheInvalidation.allLocationRoles());
     }
 
     public void saveTeamLocationRole(String teamId, String roleName, Long locationId) {
         locationRolesRepository.saveTeamLocationRole(teamId, roleName, locationId);
+        locationRolesCache.invalidateLocation(locationId);
+        if (locationRoleIndex != null)
+            locationRoleIndex.addRolesAtLocation(locationRolesRepository, locationId);
+        invalidated(CacheInvalidation.locationRoles(locationId));
     }
 
     public void saveLocation(Long locationId, String customerId) {
         locationRolesRepository.saveLocation(locationId, customerId);
+        locationRolesCache.invalidateLocation(locationId);
+        if (locationRoleIndex != null)
+            locationRoleIndex.addRolesAtLocation(locationRolesRepository, locationId);
+        invalidated(CacheInvalidation.locationRoles(locationId));
+    }
+
+    public void saveCustomerRole(String userName, String customerId, String roleName) {
+        locationRolesRepository.saveCustomerRole(userName, customerId, roleName);
+        // The customer's locations aren't known here, so any cached entry could be affected
+        locationRolesCache.invalidateAll();
+        if (locationRoleIndex != null)
+            locationRoleIndex.addRolesOfUser(locationRolesRepository, userName);
+        invalidated(CacheInvalidation.allLocationRoles());
+    }
+
+    /**
+     * Writes the updates in a single transaction and then invalidates the affected cache entries and updates the index.
+     */
+    public void saveAll(List<LocationRolesReplicaUpdate> updates) {
+        locationRolesRepository.saveAll(updates);
+        if (locationRoleIndex != null)
+            updateIndex(updates);
+        if (updates.stream().anyMatch(update -> update instanceof LocationRolesReplicaUpdate.TeamMemberSaved
+                || update instanceof LocationRolesReplicaUpdate.CustomerRoleSaved)) {
+            // The team's or customer's locations aren't known here, so any cached entry could be affected
+            locationRolesCache.invalidateAll();
+            invalidated(CacheInvalidation.allLocationRoles());
+            return;
+        }
+        for (LocationRolesReplicaUpdate update : updates) {
+            if (update instanceof LocationRolesReplicaUpdate.LocationRoleSaved u) {
+                locationRolesCache.invalidate(u.userName(), u.locationId());
+                invalidated(CacheInvalidation.userLocationRoles(u.userName(), u.locationId()));
+            } else if (update instanceof LocationRolesReplicaUpdate.TeamLocationRoleSaved u) {
+                locationRolesCache.invalidateLocation(u.locationId());
+                invalidated(CacheInvalidation.locationRoles(u.locationId()));
+            } else if (update instanceof LocationRolesReplicaUpdate.LocationSaved u) {
+                locationRolesCache.invalidateLocation(u.locationId());
+                invalidated(CacheInvalidation.locationRoles(u.locationId()));
+            }
+        }
+    }
+
+    // Re-reads each affected user or location once, since a batch often holds several updates for the same one
+    private void updateIndex(List<LocationRolesReplicaUpdate> updates) {
+        Set<String> users = new HashSet<>();
+        Set<Long> locations = new HashSet<>();
+        for (LocationRolesReplicaUpdate update : updates) {
+            if (update instanceof LocationRolesReplicaUpdate.LocationRoleSaved u)
+                locationRoleIndex.addRole(u.userName(), u.locationId(), u.roleName());
+            else if (update instanceof LocationRolesReplicaUpdate.TeamMemberSaved u)
+                users.add(u.customerEmployeeId());
+            else if (update instanceof LocationRolesReplicaUpdate.CustomerRoleSaved u)
+                users.add(u.userName());
+            else if (update instanceof LocationRolesReplicaUpdate.TeamLocationRoleSaved u)
+                locations.add(u.locationId());
+            else if (update instanceof LocationRolesReplicaUpdate.LocationSaved u)
+                locations.add(u.locationId());
+        }
+        for (String userName : users)
+            locationRoleIndex.addRolesOfUser(locationRolesRepository, userName);
+        for (Long locationId : locations)
+            locationRoleIndex.addRolesAtLocation(locationRolesRepository, locationId);
+    }
+
+    // Called once this instance's location roles cache reflects the write
+    private void invalidated(CacheInvalidation invalidation) {
+        if (cacheInvalidationBroadcaster != null)
+            cacheInvalidationBroadcaster.broadcast(invalidation);
+        if (securitySystemListCache != null)
+            securitySystemListCache.locationRolesChanged();
     }
 
     public List<LocationRole> findLocationRoles(String userName, Long locationId) {
         return locationRolesRepository.findLocationRoles(userName, locationId);
     }
-}
\ No newline at end of file
+
+    public List<String> findEffectiveLocationRoles(String userName, Long locationId) {
+        return locationRolesRepository.findEffectiveLocationRoles(userName, locationId);
+    }
+
+    /**
+     * Recomputes effective_location_role from the replica tables, e.g. to backfill after a replay.
+     */
+    public int rebuildEffectiveLocationRoles() {
+        int rebuilt = locationRolesRepository.rebuildEffectiveLocationRoles();
+        locationRolesCache.invalidateAll();
+        invalidated(CacheInvalidation.allLocationRoles());
+        return rebuilt;
+    }
+}
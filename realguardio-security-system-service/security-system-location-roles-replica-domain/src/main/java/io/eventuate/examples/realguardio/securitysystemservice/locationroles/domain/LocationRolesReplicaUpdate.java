@@ -0,0 +1,22 @@
+package io.eventuate.examples.realguardio.securitysystemservice.locationroles.domain;
+
+/**
+ * A single change to the location-roles replica, so that several changes can be written in one batch.
+ */
+public sealed interface LocationRolesReplicaUpdate {
+
+    record LocationRoleSaved(String userName, Long locationId, String roleName) implements LocationRolesReplicaUpdate {
+    }
+
+    record TeamMemberSaved(String teamId, String customerEmployeeId) implements LocationRolesReplicaUpdate {
+    }
+
+    record TeamLocationRoleSaved(String teamId, String roleName, Long locationId) implements LocationRolesReplicaUpdate {
+    }
+
+    record LocationSaved(Long locationId, String customerId) implements LocationRolesReplicaUpdate {
+    }
+
+    record CustomerRoleSaved(String userName, String customerId, String roleName) implements LocationRolesReplicaUpdate {
+    }
+}
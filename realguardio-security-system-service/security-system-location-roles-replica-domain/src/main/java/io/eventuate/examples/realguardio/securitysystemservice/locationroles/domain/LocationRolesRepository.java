@@ -12,5 +12,30 @@ public interface LocationRolesRepository {
 
     void saveLocation(Long locationId, String customerId);
 
+    void saveCustomerRole(String userName, String customerId, String roleName);
+
+    void saveAll(List<LocationRolesReplicaUpdate> updates);
+
     List<LocationRole> findLocationRoles(String userName, Long locationId);
+
+    List<String> findEffectiveLocationRoles(String userName, Long locationId);
+
+    /**
+     * Receives the rows of effective_location_role without a row object being allocated for each one.
+     */
+    @FunctionalInterface
+    interface EffectiveLocationRoleConsumer {
+        void accept(String userName, long locationId, String roleName);
+    }
+
+    /**
+     * Streams every row of effective_location_role, e.g. to bootstrap an in-memory index.
+     */
+    void forEachEffectiveLocationRole(EffectiveLocationRoleConsumer consumer);
+
+    void forEachEffectiveLocationRoleOfUser(String userName, EffectiveLocationRoleConsumer consumer);
+
+    void forEachEffectiveLocationRoleAtLocation(Long locationId, EffectiveLocationRoleConsumer consumer);
+
+    int rebuildEffectiveLocationRoles();
 }
@@ -34,13 +34,8 @@ class CustomerServiceClientReplicaImplTest {
         String userId = "user123";
         Long locationId = 456L;
         
-        List<LocationRole> locationRoles = Arrays.asList(
-            new LocationRole(1L, userId, locationId, RolesAndPermissions.SECURITY_SYSTEM_ARMER),
-            new LocationRole(2L, userId, locationId, RolesAndPermissions.SECURITY_SYSTEM_DISARMER)
-        );
-        
-        when(locationRolesReplicaService.findLocationRoles(userId, locationId))
-            .thenReturn(locationRoles);
+        when(locationRolesReplicaService.findEffectiveLocationRoles(userId, locationId))
+            .thenReturn(List.of(RolesAndPermissions.SECURITY_SYSTEM_ARMER, RolesAndPermissions.SECURITY_SYSTEM_DISARMER));
 
         // When
         Set<String> result = customerServiceClient.getUserRolesAtLocation(userId, locationId);
@@ -55,7 +50,7 @@ class CustomerServiceClientReplicaImplTest {
         String userId = "user123";
         Long locationId = 999L;
         
-        when(locationRolesReplicaService.findLocationRoles(userId, locationId))
+        when(locationRolesReplicaService.findEffectiveLocationRoles(userId, locationId))
             .thenReturn(Collections.emptyList());
 
         // When
@@ -71,14 +66,8 @@ class CustomerServiceClientReplicaImplTest {
         String userId = "user123";
         Long locationId = 456L;
         
-        List<LocationRole> locationRoles = Arrays.asList(
-            new LocationRole(1L, userId, locationId, RolesAndPermissions.SECURITY_SYSTEM_VIEWER),
-            new LocationRole(2L, userId, locationId, RolesAndPermissions.SECURITY_SYSTEM_VIEWER),
-            new LocationRole(3L, userId, locationId, "CAN_EDIT")
-        );
-        
-        when(locationRolesReplicaService.findLocationRoles(userId, locationId))
-            .thenReturn(locationRoles);
+        when(locationRolesReplicaService.findEffectiveLocationRoles(userId, locationId))
+            .thenReturn(Arrays.asList(RolesAndPermissions.SECURITY_SYSTEM_VIEWER, RolesAndPermissions.SECURITY_SYSTEM_VIEWER, "CAN_EDIT"));
 
         // When
         Set<String> result = customerServiceClient.getUserRolesAtLocation(userId, locationId);
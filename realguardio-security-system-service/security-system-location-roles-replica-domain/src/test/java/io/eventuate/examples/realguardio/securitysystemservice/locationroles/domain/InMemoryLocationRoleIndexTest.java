@@ -0,0 +1,76 @@
+package io.eventuate.examples.realguardio.securitysystemservice.locationroles.domain;
+
+import io.eventuate.examples.realguardio.securitysystemservice.domain.RoleBits;
+import io.eventuate.examples.realguardio.securitysystemservice.domain.RolesAndPermissions;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class InMemoryLocationRoleIndexTest {
+
+    private final InMemoryLocationRoleIndex index = new InMemoryLocationRoleIndex();
+
+    private final int armer = RoleBits.bitFor(RolesAndPermissions.SECURITY_SYSTEM_ARMER);
+    private final int viewer = RoleBits.bitFor(RolesAndPermissions.SECURITY_SYSTEM_VIEWER);
+
+    @Test
+    void shouldCombineRolesAtLocation() {
+        index.addRole("alice", 101L, RolesAndPermissions.SECURITY_SYSTEM_ARMER);
+        index.addRole("alice", 101L, RolesAndPermissions.SECURITY_SYSTEM_VIEWER);
+        index.addRole("alice", 101L, RolesAndPermissions.SECURITY_SYSTEM_ARMER);
+
+        assertThat(index.rolesMask("alice", 101L)).isEqualTo(armer | viewer);
+        assertThat(index.rolesMask("alice", 102L)).isZero();
+        assertThat(index.rolesMask("bob", 101L)).isZero();
+        assertThat(index.entryCount()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldIgnoreUnknownRoles() {
+        index.addRole("alice", 101L, "VIEW_ALERTS");
+
+        assertThat(index.rolesMask("alice", 101L)).isZero();
+        assertThat(index.userCount()).isZero();
+    }
+
+    @Test
+    void shouldFindEveryLocationAfterGrowing() {
+        for (long locationId = 1; locationId <= 10_000; locationId++)
+            index.addRole("alice", locationId, locationId % 2 == 0 ? RolesAndPermissions.SECURITY_SYSTEM_ARMER : RolesAndPermissions.SECURITY_SYSTEM_VIEWER);
+
+        for (long locationId = 1; locationId <= 10_000; locationId++)
+            assertThat(index.rolesMask("alice", locationId)).isEqualTo(locationId % 2 == 0 ? armer : viewer);
+        assertThat(index.rolesMask("alice", 0L)).isZero();
+        assertThat(index.rolesMask("alice", 10_001L)).isZero();
+        assertThat(index.entryCount()).isEqualTo(10_000);
+    }
+
+    @Test
+    void shouldKeepLoadFactorBetweenAQuarterAndAHalf() {
+        LocationRoleMasks masks = new LocationRoleMasks();
+        for (long locationId = 1; locationId <= 100_000; locationId++) {
+            masks.add(locationId, armer);
+            assertThat((double) masks.size() / masks.capacity()).isBetween(0.25, 0.5);
+        }
+    }
+
+    @Test
+    void shouldBootstrapFromRepository() {
+        LocationRolesRepository locationRolesRepository = mock(LocationRolesRepository.class);
+        doAnswer(invocation -> {
+            LocationRolesRepository.EffectiveLocationRoleConsumer consumer = invocation.getArgument(0);
+            consumer.accept("alice", 101L, RolesAndPermissions.SECURITY_SYSTEM_ARMER);
+            consumer.accept("bob", 102L, RolesAndPermissions.SECURITY_SYSTEM_VIEWER);
+            return null;
+        }).when(locationRolesRepository).forEachEffectiveLocationRole(any());
+
+        index.bootstrap(locationRolesRepository);
+
+        assertThat(index.rolesMask("alice", 101L)).isEqualTo(armer);
+        assertThat(index.rolesMask("bob", 102L)).isEqualTo(viewer);
+        assertThat(index.userCount()).isEqualTo(2);
+    }
+}
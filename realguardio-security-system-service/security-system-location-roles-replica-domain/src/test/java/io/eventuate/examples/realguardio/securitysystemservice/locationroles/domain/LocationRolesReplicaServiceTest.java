@@ -0,0 +1,176 @@
+package io.eventuate.examples.realguardio.securitysystemservice.locationroles.domain;
+
+import io.eventuate.examples.realguardio.securitysystemservice.domain.CacheInvalidation;
+import io.eventuate.examples.realguardio.securitysystemservice.domain.CacheInvalidationBroadcaster;
+import io.eventuate.examples.realguardio.securitysystemservice.domain.LocationRolesCache;
+import io.eventuate.examples.realguardio.securitysystemservice.domain.RoleBits;
+import io.eventuate.examples.realguardio.securitysystemservice.domain.RolesAndPermissions;
+import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystemListCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class LocationRolesReplicaServiceTest {
+
+    @Mock
+    private LocationRolesRepository locationRolesRepository;
+
+    @Mock
+    private LocationRolesCache locationRolesCache;
+
+    private LocationRolesReplicaService locationRolesReplicaService;
+
+    @BeforeEach
+    void setUp() {
+        locationRolesReplicaService = new LocationRolesReplicaService(locationRolesRepository, locationRolesCache, null, null, null);
+    }
+
+    @Test
+    void shouldInvalidateUserAtLocationAfterSavingLocationRole() {
+        locationRolesReplicaService.saveLocationRole("alice", 101L, RolesAndPermissions.SECURITY_SYSTEM_ARMER);
+
+        InOrder inOrder = inOrder(locationRolesRepository, locationRolesCache);
+        inOrder.verify(locationRolesRepository).saveLocationRole("alice", 101L, RolesAndPermissions.SECURITY_SYSTEM_ARMER);
+        inOrder.verify(locationRolesCache).invalidate("alice", 101L);
+    }
+
+    @Test
+    void shouldInvalidateAllAfterSavingTeamMember() {
+        locationRolesReplicaService.saveTeamMember("201", "301");
+
+        InOrder inOrder = inOrder(locationRolesRepository, locationRolesCache);
+        inOrder.verify(locationRolesRepository).saveTeamMember("201", "301");
+        inOrder.verify(locationRolesCache).invalidateAll();
+    }
+
+    @Test
+    void shouldInvalidateLocationAfterSavingTeamLocationRole() {
+        locationRolesReplicaService.saveTeamLocationRole("201", RolesAndPermissions.SECURITY_SYSTEM_DISARMER, 101L);
+
+        InOrder inOrder = inOrder(locationRolesRepository, locationRolesCache);
+        inOrder.verify(locationRolesRepository).saveTeamLocationRole("201", RolesAndPermissions.SECURITY_SYSTEM_DISARMER, 101L);
+        inOrder.verify(locationRolesCache).invalidateLocation(101L);
+    }
+
+    @Test
+    void shouldInvalidateAllAfterSavingCustomerRole() {
+        locationRolesReplicaService.saveCustomerRole("alice", "acme", RolesAndPermissions.SECURITY_SYSTEM_VIEWER);
+
+        InOrder inOrder = inOrder(locationRolesRepository, locationRolesCache);
+        inOrder.verify(locationRolesRepository).saveCustomerRole("alice", "acme", RolesAndPermissions.SECURITY_SYSTEM_VIEWER);
+        inOrder.verify(locationRolesCache).invalidateAll();
+    }
+
+    @Test
+    void shouldSaveBatchAndInvalidateAffectedEntries() {
+        List<LocationRolesReplicaUpdate> updates = List.of(
+            new LocationRolesReplicaUpdate.LocationRoleSaved("alice", 101L, RolesAndPermissions.SECURITY_SYSTEM_ARMER),
+            new LocationRolesReplicaUpdate.LocationSaved(102L, "acme"));
+
+        locationRolesReplicaService.saveAll(updates);
+
+        InOrder inOrder = inOrder(locationRolesRepository, locationRolesCache);
+        inOrder.verify(locationRolesRepository).saveAll(updates);
+        inOrder.verify(locationRolesCache).invalidate("alice", 101L);
+        inOrder.verify(locationRolesCache).invalidateLocation(102L);
+        verify(locationRolesCache, never()).invalidateAll();
+    }
+
+    @Test
+    void shouldAddSavedLocationRolesToIndex() {
+        InMemoryLocationRoleIndex locationRoleIndex = new InMemoryLocationRoleIndex();
+        locationRolesReplicaService = new LocationRolesReplicaService(locationRolesRepository, locationRolesCache, locationRoleIndex, null, null);
+
+        locationRolesReplicaService.saveLocationRole("alice", 101L, RolesAndPermissions.SECURITY_SYSTEM_ARMER);
+        locationRolesReplicaService.saveAll(List.of(
+            new LocationRolesReplicaUpdate.LocationRoleSaved("bob", 102L, RolesAndPermissions.SECURITY_SYSTEM_VIEWER),
+            new LocationRolesReplicaUpdate.LocationSaved(103L, "acme")));
+
+        assertThat(locationRoleIndex.rolesMask("alice", 101L)).isEqualTo(RoleBits.bitFor(RolesAndPermissions.SECURITY_SYSTEM_ARMER));
+        assertThat(locationRoleIndex.rolesMask("bob", 102L)).isEqualTo(RoleBits.bitFor(RolesAndPermissions.SECURITY_SYSTEM_VIEWER));
+        assertThat(locationRoleIndex.entryCount()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldAddTeamAndCustomerRolesToIndex() {
+        InMemoryLocationRoleIndex locationRoleIndex = new InMemoryLocationRoleIndex();
+        locationRolesReplicaService = new LocationRolesReplicaService(locationRolesRepository, locationRolesCache, locationRoleIndex, null, null);
+        doAnswer(invocation -> {
+            invocation.<LocationRolesRepository.EffectiveLocationRoleConsumer>getArgument(1).accept("301", 101L, RolesAndPermissions.SECURITY_SYSTEM_DISARMER);
+            return null;
+        }).when(locationRolesRepository).forEachEffectiveLocationRoleOfUser(eq("301"), any());
+        doAnswer(invocation -> {
+            invocation.<LocationRolesRepository.EffectiveLocationRoleConsumer>getArgument(1).accept("owner", 102L, RolesAndPermissions.SECURITY_SYSTEM_VIEWER);
+            return null;
+        }).when(locationRolesRepository).forEachEffectiveLocationRoleAtLocation(eq(102L), any());
+
+        locationRolesReplicaService.saveAll(List.of(
+            new LocationRolesReplicaUpdate.TeamMemberSaved("201", "301"),
+            new LocationRolesReplicaUpdate.TeamLocationRoleSaved("201", RolesAndPermissions.SECURITY_SYSTEM_DISARMER, 101L),
+            new LocationRolesReplicaUpdate.LocationSaved(102L, "acme")));
+
+        assertThat(locationRoleIndex.rolesMask("301", 101L)).isEqualTo(RoleBits.bitFor(RolesAndPermissions.SECURITY_SYSTEM_DISARMER));
+        assertThat(locationRoleIndex.rolesMask("owner", 102L)).isEqualTo(RoleBits.bitFor(RolesAndPermissions.SECURITY_SYSTEM_VIEWER));
+        verify(locationRolesRepository).forEachEffectiveLocationRoleAtLocation(eq(101L), any());
+    }
+
+    @Test
+    void shouldInvalidateAllAfterSavingBatchWithTeamMember() {
+        List<LocationRolesReplicaUpdate> updates = List.of(
+            new LocationRolesReplicaUpdate.LocationRoleSaved("alice", 101L, RolesAndPermissions.SECURITY_SYSTEM_ARMER),
+            new LocationRolesReplicaUpdate.TeamMemberSaved("201", "301"));
+
+        locationRolesReplicaService.saveAll(updates);
+
+        InOrder inOrder = inOrder(locationRolesRepository, locationRolesCache);
+        inOrder.verify(locationRolesRepository).saveAll(updates);
+        inOrder.verify(locationRolesCache).invalidateAll();
+    }
+
+    @Test
+    void shouldBroadcastWhatEachWriteInvalidated() {
+        CacheInvalidationBroadcaster cacheInvalidationBroadcaster = mock(CacheInvalidationBroadcaster.class);
+        locationRolesReplicaService = new LocationRolesReplicaService(locationRolesRepository, locationRolesCache, null, cacheInvalidationBroadcaster, null);
+
+        locationRolesReplicaService.saveLocationRole("alice", 101L, RolesAndPermissions.SECURITY_SYSTEM_ARMER);
+        locationRolesReplicaService.saveTeamLocationRole("201", RolesAndPermissions.SECURITY_SYSTEM_DISARMER, 102L);
+        locationRolesReplicaService.saveTeamMember("201", "301");
+
+        InOrder inOrder = inOrder(locationRolesCache, cacheInvalidationBroadcaster);
+        inOrder.verify(locationRolesCache).invalidate("alice", 101L);
+        inOrder.verify(cacheInvalidationBroadcaster).broadcast(CacheInvalidation.userLocationRoles("alice", 101L));
+        inOrder.verify(locationRolesCache).invalidateLocation(102L);
+        inOrder.verify(cacheInvalidationBroadcaster).broadcast(CacheInvalidation.locationRoles(102L));
+        inOrder.verify(locationRolesCache).invalidateAll();
+        inOrder.verify(cacheInvalidationBroadcaster).broadcast(CacheInvalidation.allLocationRoles());
+    }
+
+    @Test
+    void shouldAdvanceSecuritySystemListWatermarkAfterEachWrite() {
+        SecuritySystemListCache securitySystemListCache = new SecuritySystemListCache(1000, Duration.ofMinutes(5), mock(ObjectProvider.class), new SimpleMeterRegistry());
+        locationRolesReplicaService = new LocationRolesReplicaService(locationRolesRepository, locationRolesCache, null, null, securitySystemListCache);
+
+        locationRolesReplicaService.saveLocationRole("alice", 101L, RolesAndPermissions.SECURITY_SYSTEM_ARMER);
+        locationRolesReplicaService.saveTeamMember("201", "301");
+
+        assertThat(securitySystemListCache.watermark()).isEqualTo(2);
+    }
+}
@@ -1,25 +1,43 @@
 package io.eventuate.examples.realguardio.securitysystemservice.locationroles.messaging;
 
+import io.eventuate.examples.realguardio.customerservice.customermanagement.domain.CustomerEmployeeAssignedCustomerRole;
 import io.eventuate.examples.realguardio.customerservice.customermanagement.domain.LocationCreatedForCustomer;
 import io.eventuate.examples.realguardio.customerservice.customermanagement.domain.TeamAssignedLocationRole;
 import io.eventuate.examples.realguardio.customerservice.customermanagement.domain.TeamMemberAdded;
 import io.eventuate.examples.realguardio.customerservice.domain.CustomerEmployeeAssignedLocationRole;
 import io.eventuate.examples.realguardio.securitysystemservice.locationroles.domain.LocationRolesReplicaService;
+import io.eventuate.examples.realguardio.securitysystemservice.locationroles.domain.LocationRolesReplicaUpdate;
 import io.eventuate.tram.events.subscriber.DomainEventEnvelope;
 import io.eventuate.tram.events.subscriber.annotations.EventuateDomainEventHandler;
+import io.eventuate.tram.messaging.common.Message;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+
 public class CustomerEmployeeLocationEventConsumer {
 
     private static final Logger logger = LoggerFactory.getLogger(CustomerEmployeeLocationEventConsumer.class);
 
     private final LocationRolesReplicaService replicaService;
+    private final LocationRolesReplicaBatcher batcher;
 
     @Autowired
     public CustomerEmployeeLocationEventConsumer(LocationRolesReplicaService replicaService) {
+        this(replicaService, null);
+    }
+
+    /**
+     * @param batcher if non-null, updates are written in batches instead of one transaction per event
+     */
+    public CustomerEmployeeLocationEventConsumer(LocationRolesReplicaService replicaService, LocationRolesReplicaBatcher batcher) {
         this.replicaService = replicaService;
+        this.batcher = batcher;
     }
 
     @EventuateDomainEventHandler(subscriberId = "locationRolesReplicaDispatcher", channel = "io.eventuate.examples.realguardio.customerservice.customermanagement.domain.Customer")
@@ -28,6 +46,12 @@ public class CustomerEmployeeLocationEventConsumer {
         logger.info("Handling CustomerEmployeeAssignedLocationRole event: userName={}, locationId={}, roleName={}",
                    event.userName(), event.locationId(), event.roleName());
 
+        if (batcher != null) {
+            batcher.save(new LocationRolesReplicaUpdate.LocationRoleSaved(event.userName(), event.locationId(), event.roleName()),
+                eventTime(envelope));
+            return;
+        }
+
         replicaService.saveLocationRole(
             event.userName(),
             event.locationId(),
@@ -44,6 +68,12 @@ public class CustomerEmployeeLocationEventConsumer {
         logger.info("Handling TeamMemberAdded: teamId={}, employeeId={}",
                    event.teamId(), event.customerEmployeeId());
 
+        if (batcher != null) {
+            batcher.save(new LocationRolesReplicaUpdate.TeamMemberSaved(event.teamId().toString(), event.customerEmployeeId().toString()),
+                eventTime(envelope));
+            return;
+        }
+
         replicaService.saveTeamMember(
             event.teamId().toString(),
             event.customerEmployeeId().toString()
@@ -59,6 +89,12 @@ public class CustomerEmployeeLocationEventConsumer {
         logger.info("Handling TeamAssignedLocationRole: teamId={}, locationId={}, role={}",
                    event.teamId(), event.locationId(), event.roleName());
 
+        if (batcher != null) {
+            batcher.save(new LocationRolesReplicaUpdate.TeamLocationRoleSaved(event.teamId().toString(), event.roleName(), event.locationId()),
+                eventTime(envelope));
+            return;
+        }
+
         replicaService.saveTeamLocationRole(
             event.teamId().toString(),
             event.roleName(),
@@ -77,9 +113,50 @@ public class CustomerEmployeeLocationEventConsumer {
         logger.info("Handling LocationCreatedForCustomer: locationId={}, customerId={}",
                    event.locationId(), customerId);
 
+        if (batcher != null) {
+            batcher.save(new LocationRolesReplicaUpdate.LocationSaved(event.locationId(), customerId), eventTime(envelope));
+            return;
+        }
+
         replicaService.saveLocation(
             event.locationId(),
             customerId
         );
     }
+
+    @EventuateDomainEventHandler(
+        subscriberId = "locationRolesReplicaDispatcher",
+        channel = "io.eventuate.examples.realguardio.customerservice.customermanagement.domain.Customer"
+    )
+    public void handleCustomerEmployeeAssignedCustomerRole(DomainEventEnvelope<CustomerEmployeeAssignedCustomerRole> envelope) {
+        CustomerEmployeeAssignedCustomerRole event = envelope.getEvent();
+        String customerId = envelope.getAggregateId();
+
+        logger.info("Handling CustomerEmployeeAssignedCustomerRole: userName={}, customerId={}, role={}",
+                   event.userName(), customerId, event.roleName());
+
+        if (batcher != null) {
+            batcher.save(new LocationRolesReplicaUpdate.CustomerRoleSaved(event.userName(), customerId, event.roleName()),
+                eventTime(envelope));
+            return;
+        }
+
+        replicaService.saveCustomerRole(
+            event.userName(),
+            customerId,
+            event.roleName()
+        );
+    }
+
+    private Instant eventTime(DomainEventEnvelope<?> envelope) {
+        return envelope.getMessage().getHeader(Message.DATE)
+            .flatMap(date -> {
+                try {
+                    return Optional.of(ZonedDateTime.parse(date, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant());
+                } catch (DateTimeParseException e) {
+                    return Optional.empty();
+                }
+            })
+            .orElseGet(Instant::now);
+    }
 }
\ No newline at end of file
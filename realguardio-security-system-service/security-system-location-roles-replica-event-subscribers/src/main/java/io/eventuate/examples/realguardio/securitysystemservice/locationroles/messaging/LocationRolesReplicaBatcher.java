@@ -0,0 +1,137 @@
+package io.eventuate.examples.realguardio.securitysystemservice.locationroles.messaging;
+
+import io.eventuate.examples.realguardio.securitysystemservice.locationroles.domain.LocationRolesReplicaService;
+import io.eventuate.examples.realguardio.securitysystemservice.locationroles.domain.LocationRolesReplicaUpdate;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accumulates replica updates from concurrently running event handlers and writes them with
+ * {@link LocationRolesReplicaService#saveAll} once {@code maxBatchSize} updates are queued or the oldest has waited {@code maxDelay}.
+ * Each handler blocks until its update is committed, so a message is only acknowledged after its batch commits.
+ */
+public class LocationRolesReplicaBatcher implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocationRolesReplicaBatcher.class);
+
+    private record PendingUpdate(LocationRolesReplicaUpdate update, Instant eventTime, CompletableFuture<Void> committed) {
+    }
+
+    private final LocationRolesReplicaService replicaService;
+    private final int maxBatchSize;
+    private final Duration maxDelay;
+    private final BlockingQueue<PendingUpdate> queue = new LinkedBlockingQueue<>();
+    private final DistributionSummary batchSize;
+    private final Timer lag;
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    public LocationRolesReplicaBatcher(LocationRolesReplicaService replicaService, int maxBatchSize, Duration maxDelay, MeterRegistry meterRegistry) {
+        this.replicaService = replicaService;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelay = maxDelay;
+        this.batchSize = DistributionSummary.builder("location_roles_replica.batch.size")
+            .description("Number of replica updates written per transaction")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+        this.lag = Timer.builder("location_roles_replica.lag")
+            .description("Time from an event being published to its replica update being committed")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+        this.flusher = new Thread(this::run, "location-roles-replica-batcher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Queues the update and waits until the batch containing it has been committed.
+     */
+    public void save(LocationRolesReplicaUpdate update, Instant eventTime) {
+        PendingUpdate pending = new PendingUpdate(update, eventTime, new CompletableFuture<>());
+        if (!running)
+            throw new IllegalStateException("Batcher is closed");
+        queue.add(pending);
+        try {
+            pending.committed().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw e;
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                PendingUpdate first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null)
+                    continue;
+                List<PendingUpdate> batch = new ArrayList<>(maxBatchSize);
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelay.toNanos();
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0)
+                        break;
+                    PendingUpdate next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null)
+                        break;
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void flush(List<PendingUpdate> batch) {
+        try {
+            replicaService.saveAll(batch.stream().map(PendingUpdate::update).toList());
+            committed(batch);
+        } catch (RuntimeException e) {
+            logger.warn("Replica batch of {} updates failed, retrying individually", batch.size(), e);
+            // Isolate the failing update so that the rest of the batch can still be committed
+            for (PendingUpdate pending : batch) {
+                try {
+                    replicaService.saveAll(List.of(pending.update()));
+                    committed(List.of(pending));
+                } catch (RuntimeException individualFailure) {
+                    pending.committed().completeExceptionally(individualFailure);
+                }
+            }
+        }
+    }
+
+    private void committed(List<PendingUpdate> batch) {
+        Instant now = Instant.now();
+        batchSize.record(batch.size());
+        for (PendingUpdate pending : batch) {
+            lag.record(Duration.between(pending.eventTime(), now));
+            pending.committed().complete(null);
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        flusher.interrupt();
+        PendingUpdate pending;
+        while ((pending = queue.poll()) != null)
+            pending.committed().completeExceptionally(new IllegalStateException("Batcher is closed"));
+    }
+}
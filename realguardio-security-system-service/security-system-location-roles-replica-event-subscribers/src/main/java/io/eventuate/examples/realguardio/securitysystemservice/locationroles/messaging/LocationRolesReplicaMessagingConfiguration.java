@@ -1,14 +1,30 @@
 package io.eventuate.examples.realguardio.securitysystemservice.locationroles.messaging;
 
 import io.eventuate.examples.realguardio.securitysystemservice.locationroles.domain.LocationRolesReplicaService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 @Configuration
 public class LocationRolesReplicaMessagingConfiguration {
 
     @Bean
-    CustomerEmployeeLocationEventConsumer customerEmployeeLocationEventConsumer(LocationRolesReplicaService replicaService) {
-        return new CustomerEmployeeLocationEventConsumer(replicaService);
+    CustomerEmployeeLocationEventConsumer customerEmployeeLocationEventConsumer(LocationRolesReplicaService replicaService,
+                                                                               ObjectProvider<LocationRolesReplicaBatcher> batcher) {
+        return new CustomerEmployeeLocationEventConsumer(replicaService, batcher.getIfAvailable());
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "location-roles-replica.batching.enabled", havingValue = "true")
+    LocationRolesReplicaBatcher locationRolesReplicaBatcher(LocationRolesReplicaService replicaService,
+                                                            @Value("${location-roles-replica.batching.max-batch-size:500}") int maxBatchSize,
+                                                            @Value("${location-roles-replica.batching.max-delay:PT0.05S}") Duration maxDelay,
+                                                            MeterRegistry meterRegistry) {
+        return new LocationRolesReplicaBatcher(replicaService, maxBatchSize, maxDelay, meterRegistry);
     }
-}
\ No newline at end of file
+}
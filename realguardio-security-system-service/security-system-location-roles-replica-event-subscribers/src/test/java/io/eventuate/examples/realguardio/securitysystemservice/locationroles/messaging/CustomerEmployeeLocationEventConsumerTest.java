@@ -1,5 +1,6 @@
 package io.eventuate.examples.realguardio.securitysystemservice.locationroles.messaging;
 
+import io.eventuate.examples.realguardio.customerservice.customermanagement.domain.CustomerEmployeeAssignedCustomerRole;
 import io.eventuate.examples.realguardio.customerservice.customermanagement.domain.LocationCreatedForCustomer;
 import io.eventuate.examples.realguardio.customerservice.customermanagement.domain.TeamAssignedLocationRole;
 import io.eventuate.examples.realguardio.customerservice.customermanagement.domain.TeamMemberAdded;
@@ -135,4 +136,30 @@ public class CustomerEmployeeLocationEventConsumerTest {
         });
     }
 
-}
\ No newline at end of file
+    @Test
+    public void shouldHandleCustomerEmployeeAssignedCustomerRole() {
+        // Given
+        Long customerEmployeeId = 301L;
+        String userName = "owner@example.com";
+        String roleName = RolesAndPermissions.SECURITY_SYSTEM_VIEWER;
+        String customerId = "customer-4";
+
+        CustomerEmployeeAssignedCustomerRole event = new CustomerEmployeeAssignedCustomerRole(customerEmployeeId, userName, roleName);
+
+        // When
+        domainEventPublisher.publish(
+            "io.eventuate.examples.realguardio.customerservice.customermanagement.domain.Customer",
+            customerId,
+            Collections.singletonList(event));
+
+        // Then
+        await().atMost(5, TimeUnit.SECONDS).untilAsserted(() -> {
+            verify(locationRolesReplicaService).saveCustomerRole(
+                userName,
+                customerId,
+                roleName
+            );
+        });
+    }
+
+}
@@ -0,0 +1,79 @@
+package io.eventuate.examples.realguardio.securitysystemservice.locationroles.messaging;
+
+import io.eventuate.examples.realguardio.securitysystemservice.domain.RolesAndPermissions;
+import io.eventuate.examples.realguardio.securitysystemservice.locationroles.domain.LocationRolesReplicaService;
+import io.eventuate.examples.realguardio.securitysystemservice.locationroles.domain.LocationRolesReplicaUpdate;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class LocationRolesReplicaBatcherTest {
+
+    private final LocationRolesReplicaService replicaService = mock(LocationRolesReplicaService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private LocationRolesReplicaBatcher batcher;
+
+    @AfterEach
+    void tearDown() {
+        batcher.close();
+        executor.shutdownNow();
+    }
+
+    private LocationRolesReplicaUpdate locationRole(long locationId) {
+        return new LocationRolesReplicaUpdate.LocationRoleSaved("alice", locationId, RolesAndPermissions.SECURITY_SYSTEM_ARMER);
+    }
+
+    @Test
+    public void shouldWriteConcurrentUpdatesInOneBatch() {
+        batcher = new LocationRolesReplicaBatcher(replicaService, 4, Duration.ofSeconds(10), meterRegistry);
+
+        CompletableFuture<?>[] saves = IntStream.range(0, 4)
+            .mapToObj(i -> CompletableFuture.runAsync(() -> batcher.save(locationRole(i), Instant.now()), executor))
+            .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(saves).join();
+
+        verify(replicaService).saveAll(argThat(updates -> updates.size() == 4));
+        assertThat(meterRegistry.get("location_roles_replica.batch.size").summary().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("location_roles_replica.lag").timer().count()).isEqualTo(4);
+    }
+
+    @Test
+    public void shouldFlushPartialBatchAfterMaxDelay() {
+        batcher = new LocationRolesReplicaBatcher(replicaService, 100, Duration.ofMillis(20), meterRegistry);
+
+        batcher.save(locationRole(1), Instant.now());
+
+        verify(replicaService).saveAll(List.of(locationRole(1)));
+    }
+
+    @Test
+    public void shouldOnlyFailTheUpdateThatCannotBeWritten() {
+        batcher = new LocationRolesReplicaBatcher(replicaService, 2, Duration.ofSeconds(10), meterRegistry);
+        LocationRolesReplicaUpdate bad = locationRole(2);
+        doThrow(new IllegalArgumentException("bad update"))
+            .when(replicaService).saveAll(argThat(updates -> updates.contains(bad)));
+
+        CompletableFuture<Void> good = CompletableFuture.runAsync(() -> batcher.save(locationRole(1), Instant.now()), executor);
+        CompletableFuture<Void> failed = CompletableFuture.runAsync(() -> batcher.save(bad, Instant.now()), executor);
+
+        good.join();
+        assertThatThrownBy(failed::join).hasCauseInstanceOf(IllegalArgumentException.class);
+        verify(replicaService).saveAll(List.of(locationRole(1)));
+    }
+}
@@ -72,4 +72,12 @@ public class LocationRolesReplicaEventHandlerContractTest {
         });
     }
 
+    @Test
+    public void shouldHandleCustomerEmployeeAssignedCustomerRoleEvent() {
+        stubFinder.trigger("customerEmployeeAssignedCustomerRoleEvent");
+        await().atMost(10, TimeUnit.SECONDS).untilAsserted(() -> {
+            verify(locationRolesReplicaService).saveCustomerRole("owner@example.com", "123", "Owner");
+        });
+    }
+
 }
@@ -3,6 +3,7 @@ package io.eventuate.examples.realguardio.securitysystemservice.locationroles.pe
 import io.eventuate.common.testcontainers.EventuateVanillaPostgresContainer;
 import io.eventuate.examples.realguardio.securitysystemservice.domain.RolesAndPermissions;
 import io.eventuate.examples.realguardio.securitysystemservice.locationroles.domain.LocationRole;
+import io.eventuate.examples.realguardio.securitysystemservice.locationroles.domain.LocationRolesReplicaUpdate;
 import io.eventuate.examples.realguardio.securitysystemservice.locationroles.domain.LocationRolesRepository;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,12 +11,15 @@ import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 @SpringBootTest(classes = JdbcLocationRolesRepositoryIntegrationTest.Config.class)
 public class JdbcLocationRolesRepositoryIntegrationTest {
@@ -37,6 +41,9 @@ public class JdbcLocationRolesRepositoryIntegrationTest {
     @Autowired
     private LocationRolesRepository locationRolesRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @Test
     public void shouldSaveAndFindLocationRoles() {
         String userName = "jane.smith@example.com";
@@ -53,4 +60,142 @@ public class JdbcLocationRolesRepositoryIntegrationTest {
         assertThat(role.locationId()).isEqualTo(locationId);
         assertThat(role.roleName()).isEqualTo(roleName);
     }
+
+    @Test
+    public void shouldVisitEveryEffectiveLocationRole() {
+        String userName = "visit-" + System.currentTimeMillis() + "@example.com";
+        String teamId = "visit-team-" + System.currentTimeMillis();
+        Long locationId = System.currentTimeMillis();
+        Long teamLocationId = locationId + 1;
+
+        locationRolesRepository.saveLocationRole(userName, locationId, RolesAndPermissions.SECURITY_SYSTEM_ARMER);
+        locationRolesRepository.saveLocationRole(userName, locationId, RolesAndPermissions.SECURITY_SYSTEM_VIEWER);
+        locationRolesRepository.saveTeamMember(teamId, userName);
+        locationRolesRepository.saveTeamLocationRole(teamId, RolesAndPermissions.SECURITY_SYSTEM_DISARMER, teamLocationId);
+
+        List<LocationRole> visited = new ArrayList<>();
+        locationRolesRepository.forEachEffectiveLocationRole((user, location, role) -> visited.add(new LocationRole(null, user, location, role)));
+
+        assertThat(visited)
+            .filteredOn(role -> role.userName().equals(userName))
+            .extracting(LocationRole::locationId, LocationRole::roleName)
+            .containsExactlyInAnyOrder(
+                tuple(locationId, RolesAndPermissions.SECURITY_SYSTEM_ARMER),
+                tuple(locationId, RolesAndPermissions.SECURITY_SYSTEM_VIEWER),
+                tuple(teamLocationId, RolesAndPermissions.SECURITY_SYSTEM_DISARMER));
+
+        List<LocationRole> ofUser = new ArrayList<>();
+        locationRolesRepository.forEachEffectiveLocationRoleOfUser(userName, (user, location, role) -> ofUser.add(new LocationRole(null, user, location, role)));
+        assertThat(ofUser).hasSize(3);
+
+        List<LocationRole> atLocation = new ArrayList<>();
+        locationRolesRepository.forEachEffectiveLocationRoleAtLocation(teamLocationId, (user, location, role) -> atLocation.add(new LocationRole(null, user, location, role)));
+        assertThat(atLocation)
+            .extracting(LocationRole::userName, LocationRole::roleName)
+            .containsExactly(tuple(userName, RolesAndPermissions.SECURITY_SYSTEM_DISARMER));
+    }
+
+    @Test
+    public void shouldMaintainEffectiveRolesForDirectAssignment() {
+        String userName = "jane.smith@example.com";
+        Long locationId = System.currentTimeMillis();
+
+        locationRolesRepository.saveLocationRole(userName, locationId, RolesAndPermissions.SECURITY_SYSTEM_ARMER);
+
+        assertThat(locationRolesRepository.findEffectiveLocationRoles(userName, locationId))
+            .containsExactly(RolesAndPermissions.SECURITY_SYSTEM_ARMER);
+    }
+
+    @Test
+    public void shouldFanOutTeamRolesToMembers() {
+        String teamId = "team-" + System.currentTimeMillis();
+        String existingMember = "member1-" + teamId;
+        String newMember = "member2-" + teamId;
+        Long locationId1 = System.currentTimeMillis();
+        Long locationId2 = locationId1 + 1;
+
+        locationRolesRepository.saveTeamMember(teamId, existingMember);
+        locationRolesRepository.saveTeamLocationRole(teamId, RolesAndPermissions.SECURITY_SYSTEM_DISARMER, locationId1);
+        locationRolesRepository.saveTeamLocationRole(teamId, RolesAndPermissions.SECURITY_SYSTEM_ARMER, locationId2);
+        locationRolesRepository.saveTeamMember(teamId, newMember);
+
+        assertThat(locationRolesRepository.findEffectiveLocationRoles(existingMember, locationId1))
+            .containsExactly(RolesAndPermissions.SECURITY_SYSTEM_DISARMER);
+        assertThat(locationRolesRepository.findEffectiveLocationRoles(newMember, locationId1))
+            .containsExactly(RolesAndPermissions.SECURITY_SYSTEM_DISARMER);
+        assertThat(locationRolesRepository.findEffectiveLocationRoles(newMember, locationId2))
+            .containsExactly(RolesAndPermissions.SECURITY_SYSTEM_ARMER);
+    }
+
+    @Test
+    public void shouldFanOutCustomerRolesToNewLocations() {
+        String customerId = "customer-" + System.currentTimeMillis();
+        String customerEmployeeId = "employee-" + customerId;
+        Long locationId = System.currentTimeMillis();
+
+        locationRolesRepository.saveCustomerRole(customerEmployeeId, customerId, RolesAndPermissions.SECURITY_SYSTEM_VIEWER);
+
+        locationRolesRepository.saveLocation(locationId, customerId);
+
+        assertThat(locationRolesRepository.findEffectiveLocationRoles(customerEmployeeId, locationId))
+            .containsExactly(RolesAndPermissions.SECURITY_SYSTEM_VIEWER);
+    }
+
+    @Test
+    public void shouldFanOutCustomerRolesToExistingLocations() {
+        String customerId = "customer-" + System.currentTimeMillis();
+        String userName = "owner-" + customerId + "@example.com";
+        Long locationId1 = System.currentTimeMillis();
+        Long locationId2 = locationId1 + 1;
+
+        locationRolesRepository.saveLocation(locationId1, customerId);
+        locationRolesRepository.saveLocation(locationId2, customerId);
+        locationRolesRepository.saveCustomerRole(userName, customerId, RolesAndPermissions.SECURITY_SYSTEM_ARMER);
+
+        assertThat(locationRolesRepository.findEffectiveLocationRoles(userName, locationId1))
+            .containsExactly(RolesAndPermissions.SECURITY_SYSTEM_ARMER);
+        assertThat(locationRolesRepository.findEffectiveLocationRoles(userName, locationId2))
+            .containsExactly(RolesAndPermissions.SECURITY_SYSTEM_ARMER);
+    }
+
+    @Test
+    public void shouldRebuildEffectiveRoles() {
+        String userName = "rebuild-" + System.currentTimeMillis() + "@example.com";
+        Long locationId = System.currentTimeMillis();
+
+        locationRolesRepository.saveLocationRole(userName, locationId, RolesAndPermissions.SECURITY_SYSTEM_VIEWER);
+        jdbcTemplate.update("DELETE FROM effective_location_role WHERE user_name = ?", userName);
+
+        int rows = locationRolesRepository.rebuildEffectiveLocationRoles();
+
+        assertThat(rows).isPositive();
+        assertThat(locationRolesRepository.findEffectiveLocationRoles(userName, locationId))
+            .containsExactly(RolesAndPermissions.SECURITY_SYSTEM_VIEWER);
+    }
+
+    @Test
+    public void shouldSaveBatchOfUpdates() {
+        String teamId = "batch-team-" + System.currentTimeMillis();
+        String userName = "batch-" + teamId + "@example.com";
+        String teamMember = "member-" + teamId;
+        String customerOwner = "owner-" + teamId + "@example.com";
+        Long locationId = System.currentTimeMillis();
+
+        locationRolesRepository.saveAll(List.of(
+            new LocationRolesReplicaUpdate.LocationRoleSaved(userName, locationId, RolesAndPermissions.SECURITY_SYSTEM_ARMER),
+            new LocationRolesReplicaUpdate.TeamLocationRoleSaved(teamId, RolesAndPermissions.SECURITY_SYSTEM_DISARMER, locationId),
+            new LocationRolesReplicaUpdate.TeamMemberSaved(teamId, teamMember),
+            new LocationRolesReplicaUpdate.LocationSaved(locationId, "customer-" + teamId),
+            new LocationRolesReplicaUpdate.CustomerRoleSaved(customerOwner, "customer-" + teamId, RolesAndPermissions.SECURITY_SYSTEM_VIEWER)));
+
+        assertThat(locationRolesRepository.findLocationRoles(userName, locationId))
+            .extracting(LocationRole::roleName)
+            .containsExactly(RolesAndPermissions.SECURITY_SYSTEM_ARMER);
+        assertThat(locationRolesRepository.findEffectiveLocationRoles(userName, locationId))
+            .containsExactly(RolesAndPermissions.SECURITY_SYSTEM_ARMER);
+        assertThat(locationRolesRepository.findEffectiveLocationRoles(teamMember, locationId))
+            .containsExactly(RolesAndPermissions.SECURITY_SYSTEM_DISARMER);
+        assertThat(locationRolesRepository.findEffectiveLocationRoles(customerOwner, locationId))
+            .containsExactly(RolesAndPermissions.SECURITY_SYSTEM_VIEWER);
+    }
 }
@@ -1,13 +1,16 @@
 package io.eventuate.examples.realguardio.securitysystemservice.locationroles.persistence;
 
 import io.eventuate.examples.realguardio.securitysystemservice.locationroles.domain.LocationRole;
+import io.eventuate.examples.realguardio.securitysystemservice.locationroles.domain.LocationRolesReplicaUpdate;
 import io.eventuate.examples.realguardio.securitysystemservice.locationroles.domain.LocationRolesRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Transactional
@@ -15,6 +18,73 @@ public class JdbcLocationRolesRepository implements LocationRolesRepository {
 
     private static final Logger logger = LoggerFactory.getLogger(JdbcLocationRolesRepository.class);
 
+    private static final String REBUILD_EFFECTIVE_LOCATION_ROLES_SQL = """
+            INSERT INTO effective_location_role (user_name, location_id, role_name)
+            SELECT user_name, location_id, role_name
+            FROM customer_employee_location_role
+            UNION
+            SELECT tm.customer_employee_id, tlr.location_id, tlr.role_name
+            FROM team_members tm
+            JOIN team_location_roles tlr ON tm.team_id = tlr.team_id
+            UNION
+            SELECT cecr.customer_employee_id, loc.id, cecr.role_name
+            FROM customer_employee_customer_roles cecr
+            JOIN locations loc ON cecr.customer_id = loc.customer_id
+            ON CONFLICT DO NOTHING
+            """;
+
+    private static final String INSERT_LOCATION_ROLE_SQL =
+        "INSERT INTO customer_employee_location_role (user_name, location_id, role_name) VALUES (?, ?, ?)";
+
+    private static final String INSERT_EFFECTIVE_LOCATION_ROLE_SQL =
+        "INSERT INTO effective_location_role (user_name, location_id, role_name) " +
+        "VALUES (?, ?, ?) " +
+        "ON CONFLICT DO NOTHING";
+
+    private static final String INSERT_TEAM_MEMBER_SQL =
+        "INSERT INTO team_members (team_id, customer_employee_id) " +
+        "VALUES (?, ?) " +
+        "ON CONFLICT (team_id, customer_employee_id) DO NOTHING";
+
+    // Fans out the team's location roles to the new member
+    private static final String FAN_OUT_TEAM_MEMBER_SQL =
+        "INSERT INTO effective_location_role (user_name, location_id, role_name) " +
+        "SELECT ?, location_id, role_name FROM team_location_roles WHERE team_id = ? " +
+        "ON CONFLICT DO NOTHING";
+
+    private static final String INSERT_TEAM_LOCATION_ROLE_SQL =
+        "INSERT INTO team_location_roles (team_id, role_name, location_id) " +
+        "VALUES (?, ?, ?) " +
+        "ON CONFLICT (team_id, role_name, location_id) DO NOTHING";
+
+    // Fans out the role to the team's members
+    private static final String FAN_OUT_TEAM_LOCATION_ROLE_SQL =
+        "INSERT INTO effective_location_role (user_name, location_id, role_name) " +
+        "SELECT customer_employee_id, ?, ? FROM team_members WHERE team_id = ? " +
+        "ON CONFLICT DO NOTHING";
+
+    private static final String INSERT_LOCATION_SQL =
+        "INSERT INTO locations (id, customer_id) " +
+        "VALUES (?, ?) " +
+        "ON CONFLICT (id) DO NOTHING";
+
+    // Fans out the customer's customer-level roles to the new location
+    private static final String FAN_OUT_LOCATION_SQL =
+        "INSERT INTO effective_location_role (user_name, location_id, role_name) " +
+        "SELECT customer_employee_id, ?, role_name FROM customer_employee_customer_roles WHERE customer_id = ? " +
+        "ON CONFLICT DO NOTHING";
+
+    private static final String INSERT_CUSTOMER_ROLE_SQL =
+        "INSERT INTO customer_employee_customer_roles (customer_employee_id, role_name, customer_id) " +
+        "VALUES (?, ?, ?) " +
+        "ON CONFLICT (customer_employee_id, role_name, customer_id) DO NOTHING";
+
+    // Fans out the customer-level role to the customer's locations
+    private static final String FAN_OUT_CUSTOMER_ROLE_SQL =
+        "INSERT INTO effective_location_role (user_name, location_id, role_name) " +
+        "SELECT ?, id, ? FROM locations WHERE customer_id = ? " +
+        "ON CONFLICT DO NOTHING";
+
     private final JdbcTemplate jdbcTemplate;
 
     private final RowMapper<LocationRole> locationRoleRowMapper = (rs, rowNum) ->
@@ -31,36 +101,90 @@ public class JdbcLocationRolesRepository implements LocationRolesRepository {
 
     @Override
     public void saveLocationRole(String userName, Long locationId, String roleName) {
-        String sql = "INSERT INTO customer_employee_location_role (user_name, location_id, role_name) VALUES (?, ?, ?)";
-        jdbcTemplate.update(sql, userName, locationId, roleName);
+        jdbcTemplate.update(INSERT_LOCATION_ROLE_SQL, userName, locationId, roleName);
+        jdbcTemplate.update(INSERT_EFFECTIVE_LOCATION_ROLE_SQL, userName, locationId, roleName);
     }
 
     @Override
     public void saveTeamMember(String teamId, String customerEmployeeId) {
-        String sql = "INSERT INTO team_members (team_id, customer_employee_id) " +
-                     "VALUES (?, ?) " +
-                     "ON CONFLICT (team_id, customer_employee_id) DO NOTHING";
-        jdbcTemplate.update(sql, teamId, customerEmployeeId);
-        logger.info("Saved team member: teamId={}, employeeId={}", teamId, customerEmployeeId);
+        jdbcTemplate.update(INSERT_TEAM_MEMBER_SQL, teamId, customerEmployeeId);
+        int effectiveRows = jdbcTemplate.update(FAN_OUT_TEAM_MEMBER_SQL, customerEmployeeId, teamId);
+        logger.info("Saved team member: teamId={}, employeeId={}, effectiveRoles={}", teamId, customerEmployeeId, effectiveRows);
     }
 
     @Override
     public void saveTeamLocationRole(String teamId, String roleName, Long locationId) {
-        String sql = "INSERT INTO team_location_roles (team_id, role_name, location_id) " +
-                     "VALUES (?, ?, ?) " +
-                     "ON CONFLICT (team_id, role_name, location_id) DO NOTHING";
-        jdbcTemplate.update(sql, teamId, roleName, locationId);
-        logger.info("Saved team location role: teamId={}, role={}, locationId={}",
-                   teamId, roleName, locationId);
+        jdbcTemplate.update(INSERT_TEAM_LOCATION_ROLE_SQL, teamId, roleName, locationId);
+        int effectiveRows = jdbcTemplate.update(FAN_OUT_TEAM_LOCATION_ROLE_SQL, locationId, roleName, teamId);
+        logger.info("Saved team location role: teamId={}, role={}, locationId={}, effectiveRoles={}",
+                   teamId, roleName, locationId, effectiveRows);
     }
 
     @Override
     public void saveLocation(Long locationId, String customerId) {
-        String sql = "INSERT INTO locations (id, customer_id) " +
-                     "VALUES (?, ?) " +
-                     "ON CONFLICT (id) DO NOTHING";
-        jdbcTemplate.update(sql, locationId, customerId);
-        logger.info("Saved location: id={}, customerId={}", locationId, customerId);
+        jdbcTemplate.update(INSERT_LOCATION_SQL, locationId, customerId);
+        int effectiveRows = jdbcTemplate.update(FAN_OUT_LOCATION_SQL, locationId, customerId);
+        logger.info("Saved location: id={}, customerId={}, effectiveRoles={}", locationId, customerId, effectiveRows);
+    }
+
+    @Override
+    public void saveCustomerRole(String userName, String customerId, String roleName) {
+        jdbcTemplate.update(INSERT_CUSTOMER_ROLE_SQL, userName, roleName, customerId);
+        int effectiveRows = jdbcTemplate.update(FAN_OUT_CUSTOMER_ROLE_SQL, userName, roleName, customerId);
+        logger.info("Saved customer role: userName={}, customerId={}, role={}, effectiveRoles={}",
+                   userName, customerId, roleName, effectiveRows);
+    }
+
+    /**
+     * Writes each kind of update with JDBC batches: every source table is written before its fan-out,
+     * so the fan-outs see rows from earlier in the same batch.
+     */
+    @Override
+    public void saveAll(List<LocationRolesReplicaUpdate> updates) {
+        List<Object[]> locationRoles = new ArrayList<>();
+        List<Object[]> teamMembers = new ArrayList<>();
+        List<Object[]> teamMemberFanOuts = new ArrayList<>();
+        List<Object[]> teamLocationRoles = new ArrayList<>();
+        List<Object[]> teamLocationRoleFanOuts = new ArrayList<>();
+        List<Object[]> locations = new ArrayList<>();
+        List<Object[]> customerRoles = new ArrayList<>();
+        List<Object[]> customerRoleFanOuts = new ArrayList<>();
+
+        for (LocationRolesReplicaUpdate update : updates) {
+            if (update instanceof LocationRolesReplicaUpdate.LocationRoleSaved u) {
+                locationRoles.add(new Object[]{u.userName(), u.locationId(), u.roleName()});
+            } else if (update instanceof LocationRolesReplicaUpdate.TeamMemberSaved u) {
+                teamMembers.add(new Object[]{u.teamId(), u.customerEmployeeId()});
+                teamMemberFanOuts.add(new Object[]{u.customerEmployeeId(), u.teamId()});
+            } else if (update instanceof LocationRolesReplicaUpdate.TeamLocationRoleSaved u) {
+                teamLocationRoles.add(new Object[]{u.teamId(), u.roleName(), u.locationId()});
+                teamLocationRoleFanOuts.add(new Object[]{u.locationId(), u.roleName(), u.teamId()});
+            } else if (update instanceof LocationRolesReplicaUpdate.LocationSaved u) {
+                locations.add(new Object[]{u.locationId(), u.customerId()});
+            } else if (update instanceof LocationRolesReplicaUpdate.CustomerRoleSaved u) {
+                customerRoles.add(new Object[]{u.userName(), u.roleName(), u.customerId()});
+                customerRoleFanOuts.add(new Object[]{u.userName(), u.roleName(), u.customerId()});
+            }
+        }
+
+        batchUpdate(INSERT_LOCATION_ROLE_SQL, locationRoles);
+        batchUpdate(INSERT_EFFECTIVE_LOCATION_ROLE_SQL, locationRoles);
+        batchUpdate(INSERT_TEAM_MEMBER_SQL, teamMembers);
+        batchUpdate(FAN_OUT_TEAM_MEMBER_SQL, teamMemberFanOuts);
+        batchUpdate(INSERT_TEAM_LOCATION_ROLE_SQL, teamLocationRoles);
+        batchUpdate(FAN_OUT_TEAM_LOCATION_ROLE_SQL, teamLocationRoleFanOuts);
+        batchUpdate(INSERT_CUSTOMER_ROLE_SQL, customerRoles);
+        batchUpdate(FAN_OUT_CUSTOMER_ROLE_SQL, customerRoleFanOuts);
+        batchUpdate(INSERT_LOCATION_SQL, locations);
+        batchUpdate(FAN_OUT_LOCATION_SQL, locations);
+
+        logger.info("Saved replica batch: size={}, locationRoles={}, teamMembers={}, teamLocationRoles={}, customerRoles={}, locations={}",
+                   updates.size(), locationRoles.size(), teamMembers.size(), teamLocationRoles.size(), customerRoles.size(), locations.size());
+    }
+
+    private void batchUpdate(String sql, List<Object[]> batchArgs) {
+        if (!batchArgs.isEmpty())
+            jdbcTemplate.batchUpdate(sql, batchArgs);
     }
 
     @Override
@@ -68,4 +192,43 @@ public class JdbcLocationRolesRepository implements LocationRolesRepository {
         String sql = "SELECT id, user_name, location_id, role_name FROM customer_employee_location_role WHERE user_name = ? AND location_id = ?";
         return jdbcTemplate.query(sql, locationRoleRowMapper, userName, locationId);
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachEffectiveLocationRole(EffectiveLocationRoleConsumer consumer) {
+        String sql = "SELECT user_name, location_id, role_name FROM effective_location_role";
+        jdbcTemplate.query(sql, effectiveLocationRoleHandler(consumer));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachEffectiveLocationRoleOfUser(String userName, EffectiveLocationRoleConsumer consumer) {
+        String sql = "SELECT user_name, location_id, role_name FROM effective_location_role WHERE user_name = ?";
+        jdbcTemplate.query(sql, effectiveLocationRoleHandler(consumer), userName);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachEffectiveLocationRoleAtLocation(Long locationId, EffectiveLocationRoleConsumer consumer) {
+        String sql = "SELECT user_name, location_id, role_name FROM effective_location_role WHERE location_id = ?";
+        jdbcTemplate.query(sql, effectiveLocationRoleHandler(consumer), locationId);
+    }
+
+    private RowCallbackHandler effectiveLocationRoleHandler(EffectiveLocationRoleConsumer consumer) {
+        return rs -> consumer.accept(rs.getString("user_name"), rs.getLong("location_id"), rs.getString("role_name"));
+    }
+
+    @Override
+    public List<String> findEffectiveLocationRoles(String userName, Long locationId) {
+        String sql = "SELECT role_name FROM effective_location_role WHERE user_name = ? AND location_id = ? ORDER BY role_name";
+        return jdbcTemplate.queryForList(sql, String.class, userName, locationId);
+    }
+
+    @Override
+    public int rebuildEffectiveLocationRoles() {
+        jdbcTemplate.update("DELETE FROM effective_location_role");
+        int rows = jdbcTemplate.update(REBUILD_EFFECTIVE_LOCATION_ROLES_SQL);
+        logger.info("Rebuilt effective_location_role: rows={}", rows);
+        return rows;
+    }
 }
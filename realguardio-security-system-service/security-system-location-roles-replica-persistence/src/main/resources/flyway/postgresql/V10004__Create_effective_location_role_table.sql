@@ -0,0 +1,26 @@
+-- Table: effective_location_role
+-- Denormalized (user, location, role) triples derived from direct location roles,
+-- team location roles fanned out to team members and customer roles fanned out to the customer's locations.
+-- Maintained incrementally by JdbcLocationRolesRepository
+CREATE TABLE IF NOT EXISTS effective_location_role (
+    user_name VARCHAR(255) NOT NULL,
+    location_id BIGINT NOT NULL,
+    role_name VARCHAR(255) NOT NULL,
+    PRIMARY KEY (user_name, location_id, role_name)
+);
+
+CREATE INDEX idx_effective_location_role_location_id ON effective_location_role(location_id, user_name);
+
+-- Backfill from the existing replica tables
+INSERT INTO effective_location_role (user_name, location_id, role_name)
+SELECT user_name, location_id, role_name
+FROM customer_employee_location_role
+UNION
+SELECT tm.customer_employee_id, tlr.location_id, tlr.role_name
+FROM team_members tm
+JOIN team_location_roles tlr ON tm.team_id = tlr.team_id
+UNION
+SELECT cecr.customer_employee_id, loc.id, cecr.role_name
+FROM customer_employee_customer_roles cecr
+JOIN locations loc ON cecr.customer_id = loc.customer_id
+ON CONFLICT DO NOTHING;
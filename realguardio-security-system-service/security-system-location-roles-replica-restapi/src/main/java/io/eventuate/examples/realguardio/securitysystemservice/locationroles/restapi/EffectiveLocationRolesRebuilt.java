@@ -0,0 +1,4 @@
+package io.eventuate.examples.realguardio.securitysystemservice.locationroles.restapi;
+
+public record EffectiveLocationRolesRebuilt(int rowCount) {
+}
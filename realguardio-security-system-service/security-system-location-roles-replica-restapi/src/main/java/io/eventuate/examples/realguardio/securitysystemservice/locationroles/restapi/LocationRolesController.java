@@ -2,7 +2,9 @@ package io.eventuate.examples.realguardio.securitysystemservice.locationroles.re
 
 import io.eventuate.examples.realguardio.securitysystemservice.locationroles.domain.LocationRole;
 import io.eventuate.examples.realguardio.securitysystemservice.locationroles.domain.LocationRolesReplicaService;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -25,4 +27,10 @@ public class LocationRolesController {
             @RequestParam("locationId") Long locationId) {
         return locationRolesReplicaService.findLocationRoles(userName, locationId);
     }
-}
\ No newline at end of file
+
+    @PostMapping("/effective/rebuild")
+    @PreAuthorize("hasRole('REALGUARDIO_ADMIN')")
+    public EffectiveLocationRolesRebuilt rebuildEffectiveLocationRoles() {
+        return new EffectiveLocationRolesRebuilt(locationRolesReplicaService.rebuildEffectiveLocationRoles());
+    }
+}
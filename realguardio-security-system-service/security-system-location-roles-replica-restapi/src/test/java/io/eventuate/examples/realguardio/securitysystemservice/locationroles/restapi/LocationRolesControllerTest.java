@@ -20,6 +20,7 @@ import java.util.List;
 
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -81,4 +82,13 @@ public class LocationRolesControllerTest {
             .andExpect(status().isOk())
             .andExpect(jsonPath("$").isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldRebuildEffectiveLocationRoles() throws Exception {
+        when(locationRolesReplicaService.rebuildEffectiveLocationRoles()).thenReturn(42);
+
+        mockMvc.perform(post("/location-roles/effective/rebuild"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.rowCount").value(42));
+    }
+}
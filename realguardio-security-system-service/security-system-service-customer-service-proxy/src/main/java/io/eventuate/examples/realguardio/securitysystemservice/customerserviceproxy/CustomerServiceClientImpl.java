@@ -3,9 +3,13 @@ package io.eventuate.examples.realguardio.securitysystemservice.customerservicep
 import io.eventuate.examples.realguardio.securitysystemservice.domain.CustomerServiceClient;
 import io.eventuate.examples.realguardio.securitysystemservice.domain.JwtProvider;
 import io.eventuate.examples.realguardio.securitysystemservice.domain.RolesResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
@@ -18,24 +22,47 @@ import java.util.Set;
 
 @Component
 @Profile("!UseRolesReplica")
+@ConditionalOnProperty(name = "customer.service.client.mode", havingValue = "per-location", matchIfMissing = true)
 public class CustomerServiceClientImpl implements CustomerServiceClient {
 
     private static final Logger logger = LoggerFactory.getLogger(CustomerServiceClientImpl.class);
 
+    private record UserLocation(String userId, Long locationId) {
+    }
+
     private final RestTemplate restTemplate;
     private final String customerServiceUrl;
     private final JwtProvider jwtProvider;
+    private final SingleFlight<UserLocation, Set<String>> inFlightRequests = new SingleFlight<>();
+    private final Counter coalescedRequests;
 
-    public CustomerServiceClientImpl(RestTemplate restTemplate, 
+    public CustomerServiceClientImpl(RestTemplate restTemplate,
                                      @Value("${customer.service.url:http://localhost:8081}") String customerServiceUrl,
-                                     JwtProvider jwtProvider) {
+                                     JwtProvider jwtProvider,
+                                     MeterRegistry meterRegistry) {
         this.restTemplate = restTemplate;
         this.customerServiceUrl = customerServiceUrl;
         this.jwtProvider = jwtProvider;
+        this.coalescedRequests = Counter.builder("customer_service_client.coalesced_requests")
+            .description("Role lookups that shared an identical in-flight request to customer-service")
+            .register(meterRegistry);
+        Gauge.builder("customer_service_client.in_flight_requests", inFlightRequests, SingleFlight::inFlightCount)
+            .description("Distinct role lookups currently in flight to customer-service")
+            .register(meterRegistry);
     }
 
+    /**
+     * Concurrent lookups for the same user and location share one request. The userId is the
+     * JWT subject, so the shared request's token identifies the same user.
+     */
     @Override
     public Set<String> getUserRolesAtLocation(String userId, Long locationId) {
+        return inFlightRequests.execute(new UserLocation(userId, locationId),
+            () -> fetchUserRolesAtLocation(userId, locationId),
+            coalescedRequests::increment);
+    }
+
+    private Set<String> fetchUserRolesAtLocation(String userId, Long locationId) {
         String url = customerServiceUrl + "/locations/" + locationId + "/roles";
 
         HttpHeaders headers = new HttpHeaders();
@@ -0,0 +1,91 @@
+package io.eventuate.examples.realguardio.securitysystemservice.customerserviceproxy;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.eventuate.examples.realguardio.securitysystemservice.domain.CustomerServiceClient;
+import io.eventuate.examples.realguardio.securitysystemservice.domain.JwtProvider;
+import io.eventuate.examples.realguardio.securitysystemservice.domain.LocationRolesResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Fetches all of a user's location roles from customer-service with a single request and caches them per user,
+ * so that checking many locations costs one remote call per TTL. Concurrent misses for the same user share one request.
+ */
+@Component
+@Profile("!UseRolesReplica")
+@ConditionalOnProperty(name = "customer.service.client.mode", havingValue = "location-roles-map")
+public class CustomerServiceLocationRolesMapClient implements CustomerServiceClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerServiceLocationRolesMapClient.class);
+
+    private final RestTemplate restTemplate;
+    private final String customerServiceUrl;
+    private final JwtProvider jwtProvider;
+    private final Cache<String, Map<Long, Set<String>>> userLocationRoles;
+
+    public CustomerServiceLocationRolesMapClient(RestTemplate restTemplate,
+                                                 @Value("${customer.service.url:http://localhost:8081}") String customerServiceUrl,
+                                                 JwtProvider jwtProvider,
+                                                 @Value("${customer.service.client.location-roles-map.maximum-size:10000}") long maximumSize,
+                                                 @Value("${customer.service.client.location-roles-map.time-to-live:PT10S}") Duration timeToLive,
+                                                 MeterRegistry meterRegistry) {
+        this.restTemplate = restTemplate;
+        this.customerServiceUrl = customerServiceUrl;
+        this.jwtProvider = jwtProvider;
+        this.userLocationRoles = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(timeToLive)
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, userLocationRoles, "userLocationRoles");
+    }
+
+    /**
+     * The userId is the JWT subject, so the cached map belongs to the user whose token fetched it.
+     */
+    @Override
+    public Set<String> getUserRolesAtLocation(String userId, Long locationId) {
+        return userLocationRoles.get(userId, this::fetchUserLocationRoles)
+            .getOrDefault(locationId, Set.of());
+    }
+
+    private Map<Long, Set<String>> fetchUserLocationRoles(String userId) {
+        String url = customerServiceUrl + "/location-roles";
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.AUTHORIZATION, jwtProvider.getCurrentJwtToken());
+
+        logger.info("Requesting roles for user {} at all locations from URL: {}", userId, url);
+
+        ResponseEntity<LocationRolesResponse> response = restTemplate.exchange(
+            url,
+            HttpMethod.GET,
+            new HttpEntity<Void>(headers),
+            LocationRolesResponse.class
+        );
+
+        Map<Long, Set<String>> locationRoles = new HashMap<>();
+        response.getBody().getLocationRoles().forEach((locationId, roles) -> locationRoles.put(locationId, Set.copyOf(roles)));
+
+        logger.info("Retrieved roles for user {} at {} locations", userId, locationRoles.size());
+
+        return Map.copyOf(locationRoles);
+    }
+}
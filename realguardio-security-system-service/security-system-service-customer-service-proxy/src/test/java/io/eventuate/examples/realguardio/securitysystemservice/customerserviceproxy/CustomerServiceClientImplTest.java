@@ -4,6 +4,7 @@ import com.github.tomakehurst.wiremock.WireMockServer;
 import com.github.tomakehurst.wiremock.client.WireMock;
 import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
 import io.eventuate.examples.realguardio.securitysystemservice.domain.JwtProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -16,7 +17,13 @@ import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
@@ -43,7 +50,7 @@ class CustomerServiceClientImplTest {
 
         RestTemplate restTemplate = new RestTemplate();
         String customerServiceUrl = "http://localhost:" + wireMockServer.port();
-        customerServiceClient = new CustomerServiceClientImpl(restTemplate, customerServiceUrl, jwtProvider);
+        customerServiceClient = new CustomerServiceClientImpl(restTemplate, customerServiceUrl, jwtProvider, new SimpleMeterRegistry());
     }
 
     @AfterEach
@@ -169,7 +176,7 @@ class CustomerServiceClientImplTest {
         }});
         String customerServiceUrl = "http://localhost:" + wireMockServer.port();
         CustomerServiceClientImpl clientWithTimeout = new CustomerServiceClientImpl(
-            restTemplateWithTimeout, customerServiceUrl, jwtProvider);
+            restTemplateWithTimeout, customerServiceUrl, jwtProvider, new SimpleMeterRegistry());
         
         WireMock.stubFor(WireMock.get(WireMock.urlEqualTo("/locations/" + locationId + "/roles"))
             .withHeader("Authorization", WireMock.equalTo(jwtToken))
@@ -261,4 +268,42 @@ class CustomerServiceClientImplTest {
         assertThatThrownBy(() -> customerServiceClient.getUserRolesAtLocation(userId, locationId))
             .isInstanceOf(NullPointerException.class);
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldShareOneRequestBetweenConcurrentLookupsForSameUserAndLocation() throws Exception {
+        // Given
+        String userId = "123";
+        Long locationId = 456L;
+        String jwtToken = "Bearer eyJhbGciOiJSUzI1NiIsInR5cCI6IkpXVCJ9...";
+
+        Mockito.when(jwtProvider.getCurrentJwtToken()).thenReturn(jwtToken);
+
+        WireMock.stubFor(WireMock.get(WireMock.urlEqualTo("/locations/" + locationId + "/roles"))
+            .willReturn(WireMock.aResponse()
+                .withStatus(200)
+                .withFixedDelay(500)
+                .withHeader("Content-Type", "application/json")
+                .withBody("{\"roles\":[\"SECURITY_SYSTEM_VIEWER\"]}")));
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        CustomerServiceClientImpl client = new CustomerServiceClientImpl(
+            new RestTemplate(), "http://localhost:" + wireMockServer.port(), jwtProvider, meterRegistry);
+
+        // When
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Set<String>>> results = new ArrayList<>();
+            for (int i = 0; i < 4; i++)
+                results.add(executor.submit(() -> client.getUserRolesAtLocation(userId, locationId)));
+
+            // Then
+            for (Future<Set<String>> result : results)
+                assertThat(result.get(5, TimeUnit.SECONDS)).containsExactly(RolesAndPermissions.SECURITY_SYSTEM_VIEWER);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        WireMock.verify(1, WireMock.getRequestedFor(WireMock.urlEqualTo("/locations/" + locationId + "/roles")));
+        assertThat(meterRegistry.get("customer_service_client.coalesced_requests").counter().count()).isEqualTo(3);
+    }
+}
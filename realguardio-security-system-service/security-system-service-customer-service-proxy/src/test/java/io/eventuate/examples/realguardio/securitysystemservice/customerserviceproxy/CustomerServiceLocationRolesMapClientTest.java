@@ -0,0 +1,90 @@
+package io.eventuate.examples.realguardio.securitysystemservice.customerserviceproxy;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import io.eventuate.examples.realguardio.securitysystemservice.domain.JwtProvider;
+import io.eventuate.examples.realguardio.securitysystemservice.domain.RolesAndPermissions;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerServiceLocationRolesMapClientTest {
+
+    private static final String JWT_TOKEN = "Bearer eyJhbGciOiJSUzI1NiIsInR5cCI6IkpXVCJ9...";
+
+    private WireMockServer wireMockServer;
+
+    @Mock
+    private JwtProvider jwtProvider;
+
+    private CustomerServiceLocationRolesMapClient customerServiceClient;
+
+    @BeforeEach
+    void setUp() {
+        wireMockServer = new WireMockServer(WireMockConfiguration.wireMockConfig().dynamicPort());
+        wireMockServer.start();
+        WireMock.configureFor("localhost", wireMockServer.port());
+
+        customerServiceClient = new CustomerServiceLocationRolesMapClient(new RestTemplate(),
+            "http://localhost:" + wireMockServer.port(), jwtProvider, 100, Duration.ofMinutes(1), new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        wireMockServer.stop();
+    }
+
+    @Test
+    void shouldAnswerEveryLocationFromOneRequest() {
+        when(jwtProvider.getCurrentJwtToken()).thenReturn(JWT_TOKEN);
+
+        WireMock.stubFor(WireMock.get(WireMock.urlEqualTo("/location-roles"))
+            .withHeader("Authorization", WireMock.equalTo(JWT_TOKEN))
+            .willReturn(WireMock.aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "application/json")
+                .withBody("{\"locationRoles\":{\"101\":[\"SECURITY_SYSTEM_ARMER\"],\"102\":[\"SECURITY_SYSTEM_DISARMER\",\"SECURITY_SYSTEM_VIEWER\"]}}")));
+
+        assertThat(customerServiceClient.getUserRolesAtLocation("123", 101L))
+            .containsExactly(RolesAndPermissions.SECURITY_SYSTEM_ARMER);
+        assertThat(customerServiceClient.getUserRolesAtLocation("123", 102L))
+            .containsExactlyInAnyOrder(RolesAndPermissions.SECURITY_SYSTEM_DISARMER, RolesAndPermissions.SECURITY_SYSTEM_VIEWER);
+        assertThat(customerServiceClient.getUserRolesAtLocation("123", 103L)).isEmpty();
+
+        WireMock.verify(1, WireMock.getRequestedFor(WireMock.urlEqualTo("/location-roles")));
+    }
+
+    @Test
+    void shouldNotCacheFailedRequests() {
+        when(jwtProvider.getCurrentJwtToken()).thenReturn(JWT_TOKEN);
+
+        WireMock.stubFor(WireMock.get(WireMock.urlEqualTo("/location-roles"))
+            .willReturn(WireMock.aResponse().withStatus(503)));
+
+        assertThatThrownBy(() -> customerServiceClient.getUserRolesAtLocation("123", 101L))
+            .isInstanceOf(HttpServerErrorException.class);
+
+        WireMock.stubFor(WireMock.get(WireMock.urlEqualTo("/location-roles"))
+            .willReturn(WireMock.aResponse()
+                .withStatus(200)
+                .withHeader("Content-Type", "application/json")
+                .withBody("{\"locationRoles\":{\"101\":[\"SECURITY_SYSTEM_ARMER\"]}}")));
+
+        assertThat(customerServiceClient.getUserRolesAtLocation("123", 101L))
+            .containsExactly(RolesAndPermissions.SECURITY_SYSTEM_ARMER);
+    }
+}
@@ -0,0 +1,58 @@
+package io.eventuate.examples.realguardio.securitysystemservice.customerserviceproxy;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SingleFlightTest {
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+    private final AtomicInteger coalesced = new AtomicInteger();
+
+    @Test
+    void shouldPropagateLeadersExceptionToWaitingCallers() throws Exception {
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> singleFlight.execute("key", () -> {
+            leaderStarted.countDown();
+            await(release);
+            throw new IllegalStateException("customer-service unavailable");
+        }, coalesced::incrementAndGet));
+
+        assertThat(leaderStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<String> follower = CompletableFuture.supplyAsync(() -> singleFlight.execute("key", () -> "unexpected", coalesced::incrementAndGet));
+        while (coalesced.get() == 0)
+            Thread.onSpinWait();
+        release.countDown();
+
+        assertThatThrownBy(follower::join).hasCauseInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(leader::join).hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(singleFlight.inFlightCount()).isZero();
+    }
+
+    @Test
+    void shouldNotCacheCompletedCalls() {
+        AtomicInteger calls = new AtomicInteger();
+
+        singleFlight.execute("key", () -> "a" + calls.incrementAndGet(), coalesced::incrementAndGet);
+        String second = singleFlight.execute("key", () -> "a" + calls.incrementAndGet(), coalesced::incrementAndGet);
+
+        assertThat(second).isEqualTo("a2");
+        assertThat(coalesced.get()).isZero();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package io.eventuate.examples.realguardio.securitysystemservice.domain;
+
+/**
+ * Identifies cached location roles that every security-system-service instance must evict,
+ * or, for {@link Scope#SECURITY_SYSTEMS}, that security systems were created or changed state.
+ */
+public record CacheInvalidation(Scope scope, String userName, Long locationId) {
+
+    public enum Scope {
+        USER_LOCATION_ROLES, LOCATION_ROLES, ALL_LOCATION_ROLES, SECURITY_SYSTEMS
+    }
+
+    public static CacheInvalidation userLocationRoles(String userName, Long locationId) {
+        return new CacheInvalidation(Scope.USER_LOCATION_ROLES, userName, locationId);
+    }
+
+    public static CacheInvalidation locationRoles(Long locationId) {
+        return new CacheInvalidation(Scope.LOCATION_ROLES, null, locationId);
+    }
+
+    public static CacheInvalidation allLocationRoles() {
+        return new CacheInvalidation(Scope.ALL_LOCATION_ROLES, null, null);
+    }
+
+    public static CacheInvalidation securitySystems() {
+        return new CacheInvalidation(Scope.SECURITY_SYSTEMS, null, null);
+    }
+}
@@ -0,0 +1,171 @@
+package io.eventuate.examples.realguardio.securitysystemservice.domain;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the location roles cached by each security-system-service instance consistent across the cluster.
+ * The instance that applies a location roles change evicts its own entries and broadcasts an invalidation,
+ * which the other instances apply when they receive it.
+ * <p>
+ * Every instance, including the sender, receives every message, so each instance knows whether the bus is delivering to it.
+ * An instance that has received nothing for a heartbeat-interval broadcasts a heartbeat. Any message received resets
+ * every instance's clock, so an idle cluster sends about one heartbeat per interval and a busy one sends none.
+ * An instance that receives nothing for max-staleness, e.g. because its subscription has stalled, evicts everything,
+ * so its cached roles are at most max-staleness plus the observed propagation delay out of date.
+ */
+@Component
+public class CacheInvalidationBroadcaster implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheInvalidationBroadcaster.class);
+
+    private final String instanceId = UUID.randomUUID().toString();
+    private final long startedAt = System.currentTimeMillis();
+    private final CacheInvalidationBus cacheInvalidationBus;
+    private final LocationRolesCache locationRolesCache;
+    private final Iterable<CacheInvalidationListener> listeners;
+    private final Duration heartbeatInterval;
+    private final Duration maxStaleness;
+    private final ScheduledExecutorService scheduler;
+    private final Timer propagationDelay;
+    private final Counter receivedInvalidations;
+    private final Counter heartbeats;
+    private final Counter stalenessEvictions;
+    private volatile long lastReceivedNanos = System.nanoTime();
+    private volatile long lastHeartbeatNanos = System.nanoTime();
+
+    /**
+     * @param heartbeatInterval zero disables heartbeats and the staleness check
+     */
+    public CacheInvalidationBroadcaster(CacheInvalidationBus cacheInvalidationBus,
+                                        LocationRolesCache locationRolesCache,
+                                        ObjectProvider<CacheInvalidationListener> listeners,
+                                        @Value("${cache-invalidation.heartbeat-interval:PT10S}") Duration heartbeatInterval,
+                                        @Value("${cache-invalidation.max-staleness:PT30S}") Duration maxStaleness,
+                                        MeterRegistry meterRegistry) {
+        this.cacheInvalidationBus = cacheInvalidationBus;
+        this.locationRolesCache = locationRolesCache;
+        this.listeners = listeners;
+        this.heartbeatInterval = heartbeatInterval;
+        this.maxStaleness = maxStaleness;
+        this.propagationDelay = Timer.builder("cache_invalidation.propagation_delay")
+            .description("Time from an instance broadcasting a cache invalidation to this instance receiving it")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+        this.receivedInvalidations = Counter.builder("cache_invalidation.received")
+            .description("Cache invalidations received from other instances and applied")
+            .register(meterRegistry);
+        this.heartbeats = Counter.builder("cache_invalidation.heartbeats")
+            .description("Heartbeats broadcast by this instance because it had received nothing within the heartbeat interval")
+            .register(meterRegistry);
+        this.stalenessEvictions = Counter.builder("cache_invalidation.staleness_evictions")
+            .description("Times every cached location role was evicted because no message arrived within the maximum staleness")
+            .register(meterRegistry);
+        Gauge.builder("cache_invalidation.time_since_last_message", this, broadcaster -> broadcaster.secondsSinceLastMessage())
+            .description("Seconds since this instance last received a cache invalidation message or heartbeat")
+            .baseUnit("seconds")
+            .register(meterRegistry);
+
+        cacheInvalidationBus.subscribe(this::receive);
+
+        if (heartbeatInterval.isZero()) {
+            this.scheduler = null;
+        } else {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "cache-invalidation-heartbeat");
+                thread.setDaemon(true);
+                return thread;
+            });
+            // Checked more often than the interval, so that a heartbeat goes out soon after the bus falls silent
+            long checkMillis = Math.max(1, heartbeatInterval.toMillis() / 4);
+            this.scheduler.scheduleAtFixedRate(this::checkLiveness, checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Broadcasts an invalidation that the caller has already applied to this instance's caches.
+     */
+    public void broadcast(CacheInvalidation invalidation) {
+        cacheInvalidationBus.send(new CacheInvalidationMessage(instanceId, System.currentTimeMillis(), List.of(invalidation)));
+    }
+
+    void receive(CacheInvalidationMessage message) {
+        // Data cached by this instance was read after it started, so invalidations sent before then - allowing for clock skew - don't apply
+        if (message.publishedAt() < startedAt - maxStaleness.toMillis())
+            return;
+
+        lastReceivedNanos = System.nanoTime();
+        if (!message.invalidations().isEmpty())
+            propagationDelay.record(Math.max(0, System.currentTimeMillis() - message.publishedAt()), TimeUnit.MILLISECONDS);
+
+        if (message.origin().equals(instanceId))
+            return;
+
+        for (CacheInvalidation invalidation : message.invalidations()) {
+            switch (invalidation.scope()) {
+                case USER_LOCATION_ROLES -> locationRolesCache.invalidate(invalidation.userName(), invalidation.locationId());
+                case LOCATION_ROLES -> locationRolesCache.invalidateLocation(invalidation.locationId());
+                case ALL_LOCATION_ROLES -> locationRolesCache.invalidateAll();
+                case SECURITY_SYSTEMS -> {
+                    // Only the listeners cache anything derived from security systems
+                }
+            }
+            for (CacheInvalidationListener listener : listeners)
+                listener.invalidate(invalidation);
+            receivedInvalidations.increment();
+        }
+    }
+
+    private void checkLiveness() {
+        long silentNanos = System.nanoTime() - lastReceivedNanos;
+
+        if (silentNanos > maxStaleness.toNanos()) {
+            logger.warn("No cache invalidation message received for {}, evicting all cached location roles", maxStaleness);
+            lastReceivedNanos = System.nanoTime();
+            stalenessEvictions.increment();
+            try {
+                locationRolesCache.invalidateAll();
+                for (CacheInvalidationListener listener : listeners)
+                    listener.invalidateAll();
+            } catch (RuntimeException e) {
+                logger.warn("Failed to evict cached location roles", e);
+            }
+        }
+
+        // At most one heartbeat per interval, however long it takes to come back
+        if (silentNanos > heartbeatInterval.toNanos() && System.nanoTime() - lastHeartbeatNanos > heartbeatInterval.toNanos()) {
+            lastHeartbeatNanos = System.nanoTime();
+            try {
+                cacheInvalidationBus.send(new CacheInvalidationMessage(instanceId, System.currentTimeMillis(), List.of()));
+                heartbeats.increment();
+            } catch (RuntimeException e) {
+                logger.warn("Failed to send cache invalidation heartbeat", e);
+            }
+        }
+    }
+
+    private double secondsSinceLastMessage() {
+        return (System.nanoTime() - lastReceivedNanos) / 1e9;
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null)
+            scheduler.shutdownNow();
+    }
+}
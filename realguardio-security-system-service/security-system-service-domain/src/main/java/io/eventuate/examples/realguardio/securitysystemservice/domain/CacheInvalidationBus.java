@@ -0,0 +1,14 @@
+package io.eventuate.examples.realguardio.securitysystemservice.domain;
+
+import java.util.function.Consumer;
+
+/**
+ * Delivers cache invalidation messages to every security-system-service instance, including the sender,
+ * once the transaction that sends them has committed.
+ */
+public interface CacheInvalidationBus {
+
+    void send(CacheInvalidationMessage message);
+
+    void subscribe(Consumer<CacheInvalidationMessage> handler);
+}
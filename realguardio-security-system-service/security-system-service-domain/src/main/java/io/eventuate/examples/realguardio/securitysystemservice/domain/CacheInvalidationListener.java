@@ -0,0 +1,15 @@
+package io.eventuate.examples.realguardio.securitysystemservice.domain;
+
+/**
+ * Evicts data derived from location roles that is held outside {@link LocationRolesCache}, such as an in-memory index,
+ * when another instance broadcasts an invalidation.
+ */
+public interface CacheInvalidationListener {
+
+    void invalidate(CacheInvalidation invalidation);
+
+    /**
+     * Called when no message has been received within the maximum staleness, so invalidations may have been missed.
+     */
+    void invalidateAll();
+}
@@ -0,0 +1,12 @@
+package io.eventuate.examples.realguardio.securitysystemservice.domain;
+
+import java.util.List;
+
+/**
+ * The invalidations broadcast by one instance. A message without invalidations is a heartbeat.
+ *
+ * @param origin      the id of the sending instance
+ * @param publishedAt when the message was sent, in epoch milliseconds
+ */
+public record CacheInvalidationMessage(String origin, long publishedAt, List<CacheInvalidation> invalidations) {
+}
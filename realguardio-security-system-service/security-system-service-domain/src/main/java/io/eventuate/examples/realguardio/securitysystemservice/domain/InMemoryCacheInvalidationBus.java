@@ -0,0 +1,44 @@
+package io.eventuate.examples.realguardio.securitysystemservice.domain;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * A single-JVM stand-in for the Eventuate transport, used by tests and single-instance deployments.
+ */
+@Component
+@ConditionalOnProperty(name = "cache-invalidation.transport", havingValue = "in-memory", matchIfMissing = true)
+public class InMemoryCacheInvalidationBus implements CacheInvalidationBus {
+
+    private final List<Consumer<CacheInvalidationMessage>> handlers = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void send(CacheInvalidationMessage message) {
+        if (TransactionSynchronizationManager.isActualTransactionActive() && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    deliver(message);
+                }
+            });
+        } else {
+            deliver(message);
+        }
+    }
+
+    private void deliver(CacheInvalidationMessage message) {
+        for (Consumer<CacheInvalidationMessage> handler : handlers)
+            handler.accept(message);
+    }
+
+    @Override
+    public void subscribe(Consumer<CacheInvalidationMessage> handler) {
+        handlers.add(handler);
+    }
+}
@@ -0,0 +1,44 @@
+package io.eventuate.examples.realguardio.securitysystemservice.domain;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * A single-JVM stand-in for the Eventuate transport, used by tests and single-instance deployments.
+ */
+@Component
+@ConditionalOnProperty(name = "security-system.state-changes.transport", havingValue = "in-memory", matchIfMissing = true)
+public class InMemorySecuritySystemStateChangeBus implements SecuritySystemStateChangeBus {
+
+    private final List<Consumer<SecuritySystemStateChange>> handlers = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void send(SecuritySystemStateChange change) {
+        if (TransactionSynchronizationManager.isActualTransactionActive() && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    deliver(change);
+                }
+            });
+        } else {
+            deliver(change);
+        }
+    }
+
+    private void deliver(SecuritySystemStateChange change) {
+        for (Consumer<SecuritySystemStateChange> handler : handlers)
+            handler.accept(change);
+    }
+
+    @Override
+    public void subscribe(Consumer<SecuritySystemStateChange> handler) {
+        handlers.add(handler);
+    }
+}
@@ -6,6 +6,7 @@ import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
 import java.util.Collections;
+import java.util.Optional;
 import java.util.Set;
 
 @Component
@@ -17,29 +18,61 @@ public class LocalSecuritySystemActionAuthorizer implements SecuritySystemAction
   private final SecuritySystemRepository securitySystemRepository;
   private final CustomerServiceClient customerServiceClient;
   private final UserNameSupplier userNameSupplier;
+  private final LocationRolesCache locationRolesCache;
+  private final LocationRoleIndex locationRoleIndex;
+  private final SecuritySystemLocationCache securitySystemLocationCache;
 
-  public LocalSecuritySystemActionAuthorizer(CustomerServiceClient customerServiceClient, SecuritySystemRepository securitySystemRepository, UserNameSupplier userNameSupplier) {
+  public LocalSecuritySystemActionAuthorizer(CustomerServiceClient customerServiceClient, SecuritySystemRepository securitySystemRepository, UserNameSupplier userNameSupplier, LocationRolesCache locationRolesCache,
+                                             Optional<LocationRoleIndex> locationRoleIndex, SecuritySystemLocationCache securitySystemLocationCache) {
     this.customerServiceClient = customerServiceClient;
     this.securitySystemRepository = securitySystemRepository;
     this.userNameSupplier = userNameSupplier;
+    this.locationRolesCache = locationRolesCache;
+    this.locationRoleIndex = locationRoleIndex.orElse(null);
+    this.securitySystemLocationCache = securitySystemLocationCache;
   }
 
 
   @Override
   public void verifyCanDo(long securitySystemId, String permission) {
-        validateLocationPermission(securitySystemId, RolesAndPermissions.rolesForPermission(permission));
+    if (locationRoleIndex != null)
+      validateLocationPermissionUsingIndex(securitySystemId, permission);
+    else
+      validateLocationPermission(securitySystemId, RolesAndPermissions.rolesForPermission(permission));
   }
 
+  private void validateLocationPermissionUsingIndex(long securitySystemId, String permission) {
+    long locationId = findLocationId(securitySystemId);
+    String userId = userNameSupplier.getCurrentUserName();
+
+    int rolesAtLocation = locationRoleIndex.rolesMask(userId, locationId);
+
+    if ((rolesAtLocation & RoleBits.permissionMask(permission)) == 0) {
+      Set<String> requiredRoles = RolesAndPermissions.rolesForPermission(permission);
+      Set<String> roleNames = RoleBits.roleNames(rolesAtLocation);
+      logger.warn("User {} lacks {} permission for location {}. Only has {}", userId, requiredRoles, locationId, roleNames);
+      throw new ForbiddenException(
+          String.format("User %s lacks %s permission for location %d. Only has %s",
+                  userId, requiredRoles, locationId, roleNames)
+      );
+    }
+  }
+
+  // Usually a cache hit, since SecuritySystemServiceImpl caches the location of the security system it has just loaded
+  private Long findLocationId(Long securitySystemID) {
+    return securitySystemLocationCache.getLocationId(securitySystemID, () -> securitySystemRepository.findById(securitySystemID)
+        .orElseThrow(() -> new NotFoundException("Security system not found: " + securitySystemID))
+        .getLocationId());
+  }
 
- private void validateLocationPermission(Long securitySystemID, Set<String> requiredRoles) {
-    SecuritySystem securitySystem = securitySystemRepository.findById(securitySystemID)
-        .orElseThrow(() -> new NotFoundException("Security system not found: " + securitySystemID));
 
-    Long locationId = securitySystem.getLocationId();
+ private void validateLocationPermission(Long securitySystemID, Set<String> requiredRoles) {
+    Long locationId = findLocationId(securitySystemID);
 
     String userId = userNameSupplier.getCurrentUserName();
 
-    Set<String> rolesAtLocation = customerServiceClient.getUserRolesAtLocation(userId, locationId);
+    Set<String> rolesAtLocation = locationRolesCache.getUserRolesAtLocation(userId, locationId,
+        () -> customerServiceClient.getUserRolesAtLocation(userId, locationId));
 
     if (Collections.disjoint(rolesAtLocation, requiredRoles)) {
       logger.warn("User {} lacks {} permission for location {}. Only has {}", userId, requiredRoles, locationId, rolesAtLocation);
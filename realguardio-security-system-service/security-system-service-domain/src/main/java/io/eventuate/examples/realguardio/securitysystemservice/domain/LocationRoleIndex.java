@@ -0,0 +1,9 @@
+package io.eventuate.examples.realguardio.securitysystemservice.domain;
+
+/**
+ * An in-process index of each user's roles at each location, encoded with {@link RoleBits}.
+ */
+public interface LocationRoleIndex {
+
+  int rolesMask(String userName, long locationId);
+}
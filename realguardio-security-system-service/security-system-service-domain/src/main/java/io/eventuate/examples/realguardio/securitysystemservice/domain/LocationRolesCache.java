@@ -0,0 +1,20 @@
+package io.eventuate.examples.realguardio.securitysystemservice.domain;
+
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of the roles that a user has at a location.
+ * Entries expire after a TTL and are invalidated when the location roles replica
+ * applies an event that could change them.
+ */
+public interface LocationRolesCache {
+
+    Set<String> getUserRolesAtLocation(String userName, Long locationId, Supplier<Set<String>> loader);
+
+    void invalidate(String userName, Long locationId);
+
+    void invalidateLocation(Long locationId);
+
+    void invalidateAll();
+}
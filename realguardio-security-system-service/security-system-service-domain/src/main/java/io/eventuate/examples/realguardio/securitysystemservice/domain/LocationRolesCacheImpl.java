@@ -0,0 +1,59 @@
+package io.eventuate.examples.realguardio.securitysystemservice.domain;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.function.Supplier;
+
+@Component
+public class LocationRolesCacheImpl implements LocationRolesCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocationRolesCacheImpl.class);
+
+    private record UserLocation(String userName, Long locationId) {
+    }
+
+    private final Cache<UserLocation, Set<String>> cache;
+
+    public LocationRolesCacheImpl(@Value("${location-roles-cache.maximum-size:10000}") long maximumSize,
+                                  @Value("${location-roles-cache.time-to-live:PT30S}") Duration timeToLive,
+                                  MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(timeToLive)
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "locationRoles");
+    }
+
+    @Override
+    public Set<String> getUserRolesAtLocation(String userName, Long locationId, Supplier<Set<String>> loader) {
+        return cache.get(new UserLocation(userName, locationId), key -> Set.copyOf(loader.get()));
+    }
+
+    @Override
+    public void invalidate(String userName, Long locationId) {
+        logger.debug("Invalidating cached roles for user {} at location {}", userName, locationId);
+        cache.invalidate(new UserLocation(userName, locationId));
+    }
+
+    @Override
+    public void invalidateLocation(Long locationId) {
+        logger.debug("Invalidating cached roles at location {}", locationId);
+        cache.asMap().keySet().removeIf(key -> key.locationId().equals(locationId));
+    }
+
+    @Override
+    public void invalidateAll() {
+        logger.debug("Invalidating all cached location roles");
+        cache.invalidateAll();
+    }
+}
@@ -0,0 +1,13 @@
+package io.eventuate.examples.realguardio.securitysystemservice.domain;
+
+import java.util.Set;
+
+/**
+ * A user's effective roles at a location, read from this instance's location roles replica. Unlike
+ * {@link CustomerServiceClient}, it doesn't call another service on the current user's behalf, so it can be used
+ * outside of a request, e.g. by the {@link SecuritySystemStateChangeHub}'s delivery threads.
+ */
+public interface LocationRolesReplica {
+
+  Set<String> getUserRolesAtLocation(String userName, Long locationId);
+}
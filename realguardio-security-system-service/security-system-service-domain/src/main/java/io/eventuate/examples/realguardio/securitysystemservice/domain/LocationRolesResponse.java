@@ -0,0 +1,23 @@
+package io.eventuate.examples.realguardio.securitysystemservice.domain;
+
+import java.util.Map;
+import java.util.Set;
+
+public class LocationRolesResponse {
+    private Map<Long, Set<String>> locationRoles;
+
+    public LocationRolesResponse() {
+    }
+
+    public LocationRolesResponse(Map<Long, Set<String>> locationRoles) {
+        this.locationRoles = locationRoles;
+    }
+
+    public Map<Long, Set<String>> getLocationRoles() {
+        return locationRoles;
+    }
+
+    public void setLocationRoles(Map<Long, Set<String>> locationRoles) {
+        this.locationRoles = locationRoles;
+    }
+}
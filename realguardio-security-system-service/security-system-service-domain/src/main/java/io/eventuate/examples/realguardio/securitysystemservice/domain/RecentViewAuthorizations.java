@@ -0,0 +1,44 @@
+package io.eventuate.examples.realguardio.securitysystemservice.domain;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Remembers, briefly, which users were authorized to view which version of a security system, so that a conditional
+ * GET for an unchanged version can be answered with a version check instead of the full authorization path.
+ * A revoked role can therefore still yield a 304 Not Modified, which reveals no content, for up to the time-to-live.
+ */
+@Component
+public class RecentViewAuthorizations {
+
+    private record Key(String userName, Long securitySystemId, Long version) {
+    }
+
+    private final Cache<Key, Boolean> cache;
+
+    public RecentViewAuthorizations(@Value("${security-system-etag.authorization-time-to-live:PT30S}") Duration timeToLive,
+                                    @Value("${security-system-etag.maximum-size:100000}") long maximumSize,
+                                    MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(timeToLive)
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "recentViewAuthorizations");
+    }
+
+    public void record(String userName, Long securitySystemId, Long version) {
+        if (version != null)
+            cache.put(new Key(userName, securitySystemId, version), Boolean.TRUE);
+    }
+
+    public boolean contains(String userName, Long securitySystemId, Long version) {
+        return cache.getIfPresent(new Key(userName, securitySystemId, version)) != null;
+    }
+}
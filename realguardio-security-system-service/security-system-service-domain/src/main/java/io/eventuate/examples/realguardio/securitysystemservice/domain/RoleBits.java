@@ -0,0 +1,53 @@
+package io.eventuate.examples.realguardio.securitysystemservice.domain;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Encodes the roles defined by {@link RolesAndPermissions} as bits of an {@code int}, so that a permission check
+ * is a single {@code &}. Roles that grant no permission map to 0.
+ */
+public final class RoleBits {
+
+  private static final List<String> ROLES = RolesAndPermissions.rolesToPermissions.keySet().stream().sorted().toList();
+
+  private static final Map<String, Integer> roleBits = new HashMap<>();
+  private static final Map<String, Integer> permissionMasks = new HashMap<>();
+
+  static {
+    for (int i = 0; i < ROLES.size(); i++)
+      roleBits.put(ROLES.get(i), 1 << i);
+    RolesAndPermissions.permissionsToRoles.forEach((permission, roles) -> permissionMasks.put(permission, maskFor(roles)));
+  }
+
+  private RoleBits() {
+  }
+
+  public static int bitFor(String roleName) {
+    return roleBits.getOrDefault(roleName, 0);
+  }
+
+  public static int maskFor(Collection<String> roleNames) {
+    int mask = 0;
+    for (String roleName : roleNames)
+      mask |= bitFor(roleName);
+    return mask;
+  }
+
+  /**
+   * The mask of the roles that grant the permission.
+   */
+  public static int permissionMask(String permission) {
+    return permissionMasks.getOrDefault(permission, 0);
+  }
+
+  public static Set<String> roleNames(int mask) {
+    return ROLES.stream()
+        .filter(role -> (mask & bitFor(role)) != 0)
+        .collect(Collectors.toSet());
+  }
+}
@@ -12,6 +12,10 @@ import jakarta.persistence.Id;
 import jakarta.persistence.Table;
 import jakarta.persistence.Version;
 
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 @Entity
 @Table(name = "security_system")
 @Access(AccessType.FIELD)
@@ -70,6 +74,10 @@ public class SecuritySystem {
         this.state = state;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
     public String getRejectionReason() {
         return rejectionReason;
     }
@@ -83,9 +91,46 @@ public class SecuritySystem {
     }
     
     public void arm() {
-        if (this.state == SecuritySystemState.ALARMED) {
+        if (!canArmFrom(this.state)) {
             throw new IllegalStateException("Cannot arm system in ALARMED state");
         }
         this.state = SecuritySystemState.ARMED;
     }
+
+    /**
+     * A detached copy reflecting a transition applied by {@link SecuritySystemRepository#updateStateReturningVersion}.
+     */
+    SecuritySystem withStateAndVersion(SecuritySystemState state, Long version) {
+        SecuritySystem copy = new SecuritySystem(locationName, state);
+        copy.id = id;
+        copy.locationId = locationId;
+        copy.rejectionReason = rejectionReason;
+        copy.version = version;
+        return copy;
+    }
+
+    public static boolean canArmFrom(SecuritySystemState state) {
+        return state != SecuritySystemState.ALARMED;
+    }
+
+    public static SecuritySystemState targetState(SecuritySystemAction action) {
+        return switch (action) {
+            case ARM -> SecuritySystemState.ARMED;
+            case DISARM -> SecuritySystemState.DISARMED;
+            default -> throw new IllegalArgumentException("Unsupported action: " + action);
+        };
+    }
+
+    /**
+     * The states from which {@link #arm()} or {@link #disarm()} succeed, for use by set-based updates.
+     */
+    public static Set<SecuritySystemState> statesAllowing(SecuritySystemAction action) {
+        return switch (action) {
+            case ARM -> Arrays.stream(SecuritySystemState.values())
+                .filter(SecuritySystem::canArmFrom)
+                .collect(Collectors.toSet());
+            case DISARM -> Set.of(SecuritySystemState.values());
+            default -> throw new IllegalArgumentException("Unsupported action: " + action);
+        };
+    }
 }
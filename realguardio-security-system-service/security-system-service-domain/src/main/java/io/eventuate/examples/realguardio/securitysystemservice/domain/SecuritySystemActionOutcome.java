@@ -0,0 +1,4 @@
+package io.eventuate.examples.realguardio.securitysystemservice.domain;
+
+public record SecuritySystemActionOutcome(Long id, SecuritySystemActionStatus status, SecuritySystemState state) {
+}
@@ -0,0 +1,7 @@
+package io.eventuate.examples.realguardio.securitysystemservice.domain;
+
+import java.util.List;
+
+public record SecuritySystemActionOutcomes(List<SecuritySystemActionOutcome> outcomes) {
+
+}
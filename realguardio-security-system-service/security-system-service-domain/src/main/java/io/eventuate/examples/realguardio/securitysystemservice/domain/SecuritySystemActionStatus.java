@@ -0,0 +1,5 @@
+package io.eventuate.examples.realguardio.securitysystemservice.domain;
+
+public enum SecuritySystemActionStatus {
+  UPDATED, NOT_FOUND, MISSING_LOCATION, FORBIDDEN, INVALID_STATE
+}
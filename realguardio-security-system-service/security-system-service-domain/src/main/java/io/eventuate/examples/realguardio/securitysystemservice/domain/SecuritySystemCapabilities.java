@@ -0,0 +1,135 @@
+package io.eventuate.examples.realguardio.securitysystemservice.domain;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Issues and verifies short-lived capabilities: HMAC-SHA256 signed proofs that a user may perform
+ * certain actions on a security system. The list attaches one to each row, using the actions that its authorization
+ * query already computed, so that an immediately following arm or disarm needn't check authorization again.
+ * <p>
+ * A capability has the form {@code <securitySystemId>.<actions>.<expiresAtMillis>.<signature>}. The signature also
+ * covers the user name, so a capability can't be used by another user. A role that is revoked after a capability was
+ * issued is still honored until the capability expires, i.e. for at most max-age. Every instance must share the secret.
+ */
+@Component
+@ConditionalOnProperty(name = "security-system.capabilities.enabled", havingValue = "true")
+public class SecuritySystemCapabilities {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Set<SecuritySystemAction> CAPABLE_ACTIONS = EnumSet.of(SecuritySystemAction.ARM, SecuritySystemAction.DISARM);
+
+    private final SecretKeySpec key;
+    private final Duration maxAge;
+    private final Clock clock;
+    private final ThreadLocal<Mac> macs;
+    private final Counter accepted;
+    private final Counter rejected;
+
+    @Autowired
+    public SecuritySystemCapabilities(@Value("${security-system.capabilities.secret}") String secret,
+                                      @Value("${security-system.capabilities.max-age:PT30S}") Duration maxAge,
+                                      MeterRegistry meterRegistry) {
+        this(secret, maxAge, Clock.systemUTC(), meterRegistry);
+    }
+
+    public SecuritySystemCapabilities(String secret, Duration maxAge, Clock clock, MeterRegistry meterRegistry) {
+        if (secret == null || secret.length() < 32)
+            throw new IllegalArgumentException("security-system.capabilities.secret must be at least 32 characters");
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.maxAge = maxAge;
+        this.clock = clock;
+        this.macs = ThreadLocal.withInitial(this::newMac);
+        this.accepted = Counter.builder("security_system_service.capabilities.verified")
+            .description("Actions authorized by a capability instead of an authorization check")
+            .tag("result", "accepted")
+            .register(meterRegistry);
+        this.rejected = Counter.builder("security_system_service.capabilities.verified")
+            .description("Actions authorized by a capability instead of an authorization check")
+            .tag("result", "rejected")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Returns a capability for the arm and disarm actions among {@code actions}, or null if there are none.
+     */
+    public String issue(String userName, Long securitySystemId, Set<SecuritySystemAction> actions) {
+        String actionNames = actions.stream()
+            .filter(CAPABLE_ACTIONS::contains)
+            .map(Enum::name)
+            .sorted()
+            .collect(Collectors.joining(","));
+        if (userName == null || securitySystemId == null || actionNames.isEmpty())
+            return null;
+        String claims = securitySystemId + "." + actionNames + "." + clock.instant().plus(maxAge).toEpochMilli();
+        return claims + "." + sign(userName, claims);
+    }
+
+    /**
+     * Whether the capability, which may be null, proves that the user may perform the action on the security system.
+     */
+    public boolean verify(String capability, String userName, Long securitySystemId, SecuritySystemAction action) {
+        boolean valid = capability != null && userName != null && isValid(capability, userName, securitySystemId, action);
+        if (capability != null)
+            (valid ? accepted : rejected).increment();
+        return valid;
+    }
+
+    private boolean isValid(String capability, String userName, Long securitySystemId, SecuritySystemAction action) {
+        int signatureStart = capability.lastIndexOf('.');
+        if (signatureStart < 0)
+            return false;
+        String claims = capability.substring(0, signatureStart);
+        byte[] signature = sign(userName, claims).getBytes(StandardCharsets.US_ASCII);
+        if (!MessageDigest.isEqual(signature, capability.substring(signatureStart + 1).getBytes(StandardCharsets.US_ASCII)))
+            return false;
+
+        String[] fields = claims.split("\\.");
+        if (fields.length != 3 || !fields[0].equals(String.valueOf(securitySystemId)))
+            return false;
+        if (!Set.of(fields[1].split(",")).contains(action.name()))
+            return false;
+        try {
+            long expiresAt = Long.parseLong(fields[2]);
+            long now = clock.millis();
+            // A capability that expires later than max-age from now wasn't issued with the current max-age
+            return now < expiresAt && expiresAt - now <= maxAge.toMillis();
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private String sign(String userName, String claims) {
+        Mac mac = macs.get();
+        mac.update(userName.getBytes(StandardCharsets.UTF_8));
+        mac.update((byte) 0);
+        byte[] signature = mac.doFinal(claims.getBytes(StandardCharsets.UTF_8));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package io.eventuate.examples.realguardio.securitysystemservice.domain;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializes arm/disarm commands per security system. Commands for a system are routed to one of a fixed number of
+ * single-threaded stripes, so commands for different systems still run in parallel. The commands that queue up for a
+ * system while its stripe is busy are applied together: they are run in order in memory, using the SecuritySystem
+ * domain rules, and only the resulting state is persisted, with one conditional update.
+ * <p>
+ * A batch that loses a conflict with a writer outside the mailbox is put back at the head of its system's queue and
+ * drained again after the backoff, rather than sleeping on the stripe thread, which keeps serving the other systems.
+ */
+@Component
+@ConditionalOnProperty(name = "security-system.mailbox.enabled", havingValue = "true")
+public class SecuritySystemCommandMailbox implements DisposableBean {
+
+    private record PendingCommand(SecuritySystem securitySystem, SecuritySystemAction action, CompletableFuture<SecuritySystem> result) {
+    }
+
+    // Either the state after the command or the reason the domain rules rejected it
+    private record Outcome(SecuritySystemState state, RuntimeException failure) {
+    }
+
+    private record BatchResult(List<Outcome> outcomes, SecuritySystemState state, Long version, boolean changed) {
+    }
+
+    private record Backoff(int attempts, long retryAtNanos) {
+    }
+
+    private final SecuritySystemRepository securitySystemRepository;
+    private final TransactionOperations transactionOperations;
+    private final StateTransitionRetry stateTransitionRetry;
+    private final SecuritySystemStateChangeHub stateChangeHub;
+    private final ExecutorService[] stripes;
+    private final ScheduledExecutorService retryScheduler;
+    private final ConcurrentHashMap<Long, List<PendingCommand>> pending = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Backoff> backoffs = new ConcurrentHashMap<>();
+    private final Counter coalescedCommands;
+    private final DistributionSummary batchSize;
+
+    @Autowired
+    public SecuritySystemCommandMailbox(SecuritySystemRepository securitySystemRepository,
+                                        TransactionOperations transactionOperations,
+                                        StateTransitionRetry stateTransitionRetry,
+                                        SecuritySystemStateChangeHub stateChangeHub,
+                                        @Value("${security-system.mailbox.stripes:0}") int stripes,
+                                        MeterRegistry meterRegistry) {
+        this.securitySystemRepository = securitySystemRepository;
+        this.transactionOperations = transactionOperations;
+        this.stateTransitionRetry = stateTransitionRetry;
+        this.stateChangeHub = stateChangeHub;
+        int stripeCount = stripes > 0 ? stripes : Runtime.getRuntime().availableProcessors();
+        this.stripes = new ExecutorService[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            String threadName = "security-system-mailbox-" + i;
+            this.stripes[i] = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, threadName);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "security-system-mailbox-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.coalescedCommands = Counter.builder("security_system_service.mailbox.coalesced_commands")
+            .description("Commands applied in memory as part of another command's batch rather than persisted separately")
+            .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("security_system_service.mailbox.batch_size")
+            .description("Number of commands for a security system applied with one update")
+            .register(meterRegistry);
+        Gauge.builder("security_system_service.mailbox.pending_systems", pending, ConcurrentHashMap::size)
+            .description("Security systems with commands waiting for their stripe")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Applies the action and waits for the outcome, which reflects the commands queued before it.
+     */
+    public SecuritySystem execute(SecuritySystem securitySystem, SecuritySystemAction action) {
+        try {
+            return submit(securitySystem, action).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw e;
+        }
+    }
+
+    CompletableFuture<SecuritySystem> submit(SecuritySystem securitySystem, SecuritySystemAction action) {
+        Long id = securitySystem.getId();
+        PendingCommand command = new PendingCommand(securitySystem, action, new CompletableFuture<>());
+        boolean[] firstPending = new boolean[1];
+        pending.compute(id, (key, commands) -> {
+            if (commands == null) {
+                commands = new ArrayList<>();
+                firstPending[0] = true;
+            }
+            commands.add(command);
+            return commands;
+        });
+        // Only the command that created the system's list schedules a drain, which then takes every command queued so far
+        if (firstPending[0])
+            stripeFor(id).execute(() -> drain(id));
+        return command.result();
+    }
+
+    private ExecutorService stripeFor(Long id) {
+        return stripes[Math.floorMod(id.hashCode(), stripes.length)];
+    }
+
+    private void drain(Long id) {
+        Backoff backoff = backoffs.get(id);
+        if (backoff != null) {
+            long remainingNanos = backoff.retryAtNanos() - System.nanoTime();
+            if (remainingNanos > 0) {
+                scheduleDrain(id, remainingNanos);
+                return;
+            }
+        }
+
+        List<PendingCommand> batch = pending.remove(id);
+        try {
+            apply(id, batch);
+        } catch (ConcurrencyFailureException e) {
+            retryLater(id, batch, backoff == null ? 1 : backoff.attempts() + 1, e);
+            return;
+        } catch (RuntimeException e) {
+            batch.forEach(command -> command.result().completeExceptionally(e));
+        }
+        backoffs.remove(id);
+        batchSize.record(batch.size());
+        coalescedCommands.increment(batch.size() - 1);
+    }
+
+    private void retryLater(Long id, List<PendingCommand> batch, int attempt, ConcurrencyFailureException conflict) {
+        Duration delay;
+        try {
+            delay = stateTransitionRetry.backoffAfterConflict(id, attempt, conflict);
+        } catch (RuntimeException e) {
+            backoffs.remove(id);
+            batch.forEach(command -> command.result().completeExceptionally(e));
+            return;
+        }
+        backoffs.put(id, new Backoff(attempt, System.nanoTime() + delay.toNanos()));
+
+        // Commands that arrived meanwhile stay behind the batch, and one of them has already scheduled a drain,
+        // which waits out the backoff
+        boolean[] drainScheduled = new boolean[1];
+        pending.compute(id, (key, commands) -> {
+            List<PendingCommand> requeued = new ArrayList<>(batch);
+            if (commands != null) {
+                requeued.addAll(commands);
+                drainScheduled[0] = true;
+            }
+            return requeued;
+        });
+        if (!drainScheduled[0])
+            scheduleDrain(id, delay.toNanos());
+    }
+
+    private void scheduleDrain(Long id, long delayNanos) {
+        retryScheduler.schedule(() -> stripeFor(id).execute(() -> drain(id)), delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void apply(Long id, List<PendingCommand> batch) {
+        SecuritySystem base = batch.get(batch.size() - 1).securitySystem();
+        BatchResult result = transactionOperations.execute(status -> {
+            SecuritySystemSummary current = securitySystemRepository.findSummaryById(id)
+                .orElseThrow(() -> new NotFoundException("Security system not found: " + id));
+
+            SecuritySystem working = base.withStateAndVersion(current.state(), current.version());
+            List<Outcome> outcomes = new ArrayList<>(batch.size());
+            for (PendingCommand command : batch) {
+                try {
+                    if (command.action() == SecuritySystemAction.ARM)
+                        working.arm();
+                    else
+                        working.disarm();
+                    outcomes.add(new Outcome(working.getState(), null));
+                } catch (IllegalStateException e) {
+                    outcomes.add(new Outcome(null, e));
+                }
+            }
+
+            Long version = current.version();
+            boolean changed = working.getState() != current.state();
+            if (changed) {
+                // Compare-and-set against the state read above, in case a writer outside the mailbox changed it
+                version = securitySystemRepository.updateStateReturningVersion(id, working.getState(), Set.of(current.state()))
+                    .orElseThrow(() -> new OptimisticLockingFailureException("Security system changed concurrently: " + id));
+            }
+            return new BatchResult(outcomes, working.getState(), version, changed);
+        });
+
+        // Subscribers see only the state that the batch persisted, not the intermediate ones
+        if (result.changed())
+            stateChangeHub.publish(new SecuritySystemStateChange(id, base.getLocationId(), result.state(), result.version()));
+
+        for (int i = 0; i < batch.size(); i++) {
+            Outcome outcome = result.outcomes().get(i);
+            PendingCommand command = batch.get(i);
+            if (outcome.failure() != null)
+                command.result().completeExceptionally(outcome.failure());
+            else
+                command.result().complete(command.securitySystem().withStateAndVersion(outcome.state(), result.version()));
+        }
+    }
+
+    @Override
+    public void destroy() {
+        retryScheduler.shutdownNow();
+        for (ExecutorService stripe : stripes)
+            stripe.shutdown();
+    }
+}
@@ -1,7 +1,25 @@
 package io.eventuate.examples.realguardio.securitysystemservice.domain;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public interface SecuritySystemFinder {
     List<SecuritySystemProjection> findAllAccessible(String userName);
+
+    List<SecuritySystemProjection> findAllAccessible(String userName, Long afterId, int limit);
+
+    /**
+     * Streams the accessible security systems in id order from a database cursor.
+     * The caller must close the stream and invoke this within a transaction.
+     */
+    Stream<SecuritySystemProjection> streamAllAccessible(String userName);
+
+    /**
+     * Returns those of the security systems that the user can view, found with a single set-based query.
+     */
+    List<SecuritySystemProjection> findAccessibleByIds(String userName, Collection<Long> securitySystemIds);
+
+    Set<Long> findAuthorizedIds(String userName, String permission, Collection<Long> securitySystemIds);
 }
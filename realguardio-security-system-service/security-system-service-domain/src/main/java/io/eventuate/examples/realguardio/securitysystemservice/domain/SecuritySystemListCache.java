@@ -0,0 +1,126 @@
+package io.eventuate.examples.realguardio.securitysystemservice.domain;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Caches each user's {@code GET /securitysystems} result along with the watermark it was read at. The watermark
+ * advances once a location roles replica write or a security system change commits, on this or, via the
+ * {@link CacheInvalidationBroadcaster}, any other instance, and an entry is only served while it's unchanged.
+ * <p>
+ * Roles that aren't read from the replica, e.g. those looked up with Oso, don't advance the watermark,
+ * so an entry is also only served for at most time-to-live.
+ */
+@Component
+@ConditionalOnProperty(name = "security-system-list-cache.enabled", havingValue = "true")
+public class SecuritySystemListCache implements CacheInvalidationListener {
+
+    private record Key(String userName, boolean customerEmployee) {
+    }
+
+    private record Entry(long watermark, List<SecuritySystemWithActions> securitySystems) {
+    }
+
+    private final AtomicLong watermark = new AtomicLong();
+    private final Cache<Key, Entry> cache;
+    private final ObjectProvider<CacheInvalidationBroadcaster> cacheInvalidationBroadcaster;
+    private final Counter staleEntries;
+
+    public SecuritySystemListCache(@Value("${security-system-list-cache.maximum-size:10000}") long maximumSize,
+                                   @Value("${security-system-list-cache.time-to-live:PT30S}") Duration timeToLive,
+                                   ObjectProvider<CacheInvalidationBroadcaster> cacheInvalidationBroadcaster,
+                                   MeterRegistry meterRegistry) {
+        this.cacheInvalidationBroadcaster = cacheInvalidationBroadcaster;
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfterWrite(timeToLive)
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "securitySystemLists");
+        this.staleEntries = Counter.builder("security_system_service.list_cache.stale")
+            .description("Cached security system lists reloaded because the watermark advanced")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Returns the user's cached list if it was read at the current watermark, otherwise the loader's.
+     */
+    public List<SecuritySystemWithActions> getSecuritySystems(String userName, boolean customerEmployee,
+                                                              Supplier<List<SecuritySystemWithActions>> loader) {
+        if (userName == null)
+            return loader.get();
+        Key key = new Key(userName, customerEmployee);
+
+        // Read before loading, so that a change that commits while loading leaves the entry stale rather than wrongly current
+        long current = watermark.get();
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null) {
+            if (entry.watermark() == current)
+                return entry.securitySystems();
+            staleEntries.increment();
+        }
+
+        List<SecuritySystemWithActions> securitySystems = List.copyOf(loader.get());
+        cache.asMap().merge(key, new Entry(current, securitySystems),
+            (existing, loaded) -> existing.watermark() > loaded.watermark() ? existing : loaded);
+        return securitySystems;
+    }
+
+    /**
+     * Called when a security system is created or changes state. Other instances are told via the broadcaster.
+     */
+    public void securitySystemsChanged() {
+        CacheInvalidationBroadcaster broadcaster = cacheInvalidationBroadcaster.getIfAvailable();
+        if (broadcaster != null)
+            broadcaster.broadcast(CacheInvalidation.securitySystems());
+        advanceAfterCommit();
+    }
+
+    /**
+     * Called after a location roles replica write, which the replica already broadcasts to other instances.
+     */
+    public void locationRolesChanged() {
+        advanceAfterCommit();
+    }
+
+    public long watermark() {
+        return watermark.get();
+    }
+
+    private void advanceAfterCommit() {
+        if (TransactionSynchronizationManager.isActualTransactionActive() && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    watermark.incrementAndGet();
+                }
+            });
+        } else {
+            watermark.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void invalidate(CacheInvalidation invalidation) {
+        watermark.incrementAndGet();
+    }
+
+    @Override
+    public void invalidateAll() {
+        watermark.incrementAndGet();
+    }
+}
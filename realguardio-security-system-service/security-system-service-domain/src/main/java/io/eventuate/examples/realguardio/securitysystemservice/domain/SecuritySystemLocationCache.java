@@ -0,0 +1,20 @@
+package io.eventuate.examples.realguardio.securitysystemservice.domain;
+
+import java.util.function.Supplier;
+
+/**
+ * Bounded near-cache of the location of each security system, which doesn't change once assigned,
+ * so that an authorization check doesn't reload a security system that the caller has just loaded.
+ * A security system without a location is never cached.
+ */
+public interface SecuritySystemLocationCache {
+
+    /**
+     * Returns the cached location, or the one returned by the loader, which may return null.
+     */
+    Long getLocationId(Long securitySystemId, Supplier<Long> loader);
+
+    void put(Long securitySystemId, Long locationId);
+
+    void invalidate(Long securitySystemId);
+}
@@ -0,0 +1,42 @@
+package io.eventuate.examples.realguardio.securitysystemservice.domain;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+@Component
+public class SecuritySystemLocationCacheImpl implements SecuritySystemLocationCache {
+
+    private final Cache<Long, Long> cache;
+
+    public SecuritySystemLocationCacheImpl(@Value("${security-system-location-cache.maximum-size:100000}") long maximumSize,
+                                           MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "securitySystemLocations");
+    }
+
+    @Override
+    public Long getLocationId(Long securitySystemId, Supplier<Long> loader) {
+        // Caffeine doesn't store a null result, so a security system without a location is looked up each time
+        return cache.get(securitySystemId, key -> loader.get());
+    }
+
+    @Override
+    public void put(Long securitySystemId, Long locationId) {
+        if (locationId != null)
+            cache.put(securitySystemId, locationId);
+    }
+
+    @Override
+    public void invalidate(Long securitySystemId) {
+        cache.invalidate(securitySystemId);
+    }
+}
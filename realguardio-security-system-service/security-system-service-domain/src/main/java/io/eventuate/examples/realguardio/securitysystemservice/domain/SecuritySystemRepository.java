@@ -1,15 +1,25 @@
 package io.eventuate.examples.realguardio.securitysystemservice.domain;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface SecuritySystemRepository extends JpaRepository<SecuritySystem, Long> {
 
-  @Query(value = """
+  // The security systems that a customer employee has a location role for, directly, through a team or at the location's customer.
+  // The list, page, stream and multi-get queries share it, so that they can't disagree about where the roles come from
+  String SELECT_ACCESSIBLE_SECURITY_SYSTEMS = """
         SELECT
           ss.id                                   AS id,
           ss.location_name                        AS locationName,
@@ -17,13 +27,130 @@ public interface SecuritySystemRepository extends JpaRepository<SecuritySystem,
           ss.location_id                          AS locationId,
           ss.rejection_reason                     AS rejectionReason,
           ss.version                              AS version,
-          ARRAY_AGG(DISTINCT celr.role_name
-                    ORDER BY celr.role_name)      AS roleNames
+          ARRAY_AGG(DISTINCT elr.role_name
+                    ORDER BY elr.role_name)       AS roleNames
         FROM security_system ss
-        JOIN customer_employee_location_role celr
-          ON celr.location_id = ss.location_id
-        WHERE celr.user_name = :userName
+        JOIN effective_location_role elr
+          ON elr.location_id = ss.location_id
+        WHERE elr.user_name = :userName
+        """;
+
+  String ACCESSIBLE_SECURITY_SYSTEMS_PAGE = SELECT_ACCESSIBLE_SECURITY_SYSTEMS + """
+          AND ss.id > :afterId
         GROUP BY ss.id
+        ORDER BY ss.id
+        LIMIT :limit
+        """;
+
+  String SELECT_SECURITY_SYSTEM_SUMMARIES = """
+        SELECT new io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystemSummary(
+          ss.id, ss.locationName, ss.state, ss.locationId, ss.rejectionReason, ss.version)
+        FROM SecuritySystem ss
+        """;
+
+  default List<SecuritySystemProjection> findAllAccessible(String userName) {
+    return findAllAccessible(userName, Long.MIN_VALUE, Integer.MAX_VALUE);
+  }
+
+  @Query(value = ACCESSIBLE_SECURITY_SYSTEMS_PAGE, nativeQuery = true)
+  List<SecuritySystemProjection> findAllAccessible(@Param("userName") String userName,
+                                                   @Param("afterId") Long afterId,
+                                                   @Param("limit") int limit);
+
+  default Stream<SecuritySystemProjection> streamAllAccessible(String userName) {
+    return streamAllAccessible(userName, Long.MIN_VALUE, Integer.MAX_VALUE);
+  }
+
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+  @Query(value = ACCESSIBLE_SECURITY_SYSTEMS_PAGE, nativeQuery = true)
+  Stream<SecuritySystemProjection> streamAllAccessible(@Param("userName") String userName,
+                                                       @Param("afterId") Long afterId,
+                                                       @Param("limit") int limit);
+
+  @Query(SELECT_SECURITY_SYSTEM_SUMMARIES + """
+        WHERE ss.id > :afterId
+        ORDER BY ss.id
+        """)
+  List<SecuritySystemSummary> findSummaries(@Param("afterId") Long afterId, Limit limit);
+
+  default Stream<SecuritySystemSummary> streamSummaries() {
+    return streamSummaries(Long.MIN_VALUE, Limit.unlimited());
+  }
+
+  @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+  @Query(SELECT_SECURITY_SYSTEM_SUMMARIES + """
+        WHERE ss.id > :afterId
+        ORDER BY ss.id
+        """)
+  Stream<SecuritySystemSummary> streamSummaries(@Param("afterId") Long afterId, Limit limit);
+
+  @Query(value = SELECT_ACCESSIBLE_SECURITY_SYSTEMS + """
+          AND ss.id IN (:ids)
+        GROUP BY ss.id
+        """, nativeQuery = true)
+  List<SecuritySystemProjection> findAccessibleByIds(@Param("userName") String userName,
+                                                     @Param("ids") Collection<Long> ids);
+
+  @Query(SELECT_SECURITY_SYSTEM_SUMMARIES + """
+        WHERE ss.id IN :ids
+        """)
+  List<SecuritySystemSummary> findSummariesByIds(@Param("ids") Collection<Long> ids);
+
+  @Query("SELECT ss.id FROM SecuritySystem ss WHERE ss.id IN :ids")
+  List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+  // Uses the same effective roles as the listing and as verifyCanDo() for a single security system
+  @Query(value = """
+        SELECT DISTINCT ss.id
+        FROM security_system ss
+        JOIN effective_location_role elr
+          ON elr.location_id = ss.location_id
+        WHERE elr.user_name = :userName
+          AND elr.role_name IN (:roleNames)
+          AND ss.id IN (:ids)
+        """, nativeQuery = true)
+  List<Long> findIdsWithLocationRole(@Param("userName") String userName,
+                                     @Param("roleNames") Collection<String> roleNames,
+                                     @Param("ids") Collection<Long> ids);
+
+  @Modifying(flushAutomatically = true, clearAutomatically = true)
+  @Query("""
+        UPDATE SecuritySystem ss
+        SET ss.state = :state, ss.version = ss.version + 1
+        WHERE ss.id IN :ids AND ss.state IN :fromStates
+        """)
+  int updateStates(@Param("ids") Collection<Long> ids,
+                   @Param("state") SecuritySystemState state,
+                   @Param("fromStates") Collection<SecuritySystemState> fromStates);
+
+  @Query(SELECT_SECURITY_SYSTEM_SUMMARIES + """
+        WHERE ss.id = :id
+        """)
+  Optional<SecuritySystemSummary> findSummaryById(@Param("id") Long id);
+
+  @Query("SELECT ss.version FROM SecuritySystem ss WHERE ss.id = :id")
+  Optional<Long> findVersionById(@Param("id") Long id);
+
+  // Reads the current state from the database rather than from an entity already in the persistence context
+  @Query("SELECT ss.state FROM SecuritySystem ss WHERE ss.id = :id")
+  Optional<SecuritySystemState> findStateById(@Param("id") Long id);
+
+  /**
+   * Applies a state transition with a single guarded statement, returning the new version,
+   * or empty if the security system does not exist or is not in one of fromStates.
+   */
+  default Optional<Long> updateStateReturningVersion(Long id, SecuritySystemState state, Collection<SecuritySystemState> fromStates) {
+    return updateStateReturningVersion(id, state.name(), fromStates.stream().map(Enum::name).toList());
+  }
+
+  @Transactional
+  @Query(value = """
+        UPDATE security_system
+        SET state = :state, version = version + 1
+        WHERE id = :id AND state IN (:fromStates)
+        RETURNING version
         """, nativeQuery = true)
-  List<SecuritySystemProjection> findAllAccessible(@Param("userName") String userName);
+  Optional<Long> updateStateReturningVersion(@Param("id") Long id,
+                                             @Param("state") String state,
+                                             @Param("fromStates") Collection<String> fromStates);
 }
@@ -1,9 +1,20 @@
 package io.eventuate.examples.realguardio.securitysystemservice.domain;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public interface SecuritySystemRepositoryWithOso {
 
     List<SecuritySystemProjection> findAllAccessible(String userName);
 
+    List<SecuritySystemProjection> findAllAccessible(String userName, Long afterId, int limit);
+
+    Stream<SecuritySystemProjection> streamAllAccessible(String userName);
+
+    List<SecuritySystemProjection> findAccessibleByIds(String userName, Collection<Long> securitySystemIds);
+
+    Set<Long> findAuthorizedIds(String userName, String permission, Collection<Long> securitySystemIds);
+
 }
@@ -2,17 +2,43 @@ package io.eventuate.examples.realguardio.securitysystemservice.domain;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface SecuritySystemService {
     List<SecuritySystemWithActions> findAll();
 
+    SecuritySystems findAll(Long afterId, int limit);
+
+    void streamAll(Consumer<SecuritySystemWithActions> consumer);
+
     Optional<SecuritySystem> findById(Long id);
 
+    /**
+     * Whether the security system is still at the given version and the current user was recently authorized to view that version.
+     */
+    boolean isUnchanged(Long id, Long version);
+
+    SecuritySystemsByIds findByIds(List<Long> ids);
+
+    /**
+     * Subscribes the current user to the committed state changes of the security systems that they can view.
+     */
+    SecuritySystemStateChangeSubscription subscribeToStateChanges(SecuritySystemStateChangeListener listener);
+
     void updateCreationFailed(Long securitySystemId, String rejectionReason);
 
     Long createSecuritySystemWithLocation(Long locationId, String locationName);
 
     SecuritySystem arm(Long id);
 
+    /**
+     * @param capability issued with the list, which authorizes the action instead of checking the user's roles, or null
+     */
+    SecuritySystem arm(Long id, String capability);
+
     SecuritySystem disarm(Long id);
+
+    SecuritySystem disarm(Long id, String capability);
+
+    List<SecuritySystemActionOutcome> applyAction(List<Long> ids, SecuritySystemAction action);
 }
\ No newline at end of file
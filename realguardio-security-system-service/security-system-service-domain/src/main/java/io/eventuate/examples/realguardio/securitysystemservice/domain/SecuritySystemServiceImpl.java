@@ -1,14 +1,28 @@
 package io.eventuate.examples.realguardio.securitysystemservice.domain;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionOperations;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
@@ -23,6 +37,15 @@ public class SecuritySystemServiceImpl implements SecuritySystemService {
     private final SecuritySystemFinder securitySystemFinder;
     private final SecuritySystemEventPublisher securitySystemEventPublisher;
     private final SecuritySystemLocationEventPublishingPolicy eventPublishingPolicy;
+    private final TransactionOperations transactionOperations;
+    private final StateTransitionRetry stateTransitionRetry;
+    private final SecuritySystemCommandMailbox commandMailbox;
+    private final RecentViewAuthorizations recentViewAuthorizations;
+    private final SecuritySystemStateChangeHub stateChangeHub;
+    private final SecuritySystemLocationCache securitySystemLocationCache;
+    private final SecuritySystemListCache securitySystemListCache;
+    private final SecuritySystemCapabilities securitySystemCapabilities;
+    private final MeterRegistry meterRegistry;
 
     public SecuritySystemServiceImpl(SecuritySystemRepository securitySystemRepository,
                                     CustomerServiceClient customerServiceClient,
@@ -30,7 +53,16 @@ public class SecuritySystemServiceImpl implements SecuritySystemService {
                                     SecuritySystemActionAuthorizer securitySystemActionAuthorizer,
                                     SecuritySystemFinder securitySystemFinder,
                                     SecuritySystemEventPublisher securitySystemEventPublisher,
-                                    SecuritySystemLocationEventPublishingPolicy eventPublishingPolicy) {
+                                    SecuritySystemLocationEventPublishingPolicy eventPublishingPolicy,
+                                    TransactionOperations transactionOperations,
+                                    StateTransitionRetry stateTransitionRetry,
+                                    Optional<SecuritySystemCommandMailbox> commandMailbox,
+                                    RecentViewAuthorizations recentViewAuthorizations,
+                                    SecuritySystemStateChangeHub stateChangeHub,
+                                    SecuritySystemLocationCache securitySystemLocationCache,
+                                    Optional<SecuritySystemListCache> securitySystemListCache,
+                                    Optional<SecuritySystemCapabilities> securitySystemCapabilities,
+                                    MeterRegistry meterRegistry) {
         if (securitySystemRepository == null) {
             throw new IllegalArgumentException("securitySystemRepository cannot be null");
         }
@@ -47,39 +79,161 @@ public class SecuritySystemServiceImpl implements SecuritySystemService {
         this.securitySystemFinder = securitySystemFinder;
         this.securitySystemEventPublisher = securitySystemEventPublisher;
         this.eventPublishingPolicy = eventPublishingPolicy;
+        this.transactionOperations = transactionOperations;
+        this.stateTransitionRetry = stateTransitionRetry;
+        this.commandMailbox = commandMailbox.orElse(null);
+        this.recentViewAuthorizations = recentViewAuthorizations;
+        this.stateChangeHub = stateChangeHub;
+        this.securitySystemLocationCache = securitySystemLocationCache;
+        this.securitySystemListCache = securitySystemListCache.orElse(null);
+        this.securitySystemCapabilities = securitySystemCapabilities.orElse(null);
+        this.meterRegistry = meterRegistry;
     }
     
     @Override
     public List<SecuritySystemWithActions> findAll() {
+        if (securitySystemListCache == null)
+            return withCapabilities(loadAll());
+        return withCapabilities(
+            securitySystemListCache.getSecuritySystems(userNameSupplier.getCurrentUserName(), userNameSupplier.isCustomerEmployee(), this::loadAll));
+    }
+
+    private List<SecuritySystemWithActions> loadAll() {
         if (userNameSupplier.isCustomerEmployee())
             return securitySystemFinder.findAllAccessible(userNameSupplier.getCurrentUserName())
                 .stream()
                 .map(SecuritySystemProjection::toSecuritySystemWithActions)
                 .toList();
         else
-            return securitySystemRepository.findAll().stream()
-                .map(this::toSecuritySystemWithActions)
+            // Summaries carry the id and version, which the list's ETag digests to tell systems in the same state apart
+            return securitySystemRepository.findSummaries(Long.MIN_VALUE, Limit.unlimited()).stream()
+                .map(SecuritySystemSummary::toSecuritySystemWithActions)
                 .toList();
     }
 
-    private SecuritySystemWithActions toSecuritySystemWithActions(SecuritySystem securitySystem) {
-        return new SecuritySystemWithActions(
-            securitySystem.getLocationName(), securitySystem.getState(),
-            Set.of(SecuritySystemAction.ARM, SecuritySystemAction.DISARM)
-        );
+    @Override
+    @Transactional(readOnly = true)
+    public SecuritySystems findAll(Long afterId, int limit) {
+        long after = afterId == null ? Long.MIN_VALUE : afterId;
+
+        // Fetch one extra row to find out whether there is a next page
+        List<SecuritySystemWithActions> securitySystems;
+        if (userNameSupplier.isCustomerEmployee())
+            securitySystems = securitySystemFinder.findAllAccessible(userNameSupplier.getCurrentUserName(), after, limit + 1)
+                .stream()
+                .map(SecuritySystemProjection::toSecuritySystemWithActions)
+                .toList();
+        else
+            securitySystems = securitySystemRepository.findSummaries(after, Limit.of(limit + 1))
+                .stream()
+                .map(SecuritySystemSummary::toSecuritySystemWithActions)
+                .toList();
+
+        if (securitySystems.size() <= limit)
+            return new SecuritySystems(withCapabilities(securitySystems), null);
+
+        List<SecuritySystemWithActions> page = securitySystems.subList(0, limit);
+        return new SecuritySystems(withCapabilities(page), page.get(limit - 1).id());
     }
 
+    // Issued per response rather than cached, so that each row's capability is valid for the full max-age
+    private List<SecuritySystemWithActions> withCapabilities(List<SecuritySystemWithActions> securitySystems) {
+        if (securitySystemCapabilities == null || !userNameSupplier.isCustomerEmployee())
+            return securitySystems;
+        String userName = userNameSupplier.getCurrentUserName();
+        return securitySystems.stream()
+            .map(securitySystem -> withCapability(userName, securitySystem))
+            .toList();
+    }
+
+    private SecuritySystemWithActions withCapability(String userName, SecuritySystemWithActions securitySystem) {
+        if (securitySystemCapabilities == null)
+            return securitySystem;
+        return securitySystem.withCapability(securitySystemCapabilities.issue(userName, securitySystem.id(), securitySystem.actions()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<SecuritySystemWithActions> consumer) {
+        if (userNameSupplier.isCustomerEmployee()) {
+            String userName = userNameSupplier.getCurrentUserName();
+            try (Stream<SecuritySystemProjection> rows = securitySystemFinder.streamAllAccessible(userName)) {
+                rows.map(SecuritySystemProjection::toSecuritySystemWithActions)
+                    .map(securitySystem -> withCapability(userName, securitySystem))
+                    .forEach(consumer);
+            }
+        } else {
+            try (Stream<SecuritySystemSummary> rows = securitySystemRepository.streamSummaries()) {
+                rows.map(SecuritySystemSummary::toSecuritySystemWithActions).forEach(consumer);
+            }
+        }
+    }
+
+    // findById, arm and disarm don't run in a transaction: the authorization check can be a remote call,
+    // so it runs between a short load and a short update rather than while holding a pooled connection
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Optional<SecuritySystem> findById(Long id) {
-        Optional<SecuritySystem> securitySystem = securitySystemRepository.findById(id);
+        Optional<SecuritySystem> securitySystem = timed("findById", "load", () -> securitySystemRepository.findById(id));
+        securitySystem.ifPresent(this::cacheLocation);
 
         // Check location-based authorization for customer employees
-        if (userNameSupplier.isCustomerEmployee() && securitySystem.map(ss -> ss.getLocationId() != null).orElse(false)) {
-            securitySystemActionAuthorizer.verifyCanDo(id, RolesAndPermissions.VIEW);
+        if (userNameSupplier.isCustomerEmployee() && securitySystem.isPresent()) {
+            if (securitySystem.get().getLocationId() != null) {
+                securitySystemActionAuthorizer.verifyCanDo(id, RolesAndPermissions.VIEW);
+            }
+            recentViewAuthorizations.record(userNameSupplier.getCurrentUserName(), id, securitySystem.get().getVersion());
         }
         return securitySystem;
     }
 
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public boolean isUnchanged(Long id, Long version) {
+        boolean sameVersion = timed("isUnchanged", "load", () -> securitySystemRepository.findVersionById(id))
+            .map(version::equals)
+            .orElse(false);
+        if (!sameVersion)
+            return false;
+        return !userNameSupplier.isCustomerEmployee()
+            || recentViewAuthorizations.contains(userNameSupplier.getCurrentUserName(), id, version);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public SecuritySystemsByIds findByIds(List<Long> ids) {
+        Set<Long> requestedIds = new LinkedHashSet<>(ids);
+
+        // One set-based query that applies authorization instead of a verifyCanDo() per security system
+        Map<Long, SecuritySystemWithActions> found;
+        if (userNameSupplier.isCustomerEmployee())
+            found = securitySystemFinder.findAccessibleByIds(userNameSupplier.getCurrentUserName(), requestedIds).stream()
+                .map(SecuritySystemProjection::toSecuritySystemWithActions)
+                .collect(Collectors.toMap(SecuritySystemWithActions::id, Function.identity()));
+        else
+            found = securitySystemRepository.findSummariesByIds(requestedIds).stream()
+                .map(SecuritySystemSummary::toSecuritySystemWithActions)
+                .collect(Collectors.toMap(SecuritySystemWithActions::id, Function.identity()));
+
+        List<Long> missingIds = requestedIds.stream().filter(id -> !found.containsKey(id)).toList();
+        Set<Long> existingIds = missingIds.isEmpty() || !userNameSupplier.isCustomerEmployee()
+            ? Set.of()
+            : new HashSet<>(securitySystemRepository.findExistingIds(missingIds));
+
+        return new SecuritySystemsByIds(
+            requestedIds.stream().filter(found::containsKey).map(found::get).toList(),
+            missingIds.stream().filter(id -> !existingIds.contains(id)).toList(),
+            missingIds.stream().filter(existingIds::contains).toList());
+    }
+
+    // The subscriber is captured now, because changes are delivered on the hub's threads rather than this request's
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public SecuritySystemStateChangeSubscription subscribeToStateChanges(SecuritySystemStateChangeListener listener) {
+        String userName = userNameSupplier.isCustomerEmployee() ? userNameSupplier.getCurrentUserName() : null;
+        return stateChangeHub.subscribe(userName, listener);
+    }
+
     @Override
     public void updateCreationFailed(Long securitySystemId, String rejectionReason) {
         SecuritySystem securitySystem = securitySystemRepository.findById(securitySystemId)
@@ -87,6 +241,8 @@ public class SecuritySystemServiceImpl implements SecuritySystemService {
         securitySystem.setState(SecuritySystemState.CREATION_FAILED);
         securitySystem.setRejectionReason(rejectionReason);
         securitySystemRepository.save(securitySystem);
+        securitySystemLocationCache.invalidate(securitySystemId);
+        securitySystemsChanged();
     }
 
     @Override
@@ -95,6 +251,8 @@ public class SecuritySystemServiceImpl implements SecuritySystemService {
         securitySystem.setLocationId(locationId);
         try {
             SecuritySystem savedSystem = securitySystemRepository.save(securitySystem);
+            securitySystemLocationCache.invalidate(savedSystem.getId());
+            securitySystemsChanged();
             if (eventPublishingPolicy.shouldPublishSecuritySystemAssignedToLocation()) {
                 securitySystemEventPublisher.publish(savedSystem, new SecuritySystemAssignedToLocation(savedSystem.getId(), locationId));
             }
@@ -105,39 +263,178 @@ public class SecuritySystemServiceImpl implements SecuritySystemService {
     }
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public SecuritySystem arm(Long id) {
-        SecuritySystem securitySystem = securitySystemRepository.findById(id)
-            .orElseThrow(() -> new NotFoundException("Security system not found: " + id));
-        
-        if (securitySystem.getLocationId() == null) {
-            throw new BadRequestException("Security system not properly configured: missing location");
-        }
-        
-        // Check location-based authorization for customer employees
-        if (userNameSupplier.isCustomerEmployee()) {
-            securitySystemActionAuthorizer.verifyCanDo(id, RolesAndPermissions.ARM);
-        }
-        
-        securitySystem.arm();
-        return securitySystemRepository.save(securitySystem);
+        return arm(id, null);
     }
-    
+
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public SecuritySystem arm(Long id, String capability) {
+        SecuritySystem securitySystem = loadForAction("arm", id, RolesAndPermissions.ARM, SecuritySystemAction.ARM, capability);
+        return transition("arm", securitySystem, SecuritySystemAction.ARM);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public SecuritySystem disarm(Long id) {
-        SecuritySystem securitySystem = securitySystemRepository.findById(id)
+        return disarm(id, null);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public SecuritySystem disarm(Long id, String capability) {
+        SecuritySystem securitySystem = loadForAction("disarm", id, RolesAndPermissions.DISARM, SecuritySystemAction.DISARM, capability);
+        return transition("disarm", securitySystem, SecuritySystemAction.DISARM);
+    }
+
+    private SecuritySystem loadForAction(String operation, Long id, String permission, SecuritySystemAction action, String capability) {
+        SecuritySystem securitySystem = timed(operation, "load", () -> securitySystemRepository.findById(id))
             .orElseThrow(() -> new NotFoundException("Security system not found: " + id));
-        
+        cacheLocation(securitySystem);
+
         if (securitySystem.getLocationId() == null) {
             throw new BadRequestException("Security system not properly configured: missing location");
         }
-        
-        // Check location-based authorization for customer employees
-        if (userNameSupplier.isCustomerEmployee()) {
-            securitySystemActionAuthorizer.verifyCanDo(id, RolesAndPermissions.DISARM);
+
+        // Check location-based authorization for customer employees, unless a valid capability proves it
+        if (userNameSupplier.isCustomerEmployee() && !hasCapability(capability, id, action)) {
+            securitySystemActionAuthorizer.verifyCanDo(id, permission);
+        }
+        return securitySystem;
+    }
+
+    private boolean hasCapability(String capability, Long id, SecuritySystemAction action) {
+        return securitySystemCapabilities != null
+            && securitySystemCapabilities.verify(capability, userNameSupplier.getCurrentUserName(), id, action);
+    }
+
+    // So that the authorization check that follows doesn't load the security system again
+    private void cacheLocation(SecuritySystem securitySystem) {
+        securitySystemLocationCache.put(securitySystem.getId(), securitySystem.getLocationId());
+    }
+
+    // A single guarded UPDATE ... RETURNING applies the transition, but only from the states that the
+    // SecuritySystem domain rules allow it from, so a concurrent change made while the authorization check was running is respected.
+    // With the mailbox enabled, commands for the same system are instead serialized and coalesced
+    private SecuritySystem transition(String operation, SecuritySystem securitySystem, SecuritySystemAction action) {
+        if (commandMailbox != null) {
+            SecuritySystem updated = commandMailbox.execute(securitySystem, action);
+            securitySystemsChanged();
+            return updated;
+        }
+
+        Long id = securitySystem.getId();
+        SecuritySystemState targetState = SecuritySystem.targetState(action);
+        Set<SecuritySystemState> fromStates = SecuritySystem.statesAllowing(action);
+
+        Optional<Long> version = stateTransitionRetry.execute(id, () -> timed(operation, "update", () ->
+            transactionOperations.execute(status -> securitySystemRepository.updateStateReturningVersion(id, targetState, fromStates))));
+
+        SecuritySystem updated = version
+            .map(newVersion -> securitySystem.withStateAndVersion(targetState, newVersion))
+            .orElseThrow(() -> transitionRejected(operation, id));
+        stateChangeHub.publish(new SecuritySystemStateChange(id, updated.getLocationId(), targetState, updated.getVersion()));
+        securitySystemsChanged();
+        return updated;
+    }
+
+    private void securitySystemsChanged() {
+        if (securitySystemListCache != null)
+            securitySystemListCache.securitySystemsChanged();
+    }
+
+    private RuntimeException transitionRejected(String operation, Long id) {
+        return securitySystemRepository.findStateById(id)
+            .<RuntimeException>map(state -> new IllegalStateException("Cannot %s system in %s state".formatted(operation, state)))
+            .orElseGet(() -> new NotFoundException("Security system not found: " + id));
+    }
+
+    // Records how long each database phase of an operation holds a pooled connection
+    private <T> T timed(String operation, String phase, Supplier<T> work) {
+        return Timer.builder("security_system_service.connection_hold")
+            .description("Time a security system operation spends in a database phase, holding a pooled connection")
+            .tag("operation", operation)
+            .tag("phase", phase)
+            .register(meterRegistry)
+            .record(work);
+    }
+
+    @Override
+    public List<SecuritySystemActionOutcome> applyAction(List<Long> ids, SecuritySystemAction action) {
+        String permission = switch (action) {
+            case ARM -> RolesAndPermissions.ARM;
+            case DISARM -> RolesAndPermissions.DISARM;
+            default -> throw new BadRequestException("Unsupported action: " + action);
+        };
+
+        Set<Long> requestedIds = new LinkedHashSet<>(ids);
+
+        Map<Long, SecuritySystem> securitySystems = securitySystemRepository.findAllById(requestedIds).stream()
+            .collect(Collectors.toMap(SecuritySystem::getId, Function.identity()));
+
+        Set<Long> authorizedIds = authorizedIds(permission, securitySystems.keySet());
+
+        SecuritySystemState targetState = SecuritySystem.targetState(action);
+        Set<SecuritySystemState> fromStates = SecuritySystem.statesAllowing(action);
+
+        List<Long> idsToUpdate = requestedIds.stream()
+            .map(securitySystems::get)
+            .filter(ss -> ss != null && ss.getLocationId() != null && authorizedIds.contains(ss.getId()) && fromStates.contains(ss.getState()))
+            .map(SecuritySystem::getId)
+            .toList();
+
+        Set<Long> updatedIds = updateStates(idsToUpdate, targetState, fromStates);
+        publishStateChanges(updatedIds);
+
+        List<SecuritySystemActionOutcome> outcomes = new ArrayList<>();
+        for (Long id : requestedIds) {
+            SecuritySystem securitySystem = securitySystems.get(id);
+            if (securitySystem == null)
+                outcomes.add(new SecuritySystemActionOutcome(id, SecuritySystemActionStatus.NOT_FOUND, null));
+            else if (securitySystem.getLocationId() == null)
+                outcomes.add(new SecuritySystemActionOutcome(id, SecuritySystemActionStatus.MISSING_LOCATION, securitySystem.getState()));
+            else if (!authorizedIds.contains(id))
+                outcomes.add(new SecuritySystemActionOutcome(id, SecuritySystemActionStatus.FORBIDDEN, securitySystem.getState()));
+            else if (!updatedIds.contains(id))
+                outcomes.add(new SecuritySystemActionOutcome(id, SecuritySystemActionStatus.INVALID_STATE, securitySystem.getState()));
+            else
+                outcomes.add(new SecuritySystemActionOutcome(id, SecuritySystemActionStatus.UPDATED, targetState));
         }
-        
-        securitySystem.disarm();
-        return securitySystemRepository.save(securitySystem);
+        return outcomes;
+    }
+
+    private Set<Long> authorizedIds(String permission, Set<Long> securitySystemIds) {
+        if (!userNameSupplier.isCustomerEmployee())
+            return securitySystemIds;
+        if (securitySystemIds.isEmpty())
+            return Set.of();
+        return securitySystemFinder.findAuthorizedIds(userNameSupplier.getCurrentUserName(), permission, securitySystemIds);
+    }
+
+    // Reads the new versions so that subscribers can order these changes with those made by other writers
+    private void publishStateChanges(Set<Long> updatedIds) {
+        if (updatedIds.isEmpty())
+            return;
+        securitySystemsChanged();
+        for (SecuritySystemSummary summary : securitySystemRepository.findSummariesByIds(updatedIds))
+            stateChangeHub.publish(new SecuritySystemStateChange(summary.id(), summary.locationId(), summary.state(), summary.version()));
+    }
+
+    private Set<Long> updateStates(List<Long> idsToUpdate, SecuritySystemState targetState, Set<SecuritySystemState> fromStates) {
+        if (idsToUpdate.isEmpty())
+            return Set.of();
+
+        int updated = securitySystemRepository.updateStates(idsToUpdate, targetState, fromStates);
+        if (updated == idsToUpdate.size())
+            return Set.copyOf(idsToUpdate);
+
+        // A concurrent transition moved some systems out of fromStates - find out which ones were updated
+        logger.info("Updated {} of {} security systems to {}", updated, idsToUpdate.size(), targetState);
+        return securitySystemRepository.findAllById(idsToUpdate).stream()
+            .filter(ss -> ss.getState() == targetState)
+            .map(SecuritySystem::getId)
+            .collect(Collectors.toSet());
     }
 
-}
\ No newline at end of file
+}
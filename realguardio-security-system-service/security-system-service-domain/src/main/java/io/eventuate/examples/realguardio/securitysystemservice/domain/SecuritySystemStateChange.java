@@ -0,0 +1,8 @@
+package io.eventuate.examples.realguardio.securitysystemservice.domain;
+
+/**
+ * A committed change to a security system's state. Subscribers that receive changes out of order can use
+ * the version, which increases with every change, to discard stale ones.
+ */
+public record SecuritySystemStateChange(Long securitySystemId, Long locationId, SecuritySystemState state, Long version) {
+}
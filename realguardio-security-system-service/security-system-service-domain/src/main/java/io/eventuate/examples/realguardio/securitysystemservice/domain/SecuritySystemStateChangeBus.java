@@ -0,0 +1,14 @@
+package io.eventuate.examples.realguardio.securitysystemservice.domain;
+
+import java.util.function.Consumer;
+
+/**
+ * Delivers security system state changes to every security-system-service instance, including the sender,
+ * once the transaction that sends them has committed.
+ */
+public interface SecuritySystemStateChangeBus {
+
+    void send(SecuritySystemStateChange change);
+
+    void subscribe(Consumer<SecuritySystemStateChange> handler);
+}
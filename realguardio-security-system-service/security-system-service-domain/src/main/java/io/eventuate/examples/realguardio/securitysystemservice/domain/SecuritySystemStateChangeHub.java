@@ -0,0 +1,252 @@
+package io.eventuate.examples.realguardio.securitysystemservice.domain;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fan-out of committed security system state changes to this instance's subscribers, such as server-sent event streams.
+ * Changes are published through the {@link SecuritySystemStateChangeBus}, which delivers them to every instance,
+ * so a subscriber receives the changes committed by any instance in the cluster, each once.
+ * Each subscriber has its own queue, drained by a shared pool of delivery threads, so a slow subscriber never blocks
+ * the publisher or the other subscribers. A subscriber's queue holds only the latest undelivered change of each
+ * security system, and a subscriber that still falls more than max-pending-changes behind is disconnected.
+ * A customer employee only receives the changes of security systems at locations where they have the view permission,
+ * which is checked on the delivery thread using the location roles replica's index, when there is one, or else the
+ * replica itself. The delivery threads have no request to call customer-service or Oso on behalf of, so without the
+ * replica customer employees can't subscribe.
+ */
+@Component
+public class SecuritySystemStateChangeHub implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(SecuritySystemStateChangeHub.class);
+
+    private final SecuritySystemStateChangeBus stateChangeBus;
+    private final LocationRoleIndex locationRoleIndex;
+    private final LocationRolesReplica locationRolesReplica;
+    private final LocationRolesCache locationRolesCache;
+    private final int maxPendingChanges;
+    private final int maxSubscribers;
+    private final ThreadPoolExecutor deliveryExecutor;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final Counter publishedChanges;
+    private final Counter coalescedChanges;
+    private final Counter overflowDisconnects;
+
+    public SecuritySystemStateChangeHub(SecuritySystemStateChangeBus stateChangeBus,
+                                        Optional<LocationRoleIndex> locationRoleIndex,
+                                        Optional<LocationRolesReplica> locationRolesReplica,
+                                        LocationRolesCache locationRolesCache,
+                                        @Value("${security-system.state-changes.delivery-threads:4}") int deliveryThreads,
+                                        @Value("${security-system.state-changes.max-pending-changes:1000}") int maxPendingChanges,
+                                        @Value("${security-system.state-changes.max-subscribers:10000}") int maxSubscribers,
+                                        MeterRegistry meterRegistry) {
+        this.stateChangeBus = stateChangeBus;
+        this.locationRoleIndex = locationRoleIndex.orElse(null);
+        this.locationRolesReplica = locationRolesReplica.orElse(null);
+        this.locationRolesCache = locationRolesCache;
+        this.maxPendingChanges = maxPendingChanges;
+        this.maxSubscribers = maxSubscribers;
+
+        // At most one drain task per subscriber is queued at a time, so the queue is bounded by max-subscribers
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.deliveryExecutor = new ThreadPoolExecutor(deliveryThreads, deliveryThreads, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "security-system-state-changes-" + threadNumber.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.deliveryExecutor.allowCoreThreadTimeOut(true);
+
+        this.publishedChanges = Counter.builder("security_system_service.state_changes.published")
+            .description("Committed security system state changes, received from any instance, fanned out to subscribers")
+            .register(meterRegistry);
+        this.coalescedChanges = Counter.builder("security_system_service.state_changes.coalesced")
+            .description("Undelivered state changes replaced by a later change of the same security system")
+            .register(meterRegistry);
+        this.overflowDisconnects = Counter.builder("security_system_service.state_changes.overflow_disconnects")
+            .description("Subscribers disconnected because they fell too far behind")
+            .register(meterRegistry);
+        Gauge.builder("security_system_service.state_changes.subscribers", subscribers, Set::size)
+            .description("Current state change subscribers")
+            .register(meterRegistry);
+
+        stateChangeBus.subscribe(this::fanOut);
+    }
+
+    /**
+     * Sends the change to every instance, which fans it out once the current transaction commits,
+     * or immediately when there is no transaction.
+     */
+    public void publish(SecuritySystemStateChange change) {
+        stateChangeBus.send(change);
+    }
+
+    private void fanOut(SecuritySystemStateChange change) {
+        publishedChanges.increment();
+        for (Subscriber subscriber : subscribers)
+            subscriber.offer(change);
+    }
+
+    /**
+     * Subscribes to the changes of the security systems that the user can view.
+     *
+     * @param userName the customer employee, or null for a subscriber that can view every security system
+     */
+    public SecuritySystemStateChangeSubscription subscribe(String userName, SecuritySystemStateChangeListener listener) {
+        if (userName != null && locationRoleIndex == null && locationRolesReplica == null)
+            throw new ServiceUnavailableException("Security system state changes require the location roles replica");
+        if (subscribers.size() >= maxSubscribers)
+            throw new ServiceUnavailableException("Too many security system state change subscribers");
+        Subscriber subscriber = new Subscriber(userName, listener);
+        subscribers.add(subscriber);
+        return subscriber;
+    }
+
+    private boolean canView(String userName, SecuritySystemStateChange change) {
+        if (userName == null)
+            return true;
+        if (change.locationId() == null)
+            return false;
+        if (locationRoleIndex != null)
+            return (locationRoleIndex.rolesMask(userName, change.locationId()) & RoleBits.permissionMask(RolesAndPermissions.VIEW)) != 0;
+        Set<String> rolesAtLocation = locationRolesCache.getUserRolesAtLocation(userName, change.locationId(),
+            () -> locationRolesReplica.getUserRolesAtLocation(userName, change.locationId()));
+        return !Collections.disjoint(rolesAtLocation, RolesAndPermissions.rolesForPermission(RolesAndPermissions.VIEW));
+    }
+
+    @Override
+    public void destroy() {
+        deliveryExecutor.shutdownNow();
+    }
+
+    private final class Subscriber implements SecuritySystemStateChangeSubscription {
+
+        private final String userName;
+        private final SecuritySystemStateChangeListener listener;
+
+        // The latest undelivered change of each security system, guarded by this
+        private final LinkedHashMap<Long, SecuritySystemStateChange> pending = new LinkedHashMap<>();
+        private boolean draining;
+        private boolean overflowed;
+        private volatile boolean closed;
+
+        Subscriber(String userName, SecuritySystemStateChangeListener listener) {
+            this.userName = userName;
+            this.listener = listener;
+        }
+
+        void offer(SecuritySystemStateChange change) {
+            synchronized (this) {
+                if (closed || overflowed)
+                    return;
+                SecuritySystemStateChange previous = pending.get(change.securitySystemId());
+                if (previous != null) {
+                    coalescedChanges.increment();
+                    if (isNewer(previous, change))
+                        return;
+                }
+                pending.put(change.securitySystemId(), change);
+                if (pending.size() > maxPendingChanges) {
+                    pending.clear();
+                    overflowed = true;
+                }
+                if (draining)
+                    return;
+                draining = true;
+            }
+            try {
+                deliveryExecutor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                close();
+            }
+        }
+
+        private boolean isNewer(SecuritySystemStateChange change, SecuritySystemStateChange other) {
+            return change.version() != null && other.version() != null && change.version() > other.version();
+        }
+
+        private void drain() {
+            while (true) {
+                List<SecuritySystemStateChange> changes;
+                synchronized (this) {
+                    if (closed || (pending.isEmpty() && !overflowed)) {
+                        draining = false;
+                        return;
+                    }
+                    changes = overflowed ? null : new ArrayList<>(pending.values());
+                    pending.clear();
+                }
+                if (changes == null) {
+                    disconnectOverflowed();
+                    return;
+                }
+                if (!deliver(changes))
+                    return;
+            }
+        }
+
+        private boolean deliver(List<SecuritySystemStateChange> changes) {
+            for (SecuritySystemStateChange change : changes) {
+                if (closed)
+                    return false;
+                boolean visible;
+                try {
+                    visible = canView(userName, change);
+                } catch (RuntimeException e) {
+                    // The subscriber can't be told about a change it might be allowed to see, so it must resynchronize
+                    logger.warn("Could not check whether {} can view security system {}", userName, change.securitySystemId(), e);
+                    disconnectOverflowed();
+                    return false;
+                }
+                if (!visible)
+                    continue;
+                try {
+                    listener.stateChanged(change);
+                } catch (RuntimeException e) {
+                    logger.debug("Closing state change subscription of {} after a failed delivery", userName, e);
+                    close();
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void disconnectOverflowed() {
+            overflowDisconnects.increment();
+            close();
+            try {
+                listener.overflowed();
+            } catch (RuntimeException e) {
+                logger.debug("Failed to notify the state change subscriber {} of its overflow", userName, e);
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            subscribers.remove(this);
+            synchronized (this) {
+                pending.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package io.eventuate.examples.realguardio.securitysystemservice.domain;
+
+public interface SecuritySystemStateChangeListener {
+
+    void stateChanged(SecuritySystemStateChange change);
+
+    /**
+     * Called, instead of delivering further changes, once the listener has fallen too far behind.
+     * The subscription is closed, so the subscriber must reload the security systems and subscribe again.
+     */
+    void overflowed();
+}
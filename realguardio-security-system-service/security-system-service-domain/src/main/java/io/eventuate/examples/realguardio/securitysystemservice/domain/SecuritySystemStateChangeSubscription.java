@@ -0,0 +1,7 @@
+package io.eventuate.examples.realguardio.securitysystemservice.domain;
+
+public interface SecuritySystemStateChangeSubscription extends AutoCloseable {
+
+    @Override
+    void close();
+}
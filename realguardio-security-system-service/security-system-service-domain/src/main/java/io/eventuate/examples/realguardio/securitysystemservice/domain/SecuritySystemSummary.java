@@ -0,0 +1,15 @@
+package io.eventuate.examples.realguardio.securitysystemservice.domain;
+
+import java.util.Set;
+
+/**
+ * Read-only view of a security system, used to page and stream the admin listing without loading managed entities.
+ */
+public record SecuritySystemSummary(Long id, String locationName, SecuritySystemState state, Long locationId,
+                                    String rejectionReason, Long version) {
+
+  public SecuritySystemWithActions toSecuritySystemWithActions() {
+    return new SecuritySystemWithActions(id, locationName, state, locationId, rejectionReason, version,
+        Set.of(SecuritySystemAction.ARM, SecuritySystemAction.DISARM));
+  }
+}
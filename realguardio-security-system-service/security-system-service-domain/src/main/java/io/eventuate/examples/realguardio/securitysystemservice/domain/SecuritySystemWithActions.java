@@ -1,9 +1,20 @@
 package io.eventuate.examples.realguardio.securitysystemservice.domain;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.Set;
 
+/**
+ * @param capability a short-lived proof that the user may perform {@code actions}, see {@link SecuritySystemCapabilities}
+ */
 public record SecuritySystemWithActions(Long id, String locationName, SecuritySystemState state, Long locationId,
-                                        String rejectionReason, Long version, Set<SecuritySystemAction> actions) {
+                                        String rejectionReason, Long version, Set<SecuritySystemAction> actions,
+                                        @JsonInclude(JsonInclude.Include.NON_NULL) String capability) {
+
+  public SecuritySystemWithActions(Long id, String locationName, SecuritySystemState state, Long locationId,
+                                   String rejectionReason, Long version, Set<SecuritySystemAction> actions) {
+    this(id, locationName, state, locationId, rejectionReason, version, actions, null);
+  }
 
   public SecuritySystemWithActions(String locationName, SecuritySystemState state, Set<SecuritySystemAction> actions) {
     this(null, locationName, state, null, null, null, actions);
@@ -12,4 +23,8 @@ public record SecuritySystemWithActions(Long id, String locationName, SecuritySy
   public SecuritySystemWithActions(long id, String locationName, SecuritySystemState state, Set<SecuritySystemAction> actions) {
     this(id, locationName, state, null, null, null, actions);
   }
+
+  public SecuritySystemWithActions withCapability(String capability) {
+    return new SecuritySystemWithActions(id, locationName, state, locationId, rejectionReason, version, actions, capability);
+  }
 }
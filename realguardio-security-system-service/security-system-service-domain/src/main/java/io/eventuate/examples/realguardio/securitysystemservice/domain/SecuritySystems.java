@@ -2,6 +2,9 @@ package io.eventuate.examples.realguardio.securitysystemservice.domain;
 
 import java.util.List;
 
-public record SecuritySystems(List<SecuritySystemWithActions> securitySystems) {
+public record SecuritySystems(List<SecuritySystemWithActions> securitySystems, Long nextCursor) {
 
+  public SecuritySystems(List<SecuritySystemWithActions> securitySystems) {
+    this(securitySystems, null);
+  }
 }
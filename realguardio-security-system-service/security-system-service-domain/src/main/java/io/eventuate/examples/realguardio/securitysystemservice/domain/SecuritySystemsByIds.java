@@ -0,0 +1,11 @@
+package io.eventuate.examples.realguardio.securitysystemservice.domain;
+
+import java.util.List;
+
+/**
+ * The result of fetching security systems by id: the accessible ones, in request order,
+ * and the requested ids that don't exist or that the user isn't allowed to view.
+ */
+public record SecuritySystemsByIds(List<SecuritySystemWithActions> securitySystems, List<Long> notFound, List<Long> forbidden) {
+
+}
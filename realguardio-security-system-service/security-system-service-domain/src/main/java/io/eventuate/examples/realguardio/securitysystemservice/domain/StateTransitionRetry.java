@@ -0,0 +1,130 @@
+package io.eventuate.examples.realguardio.securitysystemservice.domain;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Retries a security system state transition that lost a concurrency conflict - an optimistic lock failure,
+ * a lock timeout or a deadlock - a bounded number of times, with full-jitter exponential backoff.
+ * Conflicts are counted per security system for the most recently contended systems, which bounds the number of meters.
+ */
+@Component
+public class StateTransitionRetry {
+
+    private static final Logger logger = LoggerFactory.getLogger(StateTransitionRetry.class);
+
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final MeterRegistry meterRegistry;
+    private final Counter conflicts;
+    private final Counter exhausted;
+    private final Cache<Long, SystemContention> contention;
+
+    private record SystemContention(AtomicLong conflicts, Meter meter) {
+    }
+
+    public StateTransitionRetry(@Value("${security-system.state-transition.max-attempts:3}") int maxAttempts,
+                                @Value("${security-system.state-transition.initial-backoff:PT0.02S}") Duration initialBackoff,
+                                @Value("${security-system.state-transition.max-backoff:PT0.2S}") Duration maxBackoff,
+                                @Value("${security-system.state-transition.contended-systems-tracked:1000}") long contendedSystemsTracked,
+                                MeterRegistry meterRegistry) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("maxAttempts must be at least 1");
+        }
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.meterRegistry = meterRegistry;
+        this.conflicts = Counter.builder("security_system_service.state_transition.conflicts")
+            .description("Security system state transitions that lost a concurrency conflict")
+            .register(meterRegistry);
+        this.exhausted = Counter.builder("security_system_service.state_transition.retries_exhausted")
+            .description("Security system state transitions that still conflicted after the last attempt")
+            .register(meterRegistry);
+        this.contention = Caffeine.newBuilder()
+            .maximumSize(contendedSystemsTracked)
+            .<Long, SystemContention>removalListener((id, systemContention, cause) -> {
+                if (systemContention != null && cause != RemovalCause.REPLACED)
+                    meterRegistry.remove(systemContention.meter());
+            })
+            .build();
+    }
+
+    public <T> T execute(Long securitySystemId, Supplier<T> transition) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transition.get();
+            } catch (ConcurrencyFailureException e) {
+                sleep(backoffAfterConflict(securitySystemId, attempt, e));
+            }
+        }
+    }
+
+    /**
+     * Records that an attempt conflicted and returns how long to back off before the next one,
+     * for callers that retry asynchronously instead of blocking their thread.
+     *
+     * @throws ConcurrencyFailureException the conflict, if it was the last attempt
+     */
+    public Duration backoffAfterConflict(Long securitySystemId, int attempt, ConcurrencyFailureException conflict) {
+        recordConflict(securitySystemId);
+        if (attempt >= maxAttempts) {
+            exhausted.increment();
+            throw conflict;
+        }
+        logger.debug("State transition of security system {} conflicted on attempt {}: {}", securitySystemId, attempt, conflict.getMessage());
+        return backoff(attempt);
+    }
+
+    public long conflictCount(Long securitySystemId) {
+        SystemContention systemContention = contention.getIfPresent(securitySystemId);
+        return systemContention == null ? 0 : systemContention.conflicts().get();
+    }
+
+    private void recordConflict(Long securitySystemId) {
+        conflicts.increment();
+        contention.get(securitySystemId, id -> {
+            AtomicLong count = new AtomicLong();
+            Meter meter = FunctionCounter.builder("security_system_service.state_transition.contention", count, AtomicLong::get)
+                .description("Concurrency conflicts on a recently contended security system")
+                .tag("securitySystemId", String.valueOf(id))
+                .register(meterRegistry);
+            return new SystemContention(count, meter);
+        }).conflicts().incrementAndGet();
+    }
+
+    // Full jitter: a random time up to the capped exponential backoff, so that retrying writers spread out
+    private Duration backoff(int attempt) {
+        long ceiling = Math.min(maxBackoff.toMillis(), initialBackoff.toMillis() << Math.min(attempt - 1, 20));
+        if (ceiling <= 0)
+            return Duration.ZERO;
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(ceiling + 1));
+    }
+
+    private void sleep(Duration backoff) {
+        if (backoff.isZero())
+            return;
+        try {
+            Thread.sleep(backoff.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while backing off a state transition retry", e);
+        }
+    }
+}
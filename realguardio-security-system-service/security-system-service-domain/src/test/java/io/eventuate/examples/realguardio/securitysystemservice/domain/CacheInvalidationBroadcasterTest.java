@@ -0,0 +1,129 @@
+package io.eventuate.examples.realguardio.securitysystemservice.domain;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class CacheInvalidationBroadcasterTest {
+
+    private final InMemoryCacheInvalidationBus bus = new InMemoryCacheInvalidationBus();
+
+    // Two security-system-service instances sharing the bus
+    private final LocationRolesCache senderCache = mock(LocationRolesCache.class);
+    private final LocationRolesCache peerCache = mock(LocationRolesCache.class);
+    private final CacheInvalidationListener peerListener = mock(CacheInvalidationListener.class);
+    private final SimpleMeterRegistry peerMeterRegistry = new SimpleMeterRegistry();
+
+    private CacheInvalidationBroadcaster sender;
+    private CacheInvalidationBroadcaster peer;
+
+    @AfterEach
+    void tearDown() {
+        sender.destroy();
+        peer.destroy();
+    }
+
+    @Test
+    void shouldEvictPeerCachesButNotReapplyToSender() {
+        sender = new CacheInvalidationBroadcaster(bus, senderCache, listeners(), Duration.ZERO, Duration.ofSeconds(30), new SimpleMeterRegistry());
+        peer = new CacheInvalidationBroadcaster(bus, peerCache, listeners(peerListener), Duration.ZERO, Duration.ofSeconds(30), peerMeterRegistry);
+
+        sender.broadcast(CacheInvalidation.userLocationRoles("alice", 10L));
+        sender.broadcast(CacheInvalidation.locationRoles(20L));
+        sender.broadcast(CacheInvalidation.allLocationRoles());
+
+        verify(peerCache).invalidate("alice", 10L);
+        verify(peerCache).invalidateLocation(20L);
+        verify(peerCache).invalidateAll();
+        verify(peerListener).invalidate(CacheInvalidation.userLocationRoles("alice", 10L));
+        verifyNoInteractions(senderCache);
+        assertThat(peerMeterRegistry.get("cache_invalidation.received").counter().count()).isEqualTo(3);
+        assertThat(peerMeterRegistry.get("cache_invalidation.propagation_delay").timer().count()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldIgnoreInvalidationsSentLongBeforeStartup() {
+        sender = new CacheInvalidationBroadcaster(bus, senderCache, listeners(), Duration.ZERO, Duration.ofSeconds(30), new SimpleMeterRegistry());
+        peer = new CacheInvalidationBroadcaster(bus, peerCache, listeners(peerListener), Duration.ZERO, Duration.ofSeconds(30), peerMeterRegistry);
+
+        bus.send(new CacheInvalidationMessage("replayed", System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(5),
+            List.of(CacheInvalidation.allLocationRoles())));
+
+        verify(peerCache, never()).invalidateAll();
+    }
+
+    @Test
+    void shouldEvictEverythingWhenAnInstanceThatDoesNotSendStopsReceiving() {
+        // The peer's subscription has stalled: what it sends still reaches the other instances, but nothing reaches it
+        CacheInvalidationBus stalledBus = new CacheInvalidationBus() {
+            @Override
+            public void send(CacheInvalidationMessage message) {
+                bus.send(message);
+            }
+
+            @Override
+            public void subscribe(Consumer<CacheInvalidationMessage> handler) {
+            }
+        };
+        sender = new CacheInvalidationBroadcaster(bus, senderCache, listeners(), Duration.ofMillis(20), Duration.ofMillis(200), new SimpleMeterRegistry());
+        peer = new CacheInvalidationBroadcaster(stalledBus, peerCache, listeners(peerListener), Duration.ofMillis(20), Duration.ofMillis(200), peerMeterRegistry);
+
+        verify(peerCache, timeout(5000)).invalidateAll();
+        verify(peerListener, timeout(5000)).invalidateAll();
+        assertThat(peerMeterRegistry.get("cache_invalidation.staleness_evictions").counter().count()).isGreaterThanOrEqualTo(1);
+        verify(senderCache, never()).invalidateAll();
+    }
+
+    @Test
+    void shouldNotEvictEverythingWhileHeartbeatsArrive() throws InterruptedException {
+        SimpleMeterRegistry senderMeterRegistry = new SimpleMeterRegistry();
+        sender = new CacheInvalidationBroadcaster(bus, senderCache, listeners(), Duration.ofMillis(20), Duration.ofMillis(200), senderMeterRegistry);
+        peer = new CacheInvalidationBroadcaster(bus, peerCache, listeners(peerListener), Duration.ofMillis(20), Duration.ofMillis(200), peerMeterRegistry);
+
+        Thread.sleep(1000);
+
+        verify(senderCache, never()).invalidateAll();
+        verify(peerCache, never()).invalidateAll();
+        assertThat(senderMeterRegistry.get("cache_invalidation.heartbeats").counter().count()
+            + peerMeterRegistry.get("cache_invalidation.heartbeats").counter().count()).isGreaterThan(0);
+        assertThat(peerMeterRegistry.get("cache_invalidation.propagation_delay").timer().count()).isZero();
+    }
+
+    @Test
+    void shouldNotSendHeartbeatsWhileInvalidationsArrive() throws InterruptedException {
+        CacheInvalidationBus recordingBus = spy(bus);
+        sender = new CacheInvalidationBroadcaster(bus, senderCache, listeners(), Duration.ZERO, Duration.ofSeconds(30), new SimpleMeterRegistry());
+        peer = new CacheInvalidationBroadcaster(recordingBus, peerCache, listeners(peerListener), Duration.ofMillis(200), Duration.ofSeconds(30), peerMeterRegistry);
+
+        for (int i = 0; i < 20; i++) {
+            sender.broadcast(CacheInvalidation.locationRoles(20L));
+            Thread.sleep(50);
+        }
+
+        verify(recordingBus, never()).send(any());
+        assertThat(peerMeterRegistry.get("cache_invalidation.heartbeats").counter().count()).isZero();
+    }
+
+    private static ObjectProvider<CacheInvalidationListener> listeners(CacheInvalidationListener... listeners) {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        for (int i = 0; i < listeners.length; i++)
+            beanFactory.addBean("listener" + i, listeners[i]);
+        return beanFactory.getBeanProvider(CacheInvalidationListener.class);
+    }
+}
@@ -1,5 +1,6 @@
 package io.eventuate.examples.realguardio.securitysystemservice.domain;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -7,10 +8,14 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.lang.reflect.Field;
+import java.time.Duration;
 import java.util.Optional;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -26,13 +31,17 @@ class LocalSecuritySystemActionAuthorizerTest {
   private UserNameSupplier userNameSupplier;
   private LocalSecuritySystemActionAuthorizer localSecuritySystemActionAuthorizer;
 
+  private LocationRolesCache locationRolesCache;
+
   Long systemId = 1L;
   Long locationId = 456L;
   String userId = "employee@example.com";
 
   @BeforeEach
   void setUp() throws Exception {
-    localSecuritySystemActionAuthorizer = new LocalSecuritySystemActionAuthorizer(customerServiceClient, securitySystemRepository, userNameSupplier);
+    locationRolesCache = new LocationRolesCacheImpl(100, Duration.ofMinutes(1), new SimpleMeterRegistry());
+    localSecuritySystemActionAuthorizer = new LocalSecuritySystemActionAuthorizer(customerServiceClient, securitySystemRepository, userNameSupplier, locationRolesCache,
+        Optional.empty(), new SecuritySystemLocationCacheImpl(100, new SimpleMeterRegistry()));
 
     // Given
     // new HashSet<>(Arrays.asList(SecuritySystemAction.DISARM))
@@ -83,6 +92,64 @@ class LocalSecuritySystemActionAuthorizerTest {
         .isInstanceOf(ForbiddenException.class);
   }
 
+  @Test
+  void rolesAtLocationAreCached() {
+
+    when(customerServiceClient.getUserRolesAtLocation(userId, locationId))
+        .thenReturn(Set.of(RolesAndPermissions.SECURITY_SYSTEM_ARMER));
+
+    localSecuritySystemActionAuthorizer.verifyCanDo(systemId, RolesAndPermissions.ARM);
+    localSecuritySystemActionAuthorizer.verifyCanDo(systemId, RolesAndPermissions.VIEW);
+
+    verify(customerServiceClient, times(1)).getUserRolesAtLocation(userId, locationId);
+  }
+
+  @Test
+  void invalidatedRolesAreReloaded() {
+
+    when(customerServiceClient.getUserRolesAtLocation(userId, locationId))
+        .thenReturn(Set.of("VIEW_ALERTS"))
+        .thenReturn(Set.of(RolesAndPermissions.SECURITY_SYSTEM_ARMER));
+
+    assertThatThrownBy(() -> localSecuritySystemActionAuthorizer.verifyCanDo(systemId, RolesAndPermissions.ARM))
+        .isInstanceOf(ForbiddenException.class);
+
+    locationRolesCache.invalidate(userId, locationId);
+
+    localSecuritySystemActionAuthorizer.verifyCanDo(systemId, RolesAndPermissions.ARM);
+  }
+
+  @Test
+  void indexedRolesAreUsedWhenIndexIsAvailable() {
+    LocationRoleIndex locationRoleIndex = (user, location) ->
+        user.equals(userId) && location == locationId ? RoleBits.bitFor(RolesAndPermissions.SECURITY_SYSTEM_ARMER) : 0;
+    LocalSecuritySystemActionAuthorizer authorizer = new LocalSecuritySystemActionAuthorizer(customerServiceClient, securitySystemRepository, userNameSupplier, locationRolesCache,
+        Optional.of(locationRoleIndex), new SecuritySystemLocationCacheImpl(100, new SimpleMeterRegistry()));
+
+    authorizer.verifyCanDo(systemId, RolesAndPermissions.ARM);
+    authorizer.verifyCanDo(systemId, RolesAndPermissions.VIEW);
+
+    assertThatThrownBy(() -> authorizer.verifyCanDo(systemId, RolesAndPermissions.DISARM))
+        .isInstanceOf(ForbiddenException.class)
+        .hasMessageContaining(RolesAndPermissions.SECURITY_SYSTEM_ARMER);
+
+    verifyNoInteractions(customerServiceClient);
+  }
+
+  @Test
+  void cachedLocationIsUsedInsteadOfReloadingSecuritySystem() {
+    SecuritySystemLocationCache securitySystemLocationCache = new SecuritySystemLocationCacheImpl(100, new SimpleMeterRegistry());
+    LocalSecuritySystemActionAuthorizer authorizer = new LocalSecuritySystemActionAuthorizer(customerServiceClient, securitySystemRepository, userNameSupplier, locationRolesCache,
+        Optional.empty(), securitySystemLocationCache);
+    when(customerServiceClient.getUserRolesAtLocation(userId, locationId))
+        .thenReturn(Set.of(RolesAndPermissions.SECURITY_SYSTEM_ARMER));
+
+    authorizer.verifyCanDo(systemId, RolesAndPermissions.ARM);
+    authorizer.verifyCanDo(systemId, RolesAndPermissions.VIEW);
+
+    verify(securitySystemRepository, times(1)).findById(systemId);
+  }
+
   private static void setId(SecuritySystem system, Long id) throws Exception {
     Field idField = SecuritySystem.class.getDeclaredField("id");
     idField.setAccessible(true);
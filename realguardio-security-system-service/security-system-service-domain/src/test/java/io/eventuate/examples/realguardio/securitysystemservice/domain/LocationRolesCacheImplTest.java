@@ -0,0 +1,73 @@
+package io.eventuate.examples.realguardio.securitysystemservice.domain;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LocationRolesCacheImplTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private LocationRolesCacheImpl cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new LocationRolesCacheImpl(100, Duration.ofMinutes(1), meterRegistry);
+        loads = new AtomicInteger();
+    }
+
+    private Set<String> load(String role) {
+        return cache.getUserRolesAtLocation("alice", 1L, () -> {
+            loads.incrementAndGet();
+            return Set.of(role);
+        });
+    }
+
+    @Test
+    void shouldLoadOnceAndServeFromCache() {
+        assertThat(load(RolesAndPermissions.SECURITY_SYSTEM_ARMER)).containsExactly(RolesAndPermissions.SECURITY_SYSTEM_ARMER);
+        assertThat(load(RolesAndPermissions.SECURITY_SYSTEM_ARMER)).containsExactly(RolesAndPermissions.SECURITY_SYSTEM_ARMER);
+
+        assertThat(loads).hasValue(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "locationRoles").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "locationRoles").tag("result", "miss").functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldReloadAfterInvalidatingUserAtLocation() {
+        load(RolesAndPermissions.SECURITY_SYSTEM_ARMER);
+
+        cache.invalidate("alice", 1L);
+
+        assertThat(load(RolesAndPermissions.SECURITY_SYSTEM_DISARMER)).containsExactly(RolesAndPermissions.SECURITY_SYSTEM_DISARMER);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void shouldReloadAfterInvalidatingLocation() {
+        load(RolesAndPermissions.SECURITY_SYSTEM_ARMER);
+        cache.getUserRolesAtLocation("alice", 2L, () -> Set.of(RolesAndPermissions.SECURITY_SYSTEM_VIEWER));
+
+        cache.invalidateLocation(1L);
+
+        assertThat(load(RolesAndPermissions.SECURITY_SYSTEM_DISARMER)).containsExactly(RolesAndPermissions.SECURITY_SYSTEM_DISARMER);
+        assertThat(cache.getUserRolesAtLocation("alice", 2L, Set::of)).containsExactly(RolesAndPermissions.SECURITY_SYSTEM_VIEWER);
+    }
+
+    @Test
+    void shouldReloadAfterInvalidatingAll() {
+        load(RolesAndPermissions.SECURITY_SYSTEM_ARMER);
+
+        cache.invalidateAll();
+
+        load(RolesAndPermissions.SECURITY_SYSTEM_ARMER);
+        assertThat(loads).hasValue(2);
+    }
+}
@@ -0,0 +1,36 @@
+package io.eventuate.examples.realguardio.securitysystemservice.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static io.eventuate.examples.realguardio.securitysystemservice.domain.RolesAndPermissions.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RoleBitsTest {
+
+    @Test
+    public void shouldGrantPermissionsLikeRolesAndPermissions() {
+        for (String role : rolesToPermissions.keySet())
+            for (String permission : permissionsToRoles.keySet())
+                assertThat((RoleBits.bitFor(role) & RoleBits.permissionMask(permission)) != 0)
+                        .as("%s grants %s", role, permission)
+                        .isEqualTo(rolesToPermissions.get(role).contains(permission));
+    }
+
+    @Test
+    public void shouldIgnoreUnknownRoles() {
+        assertThat(RoleBits.bitFor("VIEW_ALERTS")).isZero();
+        assertThat(RoleBits.maskFor(List.of("VIEW_ALERTS", SECURITY_SYSTEM_VIEWER)))
+                .isEqualTo(RoleBits.bitFor(SECURITY_SYSTEM_VIEWER));
+    }
+
+    @Test
+    public void shouldDecodeRoleNames() {
+        int mask = RoleBits.maskFor(List.of(SECURITY_SYSTEM_ARMER, SECURITY_SYSTEM_VIEWER));
+
+        assertThat(RoleBits.roleNames(mask)).isEqualTo(Set.of(SECURITY_SYSTEM_ARMER, SECURITY_SYSTEM_VIEWER));
+        assertThat(RoleBits.roleNames(0)).isEmpty();
+    }
+}
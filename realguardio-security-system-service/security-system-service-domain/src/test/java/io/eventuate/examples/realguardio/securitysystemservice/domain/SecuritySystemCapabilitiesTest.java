@@ -0,0 +1,72 @@
+package io.eventuate.examples.realguardio.securitysystemservice.domain;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SecuritySystemCapabilitiesTest {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef";
+    private static final Instant NOW = Instant.parse("2026-01-01T00:00:00Z");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SecuritySystemCapabilities capabilities = capabilitiesAt(NOW);
+
+    @Test
+    void shouldVerifyIssuedCapabilityForItsActions() {
+        String capability = capabilities.issue("alice", 1L, Set.of(SecuritySystemAction.ARM));
+
+        assertThat(capabilities.verify(capability, "alice", 1L, SecuritySystemAction.ARM)).isTrue();
+        assertThat(capabilities.verify(capability, "alice", 1L, SecuritySystemAction.DISARM)).isFalse();
+        assertThat(meterRegistry.get("security_system_service.capabilities.verified").tag("result", "accepted").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("security_system_service.capabilities.verified").tag("result", "rejected").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRejectCapabilityForAnotherUserOrSecuritySystem() {
+        String capability = capabilities.issue("alice", 1L, Set.of(SecuritySystemAction.ARM, SecuritySystemAction.DISARM));
+
+        assertThat(capabilities.verify(capability, "bob", 1L, SecuritySystemAction.ARM)).isFalse();
+        assertThat(capabilities.verify(capability, "alice", 2L, SecuritySystemAction.ARM)).isFalse();
+    }
+
+    @Test
+    void shouldRejectTamperedCapability() {
+        String capability = capabilities.issue("alice", 1L, Set.of(SecuritySystemAction.ARM));
+
+        assertThat(capabilities.verify(capability.replace(".ARM.", ".ARM,DISARM."), "alice", 1L, SecuritySystemAction.DISARM)).isFalse();
+        assertThat(capabilities.verify("garbage", "alice", 1L, SecuritySystemAction.ARM)).isFalse();
+    }
+
+    @Test
+    void shouldRejectExpiredCapability() {
+        String capability = capabilities.issue("alice", 1L, Set.of(SecuritySystemAction.ARM));
+
+        assertThat(capabilitiesAt(NOW.plusSeconds(29)).verify(capability, "alice", 1L, SecuritySystemAction.ARM)).isTrue();
+        assertThat(capabilitiesAt(NOW.plusSeconds(30)).verify(capability, "alice", 1L, SecuritySystemAction.ARM)).isFalse();
+    }
+
+    @Test
+    void shouldNotIssueCapabilityWithoutArmOrDisarm() {
+        assertThat(capabilities.issue("alice", 1L, Set.of(SecuritySystemAction.ACKNOWLEDGE))).isNull();
+        assertThat(capabilities.issue("alice", 1L, Set.of())).isNull();
+    }
+
+    @Test
+    void shouldRequireLongSecret() {
+        assertThatThrownBy(() -> new SecuritySystemCapabilities("short", Duration.ofSeconds(30), Clock.systemUTC(), meterRegistry))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private SecuritySystemCapabilities capabilitiesAt(Instant instant) {
+        return new SecuritySystemCapabilities(SECRET, Duration.ofSeconds(30), Clock.fixed(instant, ZoneOffset.UTC), meterRegistry);
+    }
+}
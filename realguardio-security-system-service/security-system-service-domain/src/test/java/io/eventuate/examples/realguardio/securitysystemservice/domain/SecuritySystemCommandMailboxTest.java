@@ -0,0 +1,182 @@
+package io.eventuate.examples.realguardio.securitysystemservice.domain;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SecuritySystemCommandMailboxTest {
+
+    @Mock
+    private SecuritySystemRepository securitySystemRepository;
+
+    @Mock
+    private SecuritySystemStateChangeHub stateChangeHub;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch stripeBusy = new CountDownLatch(1);
+    private SecuritySystemCommandMailbox mailbox;
+
+    @BeforeEach
+    void setUp() {
+        mailbox = new SecuritySystemCommandMailbox(securitySystemRepository, TransactionOperations.withoutTransaction(),
+            new StateTransitionRetry(3, Duration.ZERO, Duration.ZERO, 1000, meterRegistry), stateChangeHub, 1, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stripeBusy.countDown();
+        mailbox.destroy();
+    }
+
+    @Test
+    void shouldCoalesceQueuedCommandsIntoOneUpdate() throws Exception {
+        CompletableFuture<SecuritySystem> blocker = occupyStripe();
+        when(securitySystemRepository.findSummaryById(1L)).thenReturn(Optional.of(summary(1L, SecuritySystemState.DISARMED, 5L)));
+        when(securitySystemRepository.updateStateReturningVersion(1L, SecuritySystemState.ARMED, Set.of(SecuritySystemState.DISARMED)))
+            .thenReturn(Optional.of(6L));
+
+        CompletableFuture<SecuritySystem> arm = mailbox.submit(securitySystem(1L), SecuritySystemAction.ARM);
+        CompletableFuture<SecuritySystem> disarm = mailbox.submit(securitySystem(1L), SecuritySystemAction.DISARM);
+        CompletableFuture<SecuritySystem> armAgain = mailbox.submit(securitySystem(1L), SecuritySystemAction.ARM);
+        stripeBusy.countDown();
+
+        assertThat(arm.get(5, TimeUnit.SECONDS).getState()).isEqualTo(SecuritySystemState.ARMED);
+        assertThat(disarm.get(5, TimeUnit.SECONDS).getState()).isEqualTo(SecuritySystemState.DISARMED);
+        assertThat(armAgain.get(5, TimeUnit.SECONDS).getState()).isEqualTo(SecuritySystemState.ARMED);
+        blocker.get(5, TimeUnit.SECONDS);
+
+        verify(securitySystemRepository, times(1)).updateStateReturningVersion(eq(1L), any(SecuritySystemState.class), anyCollection());
+        assertThat(meterRegistry.get("security_system_service.mailbox.coalesced_commands").counter().count()).isEqualTo(2);
+        verify(stateChangeHub).publish(new SecuritySystemStateChange(1L, 101L, SecuritySystemState.ARMED, 6L));
+    }
+
+    @Test
+    void shouldApplyDomainRulesToEachQueuedCommand() throws Exception {
+        CompletableFuture<SecuritySystem> blocker = occupyStripe();
+        when(securitySystemRepository.findSummaryById(1L)).thenReturn(Optional.of(summary(1L, SecuritySystemState.ALARMED, 5L)));
+        when(securitySystemRepository.updateStateReturningVersion(1L, SecuritySystemState.DISARMED, Set.of(SecuritySystemState.ALARMED)))
+            .thenReturn(Optional.of(6L));
+
+        CompletableFuture<SecuritySystem> arm = mailbox.submit(securitySystem(1L), SecuritySystemAction.ARM);
+        CompletableFuture<SecuritySystem> disarm = mailbox.submit(securitySystem(1L), SecuritySystemAction.DISARM);
+        stripeBusy.countDown();
+
+        assertThatThrownBy(() -> arm.get(5, TimeUnit.SECONDS))
+            .isInstanceOf(ExecutionException.class)
+            .hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(disarm.get(5, TimeUnit.SECONDS).getState()).isEqualTo(SecuritySystemState.DISARMED);
+        blocker.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void shouldNotUpdateWhenCoalescedCommandsLeaveStateUnchanged() {
+        when(securitySystemRepository.findSummaryById(1L)).thenReturn(Optional.of(summary(1L, SecuritySystemState.ARMED, 5L)));
+
+        SecuritySystem result = mailbox.execute(securitySystem(1L), SecuritySystemAction.ARM);
+
+        assertThat(result.getState()).isEqualTo(SecuritySystemState.ARMED);
+        verify(securitySystemRepository, never()).updateStateReturningVersion(anyLong(), any(SecuritySystemState.class), anyCollection());
+        verify(stateChangeHub, never()).publish(any());
+    }
+
+    @Test
+    void shouldServeOtherSystemsWhileAConflictedBatchBacksOff() throws Exception {
+        useRetryBackingOff(Duration.ofMillis(500));
+        when(securitySystemRepository.findSummaryById(1L))
+            .thenReturn(Optional.of(summary(1L, SecuritySystemState.DISARMED, 5L)), Optional.of(summary(1L, SecuritySystemState.DISARMED, 6L)));
+        when(securitySystemRepository.updateStateReturningVersion(1L, SecuritySystemState.ARMED, Set.of(SecuritySystemState.DISARMED)))
+            .thenReturn(Optional.empty(), Optional.of(7L));
+        when(securitySystemRepository.findSummaryById(2L)).thenReturn(Optional.of(summary(2L, SecuritySystemState.ARMED, 1L)));
+
+        CompletableFuture<SecuritySystem> conflicted = mailbox.submit(securitySystem(1L), SecuritySystemAction.ARM);
+        CompletableFuture<SecuritySystem> other = mailbox.submit(securitySystem(2L), SecuritySystemAction.ARM);
+
+        assertThat(other.get(5, TimeUnit.SECONDS).getState()).isEqualTo(SecuritySystemState.ARMED);
+        assertThat(conflicted).isNotDone();
+        assertThat(conflicted.get(5, TimeUnit.SECONDS).getVersion()).isEqualTo(7L);
+        verify(securitySystemRepository, times(2)).updateStateReturningVersion(1L, SecuritySystemState.ARMED, Set.of(SecuritySystemState.DISARMED));
+    }
+
+    @Test
+    void shouldApplyCommandsQueuedDuringTheBackoffAfterTheConflictedBatch() throws Exception {
+        useRetryBackingOff(Duration.ofMillis(500));
+        CountDownLatch conflictedOnce = new CountDownLatch(1);
+        when(securitySystemRepository.findSummaryById(1L)).thenReturn(Optional.of(summary(1L, SecuritySystemState.DISARMED, 5L)));
+        when(securitySystemRepository.updateStateReturningVersion(1L, SecuritySystemState.ARMED, Set.of(SecuritySystemState.DISARMED)))
+            .thenAnswer(invocation -> {
+                conflictedOnce.countDown();
+                return Optional.empty();
+            });
+
+        CompletableFuture<SecuritySystem> arm = mailbox.submit(securitySystem(1L), SecuritySystemAction.ARM);
+        assertThat(conflictedOnce.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<SecuritySystem> disarm = mailbox.submit(securitySystem(1L), SecuritySystemAction.DISARM);
+
+        // Run together, the commands leave the state unchanged, so the retry doesn't update
+        assertThat(arm.get(5, TimeUnit.SECONDS).getState()).isEqualTo(SecuritySystemState.ARMED);
+        assertThat(disarm.get(5, TimeUnit.SECONDS).getState()).isEqualTo(SecuritySystemState.DISARMED);
+        verify(securitySystemRepository, times(1)).updateStateReturningVersion(eq(1L), any(SecuritySystemState.class), anyCollection());
+    }
+
+    @Test
+    void shouldFailTheBatchOnceRetriesAreExhausted() {
+        when(securitySystemRepository.findSummaryById(1L)).thenReturn(Optional.of(summary(1L, SecuritySystemState.DISARMED, 5L)));
+        when(securitySystemRepository.updateStateReturningVersion(1L, SecuritySystemState.ARMED, Set.of(SecuritySystemState.DISARMED)))
+            .thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> mailbox.execute(securitySystem(1L), SecuritySystemAction.ARM))
+            .isInstanceOf(OptimisticLockingFailureException.class);
+        verify(securitySystemRepository, times(3)).updateStateReturningVersion(1L, SecuritySystemState.ARMED, Set.of(SecuritySystemState.DISARMED));
+    }
+
+    private void useRetryBackingOff(Duration backoff) {
+        StateTransitionRetry retry = mock(StateTransitionRetry.class);
+        when(retry.backoffAfterConflict(eq(1L), eq(1), any())).thenReturn(backoff);
+        mailbox.destroy();
+        mailbox = new SecuritySystemCommandMailbox(securitySystemRepository, TransactionOperations.withoutTransaction(),
+            retry, stateChangeHub, 1, meterRegistry);
+    }
+
+    // Keeps the only stripe busy with a command for another security system, so that the commands submitted next queue up
+    private CompletableFuture<SecuritySystem> occupyStripe() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        when(securitySystemRepository.findSummaryById(2L)).thenAnswer(invocation -> {
+            started.countDown();
+            stripeBusy.await();
+            return Optional.of(summary(2L, SecuritySystemState.ARMED, 1L));
+        });
+        CompletableFuture<SecuritySystem> blocker = mailbox.submit(securitySystem(2L), SecuritySystemAction.ARM);
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        return blocker;
+    }
+
+    private SecuritySystem securitySystem(Long id) {
+        SecuritySystem securitySystem = new SecuritySystem("Office Front Door", SecuritySystemState.DISARMED);
+        securitySystem.setId(id);
+        securitySystem.setLocationId(100L + id);
+        return securitySystem;
+    }
+
+    private SecuritySystemSummary summary(Long id, SecuritySystemState state, Long version) {
+        return new SecuritySystemSummary(id, "Office Front Door", state, 100L + id, null, version);
+    }
+}
@@ -0,0 +1,80 @@
+package io.eventuate.examples.realguardio.securitysystemservice.domain;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class SecuritySystemListCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SecuritySystemListCache cache = new SecuritySystemListCache(1000, Duration.ofMinutes(5), mock(ObjectProvider.class), meterRegistry);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final Supplier<List<SecuritySystemWithActions>> loader = () -> List.of(new SecuritySystemWithActions(
+        (long) loads.incrementAndGet(), "Office Front Door", SecuritySystemState.DISARMED, Set.of()));
+
+    @Test
+    void shouldServeListFromCacheWhileWatermarkIsUnchanged() {
+        List<SecuritySystemWithActions> first = cache.getSecuritySystems("alice", true, loader);
+
+        assertThat(cache.getSecuritySystems("alice", true, loader)).isSameAs(first);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void shouldCacheEachUserSeparately() {
+        cache.getSecuritySystems("alice", true, loader);
+        cache.getSecuritySystems("bob", true, loader);
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void shouldReloadAfterLocationRolesChange() {
+        cache.getSecuritySystems("alice", true, loader);
+
+        cache.locationRolesChanged();
+        cache.getSecuritySystems("alice", true, loader);
+
+        assertThat(loads).hasValue(2);
+        assertThat(meterRegistry.get("security_system_service.list_cache.stale").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldReloadAfterInvalidationFromAnotherInstance() {
+        cache.getSecuritySystems("alice", true, loader);
+
+        cache.invalidate(CacheInvalidation.securitySystems());
+        cache.getSecuritySystems("alice", true, loader);
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void shouldAdvanceWatermarkOnlyOnceTheTransactionCommits() {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            cache.securitySystemsChanged();
+            assertThat(cache.watermark()).isZero();
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(cache.watermark()).isEqualTo(1);
+    }
+}
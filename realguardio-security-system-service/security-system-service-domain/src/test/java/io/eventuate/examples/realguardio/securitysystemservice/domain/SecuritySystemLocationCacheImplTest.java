@@ -0,0 +1,66 @@
+package io.eventuate.examples.realguardio.securitysystemservice.domain;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SecuritySystemLocationCacheImplTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private SecuritySystemLocationCacheImpl cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new SecuritySystemLocationCacheImpl(100, meterRegistry);
+        loads = new AtomicInteger();
+    }
+
+    private Long load(Long locationId) {
+        return cache.getLocationId(1L, () -> {
+            loads.incrementAndGet();
+            return locationId;
+        });
+    }
+
+    @Test
+    void shouldLoadOnceAndServeFromCache() {
+        assertThat(load(456L)).isEqualTo(456L);
+        assertThat(load(456L)).isEqualTo(456L);
+
+        assertThat(loads).hasValue(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", "securitySystemLocations").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldServePutLocationWithoutLoading() {
+        cache.put(1L, 456L);
+
+        assertThat(load(789L)).isEqualTo(456L);
+        assertThat(loads).hasValue(0);
+    }
+
+    @Test
+    void shouldNotCacheMissingLocation() {
+        assertThat(load(null)).isNull();
+        cache.put(1L, null);
+
+        assertThat(load(456L)).isEqualTo(456L);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void shouldReloadAfterInvalidation() {
+        load(456L);
+
+        cache.invalidate(1L);
+
+        assertThat(load(789L)).isEqualTo(789L);
+        assertThat(loads).hasValue(2);
+    }
+}
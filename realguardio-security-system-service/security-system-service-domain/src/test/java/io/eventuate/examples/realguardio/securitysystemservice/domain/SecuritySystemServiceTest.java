@@ -1,16 +1,29 @@
 package io.eventuate.examples.realguardio.securitysystemservice.domain;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.CannotAcquireLockException;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionOperations;
 
 import java.lang.reflect.Field;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -43,10 +56,15 @@ class SecuritySystemServiceTest {
     @Mock
     private SecuritySystemFinder securitySystemFinder;
 
+    @Mock
+    private LocationRolesReplica locationRolesReplica;
+
     @BeforeEach
     void setUp() {
         lenient().when(eventPublishingPolicy.shouldPublishSecuritySystemAssignedToLocation()).thenReturn(true);
-        securitySystemService = new SecuritySystemServiceImpl(securitySystemRepository, customerServiceClient, userNameSupplier, securitySystemActionAuthorizer, securitySystemFinder, securitySystemEventPublisher, eventPublishingPolicy);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        securitySystemService = newSecuritySystemService(TransactionOperations.withoutTransaction(), new StateTransitionRetry(3, Duration.ZERO, Duration.ZERO, 1000, meterRegistry),
+            Optional.empty(), Optional.empty(), meterRegistry);
     }
 
     @Test
@@ -79,12 +97,180 @@ class SecuritySystemServiceTest {
         assertThat(actualSystems.get(1).state()).isEqualTo(SecuritySystemState.DISARMED);
     }
     
+    @Test
+    void shouldReturnFirstPageWithCursorForEmployee() {
+        String userId = "user123";
+
+        when(userNameSupplier.isCustomerEmployee()).thenReturn(true);
+        when(userNameSupplier.getCurrentUserName()).thenReturn(userId);
+
+        when(securitySystemFinder.findAllAccessible(userId, Long.MIN_VALUE, 3)).thenReturn(List.of(
+            new SecuritySystemProjectionImpl(1L, "Office Front Door", SecuritySystemState.ARMED, Set.of()),
+            new SecuritySystemProjectionImpl(2L, "Office Back Door", SecuritySystemState.DISARMED, Set.of()),
+            new SecuritySystemProjectionImpl(3L, "Warehouse", SecuritySystemState.DISARMED, Set.of())));
+
+        SecuritySystems page = securitySystemService.findAll(null, 2);
+
+        assertThat(page.securitySystems()).extracting(SecuritySystemWithActions::id).containsExactly(1L, 2L);
+        assertThat(page.nextCursor()).isEqualTo(2L);
+    }
+
+    @Test
+    void shouldReturnLastPageWithoutCursorForAdmin() {
+        when(userNameSupplier.isCustomerEmployee()).thenReturn(false);
+
+        when(securitySystemRepository.findSummaries(2L, Limit.of(3))).thenReturn(List.of(
+            new SecuritySystemSummary(3L, "Warehouse", SecuritySystemState.DISARMED, 103L, null, 0L)));
+
+        SecuritySystems page = securitySystemService.findAll(2L, 2);
+
+        assertThat(page.securitySystems()).hasSize(1);
+        assertThat(page.securitySystems().get(0).id()).isEqualTo(3L);
+        assertThat(page.securitySystems().get(0).actions()).containsExactlyInAnyOrder(SecuritySystemAction.ARM, SecuritySystemAction.DISARM);
+        assertThat(page.nextCursor()).isNull();
+        verify(securitySystemRepository, never()).findAll();
+    }
+
+    @Test
+    void shouldReturnIdsAndVersionsInUnpagedListForAdmin() {
+        when(userNameSupplier.isCustomerEmployee()).thenReturn(false);
+
+        when(securitySystemRepository.findSummaries(Long.MIN_VALUE, Limit.unlimited())).thenReturn(List.of(
+            new SecuritySystemSummary(1L, "Office Front Door", SecuritySystemState.ARMED, 101L, null, 4L),
+            new SecuritySystemSummary(2L, "Office Back Door", SecuritySystemState.ARMED, 102L, null, 7L)));
+
+        List<SecuritySystemWithActions> securitySystems = securitySystemService.findAll();
+
+        assertThat(securitySystems).extracting(SecuritySystemWithActions::id).containsExactly(1L, 2L);
+        assertThat(securitySystems).extracting(SecuritySystemWithActions::version).containsExactly(4L, 7L);
+        verify(securitySystemRepository, never()).findAll();
+    }
+
+    @Test
+    void shouldStreamAndCloseAccessibleSecuritySystems() {
+        String userId = "user123";
+        AtomicBoolean closed = new AtomicBoolean();
+
+        when(userNameSupplier.isCustomerEmployee()).thenReturn(true);
+        when(userNameSupplier.getCurrentUserName()).thenReturn(userId);
+        when(securitySystemFinder.streamAllAccessible(userId)).thenReturn(Stream.<SecuritySystemProjection>of(
+            new SecuritySystemProjectionImpl(1L, "Office Front Door", SecuritySystemState.ARMED, Set.of()),
+            new SecuritySystemProjectionImpl(2L, "Office Back Door", SecuritySystemState.DISARMED, Set.of()))
+            .onClose(() -> closed.set(true)));
+
+        List<SecuritySystemWithActions> streamed = new ArrayList<>();
+        securitySystemService.streamAll(streamed::add);
+
+        assertThat(streamed).extracting(SecuritySystemWithActions::id).containsExactly(1L, 2L);
+        assertThat(closed).isTrue();
+    }
+
+    @Test
+    void shouldAttachCapabilitiesToStreamedSecuritySystems() {
+        String userId = "user123";
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        SecuritySystemCapabilities capabilities = new SecuritySystemCapabilities("0123456789abcdef0123456789abcdef", Duration.ofSeconds(30),
+            Clock.systemUTC(), meterRegistry);
+        securitySystemService = newSecuritySystemService(TransactionOperations.withoutTransaction(),
+            new StateTransitionRetry(3, Duration.ZERO, Duration.ZERO, 1000, meterRegistry), Optional.empty(), Optional.of(capabilities), meterRegistry);
+
+        when(userNameSupplier.isCustomerEmployee()).thenReturn(true);
+        when(userNameSupplier.getCurrentUserName()).thenReturn(userId);
+        when(securitySystemFinder.streamAllAccessible(userId)).thenReturn(Stream.<SecuritySystemProjection>of(
+            new SecuritySystemProjectionImpl(1L, "Office Front Door", SecuritySystemState.ARMED, Set.of()) {
+                @Override
+                public String[] getRoleNames() {
+                    return new String[] {RolesAndPermissions.SECURITY_SYSTEM_DISARMER};
+                }
+            }));
+
+        List<SecuritySystemWithActions> streamed = new ArrayList<>();
+        securitySystemService.streamAll(streamed::add);
+
+        assertThat(streamed).hasSize(1);
+        assertThat(capabilities.verify(streamed.get(0).capability(), userId, 1L, SecuritySystemAction.DISARM)).isTrue();
+    }
+
+    private void setVersion(SecuritySystem system, Long version) throws Exception {
+        Field versionField = SecuritySystem.class.getDeclaredField("version");
+        versionField.setAccessible(true);
+        versionField.set(system, version);
+    }
+
+    private SecuritySystemServiceImpl newSecuritySystemService(TransactionOperations transactionOperations, StateTransitionRetry stateTransitionRetry,
+                                                               Optional<SecuritySystemListCache> securitySystemListCache,
+                                                               Optional<SecuritySystemCapabilities> securitySystemCapabilities,
+                                                               SimpleMeterRegistry meterRegistry) {
+        return new SecuritySystemServiceImpl(securitySystemRepository, customerServiceClient, userNameSupplier,
+            securitySystemActionAuthorizer, securitySystemFinder, securitySystemEventPublisher, eventPublishingPolicy,
+            transactionOperations, stateTransitionRetry, Optional.empty(),
+            new RecentViewAuthorizations(Duration.ofSeconds(30), 1000, meterRegistry),
+            new SecuritySystemStateChangeHub(new InMemorySecuritySystemStateChangeBus(), Optional.empty(), Optional.of(locationRolesReplica),
+                new LocationRolesCacheImpl(1000, Duration.ofSeconds(30), meterRegistry), 1, 1000, 1000, meterRegistry),
+            new SecuritySystemLocationCacheImpl(1000, meterRegistry), securitySystemListCache, securitySystemCapabilities, meterRegistry);
+    }
+
     private void setId(SecuritySystem system, Long id) throws Exception {
         Field idField = SecuritySystem.class.getDeclaredField("id");
         idField.setAccessible(true);
         idField.set(system, id);
     }
 
+    @Test
+    void shouldFindAccessibleSecuritySystemsByIdsWithOneAuthorizedQuery() {
+        String userId = "user123";
+
+        when(userNameSupplier.isCustomerEmployee()).thenReturn(true);
+        when(userNameSupplier.getCurrentUserName()).thenReturn(userId);
+        when(securitySystemFinder.findAccessibleByIds(userId, Set.of(3L, 1L, 2L, 4L))).thenReturn(List.of(
+            new SecuritySystemProjectionImpl(1L, "Office Front Door", SecuritySystemState.ARMED, Set.of()),
+            new SecuritySystemProjectionImpl(3L, "Warehouse", SecuritySystemState.DISARMED, Set.of())));
+        when(securitySystemRepository.findExistingIds(List.of(2L, 4L))).thenReturn(List.of(4L));
+
+        SecuritySystemsByIds result = securitySystemService.findByIds(List.of(3L, 1L, 2L, 4L, 3L));
+
+        assertThat(result.securitySystems()).extracting(SecuritySystemWithActions::id).containsExactly(3L, 1L);
+        assertThat(result.notFound()).containsExactly(2L);
+        assertThat(result.forbidden()).containsExactly(4L);
+        verifyNoInteractions(securitySystemActionAuthorizer);
+    }
+
+    @Test
+    void adminShouldFindSecuritySystemsByIdsWithoutAuthorization() {
+        when(userNameSupplier.isCustomerEmployee()).thenReturn(false);
+        when(securitySystemRepository.findSummariesByIds(Set.of(1L, 2L))).thenReturn(List.of(
+            new SecuritySystemSummary(1L, "Office Front Door", SecuritySystemState.ARMED, 101L, null, 0L)));
+
+        SecuritySystemsByIds result = securitySystemService.findByIds(List.of(1L, 2L));
+
+        assertThat(result.securitySystems()).extracting(SecuritySystemWithActions::id).containsExactly(1L);
+        assertThat(result.notFound()).containsExactly(2L);
+        assertThat(result.forbidden()).isEmpty();
+        verify(securitySystemRepository, never()).findExistingIds(any());
+    }
+
+    @Test
+    void shouldAnswerVersionCheckForRecentlyAuthorizedViewer() throws Exception {
+        Long systemId = 1L;
+        SecuritySystem securitySystem = new SecuritySystem("Office Front Door", SecuritySystemState.ARMED);
+        setId(securitySystem, systemId);
+        securitySystem.setLocationId(456L);
+        setVersion(securitySystem, 3L);
+
+        when(userNameSupplier.isCustomerEmployee()).thenReturn(true);
+        when(userNameSupplier.getCurrentUserName()).thenReturn("user123");
+        when(securitySystemRepository.findById(systemId)).thenReturn(Optional.of(securitySystem));
+        when(securitySystemRepository.findVersionById(systemId)).thenReturn(Optional.of(3L));
+
+        assertThat(securitySystemService.isUnchanged(systemId, 3L)).isFalse();
+
+        securitySystemService.findById(systemId);
+
+        assertThat(securitySystemService.isUnchanged(systemId, 3L)).isTrue();
+        assertThat(securitySystemService.isUnchanged(systemId, 2L)).isFalse();
+        verify(securitySystemActionAuthorizer, times(1)).verifyCanDo(systemId, RolesAndPermissions.VIEW);
+    }
+
     @Test
     void shouldReturnEmptyListWhenNoSystemsExist() {
         // Given
@@ -112,7 +298,7 @@ class SecuritySystemServiceTest {
         securitySystem.setLocationId(456L);
         
         when(securitySystemRepository.findById(systemId)).thenReturn(Optional.of(securitySystem));
-        when(securitySystemRepository.save(any(SecuritySystem.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(securitySystemRepository.updateStateReturningVersion(eq(systemId), eq(SecuritySystemState.DISARMED), anyCollection())).thenReturn(Optional.of(1L));
         
         // When
         SecuritySystem result = securitySystemService.disarm(systemId);
@@ -121,7 +307,7 @@ class SecuritySystemServiceTest {
         assertThat(result).isNotNull();
         assertThat(result.getState()).isEqualTo(SecuritySystemState.DISARMED);
         verify(securitySystemRepository).findById(systemId);
-        verify(securitySystemRepository).save(securitySystem);
+        verify(securitySystemRepository).updateStateReturningVersion(eq(systemId), eq(SecuritySystemState.DISARMED), anyCollection());
     }
     
     @Test
@@ -134,7 +320,7 @@ class SecuritySystemServiceTest {
         securitySystem.setLocationId(456L);
         
         when(securitySystemRepository.findById(systemId)).thenReturn(Optional.of(securitySystem));
-        when(securitySystemRepository.save(any(SecuritySystem.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(securitySystemRepository.updateStateReturningVersion(eq(systemId), eq(SecuritySystemState.ARMED), anyCollection())).thenReturn(Optional.of(1L));
         
         // When
         SecuritySystem result = securitySystemService.arm(systemId);
@@ -143,7 +329,7 @@ class SecuritySystemServiceTest {
         assertThat(result).isNotNull();
         assertThat(result.getState()).isEqualTo(SecuritySystemState.ARMED);
         verify(securitySystemRepository).findById(systemId);
-        verify(securitySystemRepository).save(securitySystem);
+        verify(securitySystemRepository).updateStateReturningVersion(eq(systemId), eq(SecuritySystemState.ARMED), anyCollection());
     }
     
     @Test
@@ -160,7 +346,7 @@ class SecuritySystemServiceTest {
         when(userNameSupplier.isCustomerEmployee()).thenReturn(false);
 
         when(securitySystemRepository.findById(systemId)).thenReturn(Optional.of(securitySystem));
-        when(securitySystemRepository.save(any(SecuritySystem.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(securitySystemRepository.updateStateReturningVersion(eq(systemId), eq(SecuritySystemState.DISARMED), anyCollection())).thenReturn(Optional.of(1L));
 
         // When
         SecuritySystem result = securitySystemService.disarm(systemId);
@@ -169,7 +355,7 @@ class SecuritySystemServiceTest {
         assertThat(result).isNotNull();
         assertThat(result.getState()).isEqualTo(SecuritySystemState.DISARMED);
         verify(securitySystemRepository).findById(systemId);
-        verify(securitySystemRepository).save(securitySystem);
+        verify(securitySystemRepository).updateStateReturningVersion(eq(systemId), eq(SecuritySystemState.DISARMED), anyCollection());
         // Admin should not trigger authorization check
         verify(securitySystemActionAuthorizer, never()).verifyCanDo(anyLong(), eq(RolesAndPermissions.DISARM));
     }
@@ -188,7 +374,7 @@ class SecuritySystemServiceTest {
         when(userNameSupplier.isCustomerEmployee()).thenReturn(true);
 
         when(securitySystemRepository.findById(systemId)).thenReturn(Optional.of(securitySystem));
-        when(securitySystemRepository.save(any(SecuritySystem.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(securitySystemRepository.updateStateReturningVersion(eq(systemId), eq(SecuritySystemState.DISARMED), anyCollection())).thenReturn(Optional.of(1L));
 
         // When
         SecuritySystem result = securitySystemService.disarm(systemId);
@@ -197,7 +383,7 @@ class SecuritySystemServiceTest {
         assertThat(result).isNotNull();
         assertThat(result.getState()).isEqualTo(SecuritySystemState.DISARMED);
         verify(securitySystemRepository).findById(systemId);
-        verify(securitySystemRepository).save(securitySystem);
+        verify(securitySystemRepository).updateStateReturningVersion(eq(systemId), eq(SecuritySystemState.DISARMED), anyCollection());
         verify(securitySystemActionAuthorizer).verifyCanDo(systemId, RolesAndPermissions.DISARM);
     }
     
@@ -225,7 +411,7 @@ class SecuritySystemServiceTest {
 
         verify(securitySystemRepository).findById(systemId);
         verify(securitySystemActionAuthorizer).verifyCanDo(systemId, RolesAndPermissions.DISARM);
-        verify(securitySystemRepository, never()).save(any());
+        verify(securitySystemRepository, never()).updateStateReturningVersion(anyLong(), any(SecuritySystemState.class), anyCollection());
     }
     
     @Test
@@ -242,7 +428,7 @@ class SecuritySystemServiceTest {
         when(userNameSupplier.isCustomerEmployee()).thenReturn(false);
 
         when(securitySystemRepository.findById(systemId)).thenReturn(Optional.of(securitySystem));
-        when(securitySystemRepository.save(any(SecuritySystem.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(securitySystemRepository.updateStateReturningVersion(eq(systemId), eq(SecuritySystemState.ARMED), anyCollection())).thenReturn(Optional.of(1L));
 
         // When
         SecuritySystem result = securitySystemService.arm(systemId);
@@ -251,7 +437,7 @@ class SecuritySystemServiceTest {
         assertThat(result).isNotNull();
         assertThat(result.getState()).isEqualTo(SecuritySystemState.ARMED);
         verify(securitySystemRepository).findById(systemId);
-        verify(securitySystemRepository).save(securitySystem);
+        verify(securitySystemRepository).updateStateReturningVersion(eq(systemId), eq(SecuritySystemState.ARMED), anyCollection());
         // Admin should not trigger authorization check
         verify(securitySystemActionAuthorizer, never()).verifyCanDo(anyLong(), eq(RolesAndPermissions.ARM));
     }
@@ -270,7 +456,7 @@ class SecuritySystemServiceTest {
         when(userNameSupplier.isCustomerEmployee()).thenReturn(true);
 
         when(securitySystemRepository.findById(systemId)).thenReturn(Optional.of(securitySystem));
-        when(securitySystemRepository.save(any(SecuritySystem.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(securitySystemRepository.updateStateReturningVersion(eq(systemId), eq(SecuritySystemState.ARMED), anyCollection())).thenReturn(Optional.of(1L));
 
         // When
         SecuritySystem result = securitySystemService.arm(systemId);
@@ -279,7 +465,7 @@ class SecuritySystemServiceTest {
         assertThat(result).isNotNull();
         assertThat(result.getState()).isEqualTo(SecuritySystemState.ARMED);
         verify(securitySystemRepository).findById(systemId);
-        verify(securitySystemRepository).save(securitySystem);
+        verify(securitySystemRepository).updateStateReturningVersion(eq(systemId), eq(SecuritySystemState.ARMED), anyCollection());
         verify(securitySystemActionAuthorizer).verifyCanDo(systemId, RolesAndPermissions.ARM);
     }
     
@@ -307,7 +493,186 @@ class SecuritySystemServiceTest {
 
         verify(securitySystemRepository).findById(systemId);
         verify(securitySystemActionAuthorizer).verifyCanDo(systemId, RolesAndPermissions.ARM);
-        verify(securitySystemRepository, never()).save(any());
+        verify(securitySystemRepository, never()).updateStateReturningVersion(anyLong(), any(SecuritySystemState.class), anyCollection());
+    }
+
+    @Test
+    void shouldAuthorizeOutsideTheUpdateTransaction() throws Exception {
+        Long systemId = 1L;
+        SecuritySystem securitySystem = new SecuritySystem("Office Front Door", SecuritySystemState.DISARMED);
+        setId(securitySystem, systemId);
+        securitySystem.setLocationId(456L);
+
+        AtomicBoolean inTransaction = new AtomicBoolean();
+        TransactionOperations transactionOperations = new TransactionOperations() {
+            @Override
+            public <T> T execute(TransactionCallback<T> action) {
+                inTransaction.set(true);
+                try {
+                    return action.doInTransaction(null);
+                } finally {
+                    inTransaction.set(false);
+                }
+            }
+        };
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        securitySystemService = newSecuritySystemService(transactionOperations, new StateTransitionRetry(3, Duration.ZERO, Duration.ZERO, 1000, meterRegistry),
+            Optional.empty(), Optional.empty(), meterRegistry);
+
+        when(userNameSupplier.isCustomerEmployee()).thenReturn(true);
+        when(securitySystemRepository.findById(systemId)).thenReturn(Optional.of(securitySystem));
+        doAnswer(invocation -> {
+            assertThat(inTransaction).isFalse();
+            return null;
+        }).when(securitySystemActionAuthorizer).verifyCanDo(systemId, RolesAndPermissions.ARM);
+        when(securitySystemRepository.updateStateReturningVersion(eq(systemId), eq(SecuritySystemState.ARMED), anyCollection())).thenAnswer(invocation -> {
+            assertThat(inTransaction).isTrue();
+            return Optional.of(1L);
+        });
+
+        SecuritySystem result = securitySystemService.arm(systemId);
+
+        assertThat(result.getState()).isEqualTo(SecuritySystemState.ARMED);
+        verify(securitySystemActionAuthorizer).verifyCanDo(systemId, RolesAndPermissions.ARM);
+        assertThat(meterRegistry.get("security_system_service.connection_hold").tags("operation", "arm", "phase", "load").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("security_system_service.connection_hold").tags("operation", "arm", "phase", "update").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotArmAlarmedSecuritySystem() throws Exception {
+        Long systemId = 1L;
+        SecuritySystem securitySystem = new SecuritySystem("Office Front Door", SecuritySystemState.ALARMED);
+        setId(securitySystem, systemId);
+        securitySystem.setLocationId(456L);
+
+        when(userNameSupplier.isCustomerEmployee()).thenReturn(false);
+        when(securitySystemRepository.findById(systemId)).thenReturn(Optional.of(securitySystem));
+        when(securitySystemRepository.updateStateReturningVersion(systemId, SecuritySystemState.ARMED, SecuritySystem.statesAllowing(SecuritySystemAction.ARM)))
+            .thenReturn(Optional.empty());
+        when(securitySystemRepository.findStateById(systemId)).thenReturn(Optional.of(SecuritySystemState.ALARMED));
+
+        assertThatThrownBy(() -> securitySystemService.arm(systemId))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("Cannot arm system in ALARMED state");
+    }
+
+    @Test
+    void shouldRetryStateTransitionAfterConcurrencyConflict() throws Exception {
+        Long systemId = 1L;
+        SecuritySystem securitySystem = new SecuritySystem("Office Front Door", SecuritySystemState.ARMED);
+        setId(securitySystem, systemId);
+        securitySystem.setLocationId(456L);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        StateTransitionRetry stateTransitionRetry = new StateTransitionRetry(3, Duration.ZERO, Duration.ZERO, 1000, meterRegistry);
+        securitySystemService = newSecuritySystemService(TransactionOperations.withoutTransaction(), stateTransitionRetry, Optional.empty(), Optional.empty(), meterRegistry);
+
+        when(userNameSupplier.isCustomerEmployee()).thenReturn(false);
+        when(securitySystemRepository.findById(systemId)).thenReturn(Optional.of(securitySystem));
+        when(securitySystemRepository.updateStateReturningVersion(eq(systemId), eq(SecuritySystemState.DISARMED), anyCollection()))
+            .thenThrow(new CannotAcquireLockException("lock timeout"))
+            .thenReturn(Optional.of(7L));
+
+        SecuritySystem result = securitySystemService.disarm(systemId);
+
+        assertThat(result.getState()).isEqualTo(SecuritySystemState.DISARMED);
+        assertThat(stateTransitionRetry.conflictCount(systemId)).isEqualTo(1);
+        assertThat(meterRegistry.get("security_system_service.state_transition.contention").tag("securitySystemId", "1").functionCounter().count()).isEqualTo(1);
+        verify(securitySystemRepository, times(2)).updateStateReturningVersion(eq(systemId), eq(SecuritySystemState.DISARMED), anyCollection());
+    }
+
+    @Test
+    void shouldPublishCommittedStateChangeToSubscriberThatCanViewIt() throws Exception {
+        Long systemId = 1L;
+        SecuritySystem securitySystem = new SecuritySystem("Office Front Door", SecuritySystemState.DISARMED);
+        setId(securitySystem, systemId);
+        securitySystem.setLocationId(456L);
+
+        when(userNameSupplier.isCustomerEmployee()).thenReturn(true);
+        when(userNameSupplier.getCurrentUserName()).thenReturn("user123");
+        when(locationRolesReplica.getUserRolesAtLocation("user123", 456L)).thenReturn(Set.of(RolesAndPermissions.SECURITY_SYSTEM_VIEWER));
+        when(securitySystemRepository.findById(systemId)).thenReturn(Optional.of(securitySystem));
+        when(securitySystemRepository.updateStateReturningVersion(eq(systemId), eq(SecuritySystemState.ARMED), anyCollection()))
+            .thenReturn(Optional.of(3L));
+
+        CompletableFuture<SecuritySystemStateChange> received = new CompletableFuture<>();
+        try (SecuritySystemStateChangeSubscription subscription = securitySystemService.subscribeToStateChanges(new SecuritySystemStateChangeListener() {
+            @Override
+            public void stateChanged(SecuritySystemStateChange change) {
+                received.complete(change);
+            }
+
+            @Override
+            public void overflowed() {
+                received.completeExceptionally(new IllegalStateException("overflowed"));
+            }
+        })) {
+            securitySystemService.arm(systemId);
+
+            assertThat(received.get(5, TimeUnit.SECONDS))
+                .isEqualTo(new SecuritySystemStateChange(systemId, 456L, SecuritySystemState.ARMED, 3L));
+        }
+    }
+
+    @Test
+    void shouldServeCachedListUntilASecuritySystemChanges() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        securitySystemService = newSecuritySystemService(TransactionOperations.withoutTransaction(), new StateTransitionRetry(3, Duration.ZERO, Duration.ZERO, 1000, meterRegistry),
+            Optional.of(new SecuritySystemListCache(1000, Duration.ofMinutes(5), mock(ObjectProvider.class), meterRegistry)), Optional.empty(), meterRegistry);
+
+        SecuritySystem securitySystem = new SecuritySystem("Office Front Door", SecuritySystemState.DISARMED);
+        setId(securitySystem, 1L);
+        securitySystem.setLocationId(456L);
+
+        when(userNameSupplier.isCustomerEmployee()).thenReturn(true);
+        when(userNameSupplier.getCurrentUserName()).thenReturn("user123");
+        when(securitySystemFinder.findAllAccessible("user123")).thenReturn(
+            List.of(new SecuritySystemProjectionImpl(1L, "Office Front Door", SecuritySystemState.DISARMED, Set.of())),
+            List.of(new SecuritySystemProjectionImpl(1L, "Office Front Door", SecuritySystemState.ARMED, Set.of())));
+        when(securitySystemRepository.findById(1L)).thenReturn(Optional.of(securitySystem));
+        when(securitySystemRepository.updateStateReturningVersion(eq(1L), eq(SecuritySystemState.ARMED), anyCollection()))
+            .thenReturn(Optional.of(1L));
+
+        assertThat(securitySystemService.findAll().get(0).state()).isEqualTo(SecuritySystemState.DISARMED);
+        assertThat(securitySystemService.findAll().get(0).state()).isEqualTo(SecuritySystemState.DISARMED);
+        verify(securitySystemFinder, times(1)).findAllAccessible("user123");
+
+        securitySystemService.arm(1L);
+
+        assertThat(securitySystemService.findAll().get(0).state()).isEqualTo(SecuritySystemState.ARMED);
+        verify(securitySystemFinder, times(2)).findAllAccessible("user123");
+    }
+
+    @Test
+    void shouldArmWithCapabilityFromListWithoutCheckingAuthorization() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        securitySystemService = newSecuritySystemService(TransactionOperations.withoutTransaction(), new StateTransitionRetry(3, Duration.ZERO, Duration.ZERO, 1000, meterRegistry),
+            Optional.empty(),
+            Optional.of(new SecuritySystemCapabilities("0123456789abcdef0123456789abcdef", Duration.ofSeconds(30), Clock.systemUTC(), meterRegistry)),
+            meterRegistry);
+
+        SecuritySystem securitySystem = new SecuritySystem("Office Front Door", SecuritySystemState.DISARMED);
+        setId(securitySystem, 1L);
+        securitySystem.setLocationId(456L);
+
+        when(userNameSupplier.isCustomerEmployee()).thenReturn(true);
+        when(userNameSupplier.getCurrentUserName()).thenReturn("user123");
+        SecuritySystemProjection row = mock(SecuritySystemProjection.class);
+        when(row.toSecuritySystemWithActions())
+            .thenReturn(new SecuritySystemWithActions(1L, "Office Front Door", SecuritySystemState.DISARMED, Set.of(SecuritySystemAction.ARM)));
+        when(securitySystemFinder.findAllAccessible("user123")).thenReturn(List.of(row));
+        when(securitySystemRepository.findById(1L)).thenReturn(Optional.of(securitySystem));
+        when(securitySystemRepository.updateStateReturningVersion(eq(1L), eq(SecuritySystemState.ARMED), anyCollection()))
+            .thenReturn(Optional.of(1L));
+
+        String capability = securitySystemService.findAll().get(0).capability();
+        SecuritySystem result = securitySystemService.arm(1L, capability);
+
+        assertThat(result.getState()).isEqualTo(SecuritySystemState.ARMED);
+        verifyNoInteractions(securitySystemActionAuthorizer);
+
+        // The capability doesn't cover disarming, so authorization is checked
+        doThrow(new ForbiddenException("Access denied")).when(securitySystemActionAuthorizer).verifyCanDo(1L, RolesAndPermissions.DISARM);
+        assertThatThrownBy(() -> securitySystemService.disarm(1L, capability)).isInstanceOf(ForbiddenException.class);
     }
 
     @Test
@@ -388,4 +753,83 @@ class SecuritySystemServiceTest {
         verify(securitySystemEventPublisher, never()).publish(any(SecuritySystem.class), any(SecuritySystemEvent.class));
     }
 
+    private SecuritySystem securitySystem(Long id, Long locationId, SecuritySystemState state) throws Exception {
+        SecuritySystem securitySystem = new SecuritySystem("Location " + id, state);
+        setId(securitySystem, id);
+        securitySystem.setLocationId(locationId);
+        return securitySystem;
+    }
+
+    @Test
+    void adminShouldArmSecuritySystemsWithSingleUpdate() throws Exception {
+        when(userNameSupplier.isCustomerEmployee()).thenReturn(false);
+        when(securitySystemRepository.findAllById(Set.of(1L, 2L))).thenReturn(List.of(
+            securitySystem(1L, 101L, SecuritySystemState.DISARMED),
+            securitySystem(2L, 102L, SecuritySystemState.DISARMED)));
+        when(securitySystemRepository.updateStates(List.of(1L, 2L), SecuritySystemState.ARMED,
+            SecuritySystem.statesAllowing(SecuritySystemAction.ARM))).thenReturn(2);
+
+        List<SecuritySystemActionOutcome> outcomes = securitySystemService.applyAction(List.of(1L, 2L), SecuritySystemAction.ARM);
+
+        assertThat(outcomes).containsExactly(
+            new SecuritySystemActionOutcome(1L, SecuritySystemActionStatus.UPDATED, SecuritySystemState.ARMED),
+            new SecuritySystemActionOutcome(2L, SecuritySystemActionStatus.UPDATED, SecuritySystemState.ARMED));
+        verify(securitySystemFinder, never()).findAuthorizedIds(any(), any(), any());
+        verify(securitySystemActionAuthorizer, never()).verifyCanDo(anyLong(), any());
+        verify(securitySystemRepository, never()).save(any());
+    }
+
+    @Test
+    void employeeShouldGetOutcomePerRequestedSecuritySystem() throws Exception {
+        String userId = "user123";
+
+        when(userNameSupplier.isCustomerEmployee()).thenReturn(true);
+        when(userNameSupplier.getCurrentUserName()).thenReturn(userId);
+        when(securitySystemRepository.findAllById(Set.of(1L, 2L, 3L, 4L, 5L))).thenReturn(List.of(
+            securitySystem(1L, 101L, SecuritySystemState.DISARMED),
+            securitySystem(2L, 102L, SecuritySystemState.DISARMED),
+            securitySystem(3L, 103L, SecuritySystemState.ALARMED),
+            securitySystem(4L, null, SecuritySystemState.DISARMED)));
+        when(securitySystemFinder.findAuthorizedIds(userId, RolesAndPermissions.ARM, Set.of(1L, 2L, 3L, 4L)))
+            .thenReturn(Set.of(1L, 3L, 4L));
+        when(securitySystemRepository.updateStates(List.of(1L), SecuritySystemState.ARMED,
+            SecuritySystem.statesAllowing(SecuritySystemAction.ARM))).thenReturn(1);
+
+        List<SecuritySystemActionOutcome> outcomes = securitySystemService.applyAction(List.of(1L, 2L, 3L, 4L, 5L), SecuritySystemAction.ARM);
+
+        assertThat(outcomes).containsExactly(
+            new SecuritySystemActionOutcome(1L, SecuritySystemActionStatus.UPDATED, SecuritySystemState.ARMED),
+            new SecuritySystemActionOutcome(2L, SecuritySystemActionStatus.FORBIDDEN, SecuritySystemState.DISARMED),
+            new SecuritySystemActionOutcome(3L, SecuritySystemActionStatus.INVALID_STATE, SecuritySystemState.ALARMED),
+            new SecuritySystemActionOutcome(4L, SecuritySystemActionStatus.MISSING_LOCATION, SecuritySystemState.DISARMED),
+            new SecuritySystemActionOutcome(5L, SecuritySystemActionStatus.NOT_FOUND, null));
+        verify(securitySystemActionAuthorizer, never()).verifyCanDo(anyLong(), any());
+    }
+
+    @Test
+    void shouldReportSecuritySystemsChangedConcurrentlyAsInvalidState() throws Exception {
+        when(userNameSupplier.isCustomerEmployee()).thenReturn(false);
+        when(securitySystemRepository.findAllById(Set.of(1L, 2L))).thenReturn(List.of(
+            securitySystem(1L, 101L, SecuritySystemState.ARMED),
+            securitySystem(2L, 102L, SecuritySystemState.ARMED)));
+        when(securitySystemRepository.updateStates(List.of(1L, 2L), SecuritySystemState.DISARMED,
+            SecuritySystem.statesAllowing(SecuritySystemAction.DISARM))).thenReturn(1);
+        when(securitySystemRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(
+            securitySystem(1L, 101L, SecuritySystemState.DISARMED),
+            securitySystem(2L, 102L, SecuritySystemState.ALARMED)));
+
+        List<SecuritySystemActionOutcome> outcomes = securitySystemService.applyAction(List.of(1L, 2L), SecuritySystemAction.DISARM);
+
+        assertThat(outcomes).extracting(SecuritySystemActionOutcome::status)
+            .containsExactly(SecuritySystemActionStatus.UPDATED, SecuritySystemActionStatus.INVALID_STATE);
+    }
+
+    @Test
+    void shouldRejectUnsupportedBulkAction() {
+        assertThatThrownBy(() -> securitySystemService.applyAction(List.of(1L), SecuritySystemAction.ACKNOWLEDGE))
+            .isInstanceOf(BadRequestException.class);
+
+        verifyNoInteractions(securitySystemRepository);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,235 @@
+package io.eventuate.examples.realguardio.securitysystemservice.domain;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class SecuritySystemStateChangeHubTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    // alice can view the security systems at location 10 but not at location 20
+    private final LocationRoleIndex locationRoleIndex = (userName, locationId) ->
+        userName.equals("alice") && locationId == 10L ? RoleBits.bitFor(RolesAndPermissions.SECURITY_SYSTEM_VIEWER) : 0;
+
+    private final InMemorySecuritySystemStateChangeBus bus = new InMemorySecuritySystemStateChangeBus();
+
+    private SecuritySystemStateChangeHub hub;
+
+    @AfterEach
+    void tearDown() {
+        hub.destroy();
+    }
+
+    @Test
+    void shouldDeliverOnlyTheChangesTheSubscriberCanView() throws Exception {
+        hub = hub(1000);
+        RecordingListener listener = new RecordingListener();
+        hub.subscribe("alice", listener);
+
+        hub.publish(change(2L, 20L, 1L));
+        hub.publish(change(1L, 10L, 1L));
+
+        assertThat(listener.next()).isEqualTo(change(1L, 10L, 1L));
+        assertThat(listener.changes.poll(100, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void shouldDeliverEveryChangeToSubscriberWithoutUserName() throws Exception {
+        hub = hub(1000);
+        RecordingListener listener = new RecordingListener();
+        hub.subscribe(null, listener);
+
+        hub.publish(change(2L, 20L, 1L));
+
+        assertThat(listener.next()).isEqualTo(change(2L, 20L, 1L));
+    }
+
+    @Test
+    void shouldDeliverOnlyTheLatestQueuedChangeOfASecuritySystemToASlowSubscriber() throws Exception {
+        hub = hub(1000);
+        RecordingListener listener = new RecordingListener();
+        listener.blockFirstDelivery();
+        hub.subscribe("alice", listener);
+
+        hub.publish(change(1L, 10L, 1L));
+        listener.awaitBlocked();
+        hub.publish(change(1L, 10L, 2L));
+        hub.publish(change(1L, 10L, 4L));
+        hub.publish(change(1L, 10L, 3L));
+        listener.unblock();
+
+        assertThat(listener.next()).isEqualTo(change(1L, 10L, 1L));
+        assertThat(listener.next()).isEqualTo(change(1L, 10L, 4L));
+        assertThat(listener.changes.poll(100, TimeUnit.MILLISECONDS)).isNull();
+        assertThat(meterRegistry.get("security_system_service.state_changes.coalesced").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldDisconnectSubscriberThatFallsTooFarBehind() throws Exception {
+        hub = hub(2);
+        RecordingListener listener = new RecordingListener();
+        listener.blockFirstDelivery();
+        hub.subscribe("alice", listener);
+
+        hub.publish(change(1L, 10L, 1L));
+        listener.awaitBlocked();
+        hub.publish(change(2L, 10L, 1L));
+        hub.publish(change(3L, 10L, 1L));
+        hub.publish(change(4L, 10L, 1L));
+        listener.unblock();
+
+        assertThat(listener.overflowed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(listener.next()).isEqualTo(change(1L, 10L, 1L));
+        assertThat(listener.changes.poll(100, TimeUnit.MILLISECONDS)).isNull();
+        assertThat(meterRegistry.get("security_system_service.state_changes.overflow_disconnects").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("security_system_service.state_changes.subscribers").gauge().value()).isZero();
+    }
+
+    @Test
+    void shouldPublishAfterTheTransactionCommits() throws Exception {
+        hub = hub(1000);
+        RecordingListener listener = new RecordingListener();
+        hub.subscribe(null, listener);
+
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            hub.publish(change(1L, 10L, 1L));
+            assertThat(listener.changes.poll(100, TimeUnit.MILLISECONDS)).isNull();
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(listener.next()).isEqualTo(change(1L, 10L, 1L));
+    }
+
+    @Test
+    void shouldStopDeliveringAfterClose() throws Exception {
+        hub = hub(1000);
+        RecordingListener listener = new RecordingListener();
+        SecuritySystemStateChangeSubscription subscription = hub.subscribe(null, listener);
+
+        subscription.close();
+        hub.publish(change(1L, 10L, 1L));
+
+        assertThat(listener.changes.poll(100, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void shouldDeliverChangesPublishedByAnotherInstance() throws Exception {
+        hub = hub(1000);
+        SecuritySystemStateChangeHub otherInstance = hub(1000);
+        try {
+            RecordingListener listener = new RecordingListener();
+            hub.subscribe("alice", listener);
+
+            otherInstance.publish(change(1L, 10L, 1L));
+
+            assertThat(listener.next()).isEqualTo(change(1L, 10L, 1L));
+            assertThat(listener.changes.poll(100, TimeUnit.MILLISECONDS)).isNull();
+        } finally {
+            otherInstance.destroy();
+        }
+    }
+
+    @Test
+    void shouldFilterUsingTheReplicaWhenThereIsNoIndex() throws Exception {
+        LocationRolesReplica locationRolesReplica = (userName, locationId) ->
+            userName.equals("alice") && locationId == 10L ? Set.of(RolesAndPermissions.SECURITY_SYSTEM_VIEWER) : Set.of();
+        hub = new SecuritySystemStateChangeHub(new InMemorySecuritySystemStateChangeBus(), Optional.empty(), Optional.of(locationRolesReplica),
+            new LocationRolesCacheImpl(100, Duration.ofMinutes(1), meterRegistry), 1, 1000, 100, meterRegistry);
+        RecordingListener listener = new RecordingListener();
+        hub.subscribe("alice", listener);
+
+        hub.publish(change(2L, 20L, 1L));
+        hub.publish(change(1L, 10L, 1L));
+
+        assertThat(listener.next()).isEqualTo(change(1L, 10L, 1L));
+        assertThat(listener.changes.poll(100, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void shouldRefuseCustomerEmployeeWithoutTheReplica() throws Exception {
+        hub = new SecuritySystemStateChangeHub(new InMemorySecuritySystemStateChangeBus(), Optional.empty(), Optional.empty(), mock(LocationRolesCache.class), 1, 1000, 100, meterRegistry);
+
+        assertThatThrownBy(() -> hub.subscribe("alice", new RecordingListener()))
+            .isInstanceOf(ServiceUnavailableException.class);
+
+        RecordingListener listener = new RecordingListener();
+        hub.subscribe(null, listener);
+        hub.publish(change(1L, 10L, 1L));
+
+        assertThat(listener.next()).isEqualTo(change(1L, 10L, 1L));
+    }
+
+    private SecuritySystemStateChangeHub hub(int maxPendingChanges) {
+        return new SecuritySystemStateChangeHub(bus, Optional.of(locationRoleIndex), Optional.empty(), mock(LocationRolesCache.class),
+            1, maxPendingChanges, 100, meterRegistry);
+    }
+
+    private SecuritySystemStateChange change(Long securitySystemId, Long locationId, Long version) {
+        return new SecuritySystemStateChange(securitySystemId, locationId, SecuritySystemState.ARMED, version);
+    }
+
+    private static class RecordingListener implements SecuritySystemStateChangeListener {
+
+        private final BlockingQueue<SecuritySystemStateChange> changes = new LinkedBlockingQueue<>();
+        private final CountDownLatch overflowed = new CountDownLatch(1);
+        private final CountDownLatch blocked = new CountDownLatch(1);
+        private final CountDownLatch unblocked = new CountDownLatch(1);
+        private volatile boolean blockFirstDelivery;
+
+        void blockFirstDelivery() {
+            blockFirstDelivery = true;
+        }
+
+        void awaitBlocked() throws InterruptedException {
+            assertThat(blocked.await(5, TimeUnit.SECONDS)).isTrue();
+        }
+
+        void unblock() {
+            unblocked.countDown();
+        }
+
+        SecuritySystemStateChange next() throws InterruptedException {
+            return changes.poll(5, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public void stateChanged(SecuritySystemStateChange change) {
+            changes.add(change);
+            if (blockFirstDelivery) {
+                blockFirstDelivery = false;
+                blocked.countDown();
+                try {
+                    unblocked.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        @Override
+        public void overflowed() {
+            overflowed.countDown();
+        }
+    }
+}
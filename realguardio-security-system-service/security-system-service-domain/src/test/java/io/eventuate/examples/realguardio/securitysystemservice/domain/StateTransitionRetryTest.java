@@ -0,0 +1,46 @@
+package io.eventuate.examples.realguardio.securitysystemservice.domain;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StateTransitionRetryTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void shouldGiveUpAfterMaxAttempts() {
+        StateTransitionRetry retry = new StateTransitionRetry(3, Duration.ofMillis(1), Duration.ofMillis(2), 1000, meterRegistry);
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> retry.execute(1L, () -> {
+            attempts.incrementAndGet();
+            throw new OptimisticLockingFailureException("conflict");
+        })).isInstanceOf(OptimisticLockingFailureException.class);
+
+        assertThat(attempts).hasValue(3);
+        assertThat(retry.conflictCount(1L)).isEqualTo(3);
+        assertThat(meterRegistry.get("security_system_service.state_transition.conflicts").counter().count()).isEqualTo(3);
+        assertThat(meterRegistry.get("security_system_service.state_transition.retries_exhausted").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotRetryOtherFailures() {
+        StateTransitionRetry retry = new StateTransitionRetry(3, Duration.ZERO, Duration.ZERO, 1000, meterRegistry);
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> retry.execute(1L, () -> {
+            attempts.incrementAndGet();
+            throw new NotFoundException("Security system not found: 1");
+        })).isInstanceOf(NotFoundException.class);
+
+        assertThat(attempts).hasValue(1);
+        assertThat(retry.conflictCount(1L)).isZero();
+    }
+}
@@ -1,15 +1,62 @@
 package io.eventuate.examples.realguardio.securitysystemservice.main;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
+
 @Configuration
 public class RestTemplateConfiguration {
 
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager restTemplateConnectionManager(@Value("${rest-client.pool.max-total:200}") int maxTotal,
+                                                                            @Value("${rest-client.pool.max-per-route:50}") int maxPerRoute,
+                                                                            @Value("${rest-client.pool.time-to-live:PT5M}") Duration timeToLive,
+                                                                            @Value("${rest-client.connect-timeout:PT2S}") Duration connectTimeout,
+                                                                            MeterRegistry meterRegistry) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+            .setMaxConnTotal(maxTotal)
+            .setMaxConnPerRoute(maxPerRoute)
+            .setDefaultConnectionConfig(ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.of(connectTimeout))
+                .setTimeToLive(TimeValue.of(timeToLive))
+                .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                .build())
+            .build();
+        // Reports leased, available and pending connections, i.e. pool saturation
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "restTemplate").bindTo(meterRegistry);
+        return connectionManager;
+    }
+
     @Bean
-    public RestTemplate restTemplate(RestTemplateBuilder builder) {
-        return builder.build();
+    public RestTemplate restTemplate(RestTemplateBuilder builder,
+                                     PoolingHttpClientConnectionManager restTemplateConnectionManager,
+                                     @Value("${rest-client.read-timeout:PT5S}") Duration readTimeout,
+                                     @Value("${rest-client.pool.acquire-timeout:PT1S}") Duration acquireTimeout) {
+        CloseableHttpClient httpClient = HttpClients.custom()
+            .setConnectionManager(restTemplateConnectionManager)
+            .setDefaultRequestConfig(RequestConfig.custom()
+                .setResponseTimeout(Timeout.of(readTimeout))
+                .setConnectionRequestTimeout(Timeout.of(acquireTimeout))
+                .build())
+            .evictIdleConnections(TimeValue.ofSeconds(30))
+            .build();
+        return builder
+            .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(httpClient))
+            .build();
     }
-}
\ No newline at end of file
+}
@@ -3,6 +3,7 @@ package io.eventuate.examples.realguardio.securitysystemservice.osointegration;
 import io.eventuate.examples.realguardio.securitysystemservice.domain.ForbiddenException;
 import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystemActionAuthorizer;
 import io.eventuate.examples.realguardio.securitysystemservice.domain.UserNameSupplier;
+import io.realguardio.osointegration.ososervice.LocalAuthorizationQuery;
 import io.realguardio.osointegration.ososervice.RealGuardOsoAuthorizer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,11 +28,11 @@ public class OsoLocalSecuritySystemActionAuthorizer implements SecuritySystemAct
     @Override
     public void verifyCanDo(long securitySystemId, String permission) {
         String userId = userNameSupplier.getCurrentUserName();
-        String sqlQuery = realGuardOsoAuthorizer.authorizeLocal(userId, permission, "SecuritySystem", String.valueOf(securitySystemId));
+        LocalAuthorizationQuery query = realGuardOsoAuthorizer.authorizeLocalQuery(userId, permission, "SecuritySystem", String.valueOf(securitySystemId));
 
-        logger.info("Executing local authorization query: {}", sqlQuery);
+        logger.info("Executing local authorization query: {} with parameters {}", query.sql(), query.parameters());
 
-        Boolean allowed = jdbcTemplate.queryForObject(sqlQuery, Boolean.class);
+        Boolean allowed = jdbcTemplate.queryForObject(query.sql(), Boolean.class, query.parameterArray());
 
         if (!Boolean.TRUE.equals(allowed)) {
             logger.warn("User {} lacks {} permission for securitySystemId {}", userId, permission, securitySystemId);
@@ -7,6 +7,7 @@ import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
@@ -16,7 +17,9 @@ import org.testcontainers.junit.jupiter.Container;
 
 import org.springframework.dao.DataIntegrityViolationException;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -106,6 +109,86 @@ abstract class AbstractSecuritySystemRepositoryIntegrationTest {
             .containsExactlyInAnyOrder(SecuritySystemAction.ARM, SecuritySystemAction.DISARM);
     }
 
+    @Test
+    void shouldPageAccessibleSecuritySystemsByKeyset() {
+        String customerEmployeeEmail = "customerEmployee%s@realguard.io".formatted(System.currentTimeMillis());
+
+        long locationId1 = System.currentTimeMillis();
+        long locationId2 = locationId1 + 1;
+        long locationId3 = locationId1 + 2;
+
+        locationRolesReplicaService.saveLocationRole(customerEmployeeEmail, locationId1, RolesAndPermissions.SECURITY_SYSTEM_VIEWER);
+        locationRolesReplicaService.saveLocationRole(customerEmployeeEmail, locationId2, RolesAndPermissions.SECURITY_SYSTEM_VIEWER);
+        locationRolesReplicaService.saveLocationRole(customerEmployeeEmail, locationId3, RolesAndPermissions.SECURITY_SYSTEM_VIEWER);
+
+        SecuritySystem system1 = new SecuritySystem("Oakland office", SecuritySystemState.ARMED);
+        system1.setLocationId(locationId1);
+        SecuritySystem system2 = new SecuritySystem("Berkeley office", SecuritySystemState.DISARMED);
+        system2.setLocationId(locationId2);
+        SecuritySystem system3 = new SecuritySystem("Emeryville office", SecuritySystemState.DISARMED);
+        system3.setLocationId(locationId3);
+
+        Long id1 = repository.save(system1).getId();
+        Long id2 = repository.save(system2).getId();
+        Long id3 = repository.save(system3).getId();
+
+        var firstPage = repository.findAllAccessible(customerEmployeeEmail, Long.MIN_VALUE, 2);
+        assertThat(firstPage).extracting(SecuritySystemProjection::getId).containsExactly(id1, id2);
+
+        var secondPage = repository.findAllAccessible(customerEmployeeEmail, id2, 2);
+        assertThat(secondPage).extracting(SecuritySystemProjection::getId).containsExactly(id3);
+
+        var summaries = repository.findSummaries(id1, Limit.of(2));
+        assertThat(summaries).extracting(SecuritySystemSummary::id).containsExactly(id2, id3);
+    }
+
+    @Test
+    void shouldFindAccessibleSecuritySystemsByIds() {
+        String customerEmployeeEmail = "customerEmployee%s@realguard.io".formatted(System.currentTimeMillis());
+
+        long locationId1 = System.currentTimeMillis();
+        long locationId2 = locationId1 + 1;
+
+        locationRolesReplicaService.saveLocationRole(customerEmployeeEmail, locationId1, RolesAndPermissions.SECURITY_SYSTEM_VIEWER);
+
+        SecuritySystem system1 = new SecuritySystem("Oakland office", SecuritySystemState.ARMED);
+        system1.setLocationId(locationId1);
+        SecuritySystem system2 = new SecuritySystem("Berkeley office", SecuritySystemState.DISARMED);
+        system2.setLocationId(locationId2);
+
+        Long id1 = repository.save(system1).getId();
+        Long id2 = repository.save(system2).getId();
+
+        assertThat(repository.findAccessibleByIds(customerEmployeeEmail, List.of(id1, id2)))
+            .extracting(SecuritySystemProjection::getId).containsExactly(id1);
+        assertThat(repository.findExistingIds(List.of(id2, Long.MAX_VALUE))).containsExactly(id2);
+    }
+
+    @Test
+    void shouldFindIdsAuthorizedThroughATeamLocationRole() {
+        String customerEmployeeEmail = "customerEmployee%s@realguard.io".formatted(System.currentTimeMillis());
+        String teamId = "team" + System.currentTimeMillis();
+
+        long locationId1 = System.currentTimeMillis();
+        long locationId2 = locationId1 + 1;
+
+        locationRolesReplicaService.saveTeamMember(teamId, customerEmployeeEmail);
+        locationRolesReplicaService.saveTeamLocationRole(teamId, RolesAndPermissions.SECURITY_SYSTEM_ARMER, locationId1);
+        locationRolesReplicaService.saveTeamLocationRole(teamId, RolesAndPermissions.SECURITY_SYSTEM_VIEWER, locationId2);
+
+        SecuritySystem system1 = new SecuritySystem("Oakland office", SecuritySystemState.DISARMED);
+        system1.setLocationId(locationId1);
+        SecuritySystem system2 = new SecuritySystem("Berkeley office", SecuritySystemState.DISARMED);
+        system2.setLocationId(locationId2);
+
+        Long id1 = repository.save(system1).getId();
+        Long id2 = repository.save(system2).getId();
+
+        assertThat(repository.findIdsWithLocationRole(customerEmployeeEmail,
+            RolesAndPermissions.rolesForPermission(RolesAndPermissions.ARM), List.of(id1, id2)))
+            .containsExactly(id1);
+    }
+
     @Test
     void shouldSaveAndRetrieveLocationId() {
         SecuritySystem securitySystem = new SecuritySystem("Oakland office",
@@ -164,4 +247,17 @@ abstract class AbstractSecuritySystemRepositoryIntegrationTest {
             .isInstanceOf(DataIntegrityViolationException.class);
     }
 
-}
\ No newline at end of file
+    @Test
+    void shouldUpdateStateOnlyFromAllowedStates() {
+        SecuritySystem disarmed = repository.saveAndFlush(new SecuritySystem("Oakland office", SecuritySystemState.DISARMED));
+        SecuritySystem alarmed = repository.saveAndFlush(new SecuritySystem("Hayward office", SecuritySystemState.ALARMED));
+        Set<SecuritySystemState> fromStates = SecuritySystem.statesAllowing(SecuritySystemAction.ARM);
+
+        assertThat(repository.updateStateReturningVersion(disarmed.getId(), SecuritySystemState.ARMED, fromStates)).isPresent();
+        assertThat(repository.updateStateReturningVersion(alarmed.getId(), SecuritySystemState.ARMED, fromStates)).isEmpty();
+
+        assertThat(repository.findStateById(disarmed.getId())).contains(SecuritySystemState.ARMED);
+        assertThat(repository.findStateById(alarmed.getId())).contains(SecuritySystemState.ALARMED);
+    }
+
+}
@@ -1,5 +1,6 @@
 package io.eventuate.examples.realguardio.securitysystemservice.persistence;
 
+import io.eventuate.examples.realguardio.securitysystemservice.domain.LocationRolesCache;
 import io.eventuate.examples.realguardio.securitysystemservice.locationroles.domain.LocationRolesReplicaService;
 import io.eventuate.examples.realguardio.securitysystemservice.locationroles.persistence.JdbcLocationRolesRepository;
 import io.eventuate.examples.realguardio.securitysystemservice.osointegration.OsoSecuritySystemActionAuthorizerConfiguration;
@@ -11,6 +12,8 @@ import org.springframework.context.annotation.Import;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
+import static org.mockito.Mockito.mock;
+
 @DataJpaTest
 @Testcontainers
 @AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
@@ -21,7 +24,7 @@ public class SecuritySystemRepositoryIntegrationTest extends AbstractSecuritySys
     static class Config {
         @Bean
         LocationRolesReplicaService locationRolesReplicaService(JdbcTemplate jdbcTemplate) {
-            return new LocationRolesReplicaService(new JdbcLocationRolesRepository(jdbcTemplate));
+            return new LocationRolesReplicaService(new JdbcLocationRolesRepository(jdbcTemplate), mock(LocationRolesCache.class), null, null, null);
         }
     }
 
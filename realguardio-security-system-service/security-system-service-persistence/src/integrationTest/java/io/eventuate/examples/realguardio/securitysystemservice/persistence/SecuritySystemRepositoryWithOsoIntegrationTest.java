@@ -1,5 +1,6 @@
 package io.eventuate.examples.realguardio.securitysystemservice.persistence;
 
+import io.eventuate.examples.realguardio.securitysystemservice.domain.LocationRolesCache;
 import io.eventuate.examples.realguardio.securitysystemservice.domain.RolesAndPermissions;
 import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystem;
 import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystemRepositoryWithOso;
@@ -20,6 +21,7 @@ import org.springframework.test.context.ActiveProfiles;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
 
 @DataJpaTest
 @Testcontainers
@@ -32,7 +34,7 @@ public class SecuritySystemRepositoryWithOsoIntegrationTest extends AbstractSecu
     static class Config {
         @Bean
         LocationRolesReplicaService locationRolesReplicaService(JdbcTemplate jdbcTemplate) {
-            return new LocationRolesReplicaService(new JdbcLocationRolesRepository(jdbcTemplate));
+            return new LocationRolesReplicaService(new JdbcLocationRolesRepository(jdbcTemplate), mock(LocationRolesCache.class), null, null, null);
         }
     }
 
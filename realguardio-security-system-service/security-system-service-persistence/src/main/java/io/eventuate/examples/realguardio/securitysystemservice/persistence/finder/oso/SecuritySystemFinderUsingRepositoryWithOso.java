@@ -5,7 +5,10 @@ import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySy
 import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystemRepositoryWithOso;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public class SecuritySystemFinderUsingRepositoryWithOso implements SecuritySystemFinder {
 
@@ -16,4 +19,24 @@ public class SecuritySystemFinderUsingRepositoryWithOso implements SecuritySyste
     public List<SecuritySystemProjection> findAllAccessible(String userName) {
         return securitySystemRepository.findAllAccessible(userName);
     }
+
+    @Override
+    public List<SecuritySystemProjection> findAllAccessible(String userName, Long afterId, int limit) {
+        return securitySystemRepository.findAllAccessible(userName, afterId, limit);
+    }
+
+    @Override
+    public Stream<SecuritySystemProjection> streamAllAccessible(String userName) {
+        return securitySystemRepository.streamAllAccessible(userName);
+    }
+
+    @Override
+    public List<SecuritySystemProjection> findAccessibleByIds(String userName, Collection<Long> securitySystemIds) {
+        return securitySystemRepository.findAccessibleByIds(userName, securitySystemIds);
+    }
+
+    @Override
+    public Set<Long> findAuthorizedIds(String userName, String permission, Collection<Long> securitySystemIds) {
+        return securitySystemRepository.findAuthorizedIds(userName, permission, securitySystemIds);
+    }
 }
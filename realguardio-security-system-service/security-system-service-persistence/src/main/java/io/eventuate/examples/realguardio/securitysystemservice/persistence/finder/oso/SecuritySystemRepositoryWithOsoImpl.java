@@ -3,12 +3,23 @@ package io.eventuate.examples.realguardio.securitysystemservice.persistence.find
 import io.eventuate.examples.realguardio.securitysystemservice.domain.RolesAndPermissions;
 import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystemProjection;
 import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystemRepositoryWithOso;
+import io.realguardio.osointegration.ososervice.LocalAuthorizationQuery;
 import io.realguardio.osointegration.ososervice.RealGuardOsoAuthorizer;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -16,6 +27,19 @@ public class SecuritySystemRepositoryWithOsoImpl implements SecuritySystemReposi
 
     private static final Logger logger = getLogger(SecuritySystemRepositoryWithOsoImpl.class);
 
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    private static final RowMapper<SecuritySystemProjection> SECURITY_SYSTEM_PROJECTION_MAPPER =
+        (rs, rowNum) -> new SecuritySystemProjectionImpl(
+            rs.getLong("id"),
+            rs.getString("locationName"),
+            rs.getString("state"),
+            rs.getLong("locationId"),
+            rs.getString("rejectionReason"),
+            rs.getLong("version"),
+            (String[]) rs.getArray("roles").getArray()
+        );
+
     @Autowired
     private RealGuardOsoAuthorizer realGuardOsoAuthorizer;
 
@@ -24,9 +48,67 @@ public class SecuritySystemRepositoryWithOsoImpl implements SecuritySystemReposi
 
     @Override
     public List<SecuritySystemProjection> findAllAccessible(String userName) {
-        String filterSql = realGuardOsoAuthorizer.listLocal(userName, RolesAndPermissions.VIEW, "SecuritySystem", "ss.id");
-        logger.info("listLocalSql={}", filterSql);
-        String query = """
+        LocalAuthorizationQuery filter = accessibleFilter(userName);
+        String query = accessibleSecuritySystemsQuery(filter, "", "");
+
+        return jdbcTemplate.query(query, SECURITY_SYSTEM_PROJECTION_MAPPER, parameters(userName, filter));
+    }
+
+    @Override
+    public List<SecuritySystemProjection> findAllAccessible(String userName, Long afterId, int limit) {
+        LocalAuthorizationQuery filter = accessibleFilter(userName);
+        String query = accessibleSecuritySystemsQuery(filter, " AND ss.id > ?", " ORDER BY ss.id LIMIT ?");
+
+        return jdbcTemplate.query(query, SECURITY_SYSTEM_PROJECTION_MAPPER, parameters(userName, filter, afterId, limit));
+    }
+
+    @Override
+    public List<SecuritySystemProjection> findAccessibleByIds(String userName, Collection<Long> securitySystemIds) {
+        if (securitySystemIds.isEmpty())
+            return List.of();
+        LocalAuthorizationQuery filter = accessibleFilter(userName);
+        String query = accessibleSecuritySystemsQuery(filter, " AND ss.id IN (" + placeholders(securitySystemIds.size()) + ")", "");
+
+        return jdbcTemplate.query(query, SECURITY_SYSTEM_PROJECTION_MAPPER, parameters(userName, filter, securitySystemIds.toArray()));
+    }
+
+    @Override
+    public Stream<SecuritySystemProjection> streamAllAccessible(String userName) {
+        LocalAuthorizationQuery filter = accessibleFilter(userName);
+        String query = accessibleSecuritySystemsQuery(filter, "", " ORDER BY ss.id");
+        Object[] parameters = parameters(userName, filter);
+
+        return jdbcTemplate.queryForStream(connection -> {
+            PreparedStatement ps = connection.prepareStatement(query);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            new ArgumentPreparedStatementSetter(parameters).setValues(ps);
+            return ps;
+        }, SECURITY_SYSTEM_PROJECTION_MAPPER);
+    }
+
+    private LocalAuthorizationQuery accessibleFilter(String userName) {
+        LocalAuthorizationQuery filter = realGuardOsoAuthorizer.listLocalQuery(userName, RolesAndPermissions.VIEW, "SecuritySystem", "ss.id");
+        logger.info("listLocalSql={} parameters={}", filter.sql(), filter.parameters());
+        return filter;
+    }
+
+    // The parameters in the order of the placeholders: the join's user name, the filter's and then the additional ones
+    private static Object[] parameters(String userName, LocalAuthorizationQuery filter, Object... additionalParameters) {
+        List<Object> parameters = new ArrayList<>();
+        parameters.add(userName);
+        parameters.addAll(filter.parameters());
+        parameters.addAll(Arrays.asList(additionalParameters));
+        return parameters.toArray();
+    }
+
+    private static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+
+    // The user's roles come from effective_location_role, which the location-roles replica maintains
+    // from direct, team and customer-level role assignments
+    private String accessibleSecuritySystemsQuery(LocalAuthorizationQuery filter, String additionalCondition, String orderAndLimit) {
+        return """
                 SELECT
                   ss.id                                   AS id,
                   ss.location_name                        AS locationName,
@@ -34,42 +116,26 @@ public class SecuritySystemRepositoryWithOsoImpl implements SecuritySystemReposi
                   ss.location_id                          AS locationId,
                   ss.rejection_reason                     AS rejectionReason,
                   ss.version                              AS version,
-                  (SELECT COALESCE(array_agg(DISTINCT role_name), ARRAY[]::VARCHAR[])
-                   FROM (
-                     -- Direct location roles
-                     SELECT role_name
-                     FROM customer_employee_location_role
-                     WHERE location_id = ss.location_id
-                       AND user_name = ?
-                     UNION
-                     -- Team-based location roles
-                     SELECT tlr.role_name
-                     FROM team_members tm
-                     JOIN team_location_roles tlr ON tm.team_id = tlr.team_id
-                     WHERE tlr.location_id = ss.location_id
-                       AND tm.customer_employee_id = ?
-                     UNION
-                     -- Customer-level roles
-                     SELECT cecr.role_name
-                     FROM customer_employee_customer_roles cecr
-                     JOIN locations loc ON cecr.customer_id = loc.customer_id
-                     WHERE loc.id = ss.location_id
-                       AND cecr.customer_employee_id = ?
-                   ) all_roles)                           AS roles
+                  COALESCE(ARRAY_AGG(DISTINCT elr.role_name) FILTER (WHERE elr.role_name IS NOT NULL),
+                           ARRAY[]::VARCHAR[])            AS roles
                 FROM security_system ss
-                WHERE
-                """ + filterSql;
-
-        return jdbcTemplate.query(query,
-            (rs, rowNum) -> new SecuritySystemProjectionImpl(
-                rs.getLong("id"),
-                rs.getString("locationName"),
-                rs.getString("state"),
-                rs.getLong("locationId"),
-                rs.getString("rejectionReason"),
-                rs.getLong("version"),
-                (String[]) rs.getArray("roles").getArray()
-            ),
-            userName, userName, userName);
+                LEFT JOIN effective_location_role elr
+                  ON elr.location_id = ss.location_id
+                 AND elr.user_name = ?
+                WHERE (
+                """ + filter.sql() + ")" + additionalCondition + " GROUP BY ss.id" + orderAndLimit;
+    }
+
+    @Override
+    public Set<Long> findAuthorizedIds(String userName, String permission, Collection<Long> securitySystemIds) {
+        LocalAuthorizationQuery filter = realGuardOsoAuthorizer.listLocalQuery(userName, permission, "SecuritySystem", "ss.id");
+        logger.info("listLocalSql={} parameters={}", filter.sql(), filter.parameters());
+        String query = "SELECT ss.id FROM security_system ss WHERE ss.id IN ("
+                + placeholders(securitySystemIds.size())
+                + ") AND (" + filter.sql() + ")";
+
+        List<Object> parameters = new ArrayList<>(securitySystemIds);
+        parameters.addAll(filter.parameters());
+        return new HashSet<>(jdbcTemplate.queryForList(query, Long.class, parameters.toArray()));
     }
 }
@@ -1,11 +1,16 @@
 package io.eventuate.examples.realguardio.securitysystemservice.persistence.finder.repository;
 
+import io.eventuate.examples.realguardio.securitysystemservice.domain.RolesAndPermissions;
 import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystemFinder;
 import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystemProjection;
 import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystemRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public class SecuritySystemFinderUsingRepository implements SecuritySystemFinder {
 
@@ -16,4 +21,25 @@ public class SecuritySystemFinderUsingRepository implements SecuritySystemFinder
     public List<SecuritySystemProjection> findAllAccessible(String userName) {
         return securitySystemRepository.findAllAccessible(userName);
     }
+
+    @Override
+    public List<SecuritySystemProjection> findAllAccessible(String userName, Long afterId, int limit) {
+        return securitySystemRepository.findAllAccessible(userName, afterId, limit);
+    }
+
+    @Override
+    public Stream<SecuritySystemProjection> streamAllAccessible(String userName) {
+        return securitySystemRepository.streamAllAccessible(userName);
+    }
+
+    @Override
+    public List<SecuritySystemProjection> findAccessibleByIds(String userName, Collection<Long> securitySystemIds) {
+        return securitySystemRepository.findAccessibleByIds(userName, securitySystemIds);
+    }
+
+    @Override
+    public Set<Long> findAuthorizedIds(String userName, String permission, Collection<Long> securitySystemIds) {
+        return new HashSet<>(securitySystemRepository.findIdsWithLocationRole(userName,
+            RolesAndPermissions.rolesForPermission(permission), securitySystemIds));
+    }
 }
@@ -0,0 +1,35 @@
+package io.eventuate.examples.realguardio.securitysystemservice.restapi;
+
+import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystemAction;
+
+import java.util.List;
+
+public class BulkSecuritySystemActionRequest {
+
+    private List<Long> ids;
+    private SecuritySystemAction action;
+
+    public BulkSecuritySystemActionRequest() {
+    }
+
+    public BulkSecuritySystemActionRequest(List<Long> ids, SecuritySystemAction action) {
+        this.ids = ids;
+        this.action = action;
+    }
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+
+    public SecuritySystemAction getAction() {
+        return action;
+    }
+
+    public void setAction(SecuritySystemAction action) {
+        this.action = action;
+    }
+}
@@ -1,6 +1,7 @@
 package io.eventuate.examples.realguardio.securitysystemservice.restapi;
 
 import io.eventuate.examples.realguardio.securitysystemservice.domain.ForbiddenException;
+import io.eventuate.examples.realguardio.securitysystemservice.domain.ServiceUnavailableException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
@@ -18,4 +19,10 @@ public class GlobalExceptionHandler {
         logger.warn("Access forbidden: {}", ex.getMessage());
         return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
     }
+
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<Void> handleServiceUnavailableException(ServiceUnavailableException ex) {
+        logger.warn("Service unavailable: {}", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+    }
 }
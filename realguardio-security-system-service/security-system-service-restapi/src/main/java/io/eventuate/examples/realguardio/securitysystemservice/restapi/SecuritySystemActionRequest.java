@@ -6,6 +6,9 @@ public class SecuritySystemActionRequest {
     
     private SecuritySystemAction action;
 
+    // Optional: the capability from the security system's list row, which saves re-checking authorization
+    private String capability;
+
     public SecuritySystemActionRequest() {
     }
 
@@ -20,4 +23,12 @@ public class SecuritySystemActionRequest {
     public void setAction(SecuritySystemAction action) {
         this.action = action;
     }
+
+    public String getCapability() {
+        return capability;
+    }
+
+    public void setCapability(String capability) {
+        this.capability = capability;
+    }
 }
\ No newline at end of file
@@ -1,33 +1,138 @@
 package io.eventuate.examples.realguardio.securitysystemservice.restapi;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystem;
 import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystemAction;
+import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystemActionOutcomes;
 import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystemService;
+import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystemStateChangeSubscription;
 import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystems;
+import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystemsByIds;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.List;
 
 @RestController
 public class SecuritySystemController {
 
   private final SecuritySystemService securitySystemService;
+  private final ObjectMapper objectMapper;
+  private final int defaultPageSize;
+  private final int maxPageSize;
+  private final Duration stateChangesTimeout;
 
-  public SecuritySystemController(SecuritySystemService securitySystemService) {
+  public SecuritySystemController(SecuritySystemService securitySystemService,
+                                  ObjectMapper objectMapper,
+                                  @Value("${security-system-list.default-page-size:100}") int defaultPageSize,
+                                  @Value("${security-system-list.max-page-size:1000}") int maxPageSize,
+                                  @Value("${security-system.state-changes.sse-timeout:PT30M}") Duration stateChangesTimeout) {
     this.securitySystemService = securitySystemService;
+    this.objectMapper = objectMapper;
+    this.defaultPageSize = defaultPageSize;
+    this.maxPageSize = maxPageSize;
+    this.stateChangesTimeout = stateChangesTimeout;
   }
 
+  /**
+   * Returns every accessible security system unless a page is requested with {@code after} and/or {@code limit},
+   * in which case {@code nextCursor} is the {@code after} value for the following page.
+   */
   @GetMapping("/securitysystems")
   @PreAuthorize("hasRole('REALGUARDIO_ADMIN') or hasRole('REALGUARDIO_CUSTOMER_EMPLOYEE')")
-  public SecuritySystems getSecuritySystems() {
-    return new SecuritySystems(securitySystemService.findAll());
+  public ResponseEntity<SecuritySystems> getSecuritySystems(
+          @RequestParam(name = "after", required = false) Long after,
+          @RequestParam(name = "limit", required = false) Integer limit,
+          @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+      if (after == null && limit == null) {
+          return conditional(ifNoneMatch, new SecuritySystems(securitySystemService.findAll()));
+      }
+      if (limit != null && limit <= 0) {
+          return ResponseEntity.badRequest().build();
+      }
+
+      int pageSize = Math.min(limit == null ? defaultPageSize : limit, maxPageSize);
+      return conditional(ifNoneMatch, securitySystemService.findAll(after, pageSize));
+  }
+
+  /**
+   * Returns the requested security systems that the user can view, authorized with one set-based query,
+   * along with the requested ids that were not found or are forbidden.
+   */
+  @GetMapping(value = "/securitysystems", params = "ids")
+  @PreAuthorize("hasRole('REALGUARDIO_ADMIN') or hasRole('REALGUARDIO_CUSTOMER_EMPLOYEE')")
+  public ResponseEntity<SecuritySystemsByIds> getSecuritySystemsByIds(
+          @RequestParam("ids") List<Long> ids,
+          @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+      if (ids.isEmpty() || ids.size() > maxPageSize) {
+          return ResponseEntity.badRequest().build();
+      }
+      SecuritySystemsByIds result = securitySystemService.findByIds(ids);
+      return conditional(ifNoneMatch,
+          SecuritySystemETags.ofCollection(result.securitySystems(), result.notFound(), result.forbidden()), result);
+  }
+
+  @GetMapping(value = "/securitysystems", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  @PreAuthorize("hasRole('REALGUARDIO_ADMIN') or hasRole('REALGUARDIO_CUSTOMER_EMPLOYEE')")
+  public ResponseEntity<StreamingResponseBody> streamSecuritySystems() {
+    StreamingResponseBody body = outputStream ->
+        securitySystemService.streamAll(securitySystem -> {
+          try {
+            outputStream.write(objectMapper.writeValueAsBytes(securitySystem));
+            outputStream.write('\n');
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+    return ResponseEntity.ok()
+        .contentType(MediaType.APPLICATION_NDJSON)
+        .body(body);
   }
   
+  /**
+   * Pushes the committed state changes of the security systems that the user can view as server-sent events,
+   * so that a client can load the list once and then apply the changes instead of polling.
+   * Changes committed by any instance are included; they may arrive out of order, so clients compare versions.
+   */
+  @GetMapping(value = "/securitysystems/state-changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  @PreAuthorize("hasRole('REALGUARDIO_ADMIN') or hasRole('REALGUARDIO_CUSTOMER_EMPLOYEE')")
+  public SseEmitter streamStateChanges() {
+    SseEmitter emitter = new SseEmitter(stateChangesTimeout.toMillis());
+    SecuritySystemStateChangeSubscription subscription = securitySystemService.subscribeToStateChanges(new SseStateChangeListener(emitter));
+    emitter.onCompletion(subscription::close);
+    emitter.onTimeout(subscription::close);
+    emitter.onError(e -> subscription.close());
+    return emitter;
+  }
+
+  /**
+   * Honors If-None-Match: an ETag for the current version that the user was recently authorized to view
+   * is answered with 304 Not Modified using a version-only query.
+   */
   @GetMapping("/securitysystems/{id}")
   @PreAuthorize("hasRole('REALGUARDIO_ADMIN') or hasRole('REALGUARDIO_CUSTOMER_EMPLOYEE')")
-  public ResponseEntity<SecuritySystem> getSecuritySystem(@PathVariable("id") Long id) {
+  public ResponseEntity<SecuritySystem> getSecuritySystem(
+          @PathVariable("id") Long id,
+          @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+    Long cachedVersion = SecuritySystemETags.versionIn(ifNoneMatch, id);
+    if (cachedVersion != null && securitySystemService.isUnchanged(id, cachedVersion)) {
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(SecuritySystemETags.of(id, cachedVersion)).build();
+    }
     return securitySystemService.findById(id)
-        .map(ResponseEntity::ok)
+        .map(securitySystem -> securitySystem.getVersion() == null
+            ? ResponseEntity.ok(securitySystem)
+            : conditional(ifNoneMatch, SecuritySystemETags.of(id, securitySystem.getVersion()), securitySystem))
         .orElse(ResponseEntity.notFound().build());
   }
   
@@ -40,13 +145,41 @@ public class SecuritySystemController {
       SecuritySystem updated;
       
       if (request.getAction() == SecuritySystemAction.ARM) {
-          updated = securitySystemService.arm(id);
+          updated = securitySystemService.arm(id, request.getCapability());
       } else if (request.getAction() == SecuritySystemAction.DISARM) {
-          updated = securitySystemService.disarm(id);
+          updated = securitySystemService.disarm(id, request.getCapability());
       } else {
           return ResponseEntity.badRequest().build();
       }
       
       return ResponseEntity.ok(updated);
   }
+
+  @PostMapping("/securitysystems/actions")
+  @PreAuthorize("hasRole('REALGUARDIO_ADMIN') or hasRole('REALGUARDIO_CUSTOMER_EMPLOYEE')")
+  public ResponseEntity<SecuritySystemActionOutcomes> applySecuritySystemAction(
+          @RequestBody BulkSecuritySystemActionRequest request) {
+
+      if (request.getIds() == null || request.getIds().isEmpty()
+              || (request.getAction() != SecuritySystemAction.ARM && request.getAction() != SecuritySystemAction.DISARM)) {
+          return ResponseEntity.badRequest().build();
+      }
+
+      return ResponseEntity.ok(new SecuritySystemActionOutcomes(
+              securitySystemService.applyAction(request.getIds(), request.getAction())));
+  }
+
+  private ResponseEntity<SecuritySystems> conditional(String ifNoneMatch, SecuritySystems securitySystems) {
+      return conditional(ifNoneMatch, SecuritySystemETags.ofCollection(securitySystems.securitySystems(), securitySystems.nextCursor()), securitySystems);
+  }
+
+  private <T> ResponseEntity<T> conditional(String ifNoneMatch, String etag, T body) {
+      if (etag == null) {
+          return ResponseEntity.ok(body);
+      }
+      if (SecuritySystemETags.matches(ifNoneMatch, etag)) {
+          return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+      }
+      return ResponseEntity.ok().eTag(etag).body(body);
+  }
 }
@@ -0,0 +1,83 @@
+package io.eventuate.examples.realguardio.securitysystemservice.restapi;
+
+import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystemWithActions;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Strong ETags for security systems. A single security system's ETag is derived from its id and @Version,
+ * so it can be checked with a version-only query. A list's ETag is a digest of what the list shows.
+ * A list carrying capabilities has no ETag, since a 304 would leave the client holding expired capabilities.
+ */
+final class SecuritySystemETags {
+
+  private SecuritySystemETags() {
+  }
+
+  static String of(Long id, Long version) {
+    return "\"ss-" + id + "-" + version + "\"";
+  }
+
+  /**
+   * Returns the version in the If-None-Match ETag for the security system, or null if there isn't one.
+   */
+  static Long versionIn(String ifNoneMatch, Long id) {
+    if (ifNoneMatch == null)
+      return null;
+    String prefix = "\"ss-" + id + "-";
+    for (String candidate : ifNoneMatch.split(",")) {
+      String etag = candidate.trim();
+      if (etag.startsWith(prefix) && etag.endsWith("\"") && etag.length() > prefix.length() + 1) {
+        try {
+          return Long.parseLong(etag.substring(prefix.length(), etag.length() - 1));
+        } catch (NumberFormatException e) {
+          return null;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns null if any security system carries a capability.
+   */
+  static String ofCollection(List<SecuritySystemWithActions> securitySystems, Object... additionalState) {
+    if (securitySystems.stream().anyMatch(securitySystem -> securitySystem.capability() != null))
+      return null;
+    StringBuilder content = new StringBuilder();
+    for (SecuritySystemWithActions securitySystem : securitySystems) {
+      content.append(securitySystem.id()).append(':')
+          .append(securitySystem.version()).append(':')
+          .append(securitySystem.state()).append(':')
+          .append(securitySystem.actions().stream().map(Enum::name).sorted().collect(Collectors.joining(",")))
+          .append(';');
+    }
+    for (Object state : additionalState)
+      content.append('|').append(state);
+    return "\"ssl-" + HexFormat.of().formatHex(sha256(content.toString()), 0, 16) + "\"";
+  }
+
+  static boolean matches(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null)
+      return false;
+    for (String candidate : ifNoneMatch.split(",")) {
+      String trimmed = candidate.trim();
+      if (trimmed.equals(etag) || trimmed.equals("*"))
+        return true;
+    }
+    return false;
+  }
+
+  private static byte[] sha256(String content) {
+    try {
+      return MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package io.eventuate.examples.realguardio.securitysystemservice.restapi;
+
+import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystemStateChange;
+import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystemStateChangeListener;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Sends state changes as {@code state-change} events. A subscriber that fell too far behind is sent a
+ * {@code resync} event, telling the client to reload the security systems, and disconnected.
+ */
+class SseStateChangeListener implements SecuritySystemStateChangeListener {
+
+  private final SseEmitter emitter;
+
+  SseStateChangeListener(SseEmitter emitter) {
+    this.emitter = emitter;
+  }
+
+  @Override
+  public void stateChanged(SecuritySystemStateChange change) {
+    try {
+      emitter.send(SseEmitter.event()
+          .id(change.securitySystemId() + "-" + change.version())
+          .name("state-change")
+          .data(change, MediaType.APPLICATION_JSON));
+    } catch (IOException e) {
+      // The client has gone away - the hub closes the subscription
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override
+  public void overflowed() {
+    try {
+      emitter.send(SseEmitter.event().name("resync").data(""));
+      emitter.complete();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
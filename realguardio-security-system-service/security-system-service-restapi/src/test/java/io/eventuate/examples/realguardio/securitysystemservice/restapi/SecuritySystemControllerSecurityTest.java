@@ -59,7 +59,7 @@ class SecuritySystemControllerSecurityTest {
         SecuritySystem system = new SecuritySystem();
         system.setId(1L);
         system.setState(SecuritySystemState.DISARMED);
-        when(securitySystemService.disarm(1L)).thenReturn(system);
+        when(securitySystemService.disarm(1L, null)).thenReturn(system);
 
         mockMvc.perform(put("/securitysystems/1")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -73,7 +73,7 @@ class SecuritySystemControllerSecurityTest {
         SecuritySystem system = new SecuritySystem();
         system.setId(1L);
         system.setState(SecuritySystemState.DISARMED);
-        when(securitySystemService.disarm(1L)).thenReturn(system);
+        when(securitySystemService.disarm(1L, null)).thenReturn(system);
 
         mockMvc.perform(put("/securitysystems/1")
                         .contentType(MediaType.APPLICATION_JSON)
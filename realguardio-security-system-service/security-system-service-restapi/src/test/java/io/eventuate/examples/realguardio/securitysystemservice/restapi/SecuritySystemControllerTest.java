@@ -3,9 +3,16 @@ package io.eventuate.examples.realguardio.securitysystemservice.restapi;
 import io.eventuate.examples.realguardio.securitysystemservice.domain.ForbiddenException;
 import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystem;
 import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystemAction;
+import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystemActionOutcome;
+import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystemActionStatus;
 import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystemService;
 import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystemState;
+import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystemStateChange;
+import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystemStateChangeListener;
+import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystemStateChangeSubscription;
 import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystemWithActions;
+import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystems;
+import io.eventuate.examples.realguardio.securitysystemservice.domain.SecuritySystemsByIds;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.autoconfigure.security.servlet.SecurityAutoConfiguration;
@@ -13,17 +20,34 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.lang.reflect.Field;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(value = SecuritySystemController.class, excludeAutoConfiguration = SecurityAutoConfiguration.class)
@@ -55,6 +79,110 @@ class SecuritySystemControllerTest {
                 .andExpect(jsonPath("$.securitySystems[1].state").value("DISARMED"));
     }
     
+    @Test
+    void shouldReturnPageOfSecuritySystems() throws Exception {
+        var system = new SecuritySystemWithActions(3L, "Office Front Door", SecuritySystemState.ARMED, Set.of(SecuritySystemAction.DISARM));
+
+        when(securitySystemService.findAll(2L, 1)).thenReturn(new SecuritySystems(List.of(system), 3L));
+
+        mockMvc.perform(get("/securitysystems").param("after", "2").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.securitySystems[0].id").value(3))
+                .andExpect(jsonPath("$.securitySystems[0].state").value("ARMED"))
+                .andExpect(jsonPath("$.nextCursor").value(3));
+    }
+
+    @Test
+    void shouldCapPageSize() throws Exception {
+        when(securitySystemService.findAll(null, 1000)).thenReturn(new SecuritySystems(List.of()));
+
+        mockMvc.perform(get("/securitysystems").param("limit", "5000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.securitySystems").isEmpty());
+    }
+
+    @Test
+    void shouldReturnBadRequestForNonPositiveLimit() throws Exception {
+        mockMvc.perform(get("/securitysystems").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturnSecuritySystemsByIds() throws Exception {
+        var system = new SecuritySystemWithActions(1L, "Office Front Door", SecuritySystemState.ARMED, Set.of(SecuritySystemAction.DISARM));
+
+        when(securitySystemService.findByIds(List.of(1L, 2L, 3L)))
+                .thenReturn(new SecuritySystemsByIds(List.of(system), List.of(2L), List.of(3L)));
+
+        mockMvc.perform(get("/securitysystems").param("ids", "1,2,3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.securitySystems[0].id").value(1))
+                .andExpect(jsonPath("$.securitySystems[0].state").value("ARMED"))
+                .andExpect(jsonPath("$.notFound[0]").value(2))
+                .andExpect(jsonPath("$.forbidden[0]").value(3));
+    }
+
+    @Test
+    void shouldReturnBadRequestForTooManyIds() throws Exception {
+        String ids = String.join(",", Collections.nCopies(1001, "1"));
+
+        mockMvc.perform(get("/securitysystems").param("ids", ids))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(securitySystemService);
+    }
+
+    @Test
+    void shouldStreamSecuritySystemsAsNdjson() throws Exception {
+        var system1 = new SecuritySystemWithActions(1L, "Office Front Door", SecuritySystemState.ARMED, Set.of());
+        var system2 = new SecuritySystemWithActions(2L, "Office Back Door", SecuritySystemState.DISARMED, Set.of());
+
+        doAnswer(invocation -> {
+            Consumer<SecuritySystemWithActions> consumer = invocation.getArgument(0);
+            consumer.accept(system1);
+            consumer.accept(system2);
+            return null;
+        }).when(securitySystemService).streamAll(any());
+
+        var result = mockMvc.perform(get("/securitysystems").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        assertThat(body.lines()).hasSize(2);
+        assertThat(body.lines().toList().get(0)).contains("\"id\":1", "\"locationName\":\"Office Front Door\"");
+        assertThat(body.lines().toList().get(1)).contains("\"id\":2", "\"state\":\"DISARMED\"");
+    }
+
+    @Test
+    void shouldStreamStateChangesAsServerSentEvents() throws Exception {
+        AtomicReference<SecuritySystemStateChangeListener> listener = new AtomicReference<>();
+        when(securitySystemService.subscribeToStateChanges(any())).thenAnswer(invocation -> {
+            listener.set(invocation.getArgument(0));
+            return mock(SecuritySystemStateChangeSubscription.class);
+        });
+
+        MvcResult result = mockMvc.perform(get("/securitysystems/state-changes").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        listener.get().stateChanged(new SecuritySystemStateChange(1L, 456L, SecuritySystemState.ARMED, 3L));
+        listener.get().overflowed();
+
+        assertThat(result.getResponse().getContentAsString())
+                .contains("id:1-3", "event:state-change", "\"state\":\"ARMED\"", "event:resync");
+    }
+
+    private void setVersion(SecuritySystem system, Long version) throws Exception {
+        Field versionField = SecuritySystem.class.getDeclaredField("version");
+        versionField.setAccessible(true);
+        versionField.set(system, version);
+    }
+
     private void setId(Object system, Long id) throws Exception {
         Field idField = system.getClass().getDeclaredField("id");
         idField.setAccessible(true);
@@ -68,7 +196,7 @@ class SecuritySystemControllerTest {
         setId(disarmedSystem, systemId);
         disarmedSystem.setLocationId(456L);
         
-        when(securitySystemService.disarm(systemId)).thenReturn(disarmedSystem);
+        when(securitySystemService.disarm(systemId, null)).thenReturn(disarmedSystem);
         
         String requestBody = "{\"action\": \"DISARM\"}";
         
@@ -89,7 +217,7 @@ class SecuritySystemControllerTest {
         setId(armedSystem, systemId);
         armedSystem.setLocationId(456L);
         
-        when(securitySystemService.arm(systemId)).thenReturn(armedSystem);
+        when(securitySystemService.arm(systemId, null)).thenReturn(armedSystem);
         
         String requestBody = "{\"action\": \"ARM\"}";
         
@@ -103,6 +231,22 @@ class SecuritySystemControllerTest {
                 .andExpect(jsonPath("$.locationId").value(456));
     }
 
+    @Test
+    void shouldPassCapabilityToArm() throws Exception {
+        Long systemId = 1L;
+        SecuritySystem armedSystem = new SecuritySystem("Office Front Door", SecuritySystemState.ARMED);
+        setId(armedSystem, systemId);
+        armedSystem.setLocationId(456L);
+
+        when(securitySystemService.arm(systemId, "1.ARM.1700000000000.signature")).thenReturn(armedSystem);
+
+        mockMvc.perform(put("/securitysystems/{id}", systemId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"action\": \"ARM\", \"capability\": \"1.ARM.1700000000000.signature\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("ARMED"));
+    }
+
     @Test
     void shouldReturnBadRequestForInvalidAction() throws Exception {
         Long systemId = 1L;
@@ -133,6 +277,72 @@ class SecuritySystemControllerTest {
 //                .andExpect(jsonPath("$.actions[0]").value("DISARM"));
     }
 
+    @Test
+    void shouldReturnNotModifiedWithoutLoadingUnchangedSecuritySystem() throws Exception {
+        when(securitySystemService.isUnchanged(1L, 7L)).thenReturn(true);
+
+        mockMvc.perform(get("/securitysystems/{id}", 1L).header("If-None-Match", "\"ss-1-7\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"ss-1-7\""));
+
+        verify(securitySystemService, never()).findById(anyLong());
+    }
+
+    @Test
+    void shouldReturnSecuritySystemWithETagWhenVersionChanged() throws Exception {
+        SecuritySystem system = new SecuritySystem("Office Front Door", SecuritySystemState.ARMED);
+        setId(system, 1L);
+        setVersion(system, 8L);
+
+        when(securitySystemService.isUnchanged(1L, 7L)).thenReturn(false);
+        when(securitySystemService.findById(1L)).thenReturn(Optional.of(system));
+
+        mockMvc.perform(get("/securitysystems/{id}", 1L).header("If-None-Match", "\"ss-1-7\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"ss-1-8\""))
+                .andExpect(jsonPath("$.state").value("ARMED"));
+    }
+
+    @Test
+    void shouldReturnNotModifiedForUnchangedList() throws Exception {
+        var system = new SecuritySystemWithActions(1L, "Office Front Door", SecuritySystemState.ARMED, Set.of(SecuritySystemAction.DISARM));
+        when(securitySystemService.findAll()).thenReturn(List.of(system));
+
+        String etag = mockMvc.perform(get("/securitysystems"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/securitysystems").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void shouldTagUnpagedListsOfDifferentSystemsInTheSameStateDifferently() throws Exception {
+        when(securitySystemService.findAll()).thenReturn(
+                List.of(new SecuritySystemWithActions(1L, "Office Front Door", SecuritySystemState.ARMED, 101L, null, 3L, Set.of(SecuritySystemAction.DISARM))),
+                List.of(new SecuritySystemWithActions(2L, "Office Back Door", SecuritySystemState.ARMED, 102L, null, 3L, Set.of(SecuritySystemAction.DISARM))));
+
+        String etag = mockMvc.perform(get("/securitysystems"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/securitysystems").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.securitySystems[0].id").value(2));
+    }
+
+    @Test
+    void shouldNotTagListCarryingCapabilities() throws Exception {
+        var system = new SecuritySystemWithActions(1L, "Office Front Door", SecuritySystemState.ARMED, Set.of(SecuritySystemAction.DISARM))
+                .withCapability("capability");
+        when(securitySystemService.findAll()).thenReturn(List.of(system));
+
+        mockMvc.perform(get("/securitysystems").header("If-None-Match", "*"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("ETag"))
+                .andExpect(jsonPath("$.securitySystems[0].capability").value("capability"));
+    }
+
     @Test
     void shouldReturnNotFoundForNonExistentSecuritySystem() throws Exception {
         Long systemId = 999L;
@@ -147,7 +357,7 @@ class SecuritySystemControllerTest {
     void shouldReturnForbiddenWhenForbiddenExceptionIsThrown() throws Exception {
         Long systemId = 1L;
 
-        when(securitySystemService.arm(anyLong())).thenThrow(new ForbiddenException("Access denied"));
+        when(securitySystemService.arm(anyLong(), any())).thenThrow(new ForbiddenException("Access denied"));
 
         String requestBody = "{\"action\": \"ARM\"}";
 
@@ -157,4 +367,36 @@ class SecuritySystemControllerTest {
                 .andExpect(status().isForbidden());
     }
 
-}
\ No newline at end of file
+    @Test
+    void shouldApplyActionToMultipleSecuritySystems() throws Exception {
+        when(securitySystemService.applyAction(List.of(1L, 2L), SecuritySystemAction.ARM)).thenReturn(List.of(
+                new SecuritySystemActionOutcome(1L, SecuritySystemActionStatus.UPDATED, SecuritySystemState.ARMED),
+                new SecuritySystemActionOutcome(2L, SecuritySystemActionStatus.FORBIDDEN, SecuritySystemState.DISARMED)));
+
+        String requestBody = "{\"ids\": [1, 2], \"action\": \"ARM\"}";
+
+        mockMvc.perform(post("/securitysystems/actions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.outcomes[0].id").value(1))
+                .andExpect(jsonPath("$.outcomes[0].status").value("UPDATED"))
+                .andExpect(jsonPath("$.outcomes[0].state").value("ARMED"))
+                .andExpect(jsonPath("$.outcomes[1].id").value(2))
+                .andExpect(jsonPath("$.outcomes[1].status").value("FORBIDDEN"))
+                .andExpect(jsonPath("$.outcomes[1].state").value("DISARMED"));
+    }
+
+    @Test
+    void shouldReturnBadRequestForInvalidBulkAction() throws Exception {
+        String requestBody = "{\"ids\": [1, 2], \"action\": \"ACKNOWLEDGE\"}";
+
+        mockMvc.perform(post("/securitysystems/actions")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(requestBody))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(securitySystemService);
+    }
+
+}